@@ -3,6 +3,7 @@ package com.example.cepengine;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * CEP引擎应用程序主入口类
@@ -12,15 +13,18 @@ import org.springframework.kafka.annotation.EnableKafka;
  * 主要功能：
  * 1. 启动Spring Boot应用程序
  * 2. 启用Kafka支持
- * 3. 初始化应用程序上下文
+ * 3. 启用定时任务支持
+ * 4. 初始化应用程序上下文
  * 
  * 详细说明：
  * 本类是整个CEP引擎应用程序的入口点。
  * 通过@SpringBootApplication注解，启用自动配置和组件扫描。
  * 通过@EnableKafka注解，启用Kafka消息处理能力。
+ * 通过@EnableScheduling注解，启用规则刷新等定时任务。
  */
 @SpringBootApplication
 @EnableKafka
+@EnableScheduling
 public class CepEngineApplication {
 
     /**
@@ -0,0 +1,56 @@
+package com.example.cepengine.config.affinity;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.TimeoutHandler;
+
+/**
+ * 绑定CPU亲和性的事件处理器包装
+ *
+ * 处理器线程启动时由Disruptor在该线程上调用onStart，此时把线程绑定到分配的核心，
+ * 之后的事件、空闲超时和生命周期回调原样交给被包装的处理器
+ */
+final class AffinityEventHandler<T> implements EventHandler<T>, LifecycleAware, TimeoutHandler {
+
+    /** 被包装的处理器 */
+    private final EventHandler<T> delegate;
+
+    /** 线程亲和性管理器 */
+    private final ThreadAffinity threadAffinity;
+
+    /** 核心集合名称 */
+    private final String coreSet;
+
+    AffinityEventHandler(EventHandler<T> delegate, ThreadAffinity threadAffinity, String coreSet) {
+        this.delegate = delegate;
+        this.threadAffinity = threadAffinity;
+        this.coreSet = coreSet;
+    }
+
+    @Override
+    public void onEvent(T event, long sequence, boolean endOfBatch) throws Exception {
+        delegate.onEvent(event, sequence, endOfBatch);
+    }
+
+    @Override
+    public void onTimeout(long sequence) throws Exception {
+        if (delegate instanceof TimeoutHandler) {
+            ((TimeoutHandler) delegate).onTimeout(sequence);
+        }
+    }
+
+    @Override
+    public void onStart() {
+        threadAffinity.bindCurrentThread(coreSet);
+        if (delegate instanceof LifecycleAware) {
+            ((LifecycleAware) delegate).onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        if (delegate instanceof LifecycleAware) {
+            ((LifecycleAware) delegate).onShutdown();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.cepengine.config.affinity;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linux线程CPU亲和性工具
+ *
+ * 通过taskset（sched_setaffinity的命令行封装）设置内核线程的CPU亲和性
+ *
+ * 主要功能：
+ * 1. 解析"2-5,8"形式的核心列表
+ * 2. 读取当前Java线程对应的内核线程ID
+ * 3. 将指定内核线程绑定到核心列表
+ * 4. 查询核心所在的NUMA节点
+ *
+ * 设计特点：
+ * - 不依赖本地库，只在Linux上且存在taskset时可用
+ * - 绑定失败只返回false，由调用方决定是否记录日志，不影响线程运行
+ */
+@Slf4j
+public final class CpuAffinity {
+
+    /** taskset命令 */
+    private static final String TASKSET = "taskset";
+
+    /** taskset执行超时（秒） */
+    private static final long TASKSET_TIMEOUT_SECONDS = 5;
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * 当前系统是否支持设置线程亲和性
+     */
+    public static boolean isSupported() {
+        if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")
+            || !Files.exists(Paths.get("/proc/thread-self"))) {
+            return false;
+        }
+        try {
+            return run(TASKSET, "-p", String.valueOf(currentProcessId()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析核心列表
+     *
+     * @param cpuList 形如"2-5,8"的核心列表，空白表示未配置
+     * @return 升序排列的核心编号，未配置时为空列表
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static List<Integer> parse(String cpuList) {
+        if (cpuList == null || cpuList.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        TreeSet<Integer> cpus = new TreeSet<>();
+        for (String part : cpuList.split(",")) {
+            String range = part.trim();
+            int dash = range.indexOf('-');
+            try {
+                if (dash < 0) {
+                    cpus.add(Integer.parseInt(range));
+                } else {
+                    int from = Integer.parseInt(range.substring(0, dash).trim());
+                    int to = Integer.parseInt(range.substring(dash + 1).trim());
+                    if (from > to) {
+                        throw new IllegalArgumentException("核心范围无效：" + range);
+                    }
+                    for (int cpu = from; cpu <= to; cpu++) {
+                        cpus.add(cpu);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("核心列表格式错误：" + cpuList, e);
+            }
+        }
+        return new ArrayList<>(cpus);
+    }
+
+    /**
+     * 获取当前Java线程对应的内核线程ID
+     *
+     * @return 内核线程ID
+     * @throws IOException 无法读取/proc/thread-self
+     */
+    public static int currentThreadId() throws IOException {
+        // /proc/thread-self指向<pid>/task/<tid>
+        Path link = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+        return Integer.parseInt(link.getFileName().toString());
+    }
+
+    /**
+     * 列出当前进程的所有内核线程
+     *
+     * @return 内核线程ID
+     * @throws IOException 无法读取/proc/self/task
+     */
+    public static List<Integer> processThreadIds() throws IOException {
+        List<Integer> tids = new ArrayList<>();
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(Paths.get("/proc/self/task"))) {
+            for (Path task : tasks) {
+                tids.add(Integer.parseInt(task.getFileName().toString()));
+            }
+        }
+        return tids;
+    }
+
+    /**
+     * 读取内核线程名称
+     *
+     * @param tid 内核线程ID
+     * @return 线程名称，线程已退出时返回null
+     */
+    public static String threadName(int tid) {
+        try {
+            return new String(Files.readAllBytes(Paths.get("/proc/self/task/" + tid + "/comm")),
+                StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 将内核线程绑定到核心列表
+     *
+     * @param tid 内核线程ID
+     * @param cpuList 核心列表
+     * @return 是否成功
+     */
+    public static boolean bind(int tid, String cpuList) {
+        try {
+            return run(TASKSET, "-p", "-c", cpuList, String.valueOf(tid));
+        } catch (IOException e) {
+            log.debug("设置线程亲和性失败：线程={}, 核心={}", tid, cpuList, e);
+            return false;
+        }
+    }
+
+    /**
+     * 将当前线程绑定到核心列表
+     *
+     * @param cpuList 核心列表
+     * @return 是否成功
+     */
+    public static boolean bindCurrentThread(String cpuList) {
+        try {
+            return bind(currentThreadId(), cpuList);
+        } catch (IOException e) {
+            log.debug("读取当前线程ID失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 查询核心所在的NUMA节点
+     *
+     * @param cpu 核心编号
+     * @return NUMA节点编号，无法确定时返回-1
+     */
+    public static int numaNode(int cpu) {
+        Path dir = Paths.get("/sys/devices/system/cpu/cpu" + cpu);
+        if (!Files.isDirectory(dir)) {
+            return -1;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, "node[0-9]*")) {
+            for (Path entry : entries) {
+                return Integer.parseInt(entry.getFileName().toString().substring(4));
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private static long currentProcessId() {
+        return ProcessHandle.current().pid();
+    }
+
+    private static boolean run(String... command) throws IOException {
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            if (!process.waitFor(TASKSET_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return false;
+        }
+    }
+}
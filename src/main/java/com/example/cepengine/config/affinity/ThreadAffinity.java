@@ -0,0 +1,214 @@
+package com.example.cepengine.config.affinity;
+
+import com.lmax.disruptor.EventHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程亲和性管理器
+ *
+ * 将Disruptor处理器线程、输出阶段线程和Kafka消费线程绑定到配置的核心集合，
+ * 其余JVM线程（GC、JIT编译等）限制在独立的核心集合上
+ *
+ * 主要功能：
+ * 1. 启动时校验核心集合，检查绑定的核心是否跨NUMA节点、是否与JVM核心重叠
+ * 2. 启动时把进程中已有的线程绑定到JVM核心集合，之后由这些线程创建的线程继承该亲和性
+ * 3. 包装事件处理器和线程工厂，线程启动时按轮转方式为每个线程分配集合中的一个核心
+ *
+ * 设计特点：
+ * - 默认关闭，未开启、不是Linux或缺少taskset时所有包装方法原样返回
+ * - 各配置类在创建线程前注入本组件，保证JVM线程的隔离先于专用线程的绑定
+ * - 一个线程独占一个核心，线程数超过核心数时轮转复用并给出警告
+ */
+@Slf4j
+@Component
+public class ThreadAffinity {
+
+    /** 核心集合：流水线处理器线程 */
+    public static final String HANDLER = "handler";
+
+    /** 核心集合：输出阶段线程 */
+    public static final String SINK = "sink";
+
+    /** 核心集合：Kafka消费线程 */
+    public static final String CONSUMER = "consumer";
+
+    /** 是否启用 */
+    @Value("${app.affinity.enabled:false}")
+    private boolean enabled;
+
+    /** 流水线处理器线程使用的核心 */
+    @Value("${app.affinity.handler-cores:}")
+    private String handlerCores;
+
+    /** 输出阶段线程使用的核心 */
+    @Value("${app.affinity.sink-cores:}")
+    private String sinkCores;
+
+    /** Kafka消费线程使用的核心 */
+    @Value("${app.affinity.consumer-cores:}")
+    private String consumerCores;
+
+    /** GC、JIT编译及其他未绑定线程使用的核心 */
+    @Value("${app.affinity.jvm-cores:}")
+    private String jvmCores;
+
+    /** 核心集合名称 → 核心集合 */
+    private final Map<String, CoreSet> coreSets = new HashMap<>();
+
+    /** 是否已生效 */
+    private volatile boolean active;
+
+    /**
+     * 校验配置并隔离JVM线程
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!CpuAffinity.isSupported()) {
+            log.warn("当前系统不支持设置线程亲和性（需要Linux和taskset），线程绑定不生效");
+            return;
+        }
+
+        Map<String, String> configured = new LinkedHashMap<>();
+        configured.put(HANDLER, handlerCores);
+        configured.put(SINK, sinkCores);
+        configured.put(CONSUMER, consumerCores);
+        List<Integer> isolated = CpuAffinity.parse(jvmCores);
+        TreeSet<Integer> nodes = new TreeSet<>();
+        configured.forEach((name, cpuList) -> {
+            List<Integer> cpus = CpuAffinity.parse(cpuList);
+            if (cpus.isEmpty()) {
+                return;
+            }
+            coreSets.put(name, new CoreSet(name, cpus));
+            for (int cpu : cpus) {
+                nodes.add(CpuAffinity.numaNode(cpu));
+                if (isolated.contains(cpu)) {
+                    log.warn("核心{}同时出现在{}核心集合和JVM核心集合中，GC和JIT线程可能抢占该核心", cpu, name);
+                }
+            }
+            log.info("线程亲和性：{}线程使用核心 {}", name, cpus);
+        });
+        nodes.remove(-1);
+        if (nodes.size() > 1) {
+            log.warn("绑定的核心分布在多个NUMA节点 {}，跨节点访问共享的环形缓冲区会增加延迟抖动", nodes);
+        }
+        active = true;
+
+        if (!isolated.isEmpty()) {
+            isolateJvmThreads(jvmCores.trim());
+        }
+    }
+
+    /**
+     * 包装事件处理器，处理器线程启动时绑定到核心集合中的一个核心
+     *
+     * @param handler 事件处理器
+     * @param coreSet 核心集合名称
+     * @return 包装后的处理器，未启用或该集合未配置时原样返回
+     */
+    public <T> EventHandler<T> pin(EventHandler<T> handler, String coreSet) {
+        return isPinned(coreSet) ? new AffinityEventHandler<>(handler, this, coreSet) : handler;
+    }
+
+    /**
+     * 包装线程工厂，新线程开始运行时绑定到核心集合中的一个核心
+     *
+     * @param factory 线程工厂
+     * @param coreSet 核心集合名称
+     * @return 包装后的线程工厂，未启用或该集合未配置时原样返回
+     */
+    public ThreadFactory pin(ThreadFactory factory, String coreSet) {
+        if (!isPinned(coreSet)) {
+            return factory;
+        }
+        return runnable -> factory.newThread(() -> {
+            bindCurrentThread(coreSet);
+            runnable.run();
+        });
+    }
+
+    /**
+     * 核心集合是否生效
+     *
+     * @param coreSet 核心集合名称
+     */
+    public boolean isPinned(String coreSet) {
+        return active && coreSets.containsKey(coreSet);
+    }
+
+    /**
+     * 将当前线程绑定到核心集合中的下一个核心
+     *
+     * @param coreSet 核心集合名称
+     */
+    void bindCurrentThread(String coreSet) {
+        CoreSet set = coreSets.get(coreSet);
+        if (set == null) {
+            return;
+        }
+        int cpu = set.next();
+        if (CpuAffinity.bindCurrentThread(String.valueOf(cpu))) {
+            log.info("线程{}已绑定到核心{}", Thread.currentThread().getName(), cpu);
+        } else {
+            log.warn("线程{}绑定核心{}失败", Thread.currentThread().getName(), cpu);
+        }
+    }
+
+    /**
+     * 将进程中已有的线程绑定到JVM核心集合
+     */
+    private void isolateJvmThreads(String cpuList) {
+        int bound = 0;
+        int failed = 0;
+        try {
+            for (int tid : CpuAffinity.processThreadIds()) {
+                if (CpuAffinity.bind(tid, cpuList)) {
+                    bound++;
+                } else if (CpuAffinity.threadName(tid) != null) {
+                    failed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("列出进程线程失败，JVM线程未隔离", e);
+            return;
+        }
+        log.info("JVM线程已限制在核心 {}：{} 个线程，失败 {} 个", cpuList, bound, failed);
+    }
+
+    /**
+     * 核心集合，按轮转方式分配核心
+     */
+    private static final class CoreSet {
+        private final String name;
+        private final List<Integer> cpus;
+        private final AtomicInteger assigned = new AtomicInteger();
+
+        private CoreSet(String name, List<Integer> cpus) {
+            this.name = name;
+            this.cpus = cpus;
+        }
+
+        private int next() {
+            int index = assigned.getAndIncrement();
+            if (index == cpus.size()) {
+                log.warn("{}线程数超过核心数 {}，开始复用核心", name, cpus.size());
+            }
+            return cpus.get(index % cpus.size());
+        }
+    }
+}
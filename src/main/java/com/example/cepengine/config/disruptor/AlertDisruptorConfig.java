@@ -0,0 +1,83 @@
+package com.example.cepengine.config.disruptor;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.cepengine.config.affinity.ThreadAffinity;
+import com.example.cepengine.config.kafka.consumer.KafkaConsumerGroupProperties;
+import com.example.cepengine.config.kafka.consumer.KafkaListenerContainerFactoryRegistry;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 告警通道Disruptor配置类
+ *
+ * 为告警提供独立于批量数据通道的低延迟执行通道
+ *
+ * 设计特点：
+ * - 独立的小容量环形缓冲区，不与数据通道共享序列
+ * - 默认使用YIELDING等待策略，可配置为BUSY_SPIN换取更低延迟
+ * - 单个专用的最高优先级处理线程
+ * - 告警监听器并发数大于1时自动使用多生产者模式
+ * - 开启线程亲和性后告警线程绑定到handler核心集合
+ */
+@Slf4j
+@Configuration
+public class AlertDisruptorConfig {
+
+  @Value("${app.disruptor.alert.buffer-size:256}")
+  private int bufferSize;
+
+  @Value("${app.disruptor.alert.wait-strategy:YIELDING}")
+  private String waitStrategy;
+
+  private Disruptor<AlertEvent> alertDisruptor;
+
+  /**
+   * 创建告警通道Disruptor实例
+   */
+  @Bean
+  public Disruptor<AlertEvent> alertDisruptor(
+      AlertEventHandler alertEventHandler,
+      KafkaListenerContainerFactoryRegistry factoryRegistry,
+      ThreadAffinity threadAffinity) {
+    // 告警监听器有多个消费线程时，必须使用多生产者模式
+    int listenerConcurrency = factoryRegistry.getProfile(KafkaConsumerGroupProperties.ALERT_GROUP).getConcurrency();
+    ProducerType producerType = listenerConcurrency > 1 ? ProducerType.MULTI : ProducerType.SINGLE;
+
+    alertDisruptor = new Disruptor<>(
+        AlertEvent::new,
+        bufferSize,
+        DisruptorConfig.createThreadFactory("alert-lane-thread-", Thread.MAX_PRIORITY),
+        producerType,
+        DisruptorConfig.getWaitStrategy(waitStrategy));
+
+    alertDisruptor.handleEventsWith(threadAffinity.pin(alertEventHandler, ThreadAffinity.HANDLER));
+    alertDisruptor.setDefaultExceptionHandler(new DisruptorExceptionHandler<>());
+    alertDisruptor.start();
+
+    log.info("告警通道已启动：缓冲区大小={}, 等待策略={}, 生产者模式={}", bufferSize, waitStrategy, producerType);
+    return alertDisruptor;
+  }
+
+  @Bean
+  public RingBuffer<AlertEvent> alertRingBuffer(Disruptor<AlertEvent> alertDisruptor) {
+    return alertDisruptor.getRingBuffer();
+  }
+
+  /**
+   * 在应用关闭时关闭告警通道
+   */
+  @PreDestroy
+  public void shutdown() {
+    if (alertDisruptor != null) {
+      alertDisruptor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.cepengine.config.disruptor;
+
+import lombok.Data;
+
+/**
+ * 告警通道事件实体类
+ * 
+ * 表示在告警专用Disruptor环形缓冲区中传输的告警事件
+ * 
+ * 主要功能：
+ * 1. 封装告警消息内容
+ * 2. 记录告警进入通道的时间，用于延迟统计
+ * 
+ * 详细说明：
+ * 告警通道与批量数据通道相互独立，告警事件不会因数据环形缓冲区饱和而排队。
+ */
+@Data
+public class AlertEvent {
+    /** 告警消息内容 */
+    private String message;
+
+    /** 规则ID */
+    private Long ruleId;
+
+    /** 来源Kafka分区，用于幂等判断 */
+    private int partition = -1;
+
+    /** 来源Kafka偏移量，用于幂等判断 */
+    private long offset = -1L;
+
+    /** 进入告警通道的时间（纳秒，仅用于计算通道内延迟） */
+    private long enqueueNanos;
+
+    /** 事件时间戳 */
+    private Long timestamp;
+
+    /**
+     * 重置事件
+     * 
+     * 清空事件中的数据，准备重用
+     */
+    public void reset() {
+        this.message = null;
+        this.ruleId = null;
+        this.partition = -1;
+        this.offset = -1L;
+        this.enqueueNanos = 0L;
+        this.timestamp = null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.service.DataPersistenceService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.IdempotencyKeys;
+import com.example.cepengine.store.MappedIdempotencyStore;
+import com.example.cepengine.store.SnowflakeIdGenerator;
+import com.lmax.disruptor.EventHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 告警通道事件处理器
+ * 
+ * 在告警专用线程上处理告警事件
+ * 
+ * 主要功能：
+ * 1. 立即将告警转发到告警输出主题
+ * 2. 将原始告警和告警结果的持久化交给异步持久化服务，不阻塞告警线程
+ * 3. 统计告警在通道内的延迟
+ * 
+ * 设计特点：
+ * - 处理路径上没有同步数据库调用
+ * - 只在调试级别记录单条告警日志
+ * - 按来源分区和偏移量做幂等判断，重放的告警不会重复转发和落库；
+ *   转发确认且落库完成后才记录幂等键，崩溃前未完成的告警在重放时重新处理
+ * - 转发失败的告警交给失败处理服务重试，处理异常的告警进入死信主题
+ * - 转发失败回调交给阻塞I/O执行器，不占用Kafka生产者的I/O线程
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertEventHandler implements EventHandler<AlertEvent> {
+
+    /**
+     * Kafka模板，用于转发告警
+     */
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    /**
+     * 异步持久化服务，用于告警落库
+     */
+    private final DataPersistenceService dataPersistenceService;
+
+    /**
+     * 失败处理服务，用于重试转发失败的告警
+     */
+    private final FailureHandlingService failureHandlingService;
+
+    /**
+     * 幂等存储，用于识别重放的告警
+     */
+    private final MappedIdempotencyStore idempotencyStore;
+
+    /**
+     * 雪花ID生成器，用于分配原始告警ID
+     */
+    private final SnowflakeIdGenerator idGenerator;
+
+    /**
+     * 阻塞I/O执行器，执行转发失败回调
+     */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /**
+     * 告警输入主题，作为原始数据来源
+     */
+    @Value("${app.kafka.topic.alert}")
+    private String alertTopic;
+
+    /**
+     * 告警输出主题
+     */
+    @Value("${app.kafka.topic.alert-output}")
+    private String alertOutputTopic;
+
+    /**
+     * 告警通道事件处理方法
+     * 
+     * @param event 待处理的告警事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(AlertEvent event, long sequence, boolean endOfBatch) {
+        try {
+            String message = event.getMessage();
+
+            long key = event.getOffset() >= 0
+                ? IdempotencyKeys.ofRecord(IdempotencyKeys.SCOPE_ALERT, event.getPartition(), event.getOffset(), 0)
+                : 0L;
+            if (key != 0L && idempotencyStore.contains(key)) {
+                log.debug("跳过重复告警：分区={}, 偏移量={}", event.getPartition(), event.getOffset());
+                return;
+            }
+
+            // 先转发到输出主题，保证告警的送达延迟最低
+            CompletableFuture<?> forwarded = forward(message);
+
+            // 持久化交给异步写入线程，原始告警先于告警结果入队
+            LocalDateTime receivedTime = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(event.getTimestamp()), ZoneId.systemDefault());
+            RawData rawData = new RawData();
+            rawData.setId(idGenerator.nextId());
+            rawData.setDataContent(message);
+            rawData.setSource(alertTopic);
+            rawData.setCreatedTime(receivedTime);
+            CompletableFuture<Void> rawPersisted = dataPersistenceService.persistRaw(rawData).toCompletableFuture();
+
+            ProcessedData processedData = new ProcessedData();
+            processedData.setRawDataId(rawData.getId());
+            processedData.setResultContent(message);
+            processedData.setRuleId(event.getRuleId());
+            processedData.setProcessedTime(receivedTime);
+            CompletableFuture<Void> processedPersisted =
+                dataPersistenceService.persistProcessed(processedData).toCompletableFuture();
+
+            if (key != 0L) {
+                CompletableFuture.allOf(forwarded, rawPersisted, processedPersisted)
+                    .thenRun(() -> idempotencyStore.markIfAbsent(key));
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("告警已转发：序号={}, 通道内延迟={}ns", sequence, System.nanoTime() - event.getEnqueueNanos());
+            }
+        } catch (Exception e) {
+            log.error("告警事件处理发生异常：序号={}", sequence, e);
+            failureHandlingService.submitDeadLetter(alertTopic, null, event.getMessage(), e);
+        } finally {
+            event.reset();
+        }
+    }
+
+    /**
+     * 转发告警到输出主题，失败时交给失败处理服务重试
+     * 
+     * @param message 告警消息
+     * @return Kafka确认后完成，发送失败时异常完成
+     */
+    private CompletableFuture<?> forward(String message) {
+        try {
+            return kafkaTemplate.send(alertOutputTopic, message).completable().whenComplete((result, e) -> {
+                if (e != null) {
+                    blockingIoExecutor.execute(
+                        () -> failureHandlingService.submitKafka(alertOutputTopic, null, message, e));
+                }
+            });
+        } catch (Exception e) {
+            failureHandlingService.submitKafka(alertOutputTopic, null, message, e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+}
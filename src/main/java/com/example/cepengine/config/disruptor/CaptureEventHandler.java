@@ -0,0 +1,83 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.service.DataPersistenceService;
+import com.lmax.disruptor.EventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 流水线原始数据采集阶段处理器
+ * 
+ * 将进入流水线的原始消息提交给异步持久化服务，写入raw_data表
+ * 
+ * 设计特点：
+ * - 与解码阶段并行运行，不增加流水线深度
+ * - 原始数据ID由监听器在发布事件时生成，无需数据库往返
+ * - 同一条消息会为每个规则发布一个事件，只有标记了captureRaw的事件才写入，保证每条消息只落库一次
+ * - 输出阶段位于采集阶段之后，处理结果总是晚于对应的原始数据进入写入队列
+ * - 启用预写日志时按批次为未落库的原始数据占位，整批写入完成后预写日志检查点才能越过这一批
+ */
+public class CaptureEventHandler implements EventHandler<DataEvent> {
+
+    /** 异步持久化服务 */
+    private final DataPersistenceService dataPersistenceService;
+
+    /** 原始数据来源名称 */
+    private final String source;
+
+    /** 异步完成跟踪器 */
+    private final CompletionTracker completionTracker;
+
+    /** 本批次的原始数据写入 */
+    private final List<CompletableFuture<Void>> batch = new ArrayList<>();
+
+    /** 本批次第一条写入的序列号，-1表示本批次没有写入 */
+    private long batchFirst = -1L;
+
+    public CaptureEventHandler(DataPersistenceService dataPersistenceService, String source,
+                               CompletionTracker completionTracker) {
+        this.dataPersistenceService = dataPersistenceService;
+        this.source = source;
+        this.completionTracker = completionTracker;
+    }
+
+    /**
+     * 采集原始数据
+     * 
+     * @param event 待采集的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (event.isCaptureRaw() && event.getRawDataId() != null && event.getData() != null) {
+            capture(event, sequence);
+        }
+
+        if (endOfBatch && batchFirst >= 0) {
+            completionTracker.hold(batchFirst);
+            completionTracker.releaseWhenDone(batchFirst,
+                CompletableFuture.allOf(batch.toArray(new CompletableFuture<?>[0])));
+            batch.clear();
+            batchFirst = -1L;
+        }
+    }
+
+    private void capture(DataEvent event, long sequence) {
+        RawData rawData = new RawData();
+        rawData.setId(event.getRawDataId());
+        rawData.setDataContent(event.getData().toString());
+        rawData.setSource(source);
+        if (!completionTracker.isEnabled()) {
+            dataPersistenceService.submitRaw(rawData);
+            return;
+        }
+        if (batchFirst < 0) {
+            batchFirst = sequence;
+        }
+        batch.add(dataPersistenceService.persistRaw(rawData).toCompletableFuture());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.store.IngestJournal;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 主流水线异步完成跟踪器
+ *
+ * 记录仍有异步工作未完成的主流水线序列号，预写日志检查点不能越过其中最小的一个
+ *
+ * 主要功能：
+ * 1. 处理器离开事件前为未完成的原始数据写入、结果发送和持久化占位
+ * 2. 对应的CompletionStage完成后释放占位，失败同样释放，失败的数据已由失败处理服务接管
+ * 3. 提供最小的未完成序列号，供日志阶段计算检查点
+ *
+ * 设计特点：
+ * - 占位必须在处理器的序列号前进之前登记，日志阶段先读取输出阶段进度再读取占位，不会漏掉正在完成的事件
+ * - 同一序列号可以被多次占位，全部释放后才移除
+ * - 按批次占位，只登记批次中最小的序列号，开销与批次数而不是事件数成正比
+ * - 未启用预写日志时不登记任何占位
+ */
+@Component
+public class CompletionTracker {
+
+    /** 未完成的序列号及其占位次数 */
+    private final ConcurrentSkipListMap<Long, Integer> held = new ConcurrentSkipListMap<>();
+
+    /** 是否启用跟踪 */
+    private final boolean enabled;
+
+    public CompletionTracker(IngestJournal journal) {
+        this.enabled = journal.isEnabled();
+    }
+
+    /**
+     * 是否启用跟踪
+     *
+     * @return 启用预写日志时为true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为序列号占位
+     *
+     * @param sequence 主流水线序列号
+     */
+    public void hold(long sequence) {
+        if (enabled) {
+            held.merge(sequence, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 释放序列号的一次占位
+     *
+     * @param sequence 主流水线序列号
+     */
+    public void release(long sequence) {
+        if (enabled) {
+            held.computeIfPresent(sequence, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * 异步工作完成后释放序列号的一次占位，无论成功还是失败
+     *
+     * @param sequence 主流水线序列号
+     * @param stage 异步工作
+     */
+    public void releaseWhenDone(long sequence, CompletionStage<?> stage) {
+        if (enabled) {
+            stage.whenComplete((ignored, e) -> release(sequence));
+        }
+    }
+
+    /**
+     * 获取最小的未完成序列号
+     *
+     * @return 最小的未完成序列号，没有占位时为Long.MAX_VALUE
+     */
+    public long lowestHeld() {
+        Map.Entry<Long, Integer> first = held.firstEntry();
+        return first != null ? first.getKey() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 是否没有任何占位
+     *
+     * @return 所有异步工作都已完成时为true
+     */
+    public boolean isIdle() {
+        return held.isEmpty();
+    }
+}
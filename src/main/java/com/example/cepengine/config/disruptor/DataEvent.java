@@ -1,7 +1,14 @@
 package com.example.cepengine.config.disruptor;
 
+import com.example.cepengine.engine.CompiledSchema;
+import com.example.cepengine.engine.RuleRuntime;
+import com.example.cepengine.entity.ProcessedData;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Disruptor事件实体类
  * 
@@ -16,6 +23,9 @@ import lombok.Data;
  * 本类是Disruptor事件处理的基本单元。
  * 通过Lombok的@Data注解，自动生成getter、setter和其他常用方法。
  * 可以存储不同类型的事件数据，支持复杂事件处理系统的灵活性。
+ * 事件在流水线各阶段之间传递：采集阶段写入原始数据，解码阶段填充attributes（主题已注册模式时填充schema和slots），
+ * 路由阶段填充ruleRuntime和inputRow，
+ * 评估阶段填充outputs，输出阶段消费outputs后重置事件。
  */
 @Data
 public class DataEvent {
@@ -25,15 +35,48 @@ public class DataEvent {
     /** 规则ID */
     private Long ruleId;
 
-    /** 原始数据ID */
+    /** 原始数据ID，由监听器在发布时生成 */
     private Long rawDataId;
 
+    /** 是否由本事件负责采集原始数据（同一消息的多个规则事件中只有一个为true） */
+    private boolean captureRaw;
+
     /** 事件类型 */
     private String eventType;
 
     /** 事件时间戳 */
     private Long timestamp;
 
+    /** 来源Kafka分区，用于幂等判断 */
+    private int partition = -1;
+
+    /** 来源Kafka偏移量，用于幂等判断 */
+    private long offset = -1L;
+
+    /** 解码后的数据属性（解码阶段填充，主题未注册模式时使用） */
+    private Map<String, Object> attributes;
+
+    /** 解码时使用的主题模式（解码阶段填充） */
+    private CompiledSchema schema;
+
+    /** 按主题模式槽位排列的字段值（解码阶段填充） */
+    private Object[] slots;
+
+    /** 规则运行时（路由阶段填充） */
+    private RuleRuntime ruleRuntime;
+
+    /** 按输入流定义排列的Siddhi输入行（路由阶段填充） */
+    private Object[] inputRow;
+
+    /** 规则输出结果（评估阶段填充），列表实例随事件复用 */
+    private final List<ProcessedData> outputs = new ArrayList<>();
+
+    /** 是否已被前序阶段丢弃 */
+    private boolean dropped;
+
+    /** 事件在完成跟踪器中占位的主流水线序列号，转交隔离通道的事件由隔离通道释放，-1表示没有占位 */
+    private long heldSequence = -1L;
+
     /**
      * 重置事件
      * 
@@ -43,7 +86,18 @@ public class DataEvent {
         this.data = null;
         this.ruleId = null;
         this.rawDataId = null;
+        this.captureRaw = false;
         this.eventType = null;
         this.timestamp = null;
+        this.partition = -1;
+        this.offset = -1L;
+        this.attributes = null;
+        this.schema = null;
+        this.slots = null;
+        this.ruleRuntime = null;
+        this.inputRow = null;
+        this.outputs.clear();
+        this.dropped = false;
+        this.heldSequence = -1L;
     }
 }
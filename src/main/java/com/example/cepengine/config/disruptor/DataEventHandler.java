@@ -1,141 +1,247 @@
 package com.example.cepengine.config.disruptor;
 
+import com.example.cepengine.engine.EvaluationContext;
+import com.example.cepengine.engine.EventTimeBuffer;
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.engine.RuleBudgetTracker;
 import com.example.cepengine.entity.ProcessedData;
-import com.example.cepengine.service.SiddhiRuleService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.IdempotencyKeys;
+import com.example.cepengine.store.MappedIdempotencyStore;
 import com.lmax.disruptor.EventHandler;
-import io.siddhi.core.SiddhiAppRuntime;
-import io.siddhi.core.SiddhiManager;
-import io.siddhi.core.event.Event;
-import io.siddhi.core.stream.input.InputHandler;
-import io.siddhi.core.stream.output.StreamCallback;
-import lombok.RequiredArgsConstructor;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutHandler;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Disruptor数据事件处理器
- * 
- * 负责处理Disruptor环形缓冲区中的数据事件
- * 使用Siddhi规则引擎进行复杂事件处理
- * 
+ * Disruptor数据事件处理器（流水线评估阶段）
+ *
+ * 负责将路由后的事件送入Siddhi规则引擎进行复杂事件处理
+ *
  * 主要功能：
- * 1. 接收和处理Disruptor事件
- * 2. 动态加载和执行Siddhi规则
- * 3. 处理事件并将结果发送到Kafka
- * 4. 管理Siddhi运行时实例缓存
- * 
+ * 1. 接收路由阶段准备好的Siddhi输入行
+ * 2. 调用规则运行时的输入处理器执行规则
+ * 3. 通过评估上下文收集同步产生的规则输出
+ * 4. 统计每次评估的耗时，被隔离规则的事件转交隔离通道
+ * 5. 启用事件时间排序时，带时间字段的事件先进入乱序缓冲区，按事件时间和显式时间戳送入Siddhi
+ *
  * 设计特点：
- * - 使用@Slf4j注解简化日志记录
- * - 通过构造器注入依赖
- * - 支持灵活的事件处理策略
+ * - 多个评估处理器按规则ID分片并行
+ * - 同一规则的事件始终由同一个线程评估，保证规则内的事件顺序
+ * - 输出的发送和持久化由后续输出阶段完成
+ * - 转交隔离通道使用tryNext，通道已满时事件转入死信主题，评估线程不会被隔离规则阻塞，事件也不会丢失
+ * - 缓冲的事件在完成跟踪器中占位；释放后产生的输出由评估线程直接发送，
+ *   按被释放事件自己的（规则ID、来源分区、偏移量、结果序号）做幂等判断，结果完成后释放占位
+ * - 规则转交隔离通道前先清空它的缓冲区，同一规则运行时不会同时由两个线程送入事件；转交的事件保留事件时间
  */
 @Slf4j
-@Component
-@RequiredArgsConstructor
-public class DataEventHandler implements EventHandler<DataEvent> {
+public class DataEventHandler implements EventHandler<DataEvent>, TimeoutHandler {
 
-    /**
-     * Siddhi规则服务，用于获取和管理规则
-     */
-    private final SiddhiRuleService siddhiRuleService;
+    /** 本处理器的分片序号 */
+    private final int ordinal;
 
-    /**
-     * Kafka模板，用于发送处理结果
-     */
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    /** 评估阶段处理器总数 */
+    private final int handlerCount;
 
-    /**
-     * Siddhi管理器，用于创建和管理Siddhi应用运行时
-     */
-    private final SiddhiManager siddhiManager = new SiddhiManager();
+    /** 规则执行预算跟踪器 */
+    private final RuleBudgetTracker budgetTracker;
 
-    /**
-     * Siddhi运行时实例缓存，提高性能和减少重复创建开销
-     */
-    private final Map<Long, SiddhiAppRuntime> runtimeCache = new ConcurrentHashMap<>();
+    /** 隔离通道环形缓冲区 */
+    private final RingBuffer<DataEvent> quarantineRingBuffer;
+
+    /** 失败处理服务，评估失败的输入进入死信主题 */
+    private final FailureHandlingService failureHandlingService;
+
+    /** 事件时间乱序缓冲区，未启用事件时间排序时为null */
+    private final EventTimeBuffer eventTimeBuffer;
+
+    /** 规则结果输出器，发送从缓冲区释放的事件产生的输出 */
+    private final ResultSink resultSink;
+
+    /** 幂等存储，从缓冲区释放的事件的输出在此判重 */
+    private final MappedIdempotencyStore idempotencyStore;
+
+    /** 异步完成跟踪器 */
+    private final CompletionTracker completionTracker;
+
+    public DataEventHandler(int ordinal, int handlerCount, RuleBudgetTracker budgetTracker,
+                            RingBuffer<DataEvent> quarantineRingBuffer, FailureHandlingService failureHandlingService,
+                            EventTimeBuffer eventTimeBuffer, ResultSink resultSink,
+                            MappedIdempotencyStore idempotencyStore, CompletionTracker completionTracker) {
+        this.ordinal = ordinal;
+        this.handlerCount = handlerCount;
+        this.budgetTracker = budgetTracker;
+        this.quarantineRingBuffer = quarantineRingBuffer;
+        this.failureHandlingService = failureHandlingService;
+        this.eventTimeBuffer = eventTimeBuffer;
+        this.resultSink = resultSink;
+        this.idempotencyStore = idempotencyStore;
+        this.completionTracker = completionTracker;
+    }
 
     /**
      * Disruptor事件处理方法
-     * 
+     *
      * 处理从Disruptor环形缓冲区接收的数据事件
-     * 
+     *
      * @param event 待处理的数据事件
      * @param sequence 事件序列号
      * @param endOfBatch 是否为批次中的最后一个事件
-     * @throws Exception 事件处理过程中可能发生的异常
      */
     @Override
-    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) throws Exception {
-        try {
-            // 检查事件是否有效
-            if (event.getData() == null || event.getRuleId() == null) {
-                log.warn("接收到无效事件，跳过处理：事件数据={}, 规则ID={}", event.getData(), event.getRuleId());
-                return;
-            }
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (event.isDropped() || Math.floorMod(event.getRuleId(), handlerCount) != ordinal) {
+            return;
+        }
+
+        if (budgetTracker.isQuarantined(event.getRuleId())) {
+            handOff(event, sequence);
+            return;
+        }
+
+        if (eventTimeBuffer == null) {
+            evaluate(event, null);
+            return;
+        }
+
+        Long eventTime = EventTimeBuffer.eventTimeOf(event);
+        if (eventTime == null) {
+            // 主题没有时间字段，按到达时间送入
+            evaluate(event, event.getTimestamp());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (eventTimeBuffer.add(event, eventTime, sequence, now)) {
+            completionTracker.hold(sequence);
+            release(event.getRuleId(), now);
+        }
+    }
 
-            // 获取或创建Siddhi运行时实例
-            SiddhiAppRuntime runtime = runtimeCache.computeIfAbsent(event.getRuleId(), this::createSiddhiRuntime);
+    /**
+     * 评估线程空闲时释放水位已经越过的事件
+     *
+     * @param sequence 当前序列号
+     */
+    @Override
+    public void onTimeout(long sequence) {
+        if (eventTimeBuffer == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Long ruleId : eventTimeBuffer.ruleIds()) {
+            release(ruleId, now);
+        }
+    }
 
-            // 获取输入处理器
-            String inputStream = runtime.getInputHandler("inputStream").toString();
-            InputHandler inputHandler = runtime.getInputHandler(inputStream);
+    /**
+     * 按事件时间顺序释放规则的缓冲事件
+     *
+     * @param ruleId 规则ID
+     * @param now 当前时间（毫秒）
+     */
+    private void release(Long ruleId, long now) {
+        DataEvent released;
+        while ((released = eventTimeBuffer.poll(ruleId, now)) != null) {
+            evaluate(released, released.getTimestamp());
+            emitReleased(released);
+        }
+    }
 
-            // 发送数据到Siddhi进行处理
-            inputHandler.send(new Object[]{event.getData()});
+    /**
+     * 发送从缓冲区释放的事件产生的输出，全部完成后释放该事件的占位
+     *
+     * 输出前只检查幂等键，完成后才记录，与输出阶段一致
+     *
+     * @param released 已评估的缓冲事件副本
+     */
+    private void emitReleased(DataEvent released) {
+        List<ProcessedData> outputs = released.getOutputs();
+        CompletableFuture<?>[] emitted = new CompletableFuture<?>[outputs.size()];
+        for (int i = 0; i < emitted.length; i++) {
+            long key = released.getOffset() < 0 ? 0L
+                : IdempotencyKeys.ofRecord(released.getRuleId(), released.getPartition(), released.getOffset(), i);
+            if (key != 0L && idempotencyStore.contains(key)) {
+                emitted[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            CompletableFuture<Void> done = resultSink.emit(outputs.get(i)).toCompletableFuture();
+            emitted[i] = key == 0L ? done : done.thenRun(() -> idempotencyStore.markIfAbsent(key));
+        }
+        completionTracker.releaseWhenDone(released.getHeldSequence(), CompletableFuture.allOf(emitted));
+    }
 
-            // 事件处理完成后重置事件
-            event.reset();
+    /**
+     * 将事件送入规则运行时
+     *
+     * @param event 待评估的事件
+     * @param timestamp 显式时间戳，为null时取当前时间
+     */
+    private void evaluate(DataEvent event, Long timestamp) {
+        long start = System.nanoTime();
+        EvaluationContext.begin(event);
+        try {
+            // 发送数据到规则运行时进行处理
+            event.getRuleRuntime().send(timestamp, event.getInputRow());
         } catch (Exception e) {
             log.error("事件处理发生异常：规则ID={}", event.getRuleId(), e);
+            failureHandlingService.submitFailedEvaluation(event.getRuleId(), event.getData(), e);
+        } finally {
+            EvaluationContext.end();
+            budgetTracker.recordEvaluation(event.getRuleId(), System.nanoTime() - start);
         }
     }
 
     /**
-     * 创建Siddhi运行时实例
-     * 
-     * 根据规则ID动态创建Siddhi应用运行时
+     * 将被隔离规则的事件复制到隔离通道
+     *
+     * 先在本线程评估该规则仍在缓冲区中的事件，再转交当前事件；启用事件时间排序时转交的时间戳为事件时间。
+     * 转交的事件在完成跟踪器中占位，由隔离通道的输出阶段在结果完成后释放
      * 
-     * @param ruleId 规则ID
-     * @return Siddhi应用运行时实例
+     * @param event 待转交的事件
+     * @param mainSequence 事件在主流水线中的序列号
      */
-    private SiddhiAppRuntime createSiddhiRuntime(Long ruleId) {
+    private void handOff(DataEvent event, long mainSequence) {
+        Long timestamp = event.getTimestamp();
+        if (eventTimeBuffer != null) {
+            DataEvent buffered;
+            while ((buffered = eventTimeBuffer.drain(event.getRuleId())) != null) {
+                evaluate(buffered, buffered.getTimestamp());
+                emitReleased(buffered);
+            }
+            Long eventTime = EventTimeBuffer.eventTimeOf(event);
+            if (eventTime != null) {
+                timestamp = eventTime;
+            }
+        }
+
+        long sequence;
         try {
-            // 从规则服务获取Siddhi规则定义
-            String siddhiApp = siddhiRuleService.getRuleFromCache(ruleId);
-
-            // 创建并初始化Siddhi运行时
-            SiddhiAppRuntime runtime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
-
-            // 添加输出流回调
-            runtime.addCallback("outputStream", new StreamCallback() {
-                @Override
-                public void receive(Event[] events) {
-                    for (Event event : events) {
-                        // 处理输出数据
-                        String outputData = event.getData()[0].toString();
-
-                        // 发送到Kafka
-                        kafkaTemplate.send("processed-data", outputData);
-
-                        // 保存到数据库
-                        ProcessedData processedData = new ProcessedData();
-                        processedData.setRuleId(ruleId);
-                        processedData.setResultContent(outputData);
-                        // TODO: 保存到数据库
-                    }
-                }
-            });
-
-            runtime.start();
-            log.info("成功创建Siddhi运行时：规则ID={}", ruleId);
-            return runtime;
-        } catch (Exception e) {
-            log.error("创建Siddhi运行时失败：规则ID={}", ruleId, e);
-            throw new RuntimeException("创建Siddhi运行时失败", e);
+            sequence = quarantineRingBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            budgetTracker.recordDropped(event.getRuleId());
+            failureHandlingService.submitFailedEvaluation(event.getRuleId(), event.getData(),
+                new IllegalStateException("隔离通道已满：规则ID=" + event.getRuleId()));
+            return;
+        }
+        completionTracker.hold(mainSequence);
+        try {
+            DataEvent target = quarantineRingBuffer.get(sequence);
+            target.setHeldSequence(mainSequence);
+            target.setData(event.getData());
+            target.setRuleId(event.getRuleId());
+            target.setRawDataId(event.getRawDataId());
+            target.setEventType(event.getEventType());
+            target.setTimestamp(timestamp);
+            target.setPartition(event.getPartition());
+            target.setOffset(event.getOffset());
+            target.setRuleRuntime(event.getRuleRuntime());
+            target.setInputRow(event.getInputRow());
+        } finally {
+            quarantineRingBuffer.publish(sequence);
         }
     }
 }
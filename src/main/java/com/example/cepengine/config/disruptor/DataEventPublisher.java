@@ -0,0 +1,177 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.ActiveRuleSet;
+import com.example.cepengine.engine.DecodedPayload;
+import com.example.cepengine.engine.SiddhiRuntimeManager;
+import com.example.cepengine.entity.SiddhiRule;
+import com.lmax.disruptor.RingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * 数据事件发布器
+ *
+ * 将一条输入消息按活跃规则展开为多个事件，发布到主流水线
+ *
+ * 设计特点：
+ * - 同一消息的规则事件一次性申请连续的序列号区间，整批发布
+ * - 第一个事件负责采集原始数据和写入预写日志
+ * - Kafka监听器和预写日志恢复共用同一发布逻辑
+ * - 有规则带前置过滤条件时先解码一次消息，查询一次判别索引得到可能匹配的规则，
+ *   只为这些规则申请序列号，解码结果随事件传递，解码阶段不再重复解码
+ * - 没有规则匹配时仍发布一个只负责采集原始数据的事件，原始数据和预写日志不受过滤影响
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DataEventPublisher {
+
+    /** 事件类型：数据处理 */
+    private static final String EVENT_TYPE = "DATA_PROCESSING";
+
+    /** 主流水线环形缓冲区 */
+    private final RingBuffer<DataEvent> ringBuffer;
+
+    /** Siddhi运行时管理器，提供活跃规则快照 */
+    private final SiddhiRuntimeManager runtimeManager;
+
+    /** 输入消息解码器 */
+    private final PayloadDecoder payloadDecoder;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 被前置过滤条件跳过的规则事件数 */
+    private Counter filteredCounter;
+
+    /** 每条消息展开的事件数，用于核对自动确定的缓冲区大小 */
+    private DistributionSummary fanOutSummary;
+
+    /**
+     * 注册指标
+     */
+    @PostConstruct
+    public void init() {
+        filteredCounter = Counter.builder("cep.pushdown.filtered")
+            .description("被前置过滤条件跳过、未进入环形缓冲区的规则事件数")
+            .register(meterRegistry);
+        fanOutSummary = DistributionSummary.builder("cep.disruptor.fan-out")
+            .description("每条消息发布到主流水线的事件数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 为每个可能匹配的活跃规则发布一个事件
+     *
+     * @param message 消息内容
+     * @param partition 来源分区
+     * @param offset 来源偏移量
+     * @param rawDataId 原始数据ID
+     * @param timestamp 接收时间戳
+     * @return 是否有活跃规则
+     */
+    public boolean publish(String message, int partition, long offset, long rawDataId, long timestamp) {
+        ActiveRuleSet ruleSet = runtimeManager.getActiveRuleSet();
+        List<SiddhiRule> activeRules = ruleSet.getRules();
+        if (activeRules.isEmpty()) {
+            return false;
+        }
+
+        // 前置过滤：targets为null表示发布给所有规则
+        DecodedPayload payload = null;
+        int[] targets = null;
+        if (ruleSet.getPredicateCount() > 0) {
+            payload = tryDecode(message);
+            if (payload != null) {
+                targets = payloadDecoder.reject(payload) ? new int[0] : ruleSet.candidates(payload);
+            }
+        }
+        int total = targets != null ? targets.length : activeRules.size();
+        if (total < activeRules.size()) {
+            filteredCounter.increment(activeRules.size() - total);
+        }
+        fanOutSummary.record(Math.max(total, 1));
+        if (total == 0) {
+            publishCaptureOnly(message, activeRules.get(0).getId(), partition, offset, rawDataId, timestamp);
+            return true;
+        }
+
+        // 规则数超过缓冲区大小时分段申请，每段内序列号连续
+        int batchSize = ringBuffer.getBufferSize();
+        for (int from = 0; from < total; from += batchSize) {
+            int count = Math.min(batchSize, total - from);
+            long hi = ringBuffer.next(count);
+            long lo = hi - count + 1;
+            try {
+                for (int i = 0; i < count; i++) {
+                    SiddhiRule rule = activeRules.get(targets != null ? targets[from + i] : from + i);
+                    DataEvent event = ringBuffer.get(lo + i);
+                    fill(event, message, rule.getId(), partition, offset, rawDataId, timestamp);
+                    event.setCaptureRaw(from + i == 0);
+                    if (payload != null) {
+                        payload.applyTo(event);
+                    }
+                }
+            } finally {
+                ringBuffer.publish(lo, hi);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最后一个已发布事件的序列号
+     *
+     * 只有单个发布线程时才等于该线程最近一次发布到的序列号，供预写日志恢复使用
+     *
+     * @return 环形缓冲区游标
+     */
+    public long cursor() {
+        return ringBuffer.getCursor();
+    }
+
+    /**
+     * 解码消息，失败时交给解码阶段按原有方式处理
+     */
+    private DecodedPayload tryDecode(String message) {
+        try {
+            return payloadDecoder.decode(message);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 发布只负责采集原始数据的事件，该事件不进入规则评估
+     */
+    private void publishCaptureOnly(String message, Long ruleId, int partition, long offset,
+                                    long rawDataId, long timestamp) {
+        long sequence = ringBuffer.next();
+        try {
+            DataEvent event = ringBuffer.get(sequence);
+            fill(event, message, ruleId, partition, offset, rawDataId, timestamp);
+            event.setCaptureRaw(true);
+            event.setDropped(true);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private void fill(DataEvent event, String message, Long ruleId, int partition, long offset,
+                      long rawDataId, long timestamp) {
+        event.setData(message);
+        event.setRuleId(ruleId);
+        event.setRawDataId(rawDataId);
+        event.setEventType(EVENT_TYPE);
+        event.setTimestamp(timestamp);
+        event.setPartition(partition);
+        event.setOffset(offset);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.DecodedPayload;
+import com.lmax.disruptor.EventHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流水线解码阶段处理器
+ * 
+ * 将事件中的原始JSON消息解析为数据属性
+ * 
+ * 主要功能：
+ * 1. 输入主题已注册模式时，按模式槽位流式提取字段并填充默认值
+ * 2. 缺少必填字段的消息在进入Siddhi之前直接丢弃
+ * 3. 未注册模式时解析完整消息，填充事件的attributes
+ * 4. 标记无效事件，后续阶段直接跳过
+ * 
+ * 设计特点：
+ * - 多个解码处理器按序列号分片并行，每个事件只由一个处理器解码
+ * - 同一消息的多个规则事件中，只有负责采集原始数据的事件记录拒绝日志和指标
+ * - 发布器预过滤时已经解码的事件直接跳过
+ */
+@Slf4j
+public class DecodeEventHandler implements EventHandler<DataEvent> {
+
+    /** 输入消息解码器 */
+    private final PayloadDecoder payloadDecoder;
+
+    /** 本处理器的分片序号 */
+    private final int ordinal;
+
+    /** 解码阶段处理器总数 */
+    private final int handlerCount;
+
+    public DecodeEventHandler(PayloadDecoder payloadDecoder, int ordinal, int handlerCount) {
+        this.payloadDecoder = payloadDecoder;
+        this.ordinal = ordinal;
+        this.handlerCount = handlerCount;
+    }
+
+    /**
+     * 解码事件
+     * 
+     * @param event 待解码的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (sequence % handlerCount != ordinal || event.isDropped() || DecodedPayload.isDecoded(event)) {
+            return;
+        }
+
+        // 检查事件是否有效
+        if (event.getData() == null || event.getRuleId() == null) {
+            log.warn("接收到无效事件，跳过处理：事件数据={}, 规则ID={}", event.getData(), event.getRuleId());
+            event.setDropped(true);
+            return;
+        }
+
+        try {
+            DecodedPayload payload = payloadDecoder.decode(event.getData().toString());
+            if (event.isCaptureRaw() ? payloadDecoder.reject(payload) : payload.missingRequired() != null) {
+                event.setDropped(true);
+                return;
+            }
+            payload.applyTo(event);
+        } catch (Exception e) {
+            log.warn("消息解码失败，跳过处理：规则ID={}, 原因={}", event.getRuleId(), e.getMessage());
+            event.setDropped(true);
+        }
+    }
+}
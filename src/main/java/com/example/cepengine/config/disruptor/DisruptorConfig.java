@@ -1,56 +1,129 @@
 package com.example.cepengine.config.disruptor;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PreDestroy;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
+import com.example.cepengine.config.affinity.ThreadAffinity;
+import com.example.cepengine.config.kafka.consumer.KafkaConsumerGroupProperties;
+import com.example.cepengine.config.kafka.consumer.KafkaConsumerGroupProperties.GroupProfile;
+import com.example.cepengine.config.kafka.consumer.KafkaListenerContainerFactoryRegistry;
+import com.example.cepengine.engine.EventTimeOrdering;
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.engine.RuleBudgetTracker;
+import com.example.cepengine.engine.SiddhiRuntimeManager;
+import com.example.cepengine.service.DataPersistenceService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.IngestJournal;
+import com.example.cepengine.store.MappedIdempotencyStore;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LiteTimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
 import com.lmax.disruptor.dsl.ProducerType;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Disruptor配置类
  * 
  * 负责配置和初始化高性能并发事件处理框架Disruptor
+ * 
+ * 事件处理流水线：（采集 + 预写日志 + 解码） → 路由 → 评估 → 输出
+ * 预写日志阶段可选（app.journal.enabled），启用后路由阶段等待日志刷盘完成
+ * 每个阶段的处理器数量可独立配置，各阶段运行在不同线程上重叠执行，
+ * 最慢的阶段可以单独扩容。
+ *
+ * 自适应模式：
+ * - producer-type为AUTO时，原始数据监听器并发数大于1则使用多生产者模式
+ * - buffer-size为AUTO时，按单次拉取条数、监听器并发数和活跃规则数估算一次拉取展开的事件数，
+ *   取能容纳两次拉取的2的幂，不超过max-buffer-size
+ * - wait-strategy为ADAPTIVE时，有事件时自旋、短暂空闲时让出CPU、长时间空闲时挂起
+ * - 最终选择通过指标cep.disruptor.buffer-size的标签报告
+ *
+ * 开启app.event-time.enabled后，ADAPTIVE和BLOCKING等待策略在挂起时按idle-timeout-ms超时唤醒，
+ * 评估处理器借此释放空闲分区的缓冲事件
+ *
+ * 开启app.affinity.enabled后，输出阶段线程绑定到sink核心集合，其余处理器线程绑定到handler核心集合
  */
+@Slf4j
 @Configuration
 public class DisruptorConfig {
 
-  @Value("${app.disruptor.buffer-size:1024}")
-  private int bufferSize;
+  /** 自适应缓冲区的最小大小 */
+  static final int MIN_AUTO_BUFFER_SIZE = 1024;
+
+  /** ADAPTIVE等待策略的自旋时长（微秒） */
+  private static final long ADAPTIVE_SPIN_MICROS = 100;
+
+  /** ADAPTIVE等待策略自旋后让出CPU的时长（微秒），之后挂起等待 */
+  private static final long ADAPTIVE_YIELD_MICROS = 1000;
+
+  /** Kafka默认的单次拉取条数 */
+  private static final int DEFAULT_MAX_POLL_RECORDS = 500;
+
+  @Value("${app.disruptor.buffer-size:AUTO}")
+  private String bufferSize;
+
+  @Value("${app.disruptor.max-buffer-size:65536}")
+  private int maxBufferSize;
+
+  @Value("${app.kafka.input-topic}")
+  private String inputTopic;
+
+  @Value("${app.disruptor.pipeline.decoder-count:2}")
+  private int decoderCount;
+
+  @Value("${app.disruptor.pipeline.router-count:1}")
+  private int routerCount;
 
-  @Value("${app.disruptor.consumer-count:4}")
-  private int consumerCount;
+  @Value("${app.disruptor.pipeline.evaluator-count:4}")
+  private int evaluatorCount;
 
-  @Value("${app.disruptor.producer-type:SINGLE}")
+  @Value("${app.disruptor.pipeline.sink-count:1}")
+  private int sinkCount;
+
+  @Value("${app.disruptor.pipeline.sink-batch-size:256}")
+  private int sinkBatchSize;
+
+  @Value("${app.disruptor.producer-type:AUTO}")
   private String producerType;
 
-  @Value("${app.disruptor.wait-strategy:SLEEPING}")
+  @Value("${app.disruptor.wait-strategy:ADAPTIVE}")
   private String waitStrategy;
 
-  private ExecutorService executorService;
   private Disruptor<DataEvent> disruptor;
 
   /**
    * 创建自定义的线程工厂
+   *
+   * @param namePrefix 线程名前缀
+   * @param priority 线程优先级
    */
-  private ThreadFactory createThreadFactory() {
+  public static ThreadFactory createThreadFactory(String namePrefix, int priority) {
     return new ThreadFactory() {
       private final AtomicInteger threadCounter = new AtomicInteger(1);
 
       @Override
       public Thread newThread(Runnable r) {
         Thread thread = new Thread(r);
-        thread.setName("disruptor-thread-" + threadCounter.getAndIncrement());
+        thread.setName(namePrefix + threadCounter.getAndIncrement());
+        thread.setPriority(priority);
         thread.setDaemon(true); // 设置为守护线程
         return thread;
       }
@@ -59,9 +132,14 @@ public class DisruptorConfig {
 
   /**
    * 获取等待策略
+   *
+   * @param waitStrategy 等待策略名称：BLOCKING、YIELDING、BUSY_SPIN、ADAPTIVE，其他值使用SLEEPING
    */
-  private WaitStrategy getWaitStrategy() {
+  static WaitStrategy getWaitStrategy(String waitStrategy) {
     switch (waitStrategy.toUpperCase()) {
+      case "ADAPTIVE":
+        return PhasedBackoffWaitStrategy.withLiteLock(
+            ADAPTIVE_SPIN_MICROS, ADAPTIVE_YIELD_MICROS, TimeUnit.MICROSECONDS);
       case "BLOCKING":
         return new com.lmax.disruptor.BlockingWaitStrategy();
       case "YIELDING":
@@ -73,76 +151,225 @@ public class DisruptorConfig {
     }
   }
 
+  /**
+   * 获取挂起等待带超时的等待策略，超时后回调处理器的TimeoutHandler
+   *
+   * @param waitStrategy 等待策略名称
+   * @param timeoutMs 超时（毫秒）
+   * @return ADAPTIVE和BLOCKING返回带超时的版本，其余策略不会挂起，与getWaitStrategy相同
+   */
+  static WaitStrategy getWaitStrategy(String waitStrategy, long timeoutMs) {
+    switch (waitStrategy.toUpperCase()) {
+      case "ADAPTIVE":
+        return new PhasedBackoffWaitStrategy(ADAPTIVE_SPIN_MICROS, ADAPTIVE_YIELD_MICROS, TimeUnit.MICROSECONDS,
+            new LiteTimeoutBlockingWaitStrategy(timeoutMs, TimeUnit.MILLISECONDS));
+      case "BLOCKING":
+        return new TimeoutBlockingWaitStrategy(timeoutMs, TimeUnit.MILLISECONDS);
+      default:
+        log.warn("等待策略{}没有空闲超时，事件时间缓冲区只在新事件到达时释放", waitStrategy);
+        return getWaitStrategy(waitStrategy);
+    }
+  }
+
   /**
    * 创建Disruptor实例
    */
   @Bean
+  @Primary
   public Disruptor<DataEvent> disruptor(
       DataEventFactory dataEventFactory,
-      DataEventHandler dataEventHandler) {
-    // 创建线程池
-    executorService = Executors.newFixedThreadPool(consumerCount, createThreadFactory());
+      PayloadDecoder payloadDecoder,
+      SiddhiRuntimeManager runtimeManager,
+      ResultSink resultSink,
+      MappedIdempotencyStore idempotencyStore,
+      DataPersistenceService dataPersistenceService,
+      RuleBudgetTracker budgetTracker,
+      @Qualifier("quarantineRingBuffer") RingBuffer<DataEvent> quarantineRingBuffer,
+      FailureHandlingService failureHandlingService,
+      IngestJournal ingestJournal,
+      CompletionTracker completionTracker,
+      KafkaListenerContainerFactoryRegistry factoryRegistry,
+      MeterRegistry meterRegistry,
+      ThreadAffinity threadAffinity,
+      EventTimeOrdering eventTimeOrdering) {
+    GroupProfile profile = factoryRegistry.getProfile(KafkaConsumerGroupProperties.DEFAULT_GROUP);
+    ProducerType resolvedProducerType = resolveProducerType(producerType, profile.getConcurrency());
+    int resolvedBufferSize = resolveBufferSize(profile, runtimeManager.getActiveRuleSet().getRules().size());
 
-    // 创建Disruptor实例
+    // 创建Disruptor实例，每个处理器独占一个线程
     disruptor = new Disruptor<>(
         dataEventFactory,
-        bufferSize,
-        executorService,
-        ProducerType.valueOf(producerType.toUpperCase()),
-        getWaitStrategy());
+        resolvedBufferSize,
+        createThreadFactory("disruptor-thread-", Thread.NORM_PRIORITY),
+        resolvedProducerType,
+        eventTimeOrdering.isEnabled()
+            ? getWaitStrategy(waitStrategy, eventTimeOrdering.getIdleTimeoutMs())
+            : getWaitStrategy(waitStrategy));
 
-    // 配置事件处理器
-    disruptor.handleEventsWith(dataEventHandler)
-        .then((event, sequence, endOfBatch) -> {
-          // 事件处理完成后的回调，可用于监控或清理
-        });
+    // 配置流水线各阶段的事件处理器
+    EventHandlerGroup<DataEvent> firstStage = disruptor.handleEventsWith(threadAffinity.pin(
+        new CaptureEventHandler(dataPersistenceService, inputTopic, completionTracker), ThreadAffinity.HANDLER));
+    if (ingestJournal.isEnabled()) {
+      firstStage = firstStage.and(disruptor.handleEventsWith(threadAffinity.pin(
+          new JournalEventHandler(ingestJournal, disruptor.getRingBuffer(), completionTracker), ThreadAffinity.HANDLER)));
+    }
+    firstStage.and(disruptor.handleEventsWith(decoders(payloadDecoder, threadAffinity)))
+        .then(routers(runtimeManager, threadAffinity))
+        .then(evaluators(budgetTracker, quarantineRingBuffer, failureHandlingService, eventTimeOrdering, resultSink,
+            idempotencyStore, completionTracker, threadAffinity))
+        .then(sinks(resultSink, idempotencyStore, completionTracker, threadAffinity));
 
     // 配置异常处理
-    disruptor.setDefaultExceptionHandler(new DisruptorExceptionHandler());
+    disruptor.setDefaultExceptionHandler(new DisruptorExceptionHandler<>());
 
     // 启动Disruptor
     disruptor.start();
 
+    RingBuffer<DataEvent> ringBuffer = disruptor.getRingBuffer();
+    Gauge.builder("cep.disruptor.buffer-size", ringBuffer, RingBuffer::getBufferSize)
+        .description("主流水线环形缓冲区大小")
+        .tag("producer-type", resolvedProducerType.name())
+        .tag("wait-strategy", waitStrategy.toUpperCase())
+        .register(meterRegistry);
+    Gauge.builder("cep.disruptor.remaining-capacity", ringBuffer, RingBuffer::remainingCapacity)
+        .description("主流水线环形缓冲区剩余容量")
+        .register(meterRegistry);
+    log.info("主流水线已启动：缓冲区大小={}, 等待策略={}, 生产者模式={}",
+        resolvedBufferSize, waitStrategy, resolvedProducerType);
+
     return disruptor;
   }
 
-  @Bean
-  public RingBuffer<DataEvent> ringBuffer(Disruptor<DataEvent> disruptor) {
-    return disruptor.getRingBuffer();
+  /**
+   * 确定生产者模式，AUTO时按监听器并发数选择
+   */
+  static ProducerType resolveProducerType(String producerType, int listenerConcurrency) {
+    if ("AUTO".equalsIgnoreCase(producerType)) {
+      return listenerConcurrency > 1 ? ProducerType.MULTI : ProducerType.SINGLE;
+    }
+    ProducerType configured = ProducerType.valueOf(producerType.toUpperCase());
+    if (configured == ProducerType.SINGLE && listenerConcurrency > 1) {
+      log.warn("原始数据监听器并发数为{}，单生产者模式不安全，改用多生产者模式", listenerConcurrency);
+      return ProducerType.MULTI;
+    }
+    return configured;
   }
 
   /**
-   * 在应用关闭时优雅地关闭Disruptor和线程池
+   * 确定缓冲区大小，AUTO时按一次拉取展开的事件数估算，配置值不是2的幂时向上取整
    */
-  @PreDestroy
-  public void shutdown() {
-    if (disruptor != null) {
-      disruptor.shutdown();
+  private int resolveBufferSize(GroupProfile profile, int activeRuleCount) {
+    if (!"AUTO".equalsIgnoreCase(bufferSize)) {
+      int configured = Integer.parseInt(bufferSize.trim());
+      int size = ceilPowerOfTwo(configured);
+      if (size != configured) {
+        log.warn("缓冲区大小{}不是2的幂，调整为{}", configured, size);
+      }
+      return size;
+    }
+    String maxPollRecords = profile.getProperties().get("max.poll.records");
+    int pollRecords = maxPollRecords != null ? Integer.parseInt(maxPollRecords.trim()) : DEFAULT_MAX_POLL_RECORDS;
+    int size = autoBufferSize(pollRecords, profile.getConcurrency(), activeRuleCount, maxBufferSize);
+    log.info("自动确定缓冲区大小：单次拉取{}条 × 并发{} × 活跃规则{} → {}",
+        pollRecords, profile.getConcurrency(), activeRuleCount, size);
+    return size;
+  }
+
+  /**
+   * 按一次拉取展开的事件数估算缓冲区大小，预留两次拉取的余量
+   *
+   * @param pollRecords 单次拉取条数
+   * @param concurrency 监听器并发数
+   * @param ruleCount 活跃规则数，即每条消息展开的事件数上限
+   * @param maxBufferSize 缓冲区大小上限
+   * @return 2的幂
+   */
+  static int autoBufferSize(int pollRecords, int concurrency, int ruleCount, int maxBufferSize) {
+    long perPoll = (long) Math.max(1, pollRecords) * Math.max(1, concurrency) * Math.max(1, ruleCount);
+    int upper = Integer.highestOneBit(Math.max(MIN_AUTO_BUFFER_SIZE, maxBufferSize));
+    return Math.min(upper, ceilPowerOfTwo(Math.max(MIN_AUTO_BUFFER_SIZE, perPoll * 2)));
+  }
+
+  private static int ceilPowerOfTwo(long value) {
+    if (value >= 1 << 30) {
+      return 1 << 30;
     }
-    if (executorService != null) {
-      executorService.shutdown();
+    return value <= 1 ? 1 : Integer.highestOneBit((int) value - 1) << 1;
+  }
+
+  /**
+   * 创建解码阶段处理器，按序列号分片，发布器已解码的事件直接跳过
+   */
+  private EventHandler<DataEvent>[] decoders(PayloadDecoder payloadDecoder, ThreadAffinity threadAffinity) {
+    EventHandler<DataEvent>[] handlers = newHandlers(decoderCount);
+    for (int i = 0; i < decoderCount; i++) {
+      handlers[i] = threadAffinity.pin(new DecodeEventHandler(payloadDecoder, i, decoderCount), ThreadAffinity.HANDLER);
     }
+    return handlers;
   }
-}
 
-/**
- * Disruptor异常处理器
- */
-class DisruptorExceptionHandler implements com.lmax.disruptor.ExceptionHandler<DataEvent> {
-  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DisruptorExceptionHandler.class);
+  /**
+   * 创建路由阶段处理器，按规则ID分片
+   */
+  private EventHandler<DataEvent>[] routers(SiddhiRuntimeManager runtimeManager, ThreadAffinity threadAffinity) {
+    EventHandler<DataEvent>[] handlers = newHandlers(routerCount);
+    for (int i = 0; i < routerCount; i++) {
+      handlers[i] = threadAffinity.pin(new RouteEventHandler(runtimeManager, i, routerCount), ThreadAffinity.HANDLER);
+    }
+    return handlers;
+  }
 
-  @Override
-  public void handleEventException(Throwable ex, long sequence, DataEvent event) {
-    log.error("处理事件时发生异常，序号: {}, 事件: {}", sequence, event, ex);
+  /**
+   * 创建评估阶段处理器，按规则ID分片，被隔离规则的事件转交隔离通道
+   */
+  private EventHandler<DataEvent>[] evaluators(RuleBudgetTracker budgetTracker,
+      RingBuffer<DataEvent> quarantineRingBuffer, FailureHandlingService failureHandlingService,
+      EventTimeOrdering eventTimeOrdering, ResultSink resultSink, MappedIdempotencyStore idempotencyStore,
+      CompletionTracker completionTracker, ThreadAffinity threadAffinity) {
+    EventHandler<DataEvent>[] handlers = newHandlers(evaluatorCount);
+    for (int i = 0; i < evaluatorCount; i++) {
+      handlers[i] = threadAffinity.pin(new DataEventHandler(i, evaluatorCount, budgetTracker, quarantineRingBuffer,
+          failureHandlingService, eventTimeOrdering.newBuffer(), resultSink, idempotencyStore,
+          completionTracker), ThreadAffinity.HANDLER);
+    }
+    return handlers;
   }
 
-  @Override
-  public void handleOnStartException(Throwable ex) {
-    log.error("Disruptor启动时发生异常", ex);
+  /**
+   * 创建输出阶段处理器，按序列号分片
+   */
+  private EventHandler<DataEvent>[] sinks(ResultSink resultSink, MappedIdempotencyStore idempotencyStore,
+      CompletionTracker completionTracker, ThreadAffinity threadAffinity) {
+    EventHandler<DataEvent>[] handlers = newHandlers(sinkCount);
+    for (int i = 0; i < sinkCount; i++) {
+      handlers[i] = threadAffinity.pin(
+          new SinkEventHandler(resultSink, idempotencyStore, completionTracker, i, sinkCount, sinkBatchSize),
+          ThreadAffinity.SINK);
+    }
+    return handlers;
+  }
+
+  /**
+   * 创建指定长度的处理器数组，Java不能直接创建泛型数组
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static EventHandler<DataEvent>[] newHandlers(int count) {
+    return new EventHandler[count];
+  }
+
+  @Bean
+  @Primary
+  public RingBuffer<DataEvent> ringBuffer(Disruptor<DataEvent> disruptor) {
+    return disruptor.getRingBuffer();
   }
 
-  @Override
-  public void handleOnShutdownException(Throwable ex) {
-    log.error("Disruptor关闭时发生异常", ex);
+  /**
+   * 在应用关闭时优雅地关闭Disruptor
+   */
+  @PreDestroy
+  public void shutdown() {
+    if (disruptor != null) {
+      disruptor.shutdown();
+    }
   }
 }
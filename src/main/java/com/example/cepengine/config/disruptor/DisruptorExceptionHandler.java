@@ -0,0 +1,28 @@
+package com.example.cepengine.config.disruptor;
+
+import com.lmax.disruptor.ExceptionHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Disruptor异常处理器
+ *
+ * 主流水线、告警通道和隔离通道共用，记录异常后继续处理后续事件
+ */
+@Slf4j
+class DisruptorExceptionHandler<T> implements ExceptionHandler<T> {
+
+    @Override
+    public void handleEventException(Throwable ex, long sequence, T event) {
+        log.error("处理事件时发生异常，序号: {}, 事件: {}", sequence, event, ex);
+    }
+
+    @Override
+    public void handleOnStartException(Throwable ex) {
+        log.error("Disruptor启动时发生异常", ex);
+    }
+
+    @Override
+    public void handleOnShutdownException(Throwable ex) {
+        log.error("Disruptor关闭时发生异常", ex);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.store.IngestJournal;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流水线预写日志阶段处理器
+ *
+ * 在规则评估之前将输入消息写入本地预写日志，并按批次组提交刷盘
+ *
+ * 主要功能：
+ * 1. 每条消息只由负责采集原始数据的事件写入一次
+ * 2. 在批次末尾统一刷盘，刷盘完成后后续阶段才能看到这一批事件
+ * 3. 根据输出阶段的进度和完成跟踪器推进日志检查点
+ * 4. 向日志报告已刷盘的序列号，启动时重放的记录全部重新写入后才结束恢复
+ *
+ * 设计特点：
+ * - 与采集、解码阶段并行，路由阶段等待刷盘完成
+ * - 记录每个序列号所属消息的日志起始位置，检查点取最早未完成事件所属消息的起始位置
+ * - 事件未完成指输出阶段尚未处理，或原始数据写入、结果发送和持久化的CompletionStage尚未完成
+ * - 监听器整批发布同一消息的规则事件，起始位置随序列号单调递增
+ * - 未完成的事件可能比环形缓冲区落后一圈以上，起始位置表按需扩容，不依赖环形缓冲区的槽位
+ */
+@Slf4j
+public class JournalEventHandler implements EventHandler<DataEvent> {
+
+    /** 输入预写日志 */
+    private final IngestJournal journal;
+
+    /** 主流水线环形缓冲区，用于读取输出阶段的进度 */
+    private final RingBuffer<DataEvent> ringBuffer;
+
+    /** 异步完成跟踪器 */
+    private final CompletionTracker completionTracker;
+
+    /** 序列号base及之后各事件所属消息的日志起始位置，按序列号取模索引 */
+    private long[] recordStarts;
+
+    /** 起始位置表中最小的序列号，更早的事件都已完成 */
+    private long base;
+
+    /** 当前消息的日志起始位置 */
+    private long currentStart;
+
+    /** 已处理的最大序列号 */
+    private long lastSequence = -1L;
+
+    public JournalEventHandler(IngestJournal journal, RingBuffer<DataEvent> ringBuffer,
+                               CompletionTracker completionTracker) {
+        this.journal = journal;
+        this.ringBuffer = ringBuffer;
+        this.completionTracker = completionTracker;
+        this.recordStarts = new long[ringBuffer.getBufferSize()];
+        this.currentStart = journal.position();
+    }
+
+    /**
+     * 写入预写日志，批次末尾组提交
+     *
+     * @param event 待写入的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (event.isCaptureRaw() && event.getRawDataId() != null && event.getData() != null) {
+            currentStart = journal.append(event.getPartition(), event.getOffset(),
+                event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis(),
+                event.getRawDataId(), event.getData().toString());
+        }
+        if (sequence - base >= recordStarts.length) {
+            advanceBase();
+            if (sequence - base >= recordStarts.length) {
+                grow();
+            }
+        }
+        recordStarts[(int) sequence & (recordStarts.length - 1)] = currentStart;
+        lastSequence = sequence;
+
+        if (endOfBatch) {
+            journal.sync();
+            journal.markJournaled(lastSequence);
+            journal.checkpoint(completedPosition());
+        }
+    }
+
+    /**
+     * 计算检查点位置
+     *
+     * 最早未完成事件所属消息的起始位置之前的记录都已完成
+     */
+    private long completedPosition() {
+        long lowest = advanceBase();
+        if (lowest > lastSequence) {
+            return journal.position();
+        }
+        return recordStarts[(int) base & (recordStarts.length - 1)];
+    }
+
+    /**
+     * 将base推进到最早未完成的序列号
+     *
+     * 先读取输出阶段进度再读取完成跟踪器：占位总是在处理器序列号前进之前登记，
+     * 读到的进度之前仍未完成的事件一定已经占位
+     *
+     * @return 最早未完成的序列号
+     */
+    private long advanceBase() {
+        long gating = ringBuffer.getMinimumGatingSequence();
+        long lowest = Math.min(gating + 1, completionTracker.lowestHeld());
+        long next = Math.min(lowest, lastSequence + 1);
+        if (next > base) {
+            base = next;
+        }
+        return lowest;
+    }
+
+    /**
+     * 起始位置表容量翻倍，保留base之后的记录
+     */
+    private void grow() {
+        long[] grown = new long[recordStarts.length << 1];
+        for (long s = base; s <= lastSequence; s++) {
+            grown[(int) s & (grown.length - 1)] = recordStarts[(int) s & (recordStarts.length - 1)];
+        }
+        recordStarts = grown;
+        log.info("预写日志起始位置表扩容：{} 条", grown.length);
+    }
+}
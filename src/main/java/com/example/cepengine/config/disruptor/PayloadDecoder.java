@@ -0,0 +1,78 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.CompiledSchema;
+import com.example.cepengine.engine.DecodedPayload;
+import com.example.cepengine.service.TopicSchemaService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 输入消息解码器
+ *
+ * 解码阶段和发布器共用的解码逻辑
+ *
+ * 主要功能：
+ * 1. 输入主题已注册模式时，按模式槽位流式提取字段并填充默认值
+ * 2. 未注册模式时解析完整消息为属性映射
+ * 3. 记录缺少必填字段被拒绝的消息
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PayloadDecoder {
+
+    /** 属性映射类型 */
+    private static final TypeReference<Map<String, Object>> ATTRIBUTES_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    /** JSON解析器 */
+    private final ObjectMapper objectMapper;
+
+    /** 主题模式注册服务 */
+    private final TopicSchemaService topicSchemaService;
+
+    /** 数据输入主题 */
+    @Value("${app.kafka.input-topic}")
+    private String inputTopic;
+
+    /**
+     * 解码消息
+     *
+     * @param message 消息内容
+     * @return 解码结果
+     * @throws IOException 消息不是合法的JSON对象
+     */
+    public DecodedPayload decode(String message) throws IOException {
+        CompiledSchema schema = topicSchemaService.getSchema(inputTopic);
+        if (schema == null) {
+            return DecodedPayload.ofAttributes(objectMapper.readValue(message, ATTRIBUTES_TYPE));
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(message)) {
+            return DecodedPayload.ofSlots(schema, schema.extract(parser));
+        }
+    }
+
+    /**
+     * 检查必填字段，缺失时记录拒绝日志和指标
+     *
+     * @param payload 解码结果
+     * @return 是否缺少必填字段
+     */
+    public boolean reject(DecodedPayload payload) {
+        String missing = payload.missingRequired();
+        if (missing == null) {
+            return false;
+        }
+        log.warn("消息缺少必填字段，跳过处理：字段={}", missing);
+        topicSchemaService.recordRejected();
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cepengine.config.disruptor;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.cepengine.engine.EventTimeOrdering;
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.engine.RuleBudgetTracker;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.MappedIdempotencyStore;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 隔离通道Disruptor配置类
+ *
+ * 为连续超出执行预算的规则提供独立的低优先级评估通道
+ *
+ * 设计特点：
+ * - 多个评估线程都可能转交事件，使用多生产者模式
+ * - 单个最低优先级线程：评估 → 输出
+ * - 评估阶段使用tryNext转交，通道已满时丢弃并计数，绝不阻塞主流水线
+ * - 只暴露环形缓冲区，不与主流水线的Disruptor争夺同类型Bean
+ */
+@Slf4j
+@Configuration
+public class QuarantineDisruptorConfig {
+
+  @Value("${app.disruptor.quarantine.buffer-size:1024}")
+  private int bufferSize;
+
+  @Value("${app.disruptor.quarantine.wait-strategy:SLEEPING}")
+  private String waitStrategy;
+
+  @Value("${app.disruptor.pipeline.sink-batch-size:256}")
+  private int sinkBatchSize;
+
+  private Disruptor<DataEvent> quarantineDisruptor;
+
+  /**
+   * 创建隔离通道并返回其环形缓冲区
+   */
+  @Bean
+  public RingBuffer<DataEvent> quarantineRingBuffer(
+      DataEventFactory dataEventFactory,
+      RuleBudgetTracker budgetTracker,
+      ResultSink resultSink,
+      MappedIdempotencyStore idempotencyStore,
+      FailureHandlingService failureHandlingService,
+      CompletionTracker completionTracker,
+      EventTimeOrdering eventTimeOrdering) {
+    quarantineDisruptor = new Disruptor<>(
+        dataEventFactory,
+        bufferSize,
+        DisruptorConfig.createThreadFactory("quarantine-lane-thread-", Thread.MIN_PRIORITY),
+        ProducerType.MULTI,
+        DisruptorConfig.getWaitStrategy(waitStrategy));
+
+    quarantineDisruptor.handleEventsWith(
+            new QuarantineEventHandler(budgetTracker, failureHandlingService, eventTimeOrdering.isEnabled()))
+        .then(new SinkEventHandler(resultSink, idempotencyStore, completionTracker, 0, 1, sinkBatchSize));
+    quarantineDisruptor.setDefaultExceptionHandler(new DisruptorExceptionHandler<>());
+    quarantineDisruptor.start();
+
+    log.info("隔离通道已启动：缓冲区大小={}, 等待策略={}", bufferSize, waitStrategy);
+    return quarantineDisruptor.getRingBuffer();
+  }
+
+  /**
+   * 在应用关闭时关闭隔离通道
+   */
+  @PreDestroy
+  public void shutdown() {
+    if (quarantineDisruptor != null) {
+      quarantineDisruptor.shutdown();
+    }
+  }
+}
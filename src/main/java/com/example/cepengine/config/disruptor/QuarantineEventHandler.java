@@ -0,0 +1,60 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.EvaluationContext;
+import com.example.cepengine.engine.RuleBudgetTracker;
+import com.example.cepengine.service.FailureHandlingService;
+import com.lmax.disruptor.EventHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 隔离通道评估处理器
+ * 
+ * 在低优先级的隔离通道线程上评估被隔离规则的事件
+ * 
+ * 设计特点：
+ * - 隔离规则的慢评估只占用隔离通道线程，不再阻塞共享评估线程上的其他规则
+ * - 评估耗时继续计入执行预算统计，便于判断何时解除隔离
+ * - 输出由隔离通道的输出处理器完成，与主流水线的输出规则一致
+ * - 启用事件时间排序时规则运行于回放模式，按评估阶段转交的事件时间送入；隔离通道不再重新排序
+ */
+@Slf4j
+public class QuarantineEventHandler implements EventHandler<DataEvent> {
+
+    /** 规则执行预算跟踪器 */
+    private final RuleBudgetTracker budgetTracker;
+
+    /** 失败处理服务，评估失败的输入进入死信主题 */
+    private final FailureHandlingService failureHandlingService;
+
+    /** 是否按事件时间送入 */
+    private final boolean eventTime;
+
+    public QuarantineEventHandler(RuleBudgetTracker budgetTracker, FailureHandlingService failureHandlingService,
+                                  boolean eventTime) {
+        this.budgetTracker = budgetTracker;
+        this.failureHandlingService = failureHandlingService;
+        this.eventTime = eventTime;
+    }
+
+    /**
+     * 评估隔离规则的事件
+     * 
+     * @param event 由评估阶段转交的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        long start = System.nanoTime();
+        EvaluationContext.begin(event);
+        try {
+            event.getRuleRuntime().send(eventTime ? event.getTimestamp() : null, event.getInputRow());
+        } catch (Exception e) {
+            log.error("隔离通道事件处理发生异常：规则ID={}", event.getRuleId(), e);
+            failureHandlingService.submitFailedEvaluation(event.getRuleId(), event.getData(), e);
+        } finally {
+            EvaluationContext.end();
+            budgetTracker.recordEvaluation(event.getRuleId(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.CompiledSchema;
+import com.example.cepengine.engine.RuleRuntime;
+import com.example.cepengine.engine.SiddhiEventConverter;
+import com.example.cepengine.engine.SiddhiRuntimeManager;
+import com.lmax.disruptor.EventHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流水线路由阶段处理器
+ * 
+ * 为事件定位目标规则的运行时，并按规则输入流定义构建Siddhi输入行
+ * 
+ * 主要功能：
+ * 1. 获取或创建规则运行时
+ * 2. 将解码后的属性按输入流属性顺序转换为输入行
+ * 3. 按主题模式解码的事件通过规则运行时缓存的槽位映射直接取值
+ * 
+ * 设计特点：
+ * - 多个路由处理器按规则ID分片并行
+ * - 运行时创建（规则编译）发生在路由阶段，不占用评估线程
+ */
+@Slf4j
+public class RouteEventHandler implements EventHandler<DataEvent> {
+
+    /** Siddhi运行时管理器 */
+    private final SiddhiRuntimeManager runtimeManager;
+
+    /** 本处理器的分片序号 */
+    private final int ordinal;
+
+    /** 路由阶段处理器总数 */
+    private final int handlerCount;
+
+    public RouteEventHandler(SiddhiRuntimeManager runtimeManager, int ordinal, int handlerCount) {
+        this.runtimeManager = runtimeManager;
+        this.ordinal = ordinal;
+        this.handlerCount = handlerCount;
+    }
+
+    /**
+     * 路由事件
+     * 
+     * @param event 待路由的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (event.isDropped() || Math.floorMod(event.getRuleId(), handlerCount) != ordinal) {
+            return;
+        }
+
+        try {
+            RuleRuntime ruleRuntime = runtimeManager.getRuntime(event.getRuleId());
+            event.setRuleRuntime(ruleRuntime);
+            CompiledSchema schema = event.getSchema();
+            if (schema != null) {
+                event.setInputRow(schema.toInputRow(event.getSlots(), ruleRuntime.projectionFor(schema),
+                    ruleRuntime.getInputAttributes()));
+            } else {
+                event.setInputRow(SiddhiEventConverter.toInputRow(event.getAttributes(), ruleRuntime.getInputAttributes()));
+            }
+        } catch (Exception e) {
+            log.error("事件路由发生异常：规则ID={}", event.getRuleId(), e);
+            event.setDropped(true);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.store.IdempotencyKeys;
+import com.example.cepengine.store.MappedIdempotencyStore;
+import com.lmax.disruptor.EventHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 流水线输出阶段处理器
+ * 
+ * 汇总评估阶段产生的规则输出，按批次发送到Kafka并提交持久化，最后重置事件
+ * 
+ * 设计特点：
+ * - 多个输出处理器按序列号分片并行
+ * - 按（规则ID、来源分区、偏移量、结果序号）做幂等判断，重放的消息不会重复输出；
+ *   输出前只检查幂等键，Kafka确认且落库完成后才记录，崩溃前未完成的输出在重放时重新发送
+ * - 在批次末尾或达到批次上限时统一输出
+ * - 每批输出在完成跟踪器中以批次最小的序列号占位，全部结果完成后释放，预写日志检查点据此前进；
+ *   隔离通道的事件已由评估阶段占位，本阶段在其结果完成后释放
+ * - 事件在流水线最后一个阶段重置，前序阶段无需关心事件复用
+ */
+@Slf4j
+public class SinkEventHandler implements EventHandler<DataEvent> {
+
+    /** 规则结果输出器 */
+    private final ResultSink resultSink;
+
+    /** 幂等存储 */
+    private final MappedIdempotencyStore idempotencyStore;
+
+    /** 本处理器的分片序号 */
+    private final int ordinal;
+
+    /** 输出阶段处理器总数 */
+    private final int handlerCount;
+
+    /** 单批次最大输出条数 */
+    private final int batchSize;
+
+    /** 待输出的结果 */
+    private final List<ProcessedData> pending = new ArrayList<>();
+
+    /** 待输出结果的幂等键，与pending一一对应，0表示不做幂等判断 */
+    private long[] pendingKeys = new long[16];
+
+    /** 异步完成跟踪器 */
+    private final CompletionTracker completionTracker;
+
+    /** 本批次第一条输出所属事件的序列号，-1表示本批次还没有需要占位的输出 */
+    private long batchFirst = -1L;
+
+    /** 本批次中已由评估阶段占位的主流水线序列号 */
+    private long[] heldSequences = new long[16];
+
+    /** heldSequences中的有效个数 */
+    private int heldCount;
+
+    public SinkEventHandler(ResultSink resultSink, MappedIdempotencyStore idempotencyStore,
+                            CompletionTracker completionTracker, int ordinal, int handlerCount, int batchSize) {
+        this.resultSink = resultSink;
+        this.completionTracker = completionTracker;
+        this.idempotencyStore = idempotencyStore;
+        this.ordinal = ordinal;
+        this.handlerCount = handlerCount;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 输出事件结果
+     * 
+     * @param event 待输出的事件
+     * @param sequence 事件序列号
+     * @param endOfBatch 是否为批次中的最后一个事件
+     */
+    @Override
+    public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+        if (sequence % handlerCount == ordinal) {
+            collect(event, sequence);
+            event.reset();
+        }
+
+        if ((!pending.isEmpty() || heldCount > 0) && (endOfBatch || pending.size() >= batchSize)) {
+            CompletableFuture<Void> done;
+            try {
+                done = emitPending();
+            } catch (Exception e) {
+                log.error("批量输出规则结果失败：{} 条", pending.size(), e);
+                done = CompletableFuture.completedFuture(null);
+            } finally {
+                pending.clear();
+            }
+            releaseWhenDone(done);
+        }
+    }
+
+    /**
+     * 收集事件的输出结果并记录需要占位的序列号
+     *
+     * @param event 已评估的事件
+     * @param sequence 事件序列号
+     */
+    private void collect(DataEvent event, long sequence) {
+        int before = pending.size();
+        collectOutputs(event);
+        if (event.getHeldSequence() >= 0) {
+            if (heldCount == heldSequences.length) {
+                heldSequences = Arrays.copyOf(heldSequences, heldCount << 1);
+            }
+            heldSequences[heldCount++] = event.getHeldSequence();
+        } else if (pending.size() > before && batchFirst < 0) {
+            batchFirst = sequence;
+        }
+    }
+
+    /**
+     * 收集事件的输出结果，跳过重放产生的重复结果
+     * 
+     * @param event 已评估的事件
+     */
+    private void collectOutputs(DataEvent event) {
+        List<ProcessedData> outputs = event.getOutputs();
+        for (int i = 0; i < outputs.size(); i++) {
+            long key = event.getOffset() < 0 ? 0L
+                : IdempotencyKeys.ofRecord(event.getRuleId(), event.getPartition(), event.getOffset(), i);
+            if (key != 0L && idempotencyStore.contains(key)) {
+                continue;
+            }
+            if (pending.size() == pendingKeys.length) {
+                pendingKeys = Arrays.copyOf(pendingKeys, pendingKeys.length << 1);
+            }
+            pendingKeys[pending.size()] = key;
+            pending.add(outputs.get(i));
+        }
+    }
+
+    /**
+     * 输出待发送的结果，每条结果完成后记录其幂等键
+     *
+     * @return 全部结果完成后完成
+     */
+    private CompletableFuture<Void> emitPending() {
+        CompletableFuture<?>[] emitted = new CompletableFuture<?>[pending.size()];
+        for (int i = 0; i < emitted.length; i++) {
+            long key = pendingKeys[i];
+            CompletableFuture<Void> done = resultSink.emit(pending.get(i)).toCompletableFuture();
+            emitted[i] = key == 0L ? done : done.thenRun(() -> idempotencyStore.markIfAbsent(key));
+        }
+        return CompletableFuture.allOf(emitted);
+    }
+
+    /**
+     * 本批次结果完成后释放占位
+     *
+     * @param done 本批次全部结果完成的信号
+     */
+    private void releaseWhenDone(CompletableFuture<Void> done) {
+        if (batchFirst >= 0) {
+            completionTracker.hold(batchFirst);
+            completionTracker.releaseWhenDone(batchFirst, done);
+            batchFirst = -1L;
+        }
+        for (int i = 0; i < heldCount; i++) {
+            completionTracker.releaseWhenDone(heldSequences[i], done);
+        }
+        heldCount = 0;
+    }
+}
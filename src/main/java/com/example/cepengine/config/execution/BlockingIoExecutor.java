@@ -0,0 +1,237 @@
+package com.example.cepengine.config.execution;
+
+import com.example.cepengine.config.disruptor.DisruptorConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 阻塞I/O执行器
+ *
+ * 承接数据库写入、Redis缓存加载和Kafka发送回调中的阻塞操作
+ *
+ * 主要功能：
+ * 1. 虚拟线程模式下为每个阻塞任务创建一个虚拟线程，阻塞时不占用平台线程；
+ *    未启用时交给少量平台线程组成的后备线程池，调用线程不会被阻塞任务拖住
+ * 2. 使用有界信号量限制同时进行的数据库操作数，提交方在许可耗尽时等待，形成背压
+ * 3. 为异步服务提供始终不阻塞调用方的数据库执行入口，未启用虚拟线程时使用与许可数相同大小的平台线程池
+ * 4. 关闭时等待已提交的数据库任务完成
+ *
+ * 设计特点：
+ * - 虚拟线程通过反射创建，源码仍按Java 11编译，在JDK 21及以上运行并开启app.execution.virtual-threads后生效
+ * - execute和supply不会在调用线程上执行：调用方可能是Kafka生产者的I/O线程，失败处理中的溢写刷盘不能落在这里
+ * - runDb只由专用的持久化写入线程调用，未启用虚拟线程时仍在调用线程上执行
+ * - 信号量在两种模式下都生效，数据库并发不会超过连接池的承受能力
+ */
+@Slf4j
+@Component
+public class BlockingIoExecutor {
+
+    /** 是否使用虚拟线程 */
+    @Value("${app.execution.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    /** 同时进行的数据库操作上限 */
+    @Value("${app.execution.db-concurrency:8}")
+    private int dbConcurrency;
+
+    /** 未启用虚拟线程时后备线程池的线程数 */
+    @Value("${app.execution.fallback-threads:2}")
+    private int fallbackThreads;
+
+    /** 是否已启用虚拟线程 */
+    private boolean virtual;
+
+    /** 阻塞任务执行器：虚拟线程模式下每任务一个虚拟线程，否则为后备平台线程池 */
+    private ExecutorService executor;
+
+    /** 数据库操作许可 */
+    private Semaphore dbPermits;
+
+    /** 异步数据库执行器：虚拟线程模式下与executor相同，否则为平台线程池 */
+    private ExecutorService asyncDbExecutor;
+
+    /**
+     * 创建阻塞任务执行器
+     */
+    @PostConstruct
+    public void init() {
+        dbPermits = new Semaphore(dbConcurrency);
+        if (virtualThreads) {
+            executor = newVirtualThreadExecutor("blocking-io-virtual-");
+            if (executor == null) {
+                log.warn("当前运行时（Java {}）不支持虚拟线程，阻塞操作改用 {} 个平台线程执行",
+                    System.getProperty("java.specification.version"), fallbackThreads);
+            } else {
+                log.info("阻塞I/O使用虚拟线程执行，数据库并发上限 {}", dbConcurrency);
+            }
+        }
+        virtual = executor != null;
+        if (!virtual) {
+            executor = Executors.newFixedThreadPool(fallbackThreads,
+                DisruptorConfig.createThreadFactory("blocking-io-thread-", Thread.NORM_PRIORITY));
+        }
+        asyncDbExecutor = virtual ? executor : Executors.newFixedThreadPool(dbConcurrency,
+            DisruptorConfig.createThreadFactory("async-db-thread-", Thread.NORM_PRIORITY));
+    }
+
+    /**
+     * 是否在虚拟线程上执行
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 异步执行阻塞任务
+     *
+     * @param task 阻塞任务
+     */
+    public void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 执行器已关闭时仍然执行，避免丢失失败处理等收尾操作
+            task.run();
+        }
+    }
+
+    /**
+     * 异步执行阻塞任务并返回结果
+     *
+     * @param task 阻塞任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return completeInline(task);
+        }
+    }
+
+    /**
+     * 执行数据库任务
+     *
+     * 在调用线程上获取许可，许可耗尽时等待，任务结束后释放
+     *
+     * @param task 数据库任务
+     * @return 任务完成的Future
+     * @throws InterruptedException 等待许可时被中断
+     */
+    public CompletableFuture<Void> runDb(Runnable task) throws InterruptedException {
+        dbPermits.acquire();
+        Supplier<Void> guarded = () -> {
+            try {
+                task.run();
+                return null;
+            } finally {
+                dbPermits.release();
+            }
+        };
+        if (!virtual) {
+            return completeInline(guarded);
+        }
+        try {
+            return CompletableFuture.supplyAsync(guarded, executor);
+        } catch (RejectedExecutionException e) {
+            return completeInline(guarded);
+        }
+    }
+
+    /**
+     * 异步执行数据库查询，调用方不会阻塞
+     *
+     * 查询在执行线程上获取许可，许可耗尽时排队等待
+     *
+     * @param query 数据库查询
+     * @return 查询结果
+     */
+    public <T> CompletableFuture<T> supplyDb(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> withDbPermit(query), asyncDbExecutor);
+    }
+
+    /**
+     * 在调用线程上持有数据库许可执行查询
+     *
+     * @param query 数据库查询
+     * @return 查询结果
+     */
+    public <T> T withDbPermit(Supplier<T> query) {
+        dbPermits.acquireUninterruptibly();
+        try {
+            return query.get();
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    /**
+     * 等待所有进行中的数据库任务完成
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部完成
+     */
+    public boolean awaitDbIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!dbPermits.tryAcquire(dbConcurrency, timeout, unit)) {
+            return false;
+        }
+        dbPermits.release(dbConcurrency);
+        return true;
+    }
+
+    /**
+     * 关闭执行器，等待已提交的任务完成
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        asyncDbExecutor.shutdown();
+        executor.shutdown();
+        if (!asyncDbExecutor.awaitTermination(30, TimeUnit.SECONDS)
+            || !executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("阻塞I/O任务未能在30秒内完成");
+        }
+    }
+
+    private static <T> CompletableFuture<T> completeInline(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(task.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 通过反射创建每任务一个虚拟线程的执行器
+     *
+     * @param namePrefix 线程名前缀
+     * @return 执行器，运行时不支持虚拟线程时返回null
+     */
+    static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cepengine.config.kafka.consumer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Kafka消费者组配置属性
+ *
+ * 绑定application.yml中app.kafka.consumer下的消费者组配置档
+ *
+ * 主要功能：
+ * 1. 按配置档名称（如default-group、archive-group、alert-group）描述消费者组
+ * 2. 为每个配置档提供独立的容器参数（并发数、批量模式、确认模式）
+ * 3. 为每个配置档提供独立的Kafka原生消费者参数（拉取大小、提交间隔等）
+ *
+ * 使用场景：
+ * - 告警流量按低延迟调优
+ * - 归档流量按高吞吐调优
+ * - 数据流量按默认参数处理
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.kafka.consumer")
+public class KafkaConsumerGroupProperties {
+
+  /** 默认配置档名称 */
+  public static final String DEFAULT_GROUP = "default-group";
+
+  /** 归档配置档名称 */
+  public static final String ARCHIVE_GROUP = "archive-group";
+
+  /** 告警配置档名称 */
+  public static final String ALERT_GROUP = "alert-group";
+
+  /**
+   * 消费者组配置档
+   *
+   * 键：配置档名称
+   * 值：配置档详细参数
+   */
+  private Map<String, GroupProfile> groups = new LinkedHashMap<>();
+
+  /**
+   * 单个消费者组配置档
+   */
+  @Data
+  public static class GroupProfile {
+
+    /** 监听容器并发数，即每个监听器的消费线程数 */
+    private int concurrency = 1;
+
+    /** 是否启用批量监听模式 */
+    private boolean batch = false;
+
+    /** 偏移量确认模式 */
+    private ContainerProperties.AckMode ackMode = ContainerProperties.AckMode.BATCH;
+
+    /** TIME/COUNT_TIME确认模式下的提交间隔（毫秒） */
+    private long ackTime = 5000;
+
+    /** COUNT/COUNT_TIME确认模式下的提交条数 */
+    private int ackCount = 1;
+
+    /** 单次poll的超时时间（毫秒） */
+    private long pollTimeout = 1000;
+
+    /**
+     * Kafka原生消费者参数
+     *
+     * 例如group.id、max.poll.records、fetch.min.bytes、fetch.max.wait.ms等
+     * 会覆盖全局默认参数
+     */
+    private Map<String, String> properties = new LinkedHashMap<>();
+  }
+}
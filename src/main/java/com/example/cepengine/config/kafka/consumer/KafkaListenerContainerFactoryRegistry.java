@@ -0,0 +1,159 @@
+package com.example.cepengine.config.kafka.consumer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.cepengine.config.affinity.ThreadAffinity;
+import com.example.cepengine.config.kafka.consumer.KafkaConsumerGroupProperties.GroupProfile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka监听容器工厂注册表
+ *
+ * 按消费者组配置档构建并缓存调优后的监听容器工厂
+ *
+ * 主要功能：
+ * 1. 合并全局默认参数与配置档参数，生成独立的消费者工厂
+ * 2. 为每个配置档设置并发数、批量模式和确认模式
+ * 3. 缓存已构建的工厂，保证同一配置档只构建一次
+ *
+ * 设计特点：
+ * - 配置档之间互不影响，可独立调优延迟或吞吐
+ * - 偏移量统一由监听容器按确认模式提交，关闭Kafka客户端自动提交
+ * - 未配置的配置档直接报错，避免监听器静默使用错误参数
+ * - 开启线程亲和性后消费线程绑定到consumer核心集合
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KafkaListenerContainerFactoryRegistry {
+
+  /** 消费者组配置属性 */
+  private final KafkaConsumerGroupProperties groupProperties;
+
+  /** 线程亲和性管理器 */
+  private final ThreadAffinity threadAffinity;
+
+  /** Kafka服务器地址 */
+  @Value("${spring.kafka.bootstrap-servers}")
+  private String bootstrapServers;
+
+  /** 全局默认的偏移量重置策略 */
+  @Value("${spring.kafka.consumer.auto-offset-reset:latest}")
+  private String autoOffsetReset;
+
+  /** 已构建的消费者工厂缓存 */
+  private final Map<String, ConsumerFactory<String, String>> consumerFactories = new ConcurrentHashMap<>();
+
+  /** 已构建的监听容器工厂缓存 */
+  private final Map<String, ConcurrentKafkaListenerContainerFactory<String, String>> factories =
+      new ConcurrentHashMap<>();
+
+  /**
+   * 获取指定配置档的监听容器工厂
+   *
+   * @param groupName 配置档名称
+   * @return 监听容器工厂
+   * @throws IllegalArgumentException 配置档不存在时抛出
+   */
+  public ConcurrentKafkaListenerContainerFactory<String, String> getFactory(String groupName) {
+    return factories.computeIfAbsent(groupName, this::createFactory);
+  }
+
+  /**
+   * 获取指定配置档的消费者工厂
+   *
+   * @param groupName 配置档名称
+   * @return 消费者工厂
+   * @throws IllegalArgumentException 配置档不存在时抛出
+   */
+  public ConsumerFactory<String, String> getConsumerFactory(String groupName) {
+    return consumerFactories.computeIfAbsent(groupName,
+        name -> new DefaultKafkaConsumerFactory<>(consumerConfigs(name, getProfile(name))));
+  }
+
+  /**
+   * 获取指定配置档的配置参数
+   *
+   * @param groupName 配置档名称
+   * @return 配置档参数
+   * @throws IllegalArgumentException 配置档不存在时抛出
+   */
+  public GroupProfile getProfile(String groupName) {
+    GroupProfile profile = groupProperties.getGroups().get(groupName);
+    if (profile == null) {
+      throw new IllegalArgumentException("未配置的Kafka消费者组配置档: " + groupName);
+    }
+    return profile;
+  }
+
+  /**
+   * 构建指定配置档的监听容器工厂
+   *
+   * @param groupName 配置档名称
+   * @return 新建的监听容器工厂
+   */
+  private ConcurrentKafkaListenerContainerFactory<String, String> createFactory(String groupName) {
+    GroupProfile profile = getProfile(groupName);
+
+    ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(getConsumerFactory(groupName));
+    factory.setConcurrency(profile.getConcurrency());
+    factory.setBatchListener(profile.isBatch());
+
+    ContainerProperties containerProperties = factory.getContainerProperties();
+    containerProperties.setAckMode(profile.getAckMode());
+    containerProperties.setAckTime(profile.getAckTime());
+    containerProperties.setAckCount(profile.getAckCount());
+    containerProperties.setPollTimeout(profile.getPollTimeout());
+    if (threadAffinity.isPinned(ThreadAffinity.CONSUMER)) {
+      SimpleAsyncTaskExecutor consumerExecutor = new SimpleAsyncTaskExecutor(threadAffinity.pin(
+          new CustomizableThreadFactory(groupName + "-consumer-"), ThreadAffinity.CONSUMER));
+      containerProperties.setConsumerTaskExecutor(consumerExecutor);
+    }
+
+    log.info("构建Kafka监听容器工厂：配置档={}, 并发数={}, 批量模式={}, 确认模式={}",
+        groupName, profile.getConcurrency(), profile.isBatch(), profile.getAckMode());
+    return factory;
+  }
+
+  /**
+   * 合并全局默认参数与配置档参数
+   *
+   * @param groupName 配置档名称
+   * @param profile 配置档参数
+   * @return Kafka消费者配置映射
+   */
+  private Map<String, Object> consumerConfigs(String groupName, GroupProfile profile) {
+    Map<String, Object> props = new HashMap<>();
+
+    // 全局默认参数
+    props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    props.put(ConsumerConfig.GROUP_ID_CONFIG, "cep-engine-" + groupName);
+    props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+    props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+    props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+
+    // 配置档参数覆盖默认参数
+    props.putAll(profile.getProperties());
+
+    // 偏移量由监听容器按确认模式提交，禁止Kafka客户端自动提交
+    props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+    return props;
+  }
+}
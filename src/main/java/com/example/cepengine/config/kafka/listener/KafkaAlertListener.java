@@ -1,43 +1,43 @@
 package com.example.cepengine.kafka;
 
-import com.example.cepengine.entity.ProcessedData;
-import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.config.disruptor.AlertEvent;
+import com.example.cepengine.service.FailureHandlingService;
+import com.lmax.disruptor.RingBuffer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-
 /**
  * Kafka告警消息处理监听器
- * 
- * 在复杂事件处理（CEP）系统中，负责实时接收、处理和持久化告警消息
- * 
+ *
+ * 在复杂事件处理（CEP）系统中，负责实时接收告警消息并送入告警快速通道
+ *
  * 主要功能：
  * 1. 实时监听告警主题的Kafka消息
- * 2. 将告警消息转换为结构化的ProcessedData实体
- * 3. 持久化告警数据到数据库
- * 4. 提供可靠的消息处理和确认机制
- * 5. 记录和跟踪告警事件
- * 
+ * 2. 将告警消息发布到告警专用的Disruptor环形缓冲区
+ * 3. 提供可靠的消息处理和确认机制
+ *
  * 设计特点：
  * - 使用Spring Kafka的@KafkaListener注解
  * - 支持手动消息确认
- * - 提供异常处理和日志记录
- * - 实现事件数据的结构化存储
- * 
+ * - 监听线程上不做数据库写入，转发和持久化由告警通道完成
+ * - 告警通道与批量数据通道隔离，不受数据环形缓冲区饱和影响
+ * - 处理失败的消息进入死信主题后仍然确认，不会卡住偏移量
+ *
  * 使用场景：
  * - 实时告警监控系统
  * - 复杂事件告警处理
  * - 告警数据持久化和审计
  * - 分布式告警管理
- * 
+ *
  * 关键组件：
- * - ProcessedDataMapper：数据持久化接口
+ * - 告警通道环形缓冲区
  * - Kafka消息监听机制
- * - 本地时间戳记录
  */
 @Slf4j
 @Component
@@ -45,61 +45,71 @@ import java.time.LocalDateTime;
 public class KafkaAlertListener {
 
     /**
-     * 处理后数据持久化映射器
-     * 
-     * 提供告警数据的数据库持久化能力
-     * 支持将告警事件转换并存储到数据库
+     * 告警通道环形缓冲区
+     *
+     * 由专用线程消费，负责告警的转发和异步持久化
+     */
+    private final RingBuffer<AlertEvent> alertRingBuffer;
+
+    /**
+     * 失败处理服务
+     *
+     * 接收处理失败的告警消息，转入死信主题
      */
-    private final ProcessedDataMapper processedDataMapper;
+    private final FailureHandlingService failureHandlingService;
+
+    /**
+     * 告警输入主题
+     */
+    @Value("${app.kafka.topic.alert}")
+    private String alertTopic;
 
     /**
      * Kafka告警消息处理方法
-     * 
+     *
      * 核心告警消息处理逻辑：
      * 1. 接收Kafka告警主题的消息
-     * 2. 构建ProcessedData实体
-     * 3. 持久化告警数据
+     * 2. 发布到告警通道
+     * 3. 处理失败时转入死信主题
      * 4. 执行消息确认
-     * 5. 处理可能的异常情况
-     * 
-     * 处理流程：
-     * - 创建ProcessedData对象
-     * - 设置消息内容和处理时间
-     * - 插入数据库
-     * - 记录处理日志
-     * - 手动确认消息
-     * 
+     *
      * 注意事项：
-     * - 使用手动确认模式，提高消息处理可靠性
+     * - 使用alert-group配置档的手动立即确认模式，提高消息处理可靠性
      * - TODO：需要实现动态规则ID获取
-     * 
+     *
      * @param message 从Kafka告警主题接收的消息内容
+     * @param partition 消息所在分区
+     * @param offset 消息偏移量
      * @param acknowledgment Kafka消息确认对象
      */
     @KafkaListener(
         topics = "${app.kafka.topic.alert}",
-        groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "alertKafkaListenerContainerFactory"
     )
-    public void processAlertMessage(String message, Acknowledgment acknowledgment) {
+    public void processAlertMessage(String message,
+                                    @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+                                    @Header(KafkaHeaders.OFFSET) long offset,
+                                    Acknowledgment acknowledgment) {
         try {
-            // 创建ProcessedData实体
-            ProcessedData processedData = new ProcessedData();
-            processedData.setResultContent(message);
-            processedData.setRuleId(1L);  // TODO: 动态获取规则ID
-            processedData.setProcessedTime(LocalDateTime.now());
-
-            // 持久化告警数据
-            processedDataMapper.insert(processedData);
-
-            // 记录告警日志
-            log.info("处理告警消息: {}", message);
-
-            // 手动确认消息
-            acknowledgment.acknowledge();
+            long sequence = alertRingBuffer.next();
+            try {
+                AlertEvent event = alertRingBuffer.get(sequence);
+                event.setMessage(message);
+                event.setRuleId(1L);  // TODO: 动态获取规则ID
+                event.setPartition(partition);
+                event.setOffset(offset);
+                event.setEnqueueNanos(System.nanoTime());
+                event.setTimestamp(System.currentTimeMillis());
+            } finally {
+                alertRingBuffer.publish(sequence);
+            }
         } catch (Exception e) {
-            // 处理异常情况，记录详细错误信息
+            // 处理异常情况，记录详细错误信息并转入死信主题
             log.error("处理告警消息时发生错误: {}", message, e);
+            failureHandlingService.submitDeadLetter(alertTopic, partition + "-" + offset, message, e);
         }
+
+        // 手动确认消息，失败的消息已由失败处理服务接管
+        acknowledgment.acknowledge();
     }
 }
@@ -1,32 +1,39 @@
 package com.example.cepengine.kafka;
 
-import com.example.cepengine.entity.ProcessedData;
-import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.ArchiveRecord;
+import com.example.cepengine.store.ArchiveStore;
+import com.example.cepengine.store.IdempotencyKeys;
+import com.example.cepengine.store.MappedIdempotencyStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Kafka归档消息处理监听器
  * 
- * 在复杂事件处理（CEP）系统中，负责实时接收、处理和持久化归档消息
+ * 在复杂事件处理（CEP）系统中，负责实时接收和持久化归档消息
  * 
  * 主要功能：
  * 1. 实时监听归档主题的Kafka消息
- * 2. 将归档消息转换为结构化的ProcessedData实体
- * 3. 持久化归档数据到数据库
+ * 2. 将归档消息转换为归档记录
+ * 3. 批量写入本地归档段文件
  * 4. 提供可靠的消息处理和确认机制
- * 5. 记录和跟踪归档事件
  * 
  * 设计特点：
  * - 使用Spring Kafka的@KafkaListener注解
  * - 支持手动消息确认
- * - 提供异常处理和日志记录
- * - 实现事件数据的结构化存储
+ * - 归档数据写入本地压缩段文件，不占用数据库的缓冲池和重做日志
+ * - 整批写入并刷盘后才确认消息
+ * - 写入失败的批次进入死信主题后确认，不会卡住偏移量
  * 
  * 使用场景：
  * - 数据归档和长期存储系统
@@ -35,15 +42,8 @@ import java.time.LocalDateTime;
  * - 合规性和审计追踪
  * 
  * 关键组件：
- * - ProcessedDataMapper：数据持久化接口
+ * - ArchiveStore：本地归档存储
  * - Kafka消息监听机制
- * - 本地时间戳记录
- * 
- * 性能和可靠性：
- * - 异步消息处理
- * - 手动消息确认
- * - 详细的错误日志记录
- * - 事务性数据持久化
  */
 @Slf4j
 @Component
@@ -51,66 +51,92 @@ import java.time.LocalDateTime;
 public class KafkaArchiveListener {
 
     /**
-     * 处理后数据持久化映射器
+     * 本地归档存储
      * 
-     * 提供归档数据的数据库持久化能力
-     * 支持将归档事件转换并存储到数据库
+     * 按批次写入压缩段文件，支持按时间范围查询和回放
+     */
+    private final ArchiveStore archiveStore;
+
+    /**
+     * 幂等存储
      * 
-     * 关键职责：
-     * - 将ProcessedData实体映射到数据库表
-     * - 提供数据插入和持久化服务
-     * - 支持复杂事件的结构化存储
+     * 识别重放的归档消息，避免重复归档
      */
-    private final ProcessedDataMapper processedDataMapper;
+    private final MappedIdempotencyStore idempotencyStore;
 
     /**
-     * Kafka归档消息处理方法
+     * 失败处理服务
      * 
-     * 核心归档消息处理逻辑：
-     * 1. 接收Kafka归档主题的消息
-     * 2. 构建ProcessedData实体
-     * 3. 持久化归档数据
-     * 4. 执行消息确认
-     * 5. 处理可能的异常情况
+     * 接收写入失败的归档消息，转入死信主题
+     */
+    private final FailureHandlingService failureHandlingService;
+
+    /**
+     * 归档输入主题
+     */
+    @Value("${app.kafka.topic.archive}")
+    private String archiveTopic;
+
+    /**
+     * Kafka归档消息批量处理方法
      * 
-     * 处理流程：
-     * - 创建ProcessedData对象
-     * - 设置消息内容和处理时间
-     * - 插入数据库
-     * - 记录处理日志
-     * - 手动确认消息
+     * 核心归档消息处理逻辑：
+     * 1. 按批次接收Kafka归档主题的消息
+     * 2. 跳过已归档过的重放消息，为其余消息构建归档记录
+     * 3. 整批写入归档存储，成功后记录幂等键
+     * 4. 写入失败时将本批未归档的消息转入死信主题
+     * 5. 执行消息确认
      * 
      * 注意事项：
-     * - 使用手动确认模式，提高消息处理可靠性
-     * - TODO：需要实现动态规则ID获取
+     * - 使用archive-group配置档的批量监听模式，按吞吐量调优
+     * - 死信消息保留来源主题，可在归档存储恢复后重新发布
      * 
-     * @param message 从Kafka归档主题接收的消息内容
+     * @param messages 从Kafka归档主题接收的一批消息内容
+     * @param partitions 每条消息所在分区
+     * @param offsets 每条消息的偏移量
+     * @param timestamps 每条消息的时间戳
      * @param acknowledgment Kafka消息确认对象
      */
     @KafkaListener(
         topics = "${app.kafka.topic.archive}",
-        groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "archiveKafkaListenerContainerFactory"
     )
-    public void processArchiveMessage(String message, Acknowledgment acknowledgment) {
+    public void processArchiveMessages(List<String> messages,
+                                       @Header(KafkaHeaders.RECEIVED_PARTITION_ID) List<Integer> partitions,
+                                       @Header(KafkaHeaders.OFFSET) List<Long> offsets,
+                                       @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps,
+                                       Acknowledgment acknowledgment) {
+        List<ArchiveRecord> records = new ArrayList<>(messages.size());
         try {
-            // 创建ProcessedData实体
-            ProcessedData processedData = new ProcessedData();
-            processedData.setResultContent(message);
-            processedData.setRuleId(2L);  // TODO: 动态获取规则ID
-            processedData.setProcessedTime(LocalDateTime.now());
+            List<Long> keys = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                // 跳过已归档过的重放消息
+                long key = IdempotencyKeys.ofRecord(IdempotencyKeys.SCOPE_ARCHIVE, partitions.get(i), offsets.get(i), 0);
+                if (idempotencyStore.contains(key)) {
+                    continue;
+                }
+                records.add(new ArchiveRecord(timestamps.get(i), partitions.get(i), offsets.get(i), messages.get(i)));
+                keys.add(key);
+            }
 
-            // 持久化归档数据
-            processedDataMapper.insert(processedData);
+            // 整批写入归档存储，成功后再记录幂等键
+            archiveStore.append(records);
+            for (Long key : keys) {
+                idempotencyStore.markIfAbsent(key);
+            }
 
             // 记录归档日志
-            log.info("处理归档消息: {}", message);
-
-            // 手动确认消息
-            acknowledgment.acknowledge();
+            log.debug("处理归档消息批次: {} 条，写入 {} 条", messages.size(), records.size());
         } catch (Exception e) {
-            // 处理异常情况，记录详细错误信息
-            log.error("处理归档消息时发生错误: {}", message, e);
+            // 处理异常情况，记录详细错误信息并转入死信主题
+            log.error("处理归档消息批次时发生错误: {} 条", messages.size(), e);
+            for (ArchiveRecord record : records) {
+                failureHandlingService.submitDeadLetter(archiveTopic,
+                    record.getPartition() + "-" + record.getOffset(), record.getPayload(), e);
+            }
         }
+
+        // 手动确认消息，失败的消息已由失败处理服务接管
+        acknowledgment.acknowledge();
     }
-}
\ No newline at end of file
+}
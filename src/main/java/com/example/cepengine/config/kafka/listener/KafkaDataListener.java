@@ -1,14 +1,14 @@
 package com.example.cepengine.config.kafka.listener;
 
-import java.util.List;
-
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
-import com.example.cepengine.config.disruptor.DataEvent;
-import com.example.cepengine.entity.SiddhiRule;
-import com.example.cepengine.service.SiddhiRuleService;
-import com.lmax.disruptor.RingBuffer;
+import com.example.cepengine.config.disruptor.DataEventPublisher;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.SnowflakeIdGenerator;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -41,20 +41,32 @@ import lombok.extern.slf4j.Slf4j;
 public class KafkaDataListener {
 
   /**
-   * Disruptor环形缓冲区
+   * 数据事件发布器
+   * 
+   * 按活跃规则快照展开消息，整批发布到Disruptor环形缓冲区
+   * 规则由运行时管理器批量加载和定期刷新，避免每条消息查询一次数据库
+   */
+  private final DataEventPublisher publisher;
+
+  /**
+   * 雪花ID生成器
    * 
-   * 用于高性能、无锁的事件传输和处理
-   * 提供高并发、低延迟的事件分发机制
+   * 为每条消息在本地分配原始数据ID，处理结果通过该ID关联到原始数据
    */
-  private final RingBuffer<DataEvent> ringBuffer;
+  private final SnowflakeIdGenerator idGenerator;
 
   /**
-   * Siddhi规则服务
+   * 失败处理服务
    * 
-   * 提供规则的动态获取和管理
-   * 支持实时规则查询和过滤
+   * 接收无法发布到流水线的消息，转入死信主题
    */
-  private final SiddhiRuleService siddhiRuleService;
+  private final FailureHandlingService failureHandlingService;
+
+  /**
+   * 数据输入主题
+   */
+  @Value("${app.kafka.input-topic}")
+  private String inputTopic;
 
   /**
    * Kafka消息监听方法
@@ -62,7 +74,8 @@ public class KafkaDataListener {
    * 核心消息处理逻辑：
    * 1. 接收Kafka消息
    * 2. 获取所有活跃的Siddhi规则
-   * 3. 为每个规则创建并发布Disruptor事件
+   * 3. 为消息分配原始数据ID
+   * 4. 为每个规则创建并发布Disruptor事件，由第一个事件负责采集原始数据
    * 
    * 处理流程：
    * - 记录接收到的消息
@@ -71,36 +84,22 @@ public class KafkaDataListener {
    * - 处理可能的异常情况
    * 
    * @param message 从Kafka主题接收的消息内容
+   * @param partition 消息所在分区
+   * @param offset 消息偏移量
    */
   @KafkaListener(topics = "${app.kafka.input-topic}", containerFactory = "defaultKafkaListenerContainerFactory")
-  public void listen(String message) {
+  public void listen(String message,
+      @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+      @Header(KafkaHeaders.OFFSET) long offset) {
     log.info("数据处理消费者接收到消息: {}", message);
 
     try {
-      // 获取所有活跃的规则
-      List<SiddhiRule> activeRules = siddhiRuleService.findAllActiveRules();
-
-      // 对每个规则都创建一个事件
-      for (SiddhiRule rule : activeRules) {
-        // 获取RingBuffer的下一个序列号
-        long sequence = ringBuffer.next();
-        try {
-          // 获取该序列号对应的事件对象
-          DataEvent event = ringBuffer.get(sequence);
-
-          // 设置事件数据和规则ID
-          event.setData(message);
-          event.setRuleId(rule.getId());
-          event.setEventType("DATA_PROCESSING");
-          event.setTimestamp(System.currentTimeMillis());
-        } finally {
-          // 发布事件到Disruptor
-          ringBuffer.publish(sequence);
-        }
-      }
+      // 同一条消息的所有规则事件共享一个原始数据ID，由第一个事件负责采集原始数据
+      publisher.publish(message, partition, offset, idGenerator.nextId(), System.currentTimeMillis());
     } catch (Exception e) {
-      // 记录处理异常，确保系统稳定性
+      // 记录处理异常并转入死信主题，确保系统稳定性
       log.error("处理消息时发生错误: {}", e.getMessage(), e);
+      failureHandlingService.submitDeadLetter(inputTopic, partition + "-" + offset, message, e);
     }
   }
 }
@@ -5,6 +5,7 @@ import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.listener.MessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,6 +24,7 @@ import java.util.concurrent.TimeUnit;
  * 2. 实时监控监听器运行状态
  * 3. 提供自动恢复和故障处理机制
  * 4. 支持细粒度的监听器管理
+ * 5. 停机时整体暂停和停止所有监听器
  * 
  * 设计特点：
  * - 使用线程安全的并发数据结构
@@ -193,6 +195,69 @@ public class KafkaListenerManager {
         return container != null && container.isRunning();
     }
 
+    /**
+     * 暂停所有运行中的Kafka监听器
+     * 
+     * 停机第一步调用，先停止监控任务，避免被暂停或停止的监听器被自动重启
+     * 
+     * @return 暂停的监听器数量
+     */
+    public int pauseAll() {
+        shutdown();
+        int paused = 0;
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isRunning()) {
+                container.pause();
+                paused++;
+            }
+        }
+        log.info("已请求暂停 {} 个Kafka监听器", paused);
+        return paused;
+    }
+
+    /**
+     * 等待所有运行中的Kafka监听器进入暂停状态
+     * 
+     * 暂停在消费线程处理完当前这批记录后才生效，此后不再向流水线发布新消息
+     * 
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部暂停
+     */
+    public boolean awaitPaused(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            while (container.isRunning() && !container.isContainerPaused()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    log.warn("监听器 {} 未能在超时前暂停", container.getListenerId());
+                    return false;
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止所有Kafka监听器
+     * 
+     * 容器停止时提交已处理记录的偏移量，然后关闭消费者
+     * 
+     * @return 停止的监听器数量
+     */
+    public int stopAll() {
+        int stopped = 0;
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isRunning()) {
+                container.stop();
+                listenerStatusMap.computeIfAbsent(container.getListenerId(), id -> new ListenerStatus())
+                    .setEnabled(false);
+                stopped++;
+            }
+        }
+        return stopped;
+    }
+
     /**
      * 启动监听器状态监控任务
      * 
@@ -247,6 +312,7 @@ public class KafkaListenerManager {
      * 1. 取消监控任务
      * 2. 关闭定时调度器
      */
+    @PreDestroy
     public void shutdown() {
         if (monitorTask != null) {
             monitorTask.cancel(true);
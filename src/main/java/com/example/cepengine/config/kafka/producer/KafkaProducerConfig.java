@@ -46,6 +46,15 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    /**
+     * 发送时等待元数据或缓冲区空间的最长时间（毫秒）
+     * 
+     * Kafka不可用时发送快速失败并交给失败处理服务，
+     * 避免输出线程长时间阻塞进而拖住数据接入
+     */
+    @Value("${app.kafka.producer.max-block-ms:5000}")
+    private long maxBlockMs;
+
     /**
      * 构建Kafka生产者配置参数
      * 
@@ -67,6 +76,9 @@ public class KafkaProducerConfig {
         // 配置键值序列化器
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+
+        // 限制发送阻塞时间，Kafka故障时快速失败
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
         
         return props;
     }
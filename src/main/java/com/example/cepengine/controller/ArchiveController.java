@@ -0,0 +1,44 @@
+package com.example.cepengine.controller;
+
+import com.example.cepengine.service.ArchiveService;
+import com.example.cepengine.store.ArchiveRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 归档查询与回放控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    /**
+     * 按时间范围查询归档记录
+     */
+    @GetMapping("/records")
+    public List<ArchiveRecord> query(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                     @RequestParam(defaultValue = "1000") int limit) {
+        return archiveService.query(from, to, limit);
+    }
+
+    /**
+     * 将时间范围内的归档记录回放到指定主题
+     */
+    @PostMapping("/replay")
+    public long replay(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                       @RequestParam String topic) {
+        log.info("Replaying archive from {} to {} into topic: {}", from, to, topic);
+        return archiveService.replay(from, to, topic);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cepengine.controller;
+
+import com.example.cepengine.dto.ReplayRequest;
+import com.example.cepengine.engine.ReplayJob;
+import com.example.cepengine.service.ReplayService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+
+/**
+ * 规则回放控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/replay")
+public class ReplayController {
+
+    @Autowired
+    private ReplayService replayService;
+
+    /**
+     * 提交回放任务
+     */
+    @PostMapping
+    public ReplayJob submit(@RequestBody ReplayRequest request) {
+        log.info("Submitting replay for rules {} from {} to {}", request.getRuleIds(), request.getFrom(), request.getTo());
+        return replayService.submit(request);
+    }
+
+    /**
+     * 查询回放任务进度
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ReplayJob> getJob(@PathVariable String jobId) {
+        ReplayJob job = replayService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 查询最近的回放任务
+     */
+    @GetMapping
+    public Collection<ReplayJob> getJobs() {
+        return replayService.getJobs();
+    }
+
+    /**
+     * 取消回放任务
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> cancel(@PathVariable String jobId) {
+        return replayService.cancel(jobId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cepengine.controller;
+
+import com.example.cepengine.dto.RuleBatchRequest;
+import com.example.cepengine.dto.RuleBatchResult;
+import com.example.cepengine.dto.RuleValidationResult;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.service.RuleDeploymentService;
+import com.example.cepengine.service.RuleValidationService;
+import com.example.cepengine.service.SiddhiRuleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Siddhi规则管理控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/rules")
+public class RuleController {
+
+    @Autowired
+    private RuleValidationService ruleValidationService;
+
+    @Autowired
+    private RuleDeploymentService ruleDeploymentService;
+
+    @Autowired
+    private SiddhiRuleService siddhiRuleService;
+
+    /**
+     * 查询所有启用和降级的规则
+     */
+    @GetMapping
+    public List<SiddhiRule> getActiveRules() {
+        return siddhiRuleService.findAllActiveRules();
+    }
+
+    /**
+     * 查询单个规则
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SiddhiRule> getRule(@PathVariable Long id) {
+        SiddhiRule rule = siddhiRuleService.findById(id);
+        return rule != null ? ResponseEntity.ok(rule) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 批量新增、更新和删除规则，整批校验、编译并同时上线
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<RuleBatchResult> applyBatch(@RequestBody RuleBatchRequest request) {
+        log.info("Applying rule batch: {} upserts, {} deletes",
+            request.getUpserts() == null ? 0 : request.getUpserts().size(),
+            request.getDeletes() == null ? 0 : request.getDeletes().size());
+        RuleBatchResult result = ruleDeploymentService.apply(request);
+        return result.isApplied() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
+    /**
+     * 校验规则并估算成本，可选运行微基准测试
+     */
+    @PostMapping("/validate")
+    public RuleValidationResult validate(@RequestBody SiddhiRule rule,
+                                         @RequestParam(defaultValue = "false") boolean benchmark) {
+        log.info("Validating Siddhi rule: {}", rule.getRuleName());
+        return ruleValidationService.validate(rule, benchmark);
+    }
+}
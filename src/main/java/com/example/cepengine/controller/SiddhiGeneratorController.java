@@ -1,11 +1,15 @@
 package com.example.cepengine.controller;
 
+import com.example.cepengine.dto.SiddhiBatchGenerateResult;
 import com.example.cepengine.dto.SiddhiGenerateRequest;
 import com.example.cepengine.service.SiddhiGeneratorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
+
 /**
  * Siddhi 语法生成控制器
  */
@@ -34,4 +38,15 @@ public class SiddhiGeneratorController {
         log.info("Generating example Siddhi query for topic: {}", request.getTopicName());
         return siddhiGeneratorService.generateExampleQuery(request);
     }
+
+    /**
+     * 批量生成流定义和示例查询，组合为一个可部署的 Siddhi 应用
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<SiddhiBatchGenerateResult> generateBatch(@RequestBody List<SiddhiGenerateRequest> requests,
+                                                                   @RequestParam(required = false) String appName) {
+        log.info("Generating Siddhi app for {} topics", requests.size());
+        SiddhiBatchGenerateResult result = siddhiGeneratorService.generateBatch(requests, appName);
+        return result.getErrors().isEmpty() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.cepengine.controller;
+
+import com.example.cepengine.dto.TopicSchemaRequest;
+import com.example.cepengine.entity.TopicSchema;
+import com.example.cepengine.service.TopicSchemaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 主题模式注册控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/schemas")
+public class TopicSchemaController {
+
+    @Autowired
+    private TopicSchemaService topicSchemaService;
+
+    /**
+     * 注册主题模式的新版本
+     */
+    @PostMapping("/{topicName}")
+    public TopicSchema register(@PathVariable String topicName, @RequestBody TopicSchemaRequest request) {
+        log.info("Registering schema for topic: {}", topicName);
+        return topicSchemaService.register(topicName, request);
+    }
+
+    /**
+     * 查询主题的最新版本
+     */
+    @GetMapping("/{topicName}")
+    public ResponseEntity<TopicSchema> getLatest(@PathVariable String topicName) {
+        TopicSchema schema = topicSchemaService.findLatest(topicName);
+        return schema != null ? ResponseEntity.ok(schema) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 查询主题的全部版本
+     */
+    @GetMapping("/{topicName}/versions")
+    public List<TopicSchema> getVersions(@PathVariable String topicName) {
+        return topicSchemaService.findVersions(topicName);
+    }
+
+    /**
+     * 查询主题的指定版本
+     */
+    @GetMapping("/{topicName}/versions/{version}")
+    public ResponseEntity<TopicSchema> getVersion(@PathVariable String topicName, @PathVariable Integer version) {
+        TopicSchema schema = topicSchemaService.findByVersion(topicName, version);
+        return schema != null ? ResponseEntity.ok(schema) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 按主题最新版本的模式生成 Siddhi 流定义
+     */
+    @GetMapping("/{topicName}/stream")
+    public ResponseEntity<String> generateStreamDefinition(@PathVariable String topicName) {
+        TopicSchema schema = topicSchemaService.findLatest(topicName);
+        return schema != null ? ResponseEntity.ok(topicSchemaService.generateStreamDefinition(schema))
+            : ResponseEntity.notFound().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.cepengine.domain;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,6 +11,8 @@ import java.io.Serializable;
 /**
  * 主题字段通用领域模型
  * 用于描述Kafka、Siddhi等场景下的字段信息
+ * 
+ * Siddhi语法生成请求和主题模式注册共用该模型
  */
 @Data
 @Builder
@@ -35,7 +38,10 @@ public class TopicField implements Serializable {
 
     /**
      * 是否为时间字段
+     * 
+     * JSON属性名保持为isTimeField，与接口文档一致
      */
+    @JsonProperty("isTimeField")
     private boolean isTimeField;
 
     /**
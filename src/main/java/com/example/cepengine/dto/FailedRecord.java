@@ -0,0 +1,47 @@
+package com.example.cepengine.dto;
+
+import com.example.cepengine.enums.FailureTargetEnum;
+import lombok.Data;
+
+/**
+ * 处理失败、等待重试的记录
+ *
+ * 序列化为JSON后写入本地溢出日志，最终进入死信主题时也使用同一格式
+ */
+@Data
+public class FailedRecord {
+    /**
+     * 重试目标
+     */
+    private FailureTargetEnum target;
+
+    /**
+     * Kafka主题：KAFKA为发送的目标主题，DEAD_LETTER为消息的来源主题
+     */
+    private String topic;
+
+    /**
+     * Kafka消息键（可选）
+     */
+    private String key;
+
+    /**
+     * 消息内容，数据库目标为实体的JSON
+     */
+    private String payload;
+
+    /**
+     * 已尝试次数（包括首次失败）
+     */
+    private int attempts;
+
+    /**
+     * 首次失败时间（毫秒）
+     */
+    private long firstFailedTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+}
@@ -0,0 +1,37 @@
+package com.example.cepengine.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+import com.example.cepengine.enums.ReplaySourceEnum;
+
+/**
+ * 规则回放请求
+ */
+@Data
+public class ReplayRequest {
+    /**
+     * 参与回放的规则ID列表
+     */
+    private List<Long> ruleIds;
+
+    /**
+     * 回放数据源，默认raw_data
+     */
+    private ReplaySourceEnum source = ReplaySourceEnum.RAW_DATA;
+
+    /**
+     * raw_data的来源过滤条件（可选，默认使用数据输入主题）
+     */
+    private String rawSource;
+
+    /**
+     * 起始时间（包含）
+     */
+    private LocalDateTime from;
+
+    /**
+     * 结束时间（不包含）
+     */
+    private LocalDateTime to;
+}
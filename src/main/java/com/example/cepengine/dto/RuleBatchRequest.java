@@ -0,0 +1,22 @@
+package com.example.cepengine.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import com.example.cepengine.entity.SiddhiRule;
+
+/**
+ * 规则批量变更请求
+ */
+@Data
+public class RuleBatchRequest {
+    /**
+     * 新增或更新的规则，ID为空表示新增
+     */
+    private List<SiddhiRule> upserts = new ArrayList<>();
+
+    /**
+     * 删除的规则ID
+     */
+    private List<Long> deletes = new ArrayList<>();
+}
@@ -0,0 +1,50 @@
+package com.example.cepengine.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * 规则批量变更结果
+ *
+ * 任一规则校验失败时整批不生效，errors按请求中upserts的下标列出失败原因
+ */
+@Data
+public class RuleBatchResult {
+    /**
+     * 整批是否已生效
+     */
+    private boolean applied;
+
+    /**
+     * 新增规则的ID，顺序与请求中的新增规则一致
+     */
+    private List<Long> createdIds = new ArrayList<>();
+
+    /**
+     * 更新的规则数
+     */
+    private int updated;
+
+    /**
+     * 删除的规则数
+     */
+    private int deleted;
+
+    /**
+     * 校验失败的规则：upserts下标 → 错误列表
+     */
+    private Map<Integer, List<String>> errors = new LinkedHashMap<>();
+
+    /**
+     * 并行编译耗时（毫秒）
+     */
+    private long compileMillis;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long totalMillis;
+}
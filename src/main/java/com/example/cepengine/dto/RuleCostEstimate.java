@@ -0,0 +1,58 @@
+package com.example.cepengine.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 规则静态成本估算
+ *
+ * 根据规则的查询结构估算运行时需要保留的事件数量和匹配开销
+ */
+@Data
+public class RuleCostEstimate {
+    /**
+     * 风险等级：LOW/MEDIUM/HIGH
+     */
+    private String riskLevel = "LOW";
+
+    /**
+     * 查询数量（包括分区内的查询）
+     */
+    private int queryCount;
+
+    /**
+     * 窗口描述列表，如 InputStream#window.time(300000ms)
+     */
+    private List<String> windows = new ArrayList<>();
+
+    /**
+     * 估算的窗口保留事件总数，-1表示无界
+     */
+    private long estimatedWindowEvents;
+
+    /**
+     * 模式查询的状态数量
+     */
+    private int patternStates;
+
+    /**
+     * 估算的模式部分匹配扇出，-1表示无界
+     */
+    private long patternFanOut;
+
+    /**
+     * 连接查询数量
+     */
+    private int joinCount;
+
+    /**
+     * 估算的最大连接候选组合数，-1表示无界
+     */
+    private long joinCardinality;
+
+    /**
+     * 风险说明
+     */
+    private List<String> risks = new ArrayList<>();
+}
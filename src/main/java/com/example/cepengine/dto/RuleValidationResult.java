@@ -0,0 +1,51 @@
+package com.example.cepengine.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 规则校验结果
+ */
+@Data
+public class RuleValidationResult {
+    /**
+     * 是否通过校验
+     */
+    private boolean valid = true;
+
+    /**
+     * 错误列表，存在错误时规则不能上线
+     */
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * 警告列表
+     */
+    private List<String> warnings = new ArrayList<>();
+
+    /**
+     * 静态成本估算，解析失败时为空
+     */
+    private RuleCostEstimate costEstimate;
+
+    /**
+     * 微基准测试吞吐量（事件/秒），未执行时为空
+     */
+    private Double eventsPerSecond;
+
+    /**
+     * 微基准测试期间规则输出的事件数，未执行时为空
+     */
+    private Long benchmarkOutputs;
+
+    /**
+     * 添加错误并标记为未通过
+     *
+     * @param error 错误信息
+     */
+    public void addError(String error) {
+        errors.add(error);
+        valid = false;
+    }
+}
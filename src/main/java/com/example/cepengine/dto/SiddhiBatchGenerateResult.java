@@ -0,0 +1,40 @@
+package com.example.cepengine.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Siddhi 批量生成结果
+ *
+ * 任一请求生成失败时不输出组合应用，errors按请求下标列出失败原因
+ */
+@Data
+public class SiddhiBatchGenerateResult {
+    /**
+     * 应用名称
+     */
+    private String appName;
+
+    /**
+     * 可直接部署的组合 Siddhi 应用，存在失败请求时为空
+     */
+    private String siddhiApp;
+
+    /**
+     * 各请求的流名称，顺序与请求一致
+     */
+    private List<String> streamNames = new ArrayList<>();
+
+    /**
+     * 生成失败的请求：请求下标 → 失败原因
+     */
+    private Map<Integer, String> errors = new LinkedHashMap<>();
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long totalMillis;
+}
@@ -2,7 +2,7 @@ package com.example.cepengine.dto;
 
 import java.util.List;
 import lombok.Data;
-import com.example.cepengine.model.TopicField;
+import com.example.cepengine.domain.TopicField;
 
 /**
  * Siddhi 规则生成请求
@@ -0,0 +1,21 @@
+package com.example.cepengine.dto;
+
+import java.util.List;
+import lombok.Data;
+import com.example.cepengine.domain.TopicField;
+
+/**
+ * 主题模式注册请求
+ */
+@Data
+public class TopicSchemaRequest {
+    /**
+     * 流名称（可选，默认使用 topic 名称 + Stream）
+     */
+    private String streamName;
+
+    /**
+     * 字段列表，顺序即 Siddhi 流定义中的属性顺序
+     */
+    private List<TopicField> fields;
+}
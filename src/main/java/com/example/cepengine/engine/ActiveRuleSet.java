@@ -0,0 +1,75 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.entity.SiddhiRule;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 活跃规则快照
+ *
+ * 活跃规则列表及由其前置过滤条件构建的判别索引，整体替换，读取无需加锁
+ *
+ * 设计特点：
+ * - 规则和判别索引在同一个不可变对象中发布，发布器不会读到不一致的组合
+ * - 判别索引在规则变化时构建一次，每条消息只做一次索引查询
+ * - 过滤条件取自快照发布时的运行时，尚未编译的规则没有过滤条件，事件照常发布
+ */
+@Getter
+public final class ActiveRuleSet {
+
+    /** 空快照 */
+    public static final ActiveRuleSet EMPTY = new ActiveRuleSet(Collections.emptyList(), new RulePredicate[0]);
+
+    /** 活跃规则，不可修改 */
+    private final List<SiddhiRule> rules;
+
+    /** 前置过滤条件的判别索引 */
+    @Getter(AccessLevel.NONE)
+    private final RuleIndex index;
+
+    /** 过滤条件的数量 */
+    private final int predicateCount;
+
+    private ActiveRuleSet(List<SiddhiRule> rules, RulePredicate[] predicates) {
+        this.rules = rules;
+        this.index = RuleIndex.build(predicates);
+        int count = 0;
+        for (RulePredicate predicate : predicates) {
+            if (predicate != null) {
+                count++;
+            }
+        }
+        this.predicateCount = count;
+    }
+
+    /**
+     * 由活跃规则和运行时快照创建
+     *
+     * @param rules 活跃规则
+     * @param runtimes 规则ID到运行时的映射
+     * @return 活跃规则快照
+     */
+    public static ActiveRuleSet of(List<SiddhiRule> rules, Map<Long, RuleRuntime> runtimes) {
+        RulePredicate[] predicates = new RulePredicate[rules.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            RuleRuntime ruleRuntime = runtimes.get(rules.get(i).getId());
+            predicates[i] = ruleRuntime != null ? ruleRuntime.getPredicate() : null;
+        }
+        return new ActiveRuleSet(Collections.unmodifiableList(new ArrayList<>(rules)), predicates);
+    }
+
+    /**
+     * 查询消息可能匹配的规则
+     *
+     * @param payload 解码后的消息
+     * @return 升序排列的规则下标，全部规则都可能匹配时返回null
+     */
+    public int[] candidates(DecodedPayload payload) {
+        return index.candidates(payload);
+    }
+}
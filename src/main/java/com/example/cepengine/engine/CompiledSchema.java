@@ -0,0 +1,277 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.domain.TopicField;
+import com.example.cepengine.entity.TopicSchema;
+import com.example.cepengine.enums.SiddhiTypeEnum;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.siddhi.query.api.definition.Attribute;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的主题模式
+ *
+ * 由注册的主题模式预先计算出字段槽位、Siddhi类型、默认值和必填标记，
+ * 解码时按槽位直接提取字段，不再为每条消息构建属性映射
+ *
+ * 主要功能：
+ * 1. 使用流式解析从JSON消息中提取已声明的字段，按字段类型转换后写入固定槽位
+ * 2. 为缺失的字段填充默认值，并找出仍然缺失的必填字段
+ * 3. 计算规则输入流属性到槽位的映射，按映射构建Siddhi输入行
+ *
+ * 设计特点：
+ * - 实例不可变，模式的新版本编译为新实例后整体替换
+ * - 未声明的字段和嵌套结构直接跳过，不产生任何对象
+ * - 槽位类型与输入流属性类型一致时不做转换
+ */
+@Getter
+public final class CompiledSchema {
+
+    /** 主题名称 */
+    private final String topicName;
+
+    /** 模式版本 */
+    private final int version;
+
+    /** Siddhi流名称 */
+    private final String streamName;
+
+    /** 字段列表 */
+    private final List<TopicField> fields;
+
+    /** 按槽位排列的Siddhi属性定义 */
+    private final List<Attribute> attributes;
+
+    /** 时间字段的槽位，没有时间字段时为-1 */
+    private final int timeFieldIndex;
+
+    /** 字段名 → 槽位 */
+    private final Map<String, Integer> indexes;
+
+    /** 每个槽位的Siddhi类型 */
+    private final Attribute.Type[] types;
+
+    /** 每个槽位转换后的默认值 */
+    private final Object[] defaults;
+
+    /** 必填字段的槽位 */
+    private final int[] requiredIndexes;
+
+    private CompiledSchema(TopicSchema schema, List<Attribute> attributes, int timeFieldIndex,
+                           Object[] defaults, int[] requiredIndexes) {
+        this.topicName = schema.getTopicName();
+        this.version = schema.getVersion() != null ? schema.getVersion() : 0;
+        this.streamName = schema.getStreamName();
+        this.fields = Collections.unmodifiableList(new ArrayList<>(schema.getFields()));
+        this.attributes = Collections.unmodifiableList(attributes);
+        this.timeFieldIndex = timeFieldIndex;
+        this.defaults = defaults;
+        this.requiredIndexes = requiredIndexes;
+        this.types = new Attribute.Type[attributes.size()];
+        this.indexes = new HashMap<>(attributes.size() * 2);
+        for (int i = 0; i < attributes.size(); i++) {
+            types[i] = attributes.get(i).getType();
+            indexes.put(attributes.get(i).getName(), i);
+        }
+    }
+
+    /**
+     * 校验并编译主题模式
+     *
+     * @param schema 主题模式
+     * @return 编译后的模式
+     * @throws IllegalArgumentException 字段定义无效，异常信息列出所有问题
+     */
+    public static CompiledSchema compile(TopicSchema schema) {
+        List<String> errors = new ArrayList<>();
+        if (schema.getFields() == null || schema.getFields().isEmpty()) {
+            throw new IllegalArgumentException("模式至少需要一个字段");
+        }
+
+        List<Attribute> attributes = new ArrayList<>(schema.getFields().size());
+        List<Object> defaults = new ArrayList<>(schema.getFields().size());
+        List<Integer> required = new ArrayList<>();
+        Map<String, Integer> seen = new HashMap<>();
+        int timeFieldIndex = -1;
+        for (int i = 0; i < schema.getFields().size(); i++) {
+            TopicField field = schema.getFields().get(i);
+            if (field == null || field.getFieldName() == null || field.getFieldName().trim().isEmpty()) {
+                errors.add("第" + (i + 1) + "个字段缺少字段名");
+                continue;
+            }
+            String name = field.getFieldName();
+            if (seen.put(name, i) != null) {
+                errors.add("字段重复：" + name);
+                continue;
+            }
+            SiddhiTypeEnum type = SiddhiTypeEnum.resolve(field.getFieldType());
+            if (type == null) {
+                errors.add("字段" + name + "的类型不受支持：" + field.getFieldType());
+                continue;
+            }
+            Attribute.Type attributeType = Attribute.Type.valueOf(type.getSiddhiType().toUpperCase());
+            Object defaultValue = SiddhiEventConverter.convert(field.getDefaultValue(), attributeType);
+            if (field.getDefaultValue() != null && defaultValue == null) {
+                errors.add("字段" + name + "的默认值无法转换为" + type.getSiddhiType() + "：" + field.getDefaultValue());
+                continue;
+            }
+            if (field.isTimeField()) {
+                if (timeFieldIndex >= 0) {
+                    errors.add("只能有一个时间字段：" + name);
+                    continue;
+                }
+                if (attributeType != Attribute.Type.LONG) {
+                    errors.add("时间字段必须为long类型：" + name);
+                    continue;
+                }
+                timeFieldIndex = attributes.size();
+            }
+            if (field.isRequired()) {
+                required.add(attributes.size());
+            }
+            attributes.add(new Attribute(name, attributeType));
+            defaults.add(defaultValue);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("；", errors));
+        }
+
+        int[] requiredIndexes = new int[required.size()];
+        for (int i = 0; i < requiredIndexes.length; i++) {
+            requiredIndexes[i] = required.get(i);
+        }
+        return new CompiledSchema(schema, attributes, timeFieldIndex, defaults.toArray(), requiredIndexes);
+    }
+
+    /**
+     * 从JSON消息中提取字段
+     *
+     * 只读取模式中声明的顶层字段，缺失的字段填充默认值
+     *
+     * @param parser 指向消息开头的JSON解析器
+     * @return 按槽位排列的字段值
+     * @throws IOException 消息不是合法的JSON对象
+     */
+    public Object[] extract(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "消息不是JSON对象");
+        }
+        Object[] slots = new Object[types.length];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Integer index = indexes.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (index == null) {
+                parser.skipChildren();
+                continue;
+            }
+            slots[index] = readValue(parser, token, types[index]);
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                slots[i] = defaults[i];
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * 查找缺失的必填字段
+     *
+     * @param slots 提取出的字段值
+     * @return 第一个缺失的必填字段名，全部存在时返回null
+     */
+    public String missingRequired(Object[] slots) {
+        for (int index : requiredIndexes) {
+            if (slots[index] == null) {
+                return attributes.get(index).getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取字段的槽位
+     *
+     * @param name 字段名
+     * @return 槽位，模式中没有该字段时返回-1
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 计算输入流属性到槽位的映射
+     *
+     * @param inputAttributes 规则输入流属性定义
+     * @return 每个输入属性对应的槽位，模式中没有的属性为-1
+     */
+    public int[] projection(List<Attribute> inputAttributes) {
+        int[] projection = new int[inputAttributes.size()];
+        for (int i = 0; i < projection.length; i++) {
+            Integer index = indexes.get(inputAttributes.get(i).getName());
+            projection[i] = index != null ? index : -1;
+        }
+        return projection;
+    }
+
+    /**
+     * 按槽位映射构建Siddhi输入行
+     *
+     * @param slots 提取出的字段值
+     * @param projection 由projection计算的槽位映射
+     * @param inputAttributes 规则输入流属性定义
+     * @return Siddhi输入行
+     */
+    public Object[] toInputRow(Object[] slots, int[] projection, List<Attribute> inputAttributes) {
+        Object[] row = new Object[projection.length];
+        for (int i = 0; i < row.length; i++) {
+            int index = projection[i];
+            if (index < 0) {
+                continue;
+            }
+            Attribute.Type type = inputAttributes.get(i).getType();
+            row[i] = types[index] == type ? slots[index] : SiddhiEventConverter.convert(slots[index], type);
+        }
+        return row;
+    }
+
+    /**
+     * 按槽位类型读取当前字段值
+     */
+    private static Object readValue(JsonParser parser, JsonToken token, Attribute.Type type) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                switch (type) {
+                    case INT:
+                        return parser.getValueAsInt();
+                    case LONG:
+                        return parser.getValueAsLong();
+                    case DOUBLE:
+                        return parser.getValueAsDouble();
+                    default:
+                        return SiddhiEventConverter.convert(parser.getNumberValue(), type);
+                }
+            case VALUE_STRING:
+                return SiddhiEventConverter.convert(parser.getText(), type);
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return SiddhiEventConverter.convert(token == JsonToken.VALUE_TRUE, type);
+            case START_OBJECT:
+            case START_ARRAY:
+                parser.skipChildren();
+                return null;
+            default:
+                return null;
+        }
+    }
+}
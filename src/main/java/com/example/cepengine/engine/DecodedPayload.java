@@ -0,0 +1,90 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.disruptor.DataEvent;
+
+import java.util.Map;
+
+/**
+ * 解码后的消息
+ *
+ * 输入主题注册了模式时持有按槽位提取的字段值，否则持有完整的属性映射
+ *
+ * 设计特点：
+ * - 解码结果只读，同一消息的多个规则事件可以共享
+ * - 发布器预过滤时解码一次，解码阶段不再重复解码
+ */
+public final class DecodedPayload {
+
+    /** 完整的属性映射，按模式解码时为null */
+    private final Map<String, Object> attributes;
+
+    /** 主题模式，未注册模式时为null */
+    private final CompiledSchema schema;
+
+    /** 按模式槽位排列的字段值 */
+    private final Object[] slots;
+
+    private DecodedPayload(Map<String, Object> attributes, CompiledSchema schema, Object[] slots) {
+        this.attributes = attributes;
+        this.schema = schema;
+        this.slots = slots;
+    }
+
+    /**
+     * 由完整的属性映射创建
+     */
+    public static DecodedPayload ofAttributes(Map<String, Object> attributes) {
+        return new DecodedPayload(attributes, null, null);
+    }
+
+    /**
+     * 由按模式提取的字段值创建
+     */
+    public static DecodedPayload ofSlots(CompiledSchema schema, Object[] slots) {
+        return new DecodedPayload(null, schema, slots);
+    }
+
+    /**
+     * 获取字段值
+     *
+     * @param name 字段名
+     * @return 字段值，不存在时返回null
+     */
+    public Object get(String name) {
+        if (schema == null) {
+            return attributes.get(name);
+        }
+        int index = schema.indexOf(name);
+        return index >= 0 ? slots[index] : null;
+    }
+
+    /**
+     * 查找缺失的必填字段
+     *
+     * @return 第一个缺失的必填字段名，未注册模式或全部存在时返回null
+     */
+    public String missingRequired() {
+        return schema != null ? schema.missingRequired(slots) : null;
+    }
+
+    /**
+     * 将解码结果写入事件
+     *
+     * @param event 目标事件
+     */
+    public void applyTo(DataEvent event) {
+        event.setAttributes(attributes);
+        event.setSchema(schema);
+        event.setSlots(slots);
+    }
+
+    /**
+     * 事件是否已写入解码结果
+     *
+     * @param event 事件
+     * @return 是否已解码
+     */
+    public static boolean isDecoded(DataEvent event) {
+        return event.getAttributes() != null || event.getSlots() != null;
+    }
+}
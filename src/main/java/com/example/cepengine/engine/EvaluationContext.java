@@ -0,0 +1,64 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.disruptor.DataEvent;
+import com.example.cepengine.entity.ProcessedData;
+
+/**
+ * 规则评估上下文
+ * 
+ * 记录当前评估线程正在处理的事件，使Siddhi输出回调能将结果挂到该事件上
+ * 
+ * 详细说明：
+ * 简单查询的输出回调在InputHandler.send的调用线程上同步触发，
+ * 此时结果随事件进入输出阶段批量发送；
+ * 窗口到期等由Siddhi调度线程触发的输出没有当前事件，由调用方直接发送。
+ */
+public final class EvaluationContext {
+
+    /** 当前线程正在评估的事件 */
+    private static final ThreadLocal<DataEvent> CURRENT = new ThreadLocal<>();
+
+    private EvaluationContext() {
+    }
+
+    /**
+     * 开始评估事件
+     * 
+     * @param event 待评估的事件
+     */
+    public static void begin(DataEvent event) {
+        CURRENT.set(event);
+    }
+
+    /**
+     * 结束评估事件
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 获取当前线程正在评估的事件
+     * 
+     * @return 当前事件，不在评估过程中时返回null
+     */
+    public static DataEvent current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 将输出结果挂到当前事件
+     * 
+     * @param ruleId 产生结果的规则ID
+     * @param result 输出结果
+     * @return 是否已挂到当前事件；false表示调用方需直接发送
+     */
+    public static boolean collect(Long ruleId, ProcessedData result) {
+        DataEvent event = CURRENT.get();
+        if (event == null || !ruleId.equals(event.getRuleId())) {
+            return false;
+        }
+        event.getOutputs().add(result);
+        return true;
+    }
+}
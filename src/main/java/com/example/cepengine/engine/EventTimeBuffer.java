@@ -0,0 +1,218 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.disruptor.DataEvent;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 事件时间乱序缓冲区
+ *
+ * 每个评估处理器持有一个实例，按规则缓冲事件，按事件时间从小到大交给Siddhi
+ *
+ * 主要功能：
+ * 1. 按规则维护以事件时间为键的最小堆，同一时间的事件保持到达顺序
+ * 2. 按来源分区记录已见到的最大事件时间，水位 = 各活跃分区最大事件时间的最小值 - 最大延迟
+ * 3. 事件时间不超过水位的事件才会释放，分区之间的偏斜不会让时间窗口提前滑过慢分区的事件
+ * 4. 事件时间早于已释放事件的迟到事件直接丢弃并计数
+ *
+ * 设计特点：
+ * - 只由所属的评估线程访问，除事件数和刷新标记外不做同步
+ * - 超过idle-timeout-ms没有新事件的分区不参与水位计算；所有分区都空闲时释放全部事件
+ * - 缓冲的事件总数超过上限时，从当前规则中强制释放最早的事件，内存占用有界
+ * - 缓冲的是事件副本，环形缓冲区槽位可以照常复用；副本记录原事件的序列号，
+ *   评估线程为其在完成跟踪器中占位，预写日志检查点不会越过仍在缓冲区中的事件
+ */
+public final class EventTimeBuffer {
+
+    /** 最大延迟（毫秒） */
+    private final long maxLatenessMs;
+
+    /** 分区空闲判定时间（毫秒） */
+    private final long idleTimeoutMs;
+
+    /** 缓冲事件总数上限 */
+    private final int maxBufferedEvents;
+
+    /** 迟到事件计数 */
+    private final Counter lateEvents;
+
+    /** 规则ID → 规则缓冲区 */
+    private final Map<Long, RuleBuffer> buffers = new HashMap<>();
+
+    /** 缓冲事件总数，供指标和停机流程读取 */
+    private volatile int size;
+
+    /** 是否要求立即释放全部事件 */
+    private volatile boolean flushRequested;
+
+    EventTimeBuffer(long maxLatenessMs, long idleTimeoutMs, int maxBufferedEvents, Counter lateEvents) {
+        this.maxLatenessMs = maxLatenessMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxBufferedEvents = maxBufferedEvents;
+        this.lateEvents = lateEvents;
+    }
+
+    /**
+     * 读取事件的事件时间
+     *
+     * @param event 已解码的事件
+     * @return 时间字段的值；主题没有时间字段时返回null，消息缺少时间字段时使用到达时间
+     */
+    public static Long eventTimeOf(DataEvent event) {
+        CompiledSchema schema = event.getSchema();
+        if (schema == null || schema.getTimeFieldIndex() < 0) {
+            return null;
+        }
+        Object value = event.getSlots()[schema.getTimeFieldIndex()];
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        return event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis();
+    }
+
+    /**
+     * 缓冲事件
+     *
+     * @param event 已路由的事件
+     * @param eventTime 事件时间
+     * @param sequence 事件在主流水线中的序列号，记入副本
+     * @param now 当前时间（毫秒）
+     * @return 是否已缓冲；迟到事件返回false
+     */
+    public boolean add(DataEvent event, long eventTime, long sequence, long now) {
+        RuleBuffer buffer = buffers.computeIfAbsent(event.getRuleId(), id -> new RuleBuffer());
+        if (eventTime < buffer.releasedTime) {
+            lateEvents.increment();
+            return false;
+        }
+        buffer.observe(event.getPartition(), eventTime, now);
+        buffer.heap.add(eventTime, copyOf(event, eventTime, sequence));
+        size++;
+        return true;
+    }
+
+    /**
+     * 取出规则的下一个可释放事件
+     *
+     * @param ruleId 规则ID
+     * @param now 当前时间（毫秒）
+     * @return 事件副本，timestamp为事件时间；没有可释放的事件时返回null
+     */
+    public DataEvent poll(Long ruleId, long now) {
+        RuleBuffer buffer = buffers.get(ruleId);
+        if (buffer == null || buffer.heap.isEmpty()) {
+            return null;
+        }
+        long head = buffer.heap.peekKey();
+        if (!flushRequested && size <= maxBufferedEvents && head > buffer.watermark(now)) {
+            return null;
+        }
+        buffer.releasedTime = head;
+        size--;
+        return buffer.heap.poll();
+    }
+
+    /**
+     * 不论水位，取出规则最早的缓冲事件
+     *
+     * 规则转交隔离通道前用于清空该规则的缓冲区
+     *
+     * @param ruleId 规则ID
+     * @return 事件副本，timestamp为事件时间；缓冲区为空时返回null
+     */
+    public DataEvent drain(Long ruleId) {
+        RuleBuffer buffer = buffers.get(ruleId);
+        if (buffer == null || buffer.heap.isEmpty()) {
+            return null;
+        }
+        buffer.releasedTime = buffer.heap.peekKey();
+        size--;
+        return buffer.heap.poll();
+    }
+
+    /**
+     * 有缓冲记录的规则ID，遍历期间可以调用poll
+     */
+    public Set<Long> ruleIds() {
+        return buffers.keySet();
+    }
+
+    /**
+     * 缓冲事件总数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 要求下次检查时释放全部事件，可在任意线程调用
+     */
+    public void requestFlush() {
+        flushRequested = true;
+    }
+
+    /**
+     * 复制事件中评估需要的字段
+     */
+    private static DataEvent copyOf(DataEvent event, long eventTime, long sequence) {
+        DataEvent copy = new DataEvent();
+        copy.setData(event.getData());
+        copy.setRuleId(event.getRuleId());
+        copy.setRawDataId(event.getRawDataId());
+        copy.setTimestamp(eventTime);
+        copy.setPartition(event.getPartition());
+        copy.setOffset(event.getOffset());
+        copy.setRuleRuntime(event.getRuleRuntime());
+        copy.setInputRow(event.getInputRow());
+        copy.setHeldSequence(sequence);
+        return copy;
+    }
+
+    /**
+     * 单个规则的缓冲区和各分区的事件时间进度
+     */
+    private final class RuleBuffer {
+        private final LongMinHeap<DataEvent> heap = new LongMinHeap<>(64);
+
+        /** 按分区（分区号 + 1，未知分区为0）记录的最大事件时间 */
+        private long[] maxTimes = new long[0];
+
+        /** 按分区记录的最近到达时间，0表示未见过 */
+        private long[] lastSeen = new long[0];
+
+        /** 最近释放的事件时间 */
+        private long releasedTime = Long.MIN_VALUE;
+
+        private void observe(int partition, long eventTime, long now) {
+            int slot = Math.max(0, partition + 1);
+            if (slot >= maxTimes.length) {
+                int length = Math.max(slot + 1, maxTimes.length << 1);
+                maxTimes = Arrays.copyOf(maxTimes, length);
+                lastSeen = Arrays.copyOf(lastSeen, length);
+            }
+            if (lastSeen[slot] == 0 || eventTime > maxTimes[slot]) {
+                maxTimes[slot] = eventTime;
+            }
+            lastSeen[slot] = now;
+        }
+
+        private long watermark(long now) {
+            long active = Long.MAX_VALUE;
+            long latest = Long.MIN_VALUE;
+            for (int slot = 0; slot < maxTimes.length; slot++) {
+                if (lastSeen[slot] == 0) {
+                    continue;
+                }
+                latest = Math.max(latest, maxTimes[slot]);
+                if (now - lastSeen[slot] <= idleTimeoutMs) {
+                    active = Math.min(active, maxTimes[slot]);
+                }
+            }
+            return active == Long.MAX_VALUE ? latest : active - maxLatenessMs;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.cepengine.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件时间排序配置
+ *
+ * 开启后评估阶段按主题模式中标记为时间字段的值驱动Siddhi时钟，而不是按到达时间
+ *
+ * 主要功能：
+ * 1. 为每个评估处理器创建事件时间乱序缓冲区
+ * 2. 规则运行时以回放模式启动，时间窗口按送入事件的时间戳滑动
+ * 3. 汇总各缓冲区的事件数（指标cep.event-time.buffered）和迟到事件数（指标cep.event-time.late）
+ * 4. 停机时要求所有缓冲区释放剩余事件并等待完成
+ *
+ * 设计特点：
+ * - 默认关闭，关闭时评估阶段和规则运行时的行为与原有实现一致
+ * - 没有时间字段的主题按到达时间直接送入，不经过缓冲区
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventTimeOrdering {
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 是否启用 */
+    @Value("${app.event-time.enabled:false}")
+    private boolean enabled;
+
+    /** 最大延迟（毫秒），事件在缓冲区中最多等待慢分区这么久 */
+    @Value("${app.event-time.max-lateness-ms:2000}")
+    private long maxLatenessMs;
+
+    /** 分区空闲判定时间（毫秒），也是评估线程空闲时检查缓冲区的间隔 */
+    @Value("${app.event-time.idle-timeout-ms:1000}")
+    private long idleTimeoutMs;
+
+    /** 每个评估处理器缓冲的事件数上限 */
+    @Value("${app.event-time.max-buffered-events:100000}")
+    private int maxBufferedEvents;
+
+    /** 已创建的缓冲区 */
+    private final List<EventTimeBuffer> buffers = new CopyOnWriteArrayList<>();
+
+    /** 迟到事件计数 */
+    private Counter lateEvents;
+
+    /**
+     * 注册指标
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        lateEvents = Counter.builder("cep.event-time.late")
+            .description("事件时间早于已释放事件而被丢弃的事件数")
+            .register(meterRegistry);
+        Gauge.builder("cep.event-time.buffered", this, EventTimeOrdering::bufferedCount)
+            .description("事件时间乱序缓冲区中等待释放的事件数")
+            .register(meterRegistry);
+        log.info("事件时间排序已启用：最大延迟={}ms, 分区空闲判定={}ms, 每个评估处理器最多缓冲{}条",
+            maxLatenessMs, idleTimeoutMs, maxBufferedEvents);
+    }
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 评估线程空闲时检查缓冲区的间隔（毫秒）
+     */
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    /**
+     * 为评估处理器创建缓冲区
+     *
+     * @return 缓冲区，未启用时返回null
+     */
+    public EventTimeBuffer newBuffer() {
+        if (!enabled) {
+            return null;
+        }
+        EventTimeBuffer buffer = new EventTimeBuffer(maxLatenessMs, idleTimeoutMs, maxBufferedEvents, lateEvents);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * 所有缓冲区中等待释放的事件数
+     */
+    public int bufferedCount() {
+        int count = 0;
+        for (EventTimeBuffer buffer : buffers) {
+            count += buffer.size();
+        }
+        return count;
+    }
+
+    /**
+     * 要求所有缓冲区释放剩余事件并等待完成
+     *
+     * 释放由各评估线程在下一个事件或下一次空闲检查时执行
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部释放
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        buffers.forEach(EventTimeBuffer::requestFlush);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (bufferedCount() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.expression.condition.Compare;
+import lombok.Getter;
+
+/**
+ * 字段条件
+ *
+ * 从规则过滤条件中提取的单个比较：输入流属性与常量比较
+ *
+ * 设计特点：
+ * - 字段值先按输入流属性类型转换，与路由阶段构建输入行的转换一致
+ * - 比较语义与Siddhi一致：字段值为null时任何比较都不成立，整数之间按long比较，其余数值按double比较
+ */
+@Getter
+public final class FieldCondition {
+
+    /** 属性名称 */
+    private final String attribute;
+
+    /** 输入流属性类型 */
+    private final Attribute.Type type;
+
+    /** 比较运算符，常量在左侧时已翻转为属性在左侧 */
+    private final Compare.Operator operator;
+
+    /** 比较常量 */
+    private final Object constant;
+
+    /** 是否按long比较 */
+    private final boolean integral;
+
+    public FieldCondition(String attribute, Attribute.Type type, Compare.Operator operator, Object constant) {
+        this.attribute = attribute;
+        this.type = type;
+        this.operator = operator;
+        this.constant = constant;
+        this.integral = (type == Attribute.Type.INT || type == Attribute.Type.LONG)
+            && (constant instanceof Integer || constant instanceof Long);
+    }
+
+    /**
+     * 判断字段值是否满足条件
+     *
+     * @param value 消息中的原始字段值
+     * @return 是否满足
+     */
+    public boolean test(Object value) {
+        Object converted = SiddhiEventConverter.convert(value, type);
+        if (converted == null) {
+            return false;
+        }
+        switch (type) {
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return integral
+                    ? compare(Long.compare(((Number) converted).longValue(), ((Number) constant).longValue()))
+                    : compare(((Number) converted).doubleValue(), ((Number) constant).doubleValue());
+            default:
+                boolean equal = converted.equals(constant);
+                return operator == Compare.Operator.EQUAL ? equal : !equal;
+        }
+    }
+
+    private boolean compare(int result) {
+        switch (operator) {
+            case LESS_THAN:
+                return result < 0;
+            case LESS_THAN_EQUAL:
+                return result <= 0;
+            case GREATER_THAN:
+                return result > 0;
+            case GREATER_THAN_EQUAL:
+                return result >= 0;
+            case EQUAL:
+                return result == 0;
+            default:
+                return result != 0;
+        }
+    }
+
+    private boolean compare(double value, double bound) {
+        switch (operator) {
+            case LESS_THAN:
+                return value < bound;
+            case LESS_THAN_EQUAL:
+                return value <= bound;
+            case GREATER_THAN:
+                return value > bound;
+            case GREATER_THAN_EQUAL:
+                return value >= bound;
+            case EQUAL:
+                return value == bound;
+            default:
+                return value != bound;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return attribute + " " + operator + " " + constant;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.cepengine.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 静态区间树（中心点区间树）
+ *
+ * 存放规则在某个数值属性上的取值区间，按点查询包含该值的所有规则
+ *
+ * 设计特点：
+ * - 构建后不可变，规则快照变化时整体重建
+ * - 查询复杂度为O(log n + k)，k为命中的区间数，与区间总数无关
+ * - 区间端点可以是开区间或闭区间，无界的一侧使用无穷大
+ */
+final class IntervalTree {
+
+    /** 根节点 */
+    private final Node root;
+
+    IntervalTree(List<Interval> intervals) {
+        this.root = build(intervals);
+    }
+
+    /**
+     * 查询包含指定值的所有区间
+     *
+     * @param value 查询值
+     * @param hits 接收命中区间所属规则的下标
+     */
+    void stab(double value, IntConsumer hits) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        Node node = root;
+        while (node != null) {
+            if (value < node.center) {
+                // 节点内区间都包含中心点，上界一定大于value，只需检查下界
+                for (Interval interval : node.byLo) {
+                    if (interval.lo > value) {
+                        break;
+                    }
+                    if (interval.lo < value || interval.loInclusive) {
+                        hits.accept(interval.rule);
+                    }
+                }
+                node = node.left;
+            } else if (value > node.center) {
+                for (Interval interval : node.byHi) {
+                    if (interval.hi < value) {
+                        break;
+                    }
+                    if (interval.hi > value || interval.hiInclusive) {
+                        hits.accept(interval.rule);
+                    }
+                }
+                node = node.right;
+            } else {
+                for (Interval interval : node.byLo) {
+                    hits.accept(interval.rule);
+                }
+                return;
+            }
+        }
+    }
+
+    private static Node build(List<Interval> intervals) {
+        if (intervals.isEmpty()) {
+            return null;
+        }
+        List<Interval> sorted = new ArrayList<>(intervals);
+        sorted.sort(Comparator.comparingDouble(interval -> interval.lo));
+        double center = sorted.get(sorted.size() / 2).anchor();
+
+        List<Interval> left = new ArrayList<>();
+        List<Interval> right = new ArrayList<>();
+        List<Interval> here = new ArrayList<>();
+        for (Interval interval : sorted) {
+            if (interval.hi < center || (interval.hi == center && !interval.hiInclusive)) {
+                left.add(interval);
+            } else if (interval.lo > center || (interval.lo == center && !interval.loInclusive)) {
+                right.add(interval);
+            } else {
+                here.add(interval);
+            }
+        }
+        Interval[] byLo = here.toArray(new Interval[0]);
+        List<Interval> descending = new ArrayList<>(here);
+        descending.sort(Comparator.comparingDouble((Interval interval) -> interval.hi).reversed());
+        return new Node(center, byLo, descending.toArray(new Interval[0]), build(left), build(right));
+    }
+
+    /**
+     * 树节点：保存包含中心点的区间
+     */
+    private static final class Node {
+        private final double center;
+        /** 按下界升序 */
+        private final Interval[] byLo;
+        /** 按上界降序 */
+        private final Interval[] byHi;
+        private final Node left;
+        private final Node right;
+
+        private Node(double center, Interval[] byLo, Interval[] byHi, Node left, Node right) {
+            this.center = center;
+            this.byLo = byLo;
+            this.byHi = byHi;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * 规则在某个属性上的取值区间
+     */
+    static final class Interval {
+        private final double lo;
+        private final boolean loInclusive;
+        private final double hi;
+        private final boolean hiInclusive;
+        private final int rule;
+
+        Interval(double lo, boolean loInclusive, double hi, boolean hiInclusive, int rule) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.rule = rule;
+        }
+
+        /**
+         * 区间内的一个点，用作节点中心，保证该区间落在节点上
+         */
+        private double anchor() {
+            if (lo != Double.NEGATIVE_INFINITY) {
+                return loInclusive ? lo : Math.nextUp(lo);
+            }
+            return hiInclusive ? hi : Math.nextDown(hi);
+        }
+    }
+}
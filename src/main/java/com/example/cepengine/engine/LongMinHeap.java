@@ -0,0 +1,141 @@
+package com.example.cepengine.engine;
+
+import java.util.Arrays;
+
+/**
+ * 以long为键的最小堆
+ *
+ * 键和插入序号存放在原始类型数组中，比较时不拆箱；键相同时按插入顺序出堆
+ *
+ * 设计特点：
+ * - 只由一个线程访问，不做同步
+ * - 容量按需翻倍，出堆后释放元素引用
+ */
+final class LongMinHeap<T> {
+
+    /** 键 */
+    private long[] keys;
+
+    /** 插入序号，键相同时保持插入顺序 */
+    private long[] sequences;
+
+    /** 元素 */
+    private Object[] values;
+
+    /** 元素数量 */
+    private int size;
+
+    /** 下一个插入序号 */
+    private long nextSequence;
+
+    LongMinHeap(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.keys = new long[capacity];
+        this.sequences = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 加入元素
+     *
+     * @param key 键
+     * @param value 元素
+     */
+    void add(long key, T value) {
+        if (size == keys.length) {
+            int capacity = keys.length << 1;
+            keys = Arrays.copyOf(keys, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        sequences[size] = nextSequence++;
+        values[size] = value;
+        siftUp(size++);
+    }
+
+    /**
+     * 最小的键，堆为空时调用结果无意义
+     */
+    long peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * 取出键最小的元素
+     *
+     * @return 元素，堆为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T top = (T) values[0];
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+        values[size] = null;
+        return top;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && less(child + 1, child)) {
+                child++;
+            }
+            if (!less(child, index)) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private boolean less(int i, int j) {
+        return keys[i] < keys[j] || (keys[i] == keys[j] && sequences[i] < sequences[j]);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        sequences[to] = sequences[from];
+        values[to] = values[from];
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+        Object value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
@@ -0,0 +1,515 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.api.annotation.Annotation;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.execution.ExecutionElement;
+import io.siddhi.query.api.execution.query.Query;
+import io.siddhi.query.api.execution.query.input.handler.StreamHandler;
+import io.siddhi.query.api.execution.query.input.handler.Window;
+import io.siddhi.query.api.execution.query.input.stream.SingleInputStream;
+import io.siddhi.query.api.execution.query.output.stream.InsertIntoStream;
+import io.siddhi.query.api.execution.query.output.stream.OutputStream;
+import io.siddhi.query.api.execution.query.selection.OutputAttribute;
+import io.siddhi.query.api.execution.query.selection.Selector;
+import io.siddhi.query.api.expression.AttributeFunction;
+import io.siddhi.query.api.expression.Expression;
+import io.siddhi.query.api.expression.Variable;
+import io.siddhi.query.api.expression.constant.IntConstant;
+import io.siddhi.query.api.expression.constant.LongConstant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 原生时间窗口聚合算子
+ *
+ * 规则编译时识别常见的时间窗口规则形态，由本算子代替Siddhi的window.time评估，
+ * 窗口状态按固定时长的窗格预聚合，内存占用与窗格数成正比，与窗口内的事件数无关
+ *
+ * 支持的规则形态：
+ * - 应用中只有一个查询，从输入流经单个window.time(常量)读取，将当前事件插入输出流
+ * - 选择项为输入属性、sum(属性)、avg(属性)或count()，可按输入属性分组
+ * - 没有过滤、having、order by、limit和输出速率限制，不使用回放时钟
+ *
+ * 主要功能：
+ * 1. 每个分组持有一个窗格环，以原始类型数组记录每个窗格的事件数、各聚合属性的和及非空值个数
+ * 2. 同时维护窗口内的累计值，窗格滑出窗口时减去其中的值，每条事件的更新为常数时间
+ * 3. 按Siddhi的类型规则输出：整数属性的sum为Long，浮点属性的sum为Double，avg为Double，count为Long，
+ *    窗口内没有非空值时sum和avg为null
+ * 4. 窗口每滑过一整轮，清除已没有存活窗格的分组
+ *
+ * 设计特点：
+ * - 窗口边界按窗格对齐：与Siddhi一致，窗口为(时钟 - 窗口时长, 时钟]，窗口起点之后第一毫秒所在的窗格整体计入，
+ *   最多多计入不足一个窗格时长的早期事件；窗格时长为1毫秒时与Siddhi的结果完全一致
+ * - 时钟取已见事件时间戳的最大值，时间戳早于窗口起点的事件只输出，不计入聚合
+ * - 只有投影没有聚合的规则（生成器生成的示例查询）不保存任何状态
+ * - 主流水线和隔离通道可能先后评估同一规则，处理方法加锁
+ */
+public final class PaneWindowAggregator {
+
+    /** 单个窗口最多的窗格数，超过时交给Siddhi评估 */
+    private static final long MAX_PANES = 86_400;
+
+    /** 选择项：输入属性 */
+    private static final int ATTRIBUTE = 0;
+
+    /** 选择项：sum */
+    private static final int SUM = 1;
+
+    /** 选择项：avg */
+    private static final int AVG = 2;
+
+    /** 选择项：count */
+    private static final int COUNT = 3;
+
+    /** 窗口时长（毫秒） */
+    private final long windowMs;
+
+    /** 窗格时长（毫秒），整除窗口时长 */
+    private final long paneMs;
+
+    /** 窗格环长度，窗口内的窗格数 + 1 */
+    private final int ringLength;
+
+    /** 每个选择项的类型，select *时为null */
+    private final int[] kinds;
+
+    /** 属性选择项为输入属性下标，聚合选择项为聚合列下标 */
+    private final int[] sources;
+
+    /** 每个聚合列对应的输入属性下标 */
+    private final int[] columnSources;
+
+    /** 聚合列是否为整数类型，整数类型按long累加，浮点类型按double累加 */
+    private final boolean[] integral;
+
+    /** 分组属性的输入属性下标 */
+    private final int[] groupBy;
+
+    /** 是否包含聚合选择项 */
+    private final boolean aggregating;
+
+    /** 分组键 → 分组状态 */
+    private final Map<Object, Group> groups = new HashMap<>();
+
+    /** 已见事件时间戳的最大值 */
+    private long clock = Long.MIN_VALUE;
+
+    /** 下一次清除空分组的窗格 */
+    private long nextSweepPane = Long.MIN_VALUE;
+
+    private PaneWindowAggregator(long windowMs, long paneMs, int[] kinds, int[] sources,
+                                 int[] columnSources, boolean[] integral, int[] groupBy) {
+        this.windowMs = windowMs;
+        this.paneMs = paneMs;
+        this.ringLength = (int) (windowMs / paneMs) + 1;
+        this.kinds = kinds;
+        this.sources = sources;
+        this.columnSources = columnSources;
+        this.integral = integral;
+        this.groupBy = groupBy;
+        this.aggregating = columnSources.length > 0 || hasCount(kinds);
+    }
+
+    /**
+     * 从规则中识别可由本算子评估的时间窗口查询
+     *
+     * @param siddhiApp 解析后的规则
+     * @param inputStream 输入流名称
+     * @param outputStream 输出流名称
+     * @param inputAttributes 输入流属性定义
+     * @param paneMs 期望的窗格时长（毫秒），不能整除窗口时长时取两者的最大公约数
+     * @param playback 运行时是否以编程方式开启了回放模式
+     * @return 算子，规则形态不支持时返回null
+     */
+    public static PaneWindowAggregator extract(SiddhiApp siddhiApp, String inputStream, String outputStream,
+                                               List<Attribute> inputAttributes, long paneMs, boolean playback) {
+        if (playback) {
+            return null;
+        }
+        for (Annotation annotation : siddhiApp.getAnnotations()) {
+            if (annotation.getName().toLowerCase().endsWith("playback")) {
+                return null;
+            }
+        }
+        List<ExecutionElement> elements = siddhiApp.getExecutionElementList();
+        if (paneMs <= 0 || elements.size() != 1 || !(elements.get(0) instanceof Query)) {
+            return null;
+        }
+        Query query = (Query) elements.get(0);
+        if (query.getOutputRate() != null || !(query.getInputStream() instanceof SingleInputStream)) {
+            return null;
+        }
+
+        SingleInputStream input = (SingleInputStream) query.getInputStream();
+        if (input.isInnerStream() || input.isFaultStream() || !inputStream.equals(input.getStreamId())
+            || input.getStreamHandlers().size() != 1) {
+            return null;
+        }
+        long windowMs = timeWindowOf(input.getStreamHandlers().get(0));
+        if (windowMs <= 0) {
+            return null;
+        }
+        long pane = windowMs % paneMs == 0 ? paneMs : gcd(windowMs, paneMs);
+        if (windowMs / pane > MAX_PANES) {
+            return null;
+        }
+
+        OutputStream output = query.getOutputStream();
+        if (!(output instanceof InsertIntoStream) || ((InsertIntoStream) output).isInnerStream()
+            || ((InsertIntoStream) output).isFaultStream() || !outputStream.equals(output.getId())
+            || output.getOutputEventType() != OutputStream.OutputEventType.CURRENT_EVENTS) {
+            return null;
+        }
+
+        Selector selector = query.getSelector();
+        if (selector.getHavingExpression() != null || !selector.getOrderByList().isEmpty()
+            || selector.getLimit() != null || selector.getOffset() != null) {
+            return null;
+        }
+        int[] groupBy = new int[selector.getGroupByList().size()];
+        for (int i = 0; i < groupBy.length; i++) {
+            groupBy[i] = attributeIndex(selector.getGroupByList().get(i), inputStream, inputAttributes);
+            if (groupBy[i] < 0) {
+                return null;
+            }
+        }
+
+        List<OutputAttribute> selection = selector.getSelectionList();
+        if (selection.isEmpty()) {
+            return new PaneWindowAggregator(windowMs, pane, null, null, new int[0], new boolean[0], groupBy);
+        }
+        int[] kinds = new int[selection.size()];
+        int[] sources = new int[selection.size()];
+        List<Integer> columnSources = new ArrayList<>();
+        for (int i = 0; i < kinds.length; i++) {
+            Expression expression = selection.get(i).getExpression();
+            if (expression instanceof Variable) {
+                kinds[i] = ATTRIBUTE;
+                sources[i] = attributeIndex(expression, inputStream, inputAttributes);
+                if (sources[i] < 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (!(expression instanceof AttributeFunction)) {
+                return null;
+            }
+            AttributeFunction function = (AttributeFunction) expression;
+            if (function.getNamespace() != null && !function.getNamespace().isEmpty()) {
+                return null;
+            }
+            Expression[] parameters = function.getParameters();
+            int arity = parameters == null ? 0 : parameters.length;
+            String name = function.getName().toLowerCase();
+            if ("count".equals(name) && arity == 0) {
+                kinds[i] = COUNT;
+                continue;
+            }
+            if ((!"sum".equals(name) && !"avg".equals(name)) || arity != 1) {
+                return null;
+            }
+            int source = attributeIndex(parameters[0], inputStream, inputAttributes);
+            if (source < 0 || !isNumeric(inputAttributes.get(source).getType())) {
+                return null;
+            }
+            kinds[i] = "sum".equals(name) ? SUM : AVG;
+            int column = columnSources.indexOf(source);
+            if (column < 0) {
+                column = columnSources.size();
+                columnSources.add(source);
+            }
+            sources[i] = column;
+        }
+
+        int[] columns = new int[columnSources.size()];
+        boolean[] integral = new boolean[columns.length];
+        for (int k = 0; k < columns.length; k++) {
+            columns[k] = columnSources.get(k);
+            Attribute.Type type = inputAttributes.get(columns[k]).getType();
+            integral[k] = type == Attribute.Type.INT || type == Attribute.Type.LONG;
+        }
+        return new PaneWindowAggregator(windowMs, pane, kinds, sources, columns, integral, groupBy);
+    }
+
+    /**
+     * 处理一条输入事件并计算输出
+     *
+     * @param timestamp 事件时间戳（毫秒）
+     * @param row 输入行
+     * @return 输出行，按选择项顺序排列
+     */
+    public synchronized Object[] process(long timestamp, Object[] row) {
+        if (!aggregating) {
+            return project(row, null);
+        }
+        clock = Math.max(clock, timestamp);
+        long current = Math.floorDiv(clock, paneMs);
+        // 与Siddhi的window.time一致，窗口只保留时间戳大于clock - windowMs的事件，
+        // 最早的窗格是窗口起点之后第一毫秒所在的窗格
+        long oldest = Math.floorDiv(clock - windowMs + 1, paneMs);
+
+        Object key = groupKey(row);
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group();
+            groups.put(key, group);
+        }
+        group.advance(current, oldest);
+        long pane = Math.floorDiv(timestamp, paneMs);
+        if (pane >= oldest) {
+            group.add(pane, row);
+        }
+
+        if (current >= nextSweepPane) {
+            sweep(oldest);
+            nextSweepPane = current + ringLength;
+        }
+        return project(row, group);
+    }
+
+    /**
+     * 当前保存状态的分组数
+     */
+    public synchronized int groupCount() {
+        return groups.size();
+    }
+
+    /**
+     * 按选择项构建输出行
+     */
+    private Object[] project(Object[] row, Group group) {
+        if (kinds == null) {
+            return row.clone();
+        }
+        Object[] output = new Object[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            int source = sources[i];
+            switch (kinds[i]) {
+                case ATTRIBUTE:
+                    output[i] = row[source];
+                    break;
+                case COUNT:
+                    output[i] = group.totalEvents;
+                    break;
+                case SUM:
+                    if (group.totalCounts[source] > 0) {
+                        output[i] = integral[source] ? (Object) group.totalLongSums[source]
+                            : (Object) group.totalDoubleSums[source];
+                    }
+                    break;
+                default:
+                    if (group.totalCounts[source] > 0) {
+                        double sum = integral[source] ? group.totalLongSums[source] : group.totalDoubleSums[source];
+                        output[i] = sum / group.totalCounts[source];
+                    }
+                    break;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * 计算分组键：不分组时为空键，单个分组属性时为属性值，多个时为属性值列表
+     */
+    private Object groupKey(Object[] row) {
+        if (groupBy.length == 0) {
+            return null;
+        }
+        if (groupBy.length == 1) {
+            return row[groupBy[0]];
+        }
+        Object[] values = new Object[groupBy.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row[groupBy[i]];
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 清除所有窗格都已滑出窗口的分组
+     */
+    private void sweep(long oldest) {
+        Iterator<Group> iterator = groups.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().latestPane < oldest) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 读取window.time的窗口时长
+     *
+     * @return 窗口时长（毫秒），不是常量参数的window.time时返回-1
+     */
+    private static long timeWindowOf(StreamHandler handler) {
+        if (!(handler instanceof Window)) {
+            return -1;
+        }
+        Window window = (Window) handler;
+        if ((window.getNamespace() != null && !window.getNamespace().isEmpty())
+            || !"time".equalsIgnoreCase(window.getName())
+            || window.getParameters() == null || window.getParameters().length != 1) {
+            return -1;
+        }
+        Expression parameter = window.getParameters()[0];
+        if (parameter instanceof LongConstant) {
+            return ((LongConstant) parameter).getValue();
+        } else if (parameter instanceof IntConstant) {
+            return ((IntConstant) parameter).getValue();
+        }
+        return -1;
+    }
+
+    /**
+     * 获取引用输入流属性的变量对应的属性下标
+     *
+     * @return 属性下标，不是输入流属性时返回-1
+     */
+    private static int attributeIndex(Expression expression, String inputStream, List<Attribute> inputAttributes) {
+        if (!(expression instanceof Variable)) {
+            return -1;
+        }
+        Variable variable = (Variable) expression;
+        if (variable.getFunctionId() != null || variable.isInnerStream() || variable.getStreamIndex() != null
+            || (variable.getStreamId() != null && !inputStream.equals(variable.getStreamId()))) {
+            return -1;
+        }
+        for (int i = 0; i < inputAttributes.size(); i++) {
+            if (inputAttributes.get(i).getName().equals(variable.getAttributeName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNumeric(Attribute.Type type) {
+        return type == Attribute.Type.INT || type == Attribute.Type.LONG
+            || type == Attribute.Type.FLOAT || type == Attribute.Type.DOUBLE;
+    }
+
+    private static boolean hasCount(int[] kinds) {
+        if (kinds != null) {
+            for (int kind : kinds) {
+                if (kind == COUNT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return "window=" + windowMs + "ms, pane=" + paneMs + "ms, columns=" + columnSources.length
+            + ", groupBy=" + groupBy.length;
+    }
+
+    /**
+     * 单个分组的窗格环和窗口累计值
+     *
+     * 窗格按窗格序号对环长度取模存放，二维数据按“窗格 × 聚合列”展开到一维数组
+     */
+    private final class Group {
+        private final long[] panes = new long[ringLength];
+        private final long[] events = new long[ringLength];
+        private final long[] counts = new long[ringLength * columnSources.length];
+        private final long[] longSums = new long[ringLength * columnSources.length];
+        private final double[] doubleSums = new double[ringLength * columnSources.length];
+
+        private long totalEvents;
+        private final long[] totalCounts = new long[columnSources.length];
+        private final long[] totalLongSums = new long[columnSources.length];
+        private final double[] totalDoubleSums = new double[columnSources.length];
+
+        /** 环中最新的窗格序号 */
+        private long latestPane = Long.MIN_VALUE;
+
+        private Group() {
+            Arrays.fill(panes, Long.MIN_VALUE);
+        }
+
+        /**
+         * 将窗格环推进到指定窗格，被覆盖的窗格和早于最早窗格的窗格从累计值中减去
+         */
+        private void advance(long pane, long oldest) {
+            if (pane > latestPane) {
+                long from = latestPane == Long.MIN_VALUE ? pane - ringLength + 1
+                    : Math.max(latestPane + 1, pane - ringLength + 1);
+                for (long p = from; p <= pane; p++) {
+                    int slot = (int) Math.floorMod(p, (long) ringLength);
+                    if (panes[slot] != p) {
+                        evict(slot);
+                        panes[slot] = p;
+                    }
+                }
+                latestPane = pane;
+            }
+            // 环中保留windowMs / paneMs + 1个窗格，窗口起点与窗格边界对齐时最早的一个已经滑出窗口
+            int expired = (int) Math.floorMod(oldest - 1, (long) ringLength);
+            if (panes[expired] == oldest - 1) {
+                evict(expired);
+            }
+        }
+
+        /**
+         * 将事件计入所在窗格，调用前已推进到不早于该窗格
+         */
+        private void add(long pane, Object[] row) {
+            int slot = (int) Math.floorMod(pane, (long) ringLength);
+            events[slot]++;
+            totalEvents++;
+            int base = slot * columnSources.length;
+            for (int k = 0; k < columnSources.length; k++) {
+                Object value = row[columnSources[k]];
+                if (!(value instanceof Number)) {
+                    continue;
+                }
+                counts[base + k]++;
+                totalCounts[k]++;
+                if (integral[k]) {
+                    long v = ((Number) value).longValue();
+                    longSums[base + k] += v;
+                    totalLongSums[k] += v;
+                } else {
+                    double v = ((Number) value).doubleValue();
+                    doubleSums[base + k] += v;
+                    totalDoubleSums[k] += v;
+                }
+            }
+        }
+
+        private void evict(int slot) {
+            if (events[slot] == 0) {
+                return;
+            }
+            totalEvents -= events[slot];
+            events[slot] = 0;
+            int base = slot * columnSources.length;
+            for (int k = 0; k < columnSources.length; k++) {
+                totalCounts[k] -= counts[base + k];
+                totalLongSums[k] -= longSums[base + k];
+                // 窗口内没有非空值时归零，避免浮点减法的舍入误差累积
+                totalDoubleSums[k] = totalCounts[k] == 0 ? 0 : totalDoubleSums[k] - doubleSums[base + k];
+                counts[base + k] = 0;
+                longSums[base + k] = 0;
+                doubleSums[base + k] = 0;
+            }
+        }
+    }
+}
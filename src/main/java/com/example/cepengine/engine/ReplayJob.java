@@ -0,0 +1,189 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.enums.ReplaySourceEnum;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 规则回放任务
+ *
+ * 记录一次回放的参数和各规则的进度，供REST接口查询
+ *
+ * 进度按事件时间计算：已回放到的事件时间在回放时间范围内所占的比例
+ */
+@Getter
+public class ReplayJob {
+
+    /** 回放任务状态 */
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /** 任务ID */
+    private final String id;
+
+    /** 回放数据源 */
+    private final ReplaySourceEnum source;
+
+    /** 起始时间（包含） */
+    private final LocalDateTime from;
+
+    /** 结束时间（不包含） */
+    private final LocalDateTime to;
+
+    /** 提交时间 */
+    private final LocalDateTime submittedTime = LocalDateTime.now();
+
+    /** 各规则的回放进度 */
+    private final Map<Long, RuleProgress> rules;
+
+    /** 是否已请求取消 */
+    private volatile boolean cancelled;
+
+    /** 起始时间（毫秒） */
+    @JsonIgnore
+    private final long fromMs;
+
+    /** 结束时间（毫秒） */
+    @JsonIgnore
+    private final long toMs;
+
+    public ReplayJob(String id, ReplaySourceEnum source, LocalDateTime from, LocalDateTime to,
+                     long fromMs, long toMs, List<Long> ruleIds) {
+        this.id = id;
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.fromMs = fromMs;
+        this.toMs = toMs;
+        Map<Long, RuleProgress> progress = new LinkedHashMap<>();
+        for (Long ruleId : ruleIds) {
+            progress.put(ruleId, new RuleProgress());
+        }
+        this.rules = Collections.unmodifiableMap(progress);
+    }
+
+    /**
+     * 请求取消回放，各规则在处理下一条事件前停止
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 获取任务整体状态
+     *
+     * @return 任一规则运行中为RUNNING，任一规则失败为FAILED，否则取各规则的共同状态
+     */
+    public Status getStatus() {
+        boolean anyPending = false;
+        boolean anyFailed = false;
+        for (RuleProgress progress : rules.values()) {
+            switch (progress.getStatus()) {
+                case RUNNING:
+                    return Status.RUNNING;
+                case PENDING:
+                    anyPending = true;
+                    break;
+                case FAILED:
+                    anyFailed = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (anyPending) {
+            return Status.PENDING;
+        }
+        if (anyFailed) {
+            return Status.FAILED;
+        }
+        return cancelled ? Status.CANCELLED : Status.COMPLETED;
+    }
+
+    /**
+     * 获取整体进度，取各规则中最慢的进度
+     *
+     * @return 0到1之间的进度
+     */
+    public double getProgress() {
+        double min = 1.0;
+        for (RuleProgress progress : rules.values()) {
+            min = Math.min(min, progress.getProgress());
+        }
+        return min;
+    }
+
+    /**
+     * 单个规则的回放进度
+     */
+    @Getter
+    public class RuleProgress {
+
+        /** 状态 */
+        private volatile Status status = Status.PENDING;
+
+        /** 已送入规则的事件数 */
+        private final AtomicLong eventsReplayed = new AtomicLong();
+
+        /** 解码失败而跳过的事件数 */
+        private final AtomicLong eventsSkipped = new AtomicLong();
+
+        /** 规则输出的结果数 */
+        private final AtomicLong outputs = new AtomicLong();
+
+        /** 已回放到的事件时间（毫秒） */
+        private volatile long watermark = Long.MIN_VALUE;
+
+        /** 失败原因 */
+        private volatile String error;
+
+        /**
+         * 获取规则的回放进度
+         *
+         * @return 0到1之间的进度
+         */
+        public double getProgress() {
+            if (status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED) {
+                return 1.0;
+            }
+            if (watermark == Long.MIN_VALUE || toMs <= fromMs) {
+                return 0.0;
+            }
+            return Math.min(1.0, Math.max(0.0, (double) (watermark - fromMs) / (toMs - fromMs)));
+        }
+
+        public void start() {
+            status = Status.RUNNING;
+        }
+
+        public void recordEvent(long timestamp) {
+            eventsReplayed.incrementAndGet();
+            watermark = timestamp;
+        }
+
+        public void recordSkipped() {
+            eventsSkipped.incrementAndGet();
+        }
+
+        public void recordOutput() {
+            outputs.incrementAndGet();
+        }
+
+        public void finish() {
+            status = cancelled ? Status.CANCELLED : Status.COMPLETED;
+        }
+
+        public void fail(Exception e) {
+            error = e.getMessage();
+            status = Status.FAILED;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.service.DataPersistenceService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 规则结果输出器
+ * 
+ * 负责将规则输出结果发送到Kafka并提交持久化
+ * 
+ * 主要功能：
+ * 1. 将Siddhi输出事件转换为ProcessedData
+ * 2. 将结果发送到输出主题
+ * 3. 将结果提交给异步持久化服务
+ * 4. 每次输出返回CompletionStage，Kafka确认且结果落库后完成，进行中的输出数通过指标暴露
+ * 
+ * 发送失败的结果交给失败处理服务重试，Kafka不可用时不阻塞输出线程；
+ * 失败回调可能写本地溢出日志，交给阻塞I/O执行器，不占用Kafka生产者的I/O线程
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResultSink {
+
+    /** Kafka模板，用于发送处理结果 */
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    /** 异步持久化服务 */
+    private final DataPersistenceService dataPersistenceService;
+
+    /** 失败处理服务 */
+    private final FailureHandlingService failureHandlingService;
+
+    /** JSON序列化器 */
+    private final ObjectMapper objectMapper;
+
+    /** 阻塞I/O执行器，执行发送失败回调 */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 进行中的输出数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** 处理结果输出主题 */
+    @Value("${app.kafka.output-topic}")
+    private String outputTopic;
+
+    /**
+     * 注册指标
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder("cep.sink.in-flight", inFlight, AtomicInteger::get)
+            .description("已发出但尚未完成Kafka确认和落库的规则结果数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 将Siddhi输出事件转换为处理结果
+     * 
+     * @param ruleId 规则ID
+     * @param rawDataId 原始数据ID，可能为null
+     * @param attributeNames 输出流属性名称
+     * @param data 输出事件数据
+     * @return 处理结果
+     */
+    public ProcessedData toProcessedData(Long ruleId, Long rawDataId, String[] attributeNames, Object[] data) {
+        ProcessedData processedData = new ProcessedData();
+        processedData.setRuleId(ruleId);
+        processedData.setRawDataId(rawDataId);
+        processedData.setResultContent(toJson(attributeNames, data));
+        processedData.setProcessedTime(LocalDateTime.now());
+        return processedData;
+    }
+
+    /**
+     * 输出单个处理结果
+     * 
+     * @param result 处理结果
+     * @return Kafka确认且结果落库后完成；任一步失败时异常完成，失败的部分已交给失败处理服务重试
+     */
+    public CompletionStage<Void> emit(ProcessedData result) {
+        inFlight.incrementAndGet();
+        String key = String.valueOf(result.getRuleId());
+        String content = result.getResultContent();
+        CompletableFuture<?> sent;
+        try {
+            sent = kafkaTemplate.send(outputTopic, key, content).completable();
+        } catch (Exception e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        CompletableFuture<Void> delivered = sent.handle((sendResult, e) -> {
+            if (e != null) {
+                blockingIoExecutor.execute(() -> failureHandlingService.submitKafka(outputTopic, key, content, e));
+                throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+            }
+            return null;
+        });
+
+        // 定时器触发的输出没有原始数据ID，同样落库，raw_data_id为空
+        // 发送失败时也要等待落库结束，调用方据此判断结果是否已经离开内存
+        CompletableFuture<Void> done = CompletableFuture.allOf(delivered,
+            dataPersistenceService.persistProcessed(result).toCompletableFuture());
+        done.whenComplete((ignored, e) -> inFlight.decrementAndGet());
+        return done;
+    }
+
+    /**
+     * 批量输出处理结果
+     * 
+     * @param results 处理结果列表
+     * @return 全部结果完成后完成
+     */
+    public CompletionStage<Void> emitAll(List<ProcessedData> results) {
+        CompletableFuture<?>[] emitted = new CompletableFuture<?>[results.size()];
+        for (int i = 0; i < emitted.length; i++) {
+            emitted[i] = emit(results.get(i)).toCompletableFuture();
+        }
+        return CompletableFuture.allOf(emitted);
+    }
+
+    /**
+     * 进行中的输出数
+     */
+    public int inFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * 发出生产者缓冲区中的消息，等待进行中的输出全部完成
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部完成
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        kafkaTemplate.flush();
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * 将输出事件数据序列化为JSON
+     * 
+     * @param attributeNames 输出流属性名称
+     * @param data 输出事件数据
+     * @return JSON字符串
+     */
+    private String toJson(String[] attributeNames, Object[] data) {
+        try {
+            return objectMapper.writeValueAsString(SiddhiEventConverter.toOutputMap(data, attributeNames));
+        } catch (JsonProcessingException e) {
+            log.warn("输出结果序列化失败，使用原始格式", e);
+            return Arrays.toString(data);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.cepengine.engine;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规则执行预算actuator端点
+ *
+ * GET /actuator/rulebudgets 查看各规则的评估耗时和隔离状态
+ * DELETE /actuator/rulebudgets/{ruleId} 解除规则隔离
+ */
+@Component
+@Endpoint(id = "rulebudgets")
+@RequiredArgsConstructor
+public class RuleBudgetEndpoint {
+
+    /** 规则执行预算跟踪器 */
+    private final RuleBudgetTracker budgetTracker;
+
+    /**
+     * 查看所有规则的执行统计
+     *
+     * @return 执行统计列表，隔离的规则在前
+     */
+    @ReadOperation
+    public List<Map<String, Object>> budgets() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (RuleBudgetTracker.RuleStats stats : budgetTracker.getStats()) {
+            long evaluations = stats.getEvaluations().sum();
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("ruleId", stats.getRuleId());
+            view.put("quarantined", stats.isQuarantined());
+            view.put("quarantinedTime", stats.getQuarantinedTime());
+            view.put("budgetMicros", stats.getBudgetNanos() / 1000);
+            view.put("evaluations", evaluations);
+            view.put("avgMicros", evaluations == 0 ? 0 : stats.getEvaluationNanos().sum() / evaluations / 1000);
+            view.put("maxMicros", stats.getMaxNanos() / 1000);
+            view.put("callbackMicros", stats.getCallbackNanos().sum() / 1000);
+            view.put("overBudget", stats.getOverBudget().sum());
+            view.put("strikes", stats.getStrikes().get());
+            view.put("dropped", stats.getDropped().sum());
+            result.add(view);
+        }
+        result.sort((a, b) -> Boolean.compare((Boolean) b.get("quarantined"), (Boolean) a.get("quarantined")));
+        return result;
+    }
+
+    /**
+     * 解除规则隔离
+     *
+     * @param ruleId 规则ID
+     * @return 规则此前是否处于隔离状态
+     */
+    @DeleteOperation
+    public boolean release(@Selector Long ruleId) {
+        return budgetTracker.release(ruleId);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.cepengine.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * 规则执行预算配置属性
+ *
+ * 绑定application.yml中app.rule.budget下的配置
+ *
+ * 单次评估（inputHandler.send及其同步输出回调）耗时超过预算记为一次超时，
+ * 连续超时达到strikes次的规则被隔离
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rule.budget")
+public class RuleBudgetProperties {
+
+  /** 是否启用执行预算 */
+  private boolean enabled = true;
+
+  /** 默认的单次评估预算（微秒） */
+  private long defaultMicros = 2000;
+
+  /** 连续超出预算多少次后隔离规则 */
+  private int strikes = 20;
+
+  /**
+   * 按规则覆盖的单次评估预算（微秒）
+   *
+   * 键：规则ID
+   * 值：预算
+   */
+  private Map<Long, Long> overrides = new LinkedHashMap<>();
+
+  /**
+   * 获取规则的单次评估预算
+   *
+   * @param ruleId 规则ID
+   * @return 预算（纳秒）
+   */
+  public long budgetNanos(Long ruleId) {
+    return overrides.getOrDefault(ruleId, defaultMicros) * 1000L;
+  }
+}
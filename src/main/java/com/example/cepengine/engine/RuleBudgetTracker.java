@@ -0,0 +1,276 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.mapper.SiddhiRuleMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 规则执行预算跟踪器
+ *
+ * 统计每个规则的评估耗时，隔离连续超出预算的规则，避免单个规则拖慢共享评估线程上的其他规则
+ *
+ * 主要功能：
+ * 1. 记录每次评估（inputHandler.send，包括同步触发的输出回调）的耗时
+ * 2. 单独记录输出回调的耗时
+ * 3. 连续超出预算的规则标记为隔离，评估阶段将其事件转交低优先级的隔离通道
+ * 4. 将隔离状态写入siddhi_rule.status（2-降级），重启后仍然生效
+ * 5. 通过Micrometer指标和actuator端点暴露统计和隔离状态
+ *
+ * 设计特点：
+ * - 热路径只有计数器累加，无锁
+ * - 隔离时的状态写入交给阻塞I/O执行器异步完成，评估线程不等待数据库往返
+ * - 同一规则始终由同一个评估线程处理，连续超时计数不存在竞争
+ * - 状态以数据库为准：规则刷新时同步status，运维将status改回1即解除隔离
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RuleBudgetTracker {
+
+    /** 规则状态：启用 */
+    public static final int STATUS_ACTIVE = 1;
+
+    /** 规则状态：降级 */
+    public static final int STATUS_DEGRADED = 2;
+
+    /** 执行预算配置 */
+    private final RuleBudgetProperties properties;
+
+    /** 规则映射器，用于更新规则状态 */
+    private final SiddhiRuleMapper siddhiRuleMapper;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 阻塞I/O执行器，执行隔离时的状态写入 */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /** 各规则的执行统计 */
+    private final Map<Long, RuleStats> stats = new ConcurrentHashMap<>();
+
+    /** 隔离动作计数 */
+    private Counter quarantineCounter;
+
+    /**
+     * 注册全局指标
+     */
+    @PostConstruct
+    public void init() {
+        quarantineCounter = Counter.builder("cep.rule.quarantine.actions")
+            .description("因连续超出执行预算而被隔离的次数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 判断规则是否处于隔离状态
+     *
+     * @param ruleId 规则ID
+     * @return 是否隔离
+     */
+    public boolean isQuarantined(Long ruleId) {
+        RuleStats ruleStats = stats.get(ruleId);
+        return ruleStats != null && ruleStats.quarantined;
+    }
+
+    /**
+     * 记录一次评估耗时，连续超出预算达到阈值时隔离规则
+     *
+     * @param ruleId 规则ID
+     * @param nanos 评估耗时（纳秒）
+     */
+    public void recordEvaluation(Long ruleId, long nanos) {
+        RuleStats ruleStats = statsOf(ruleId);
+        ruleStats.evaluationNanos.add(nanos);
+        ruleStats.evaluations.increment();
+        if (nanos > ruleStats.maxNanos) {
+            ruleStats.maxNanos = nanos;
+        }
+
+        if (!properties.isEnabled() || nanos <= ruleStats.budgetNanos) {
+            ruleStats.strikes.set(0);
+            return;
+        }
+        ruleStats.overBudget.increment();
+        if (ruleStats.strikes.incrementAndGet() >= properties.getStrikes() && !ruleStats.quarantined) {
+            quarantine(ruleStats);
+        }
+    }
+
+    /**
+     * 记录一次输出回调耗时
+     *
+     * @param ruleId 规则ID
+     * @param nanos 回调耗时（纳秒）
+     */
+    public void recordCallback(Long ruleId, long nanos) {
+        statsOf(ruleId).callbackNanos.add(nanos);
+    }
+
+    /**
+     * 记录一次因隔离通道已满而转入死信主题的事件
+     *
+     * @param ruleId 规则ID
+     */
+    public void recordDropped(Long ruleId) {
+        statsOf(ruleId).dropped.increment();
+    }
+
+    /**
+     * 按数据库中的规则状态同步隔离状态
+     *
+     * 在规则刷新时调用，status为2的规则进入隔离，status为1的规则解除隔离
+     *
+     * @param rules 活跃规则
+     */
+    public void syncStatuses(Collection<SiddhiRule> rules) {
+        for (SiddhiRule rule : rules) {
+            boolean degraded = rule.getStatus() != null && rule.getStatus() == STATUS_DEGRADED;
+            RuleStats ruleStats = degraded ? statsOf(rule.getId()) : stats.get(rule.getId());
+            if (ruleStats == null || ruleStats.quarantined == degraded) {
+                continue;
+            }
+            ruleStats.quarantined = degraded;
+            ruleStats.strikes.set(0);
+            ruleStats.quarantinedTime = degraded ? LocalDateTime.now() : null;
+            log.info("按规则状态同步隔离状态：规则ID={}, 隔离={}", rule.getId(), degraded);
+        }
+    }
+
+    /**
+     * 解除规则隔离，规则状态恢复为启用
+     *
+     * @param ruleId 规则ID
+     * @return 规则此前是否处于隔离状态
+     */
+    public boolean release(Long ruleId) {
+        RuleStats ruleStats = stats.get(ruleId);
+        if (ruleStats == null || !ruleStats.quarantined) {
+            return false;
+        }
+        siddhiRuleMapper.updateStatus(ruleId, STATUS_ACTIVE);
+        ruleStats.strikes.set(0);
+        ruleStats.quarantined = false;
+        ruleStats.quarantinedTime = null;
+        log.info("已解除规则隔离：规则ID={}", ruleId);
+        return true;
+    }
+
+    /**
+     * 获取所有规则的执行统计
+     *
+     * @return 执行统计列表
+     */
+    public List<RuleStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * 隔离规则
+     */
+    private void quarantine(RuleStats ruleStats) {
+        ruleStats.quarantined = true;
+        ruleStats.quarantinedTime = LocalDateTime.now();
+        quarantineCounter.increment();
+        log.warn("规则连续 {} 次超出执行预算 {}us，已转入隔离通道：规则ID={}, 最大耗时={}us",
+            ruleStats.strikes.get(), ruleStats.budgetNanos / 1000, ruleStats.ruleId, ruleStats.maxNanos / 1000);
+        Long ruleId = ruleStats.ruleId;
+        blockingIoExecutor.supplyDb(() -> {
+            siddhiRuleMapper.updateStatus(ruleId, STATUS_DEGRADED);
+            return null;
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("更新规则降级状态失败：规则ID={}", ruleId, e);
+            }
+        });
+    }
+
+    /**
+     * 获取或创建规则的执行统计，首次创建时注册指标
+     */
+    private RuleStats statsOf(Long ruleId) {
+        RuleStats ruleStats = stats.get(ruleId);
+        if (ruleStats != null) {
+            return ruleStats;
+        }
+        return stats.computeIfAbsent(ruleId, id -> {
+            RuleStats created = new RuleStats(id, properties.budgetNanos(id));
+            String tag = String.valueOf(id);
+            FunctionCounter.builder("cep.rule.evaluation.time", created, s -> s.evaluationNanos.sum())
+                .description("规则评估累计耗时").baseUnit("nanoseconds").tag("rule", tag).register(meterRegistry);
+            FunctionCounter.builder("cep.rule.evaluation.count", created, s -> s.evaluations.sum())
+                .description("规则评估次数").tag("rule", tag).register(meterRegistry);
+            FunctionCounter.builder("cep.rule.callback.time", created, s -> s.callbackNanos.sum())
+                .description("规则输出回调累计耗时").baseUnit("nanoseconds").tag("rule", tag).register(meterRegistry);
+            FunctionCounter.builder("cep.rule.evaluation.over.budget", created, s -> s.overBudget.sum())
+                .description("规则评估超出预算次数").tag("rule", tag).register(meterRegistry);
+            FunctionCounter.builder("cep.rule.quarantine.dropped", created, s -> s.dropped.sum())
+                .description("隔离通道已满而转入死信主题的事件数").tag("rule", tag).register(meterRegistry);
+            Gauge.builder("cep.rule.quarantined", created, s -> s.quarantined ? 1 : 0)
+                .description("规则是否处于隔离状态").tag("rule", tag).register(meterRegistry);
+            return created;
+        });
+    }
+
+    /**
+     * 单个规则的执行统计
+     */
+    @Getter
+    public static class RuleStats {
+
+        /** 规则ID */
+        private final Long ruleId;
+
+        /** 单次评估预算（纳秒） */
+        private final long budgetNanos;
+
+        /** 评估累计耗时（纳秒） */
+        private final LongAdder evaluationNanos = new LongAdder();
+
+        /** 评估次数 */
+        private final LongAdder evaluations = new LongAdder();
+
+        /** 输出回调累计耗时（纳秒） */
+        private final LongAdder callbackNanos = new LongAdder();
+
+        /** 超出预算次数 */
+        private final LongAdder overBudget = new LongAdder();
+
+        /** 隔离通道已满而转入死信主题的事件数 */
+        private final LongAdder dropped = new LongAdder();
+
+        /** 当前连续超出预算次数 */
+        private final AtomicInteger strikes = new AtomicInteger();
+
+        /** 单次评估最大耗时（纳秒） */
+        private volatile long maxNanos;
+
+        /** 是否隔离 */
+        private volatile boolean quarantined;
+
+        /** 隔离时间 */
+        private volatile LocalDateTime quarantinedTime;
+
+        RuleStats(Long ruleId, long budgetNanos) {
+            this.ruleId = ruleId;
+            this.budgetNanos = budgetNanos;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.expression.condition.Compare;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 规则判别索引
+ *
+ * 将所有活跃规则的前置过滤条件按属性合并成共享的索引，一次查询得到消息可能匹配的规则，
+ * 查询开销与命中的规则数相关，与规则总数无关
+ *
+ * 主要功能：
+ * 1. 同一规则在同一数值属性上的比较合并为一个区间，每个数值属性建一棵区间树
+ * 2. 字符串和布尔属性的相等比较按常量建哈希表
+ * 3. 不等比较等无法用区间表示的条件作为剩余条件，在索引命中后逐个判断
+ * 4. 查询时对每个被索引的属性只取值、转换一次，按规则统计命中的属性数，
+ *    所有被索引属性都命中且剩余条件成立的规则为候选规则
+ *
+ * 设计特点：
+ * - 与逐条判断前置过滤条件的结果完全一致，只是避免了逐条判断
+ * - 不同规则中相同的属性只查询一次，条件越集中共享越充分
+ * - 索引随活跃规则快照一起构建，构建后不可变
+ * - 条件互相矛盾（合并后区间为空）的规则不会被选中
+ */
+public final class RuleIndex {
+
+    /** 整数常量可以无损转换为double的范围 */
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    /** 每个线程复用的计数数组 */
+    private static final ThreadLocal<Matcher> MATCHERS = ThreadLocal.withInitial(Matcher::new);
+
+    /** 规则数量 */
+    @Getter
+    private final int ruleCount;
+
+    /** 没有前置过滤条件的规则，总是候选 */
+    private final int[] unconditional;
+
+    /** 只有剩余条件的规则，逐条判断 */
+    private final int[] residualOnly;
+
+    /** 每个规则需要命中的被索引属性数，0表示不在索引中 */
+    private final int[] required;
+
+    /** 每个规则的剩余条件，没有时为null */
+    private final FieldCondition[][] residuals;
+
+    /** 被索引的属性 */
+    private final AttributeIndex[] attributes;
+
+    private RuleIndex(int ruleCount, int[] unconditional, int[] residualOnly, int[] required,
+                      FieldCondition[][] residuals, AttributeIndex[] attributes) {
+        this.ruleCount = ruleCount;
+        this.unconditional = unconditional;
+        this.residualOnly = residualOnly;
+        this.required = required;
+        this.residuals = residuals;
+        this.attributes = attributes;
+    }
+
+    /**
+     * 构建判别索引
+     *
+     * @param predicates 与规则列表对齐的前置过滤条件，没有条件的规则为null
+     * @return 判别索引
+     */
+    public static RuleIndex build(RulePredicate[] predicates) {
+        int ruleCount = predicates.length;
+        List<Integer> unconditional = new ArrayList<>();
+        List<Integer> residualOnly = new ArrayList<>();
+        int[] required = new int[ruleCount];
+        FieldCondition[][] residuals = new FieldCondition[ruleCount][];
+        Map<String, AttributeBuilder> builders = new LinkedHashMap<>();
+
+        for (int rule = 0; rule < ruleCount; rule++) {
+            RulePredicate predicate = predicates[rule];
+            if (predicate == null) {
+                unconditional.add(rule);
+                continue;
+            }
+            Map<String, Bound> bounds = new LinkedHashMap<>();
+            List<FieldCondition> rest = new ArrayList<>();
+            for (FieldCondition condition : predicate.getConditions()) {
+                if (!indexable(condition)) {
+                    rest.add(condition);
+                    continue;
+                }
+                bounds.computeIfAbsent(key(condition.getAttribute(), condition.getType()), k -> new Bound())
+                    .add(condition);
+            }
+            if (bounds.values().stream().anyMatch(Bound::isEmpty)) {
+                // 条件互相矛盾，规则不可能接受任何消息
+                continue;
+            }
+            residuals[rule] = rest.isEmpty() ? null : rest.toArray(new FieldCondition[0]);
+            if (bounds.isEmpty()) {
+                residualOnly.add(rule);
+                continue;
+            }
+            required[rule] = bounds.size();
+            for (Map.Entry<String, Bound> entry : bounds.entrySet()) {
+                FieldCondition first = entry.getValue().first;
+                builders.computeIfAbsent(entry.getKey(),
+                        k -> new AttributeBuilder(first.getAttribute(), first.getType()))
+                    .add(rule, entry.getValue());
+            }
+        }
+
+        AttributeIndex[] attributes = new AttributeIndex[builders.size()];
+        int i = 0;
+        for (AttributeBuilder builder : builders.values()) {
+            attributes[i++] = builder.build();
+        }
+        return new RuleIndex(ruleCount, toArray(unconditional), toArray(residualOnly), required, residuals,
+            attributes);
+    }
+
+    /**
+     * 查询消息可能匹配的规则
+     *
+     * @param payload 解码后的消息
+     * @return 升序排列的规则下标，全部规则都可能匹配时返回null
+     */
+    public int[] candidates(DecodedPayload payload) {
+        Matcher matcher = MATCHERS.get();
+        matcher.reset(ruleCount);
+        for (AttributeIndex attribute : attributes) {
+            attribute.match(payload, matcher);
+        }
+
+        int[] selected = new int[unconditional.length + residualOnly.length + matcher.touchedCount];
+        int count = 0;
+        for (int rule : unconditional) {
+            selected[count++] = rule;
+        }
+        for (int rule : residualOnly) {
+            if (testResiduals(rule, payload)) {
+                selected[count++] = rule;
+            }
+        }
+        for (int i = 0; i < matcher.touchedCount; i++) {
+            int rule = matcher.touched[i];
+            if (matcher.counts[rule] == required[rule] && testResiduals(rule, payload)) {
+                selected[count++] = rule;
+            }
+            matcher.counts[rule] = 0;
+        }
+        if (count == ruleCount) {
+            return null;
+        }
+        int[] result = count == selected.length ? selected : Arrays.copyOf(selected, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private boolean testResiduals(int rule, DecodedPayload payload) {
+        FieldCondition[] conditions = residuals[rule];
+        if (conditions == null) {
+            return true;
+        }
+        for (FieldCondition condition : conditions) {
+            if (!condition.test(payload.get(condition.getAttribute()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 不等比较和超出double精确范围的整数常量不能表示为区间
+     */
+    private static boolean indexable(FieldCondition condition) {
+        if (condition.getOperator() == Compare.Operator.NOT_EQUAL) {
+            return false;
+        }
+        if (condition.isIntegral()) {
+            long c = ((Number) condition.getConstant()).longValue();
+            return c > -EXACT_DOUBLE_LIMIT && c < EXACT_DOUBLE_LIMIT;
+        }
+        return true;
+    }
+
+    private static String key(String attribute, Attribute.Type type) {
+        return attribute + '\u0001' + type;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static boolean isNumeric(Attribute.Type type) {
+        return type == Attribute.Type.INT || type == Attribute.Type.LONG || type == Attribute.Type.DOUBLE;
+    }
+
+    /**
+     * 单个被索引的属性：数值属性使用区间树，其余属性使用相等哈希表
+     */
+    private static final class AttributeIndex {
+        private final String name;
+        private final Attribute.Type type;
+        private final IntervalTree tree;
+        private final Map<Object, int[]> values;
+
+        private AttributeIndex(String name, Attribute.Type type, IntervalTree tree, Map<Object, int[]> values) {
+            this.name = name;
+            this.type = type;
+            this.tree = tree;
+            this.values = values;
+        }
+
+        private void match(DecodedPayload payload, Matcher matcher) {
+            Object converted = SiddhiEventConverter.convert(payload.get(name), type);
+            if (converted == null) {
+                return;
+            }
+            if (tree != null) {
+                tree.stab(((Number) converted).doubleValue(), matcher);
+            } else {
+                int[] rules = values.get(converted);
+                if (rules != null) {
+                    for (int rule : rules) {
+                        matcher.accept(rule);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 收集各规则在同一属性上合并后的条件
+     */
+    private static final class AttributeBuilder {
+        private final String name;
+        private final Attribute.Type type;
+        private final List<IntervalTree.Interval> intervals = new ArrayList<>();
+        private final Map<Object, List<Integer>> values = new HashMap<>();
+
+        private AttributeBuilder(String name, Attribute.Type type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        private void add(int rule, Bound bound) {
+            if (isNumeric(type)) {
+                intervals.add(new IntervalTree.Interval(bound.lo, bound.loInclusive, bound.hi, bound.hiInclusive,
+                    rule));
+            } else {
+                values.computeIfAbsent(bound.value, k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        private AttributeIndex build() {
+            if (isNumeric(type)) {
+                return new AttributeIndex(name, type, new IntervalTree(intervals), null);
+            }
+            Map<Object, int[]> lookup = new HashMap<>(values.size() * 2);
+            values.forEach((value, rules) -> lookup.put(value, toArray(rules)));
+            return new AttributeIndex(name, type, null, lookup);
+        }
+    }
+
+    /**
+     * 单个规则在单个属性上的合并条件
+     *
+     * 数值比较收窄为区间，整数比较转换为闭区间；字符串和布尔只有相等比较，记录常量
+     */
+    private static final class Bound {
+        private FieldCondition first;
+        private double lo = Double.NEGATIVE_INFINITY;
+        private boolean loInclusive = true;
+        private double hi = Double.POSITIVE_INFINITY;
+        private boolean hiInclusive = true;
+        private Object value;
+        private boolean conflict;
+
+        private void add(FieldCondition condition) {
+            if (first == null) {
+                first = condition;
+            }
+            if (!isNumeric(condition.getType())) {
+                if (value != null && !value.equals(condition.getConstant())) {
+                    conflict = true;
+                }
+                value = condition.getConstant();
+                return;
+            }
+            Number constant = (Number) condition.getConstant();
+            if (condition.isIntegral()) {
+                long c = constant.longValue();
+                switch (condition.getOperator()) {
+                    case GREATER_THAN:
+                        lower(c + 1, true);
+                        break;
+                    case GREATER_THAN_EQUAL:
+                        lower(c, true);
+                        break;
+                    case LESS_THAN:
+                        upper(c - 1, true);
+                        break;
+                    case LESS_THAN_EQUAL:
+                        upper(c, true);
+                        break;
+                    default:
+                        lower(c, true);
+                        upper(c, true);
+                        break;
+                }
+                return;
+            }
+            double d = constant.doubleValue();
+            if (Double.isNaN(d)) {
+                conflict = true;
+                return;
+            }
+            switch (condition.getOperator()) {
+                case GREATER_THAN:
+                    lower(d, false);
+                    break;
+                case GREATER_THAN_EQUAL:
+                    lower(d, true);
+                    break;
+                case LESS_THAN:
+                    upper(d, false);
+                    break;
+                case LESS_THAN_EQUAL:
+                    upper(d, true);
+                    break;
+                default:
+                    lower(d, true);
+                    upper(d, true);
+                    break;
+            }
+        }
+
+        private void lower(double bound, boolean inclusive) {
+            if (bound > lo || (bound == lo && !inclusive)) {
+                lo = bound;
+                loInclusive = inclusive;
+            }
+        }
+
+        private void upper(double bound, boolean inclusive) {
+            if (bound < hi || (bound == hi && !inclusive)) {
+                hi = bound;
+                hiInclusive = inclusive;
+            }
+        }
+
+        private boolean isEmpty() {
+            if (conflict) {
+                return true;
+            }
+            if (!isNumeric(first.getType())) {
+                return false;
+            }
+            if (loInclusive && hiInclusive) {
+                return lo > hi;
+            }
+            if (!loInclusive && !hiInclusive) {
+                return Math.nextUp(lo) >= hi;
+            }
+            return lo >= hi;
+        }
+    }
+
+    /**
+     * 查询时的计数状态：每个规则命中的被索引属性数，以及本次查询触及的规则
+     */
+    private static final class Matcher implements IntConsumer {
+        private int[] counts = new int[0];
+        private int[] touched = new int[0];
+        private int touchedCount;
+
+        private void reset(int ruleCount) {
+            if (counts.length < ruleCount) {
+                counts = new int[ruleCount];
+                touched = new int[ruleCount];
+            }
+            touchedCount = 0;
+        }
+
+        @Override
+        public void accept(int rule) {
+            if (counts[rule]++ == 0) {
+                touched[touchedCount++] = rule;
+            }
+        }
+    }
+}
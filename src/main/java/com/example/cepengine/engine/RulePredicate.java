@@ -0,0 +1,236 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.api.annotation.Annotation;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.execution.ExecutionElement;
+import io.siddhi.query.api.execution.partition.Partition;
+import io.siddhi.query.api.execution.query.Query;
+import io.siddhi.query.api.execution.query.input.handler.Filter;
+import io.siddhi.query.api.execution.query.input.handler.StreamHandler;
+import io.siddhi.query.api.execution.query.input.stream.SingleInputStream;
+import io.siddhi.query.api.expression.Expression;
+import io.siddhi.query.api.expression.Variable;
+import io.siddhi.query.api.expression.condition.And;
+import io.siddhi.query.api.expression.condition.Compare;
+import io.siddhi.query.api.expression.constant.BoolConstant;
+import io.siddhi.query.api.expression.constant.DoubleConstant;
+import io.siddhi.query.api.expression.constant.IntConstant;
+import io.siddhi.query.api.expression.constant.LongConstant;
+import io.siddhi.query.api.expression.constant.StringConstant;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 规则前置过滤条件
+ *
+ * 规则编译时从Siddhi查询中提取的必要条件，消息不满足时规则一定不会产生输出，
+ * 可以在发布到环形缓冲区之前跳过该规则
+ *
+ * 主要功能：
+ * 1. 从唯一读取输入流的查询中提取开头的过滤条件（窗口等处理器之前的部分）
+ * 2. 按AND拆分过滤条件，保留属性与常量的比较，其余子条件仍交给Siddhi判断
+ * 3. 按所有条件的合取判断消息是否可能被规则接受
+ *
+ * 设计特点：
+ * - 只提取必要条件：被保留的子条件不成立时完整条件一定不成立，跳过事件不会改变规则结果
+ * - 输入流被多个查询、连接、模式或分区读取，或规则使用回放时钟时不提取
+ * - 字符串和布尔属性只提取相等和不等比较，浮点类型不提取，避免与Siddhi的类型提升不一致
+ */
+@Getter
+public final class RulePredicate {
+
+    /** 所有条件，需同时满足 */
+    private final List<FieldCondition> conditions;
+
+    private RulePredicate(List<FieldCondition> conditions) {
+        this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * 从规则中提取前置过滤条件
+     *
+     * @param siddhiApp 解析后的规则
+     * @param inputStream 输入流名称
+     * @param inputAttributes 输入流属性定义
+     * @param playback 运行时是否以编程方式开启了回放模式
+     * @return 前置过滤条件，无法提取时返回null
+     */
+    public static RulePredicate extract(SiddhiApp siddhiApp, String inputStream, List<Attribute> inputAttributes,
+                                        boolean playback) {
+        if (playback) {
+            // 回放模式下被过滤的事件同样推动时钟，不能提前跳过
+            return null;
+        }
+        for (Annotation annotation : siddhiApp.getAnnotations()) {
+            if (annotation.getName().toLowerCase().endsWith("playback")) {
+                // 回放模式下被过滤的事件同样推动时钟，不能提前跳过
+                return null;
+            }
+        }
+
+        Query consumer = null;
+        for (ExecutionElement element : siddhiApp.getExecutionElementList()) {
+            if (element instanceof Partition) {
+                for (Query query : ((Partition) element).getQueryList()) {
+                    if (query.getInputStream().getAllStreamIds().contains(inputStream)) {
+                        return null;
+                    }
+                }
+            } else if (element instanceof Query
+                && ((Query) element).getInputStream().getAllStreamIds().contains(inputStream)) {
+                if (consumer != null) {
+                    return null;
+                }
+                consumer = (Query) element;
+            }
+        }
+        if (consumer == null || !(consumer.getInputStream() instanceof SingleInputStream)) {
+            return null;
+        }
+        SingleInputStream input = (SingleInputStream) consumer.getInputStream();
+        if (input.isInnerStream() || input.isFaultStream() || !inputStream.equals(input.getStreamId())) {
+            return null;
+        }
+
+        List<FieldCondition> conditions = new ArrayList<>();
+        for (StreamHandler handler : input.getStreamHandlers()) {
+            if (!(handler instanceof Filter)) {
+                break;
+            }
+            collect(((Filter) handler).getParameters()[0], inputStream, inputAttributes, conditions);
+        }
+        return conditions.isEmpty() ? null : new RulePredicate(conditions);
+    }
+
+    /**
+     * 判断消息是否满足所有条件
+     *
+     * @param payload 解码后的消息
+     * @return 是否可能被规则接受
+     */
+    public boolean test(DecodedPayload payload) {
+        for (int i = 0; i < conditions.size(); i++) {
+            FieldCondition condition = conditions.get(i);
+            if (!condition.test(payload.get(condition.getAttribute()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按AND拆分条件，收集可提取的比较
+     */
+    private static void collect(Expression expression, String inputStream, List<Attribute> inputAttributes,
+                                List<FieldCondition> conditions) {
+        if (expression instanceof And) {
+            collect(((And) expression).getLeftExpression(), inputStream, inputAttributes, conditions);
+            collect(((And) expression).getRightExpression(), inputStream, inputAttributes, conditions);
+        } else if (expression instanceof Compare) {
+            FieldCondition condition = toCondition((Compare) expression, inputStream, inputAttributes);
+            if (condition != null) {
+                conditions.add(condition);
+            }
+        }
+    }
+
+    /**
+     * 将属性与常量的比较转换为字段条件
+     */
+    private static FieldCondition toCondition(Compare compare, String inputStream, List<Attribute> inputAttributes) {
+        Expression left = compare.getLeftExpression();
+        Expression right = compare.getRightExpression();
+        Compare.Operator operator = compare.getOperator();
+        if (!(left instanceof Variable)) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            operator = flip(operator);
+        }
+        if (!(left instanceof Variable)) {
+            return null;
+        }
+        Variable variable = (Variable) left;
+        if (variable.getFunctionId() != null || variable.isInnerStream() || variable.getStreamIndex() != null
+            || (variable.getStreamId() != null && !inputStream.equals(variable.getStreamId()))) {
+            return null;
+        }
+        Attribute.Type type = null;
+        for (Attribute attribute : inputAttributes) {
+            if (attribute.getName().equals(variable.getAttributeName())) {
+                type = attribute.getType();
+                break;
+            }
+        }
+        if (type == null) {
+            return null;
+        }
+
+        Object constant = constantValue(right);
+        if (constant == null) {
+            return null;
+        }
+        boolean equality = operator == Compare.Operator.EQUAL || operator == Compare.Operator.NOT_EQUAL;
+        switch (type) {
+            case INT:
+            case LONG:
+            case DOUBLE:
+                if (!(constant instanceof Number)) {
+                    return null;
+                }
+                break;
+            case STRING:
+                if (!(constant instanceof String) || !equality) {
+                    return null;
+                }
+                break;
+            case BOOL:
+                if (!(constant instanceof Boolean) || !equality) {
+                    return null;
+                }
+                break;
+            default:
+                return null;
+        }
+        return new FieldCondition(variable.getAttributeName(), type, operator, constant);
+    }
+
+    private static Object constantValue(Expression expression) {
+        if (expression instanceof IntConstant) {
+            return ((IntConstant) expression).getValue();
+        } else if (expression instanceof LongConstant) {
+            return ((LongConstant) expression).getValue();
+        } else if (expression instanceof DoubleConstant) {
+            return ((DoubleConstant) expression).getValue();
+        } else if (expression instanceof StringConstant) {
+            return ((StringConstant) expression).getValue();
+        } else if (expression instanceof BoolConstant) {
+            return ((BoolConstant) expression).getValue();
+        }
+        return null;
+    }
+
+    private static Compare.Operator flip(Compare.Operator operator) {
+        switch (operator) {
+            case LESS_THAN:
+                return Compare.Operator.GREATER_THAN;
+            case LESS_THAN_EQUAL:
+                return Compare.Operator.GREATER_THAN_EQUAL;
+            case GREATER_THAN:
+                return Compare.Operator.LESS_THAN;
+            case GREATER_THAN_EQUAL:
+                return Compare.Operator.LESS_THAN_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+}
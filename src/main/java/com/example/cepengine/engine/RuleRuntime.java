@@ -0,0 +1,112 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.entity.SiddhiRule;
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.api.definition.Attribute;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 规则运行时
+ * 
+ * 封装单条Siddhi规则编译后的运行时及其输入输出元数据
+ * 
+ * 主要功能：
+ * 1. 持有Siddhi应用运行时和输入处理器
+ * 2. 缓存输入流的属性定义，避免每条事件重复查找
+ * 3. 缓存输出流的属性名称，用于构建输出结果
+ * 4. 缓存输入流属性到主题模式槽位的映射，模式版本变化时重新计算
+ * 5. 持有编译时提取的前置过滤条件
+ * 6. 符合条件的时间窗口规则改由原生窗口聚合算子评估，不再逐条保存窗口内的事件
+ */
+@Getter
+@RequiredArgsConstructor
+public class RuleRuntime {
+
+    /** 规则定义 */
+    private final SiddhiRule rule;
+
+    /** Siddhi应用运行时 */
+    private final SiddhiAppRuntime runtime;
+
+    /** 输入流处理器 */
+    private final InputHandler inputHandler;
+
+    /** 输入流属性定义 */
+    private final List<Attribute> inputAttributes;
+
+    /** 输出流属性名称 */
+    private final String[] outputAttributeNames;
+
+    /** 前置过滤条件，无法提取时为null */
+    private final RulePredicate predicate;
+
+    /** 原生窗口聚合算子，规则由Siddhi评估时为null */
+    private final PaneWindowAggregator nativeWindow;
+
+    /** 输出流回调，原生窗口聚合算子的输出经由它交给评估上下文或直接输出 */
+    @Getter(AccessLevel.NONE)
+    private final StreamCallback outputCallback;
+
+    /** 最近一次使用的主题模式及其槽位映射，由路由线程维护 */
+    @Getter(AccessLevel.NONE)
+    private volatile SchemaProjection schemaProjection;
+
+    /**
+     * 获取规则ID
+     * 
+     * @return 规则ID
+     */
+    public Long getRuleId() {
+        return rule.getId();
+    }
+
+    /**
+     * 将输入行送入规则
+     *
+     * 规则由原生窗口聚合算子评估时在调用线程上直接计算输出，否则送入Siddhi输入处理器
+     *
+     * @param timestamp 显式时间戳，为null时取当前时间
+     * @param row 输入行
+     */
+    public void send(Long timestamp, Object[] row) throws InterruptedException {
+        if (nativeWindow != null) {
+            long eventTime = timestamp != null ? timestamp : System.currentTimeMillis();
+            outputCallback.receive(new Event[]{new Event(eventTime, nativeWindow.process(eventTime, row))});
+        } else if (timestamp != null) {
+            inputHandler.send(timestamp, row);
+        } else {
+            inputHandler.send(row);
+        }
+    }
+
+    /**
+     * 获取输入流属性在主题模式中的槽位映射
+     * 
+     * @param schema 当前主题模式
+     * @return 每个输入属性对应的槽位，模式中没有的属性为-1
+     */
+    public int[] projectionFor(CompiledSchema schema) {
+        SchemaProjection current = schemaProjection;
+        if (current == null || current.schema != schema) {
+            current = new SchemaProjection(schema, schema.projection(inputAttributes));
+            schemaProjection = current;
+        }
+        return current.projection;
+    }
+
+    /**
+     * 主题模式及按该模式计算的槽位映射
+     */
+    @RequiredArgsConstructor
+    private static final class SchemaProjection {
+        private final CompiledSchema schema;
+        private final int[] projection;
+    }
+}
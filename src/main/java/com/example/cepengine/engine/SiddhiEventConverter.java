@@ -0,0 +1,87 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.definition.Attribute;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Siddhi事件转换工具
+ * 
+ * 负责解码后的数据属性与Siddhi事件数据之间的转换
+ * 
+ * 主要功能：
+ * 1. 按输入流属性顺序构建Siddhi输入行
+ * 2. 按Siddhi属性类型转换字段值
+ * 3. 将输出事件数据转换为按属性名索引的映射
+ */
+public final class SiddhiEventConverter {
+
+    private SiddhiEventConverter() {
+    }
+
+    /**
+     * 按输入流定义构建Siddhi输入行
+     * 
+     * @param attributes 解码后的数据属性
+     * @param inputAttributes 输入流属性定义
+     * @return Siddhi输入行
+     */
+    public static Object[] toInputRow(Map<String, Object> attributes, List<Attribute> inputAttributes) {
+        Object[] row = new Object[inputAttributes.size()];
+        for (int i = 0; i < row.length; i++) {
+            Attribute attribute = inputAttributes.get(i);
+            row[i] = convert(attributes.get(attribute.getName()), attribute.getType());
+        }
+        return row;
+    }
+
+    /**
+     * 将输出事件数据转换为按属性名索引的映射
+     * 
+     * @param data 输出事件数据
+     * @param attributeNames 输出流属性名称
+     * @return 属性名到值的映射
+     */
+    public static Map<String, Object> toOutputMap(Object[] data, String[] attributeNames) {
+        Map<String, Object> output = new LinkedHashMap<>();
+        for (int i = 0; i < data.length && i < attributeNames.length; i++) {
+            output.put(attributeNames[i], data[i]);
+        }
+        return output;
+    }
+
+    /**
+     * 按Siddhi属性类型转换字段值
+     * 
+     * @param value 原始字段值
+     * @param type Siddhi属性类型
+     * @return 转换后的字段值，无法转换时返回null
+     */
+    public static Object convert(Object value, Attribute.Type type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (type) {
+                case STRING:
+                    return value.toString();
+                case INT:
+                    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+                case LONG:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+                case DOUBLE:
+                    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+                case FLOAT:
+                    return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+                case BOOL:
+                    return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+                default:
+                    return value;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
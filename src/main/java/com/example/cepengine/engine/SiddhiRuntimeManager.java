@@ -0,0 +1,526 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.disruptor.DataEvent;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.service.SiddhiRuleService;
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.core.util.persistence.FileSystemPersistenceStore;
+import io.siddhi.core.util.snapshot.PersistenceReference;
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Siddhi运行时管理器
+ * 
+ * 负责规则运行时的创建、缓存和销毁
+ * 
+ * 主要功能：
+ * 1. 根据规则ID动态创建Siddhi应用运行时
+ * 2. 缓存规则运行时，避免重复编译
+ * 3. 注册输出回调，将结果交给评估上下文或直接输出
+ * 4. 启动时和定期批量加载活跃规则，维护活跃规则快照
+ * 5. 整批部署预先编译好的运行时
+ * 6. 编译时提取规则的前置过滤条件，随活跃规则快照一起发布
+ * 7. 配置快照目录后，停机时持久化各运行时的窗口和聚合状态，下次启动加载规则后恢复
+ * 8. 启用事件时间排序时以回放模式启动运行时，时间窗口按送入事件的时间戳滑动
+ * 9. 编译时识别常见的时间窗口聚合规则，改由按窗格预聚合的原生算子评估
+ * 10. 在应用关闭时关闭所有运行时
+ * 
+ * 设计特点：
+ * - 批量加载只需一次规则查询、一次MGET和一次流水线回填
+ * - 监听器读取活跃规则快照，不再为每条消息查询数据库
+ * - 运行时映射写时复制，一次加载或部署的所有变更通过一次引用替换同时生效，
+ *   被替换的运行时在新映射发布之后才关闭
+ * - 原生算子的窗格状态不在Siddhi快照中，配置了快照目录时所有规则仍由Siddhi评估
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiddhiRuntimeManager {
+
+    /**
+     * Siddhi规则服务，用于获取和管理规则
+     */
+    private final SiddhiRuleService siddhiRuleService;
+
+    /**
+     * 规则结果输出器
+     */
+    private final ResultSink resultSink;
+
+    /**
+     * 规则执行预算跟踪器，记录输出回调耗时并同步隔离状态
+     */
+    private final RuleBudgetTracker budgetTracker;
+
+    /**
+     * 事件时间排序配置
+     */
+    private final EventTimeOrdering eventTimeOrdering;
+
+    /**
+     * Siddhi管理器，用于创建和管理Siddhi应用运行时
+     */
+    private final SiddhiManager siddhiManager = new SiddhiManager();
+
+    /**
+     * 运行时状态快照目录，为空时不持久化状态
+     */
+    @Value("${app.rule.snapshot.path:}")
+    private String snapshotPath;
+
+    /**
+     * 每个规则保留的快照版本数
+     */
+    @Value("${app.rule.snapshot.revisions-to-keep:3}")
+    private int snapshotRevisionsToKeep;
+
+    /**
+     * 是否由原生窗口聚合算子评估符合条件的时间窗口规则
+     */
+    @Value("${app.rule.native-window.enabled:true}")
+    private boolean nativeWindowEnabled;
+
+    /**
+     * 原生窗口聚合的窗格时长（毫秒）
+     */
+    @Value("${app.rule.native-window.pane-ms:1000}")
+    private long nativeWindowPaneMs;
+
+    /**
+     * 规则运行时快照，整体替换，读取无需加锁
+     */
+    private volatile Map<Long, RuleRuntime> runtimes = Collections.emptyMap();
+
+    /**
+     * 活跃规则快照（含前置过滤条件），整体替换，读取无需加锁
+     */
+    private volatile ActiveRuleSet activeRuleSet = ActiveRuleSet.EMPTY;
+
+    /**
+     * 启动时批量加载活跃规则
+     */
+    @PostConstruct
+    public void init() {
+        if (isSnapshotEnabled()) {
+            Map<String, Object> location = new HashMap<>();
+            location.put("location", snapshotPath);
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("config", location);
+            properties.put("revisionsToKeep", snapshotRevisionsToKeep);
+            FileSystemPersistenceStore store = new FileSystemPersistenceStore();
+            store.setProperties(properties);
+            siddhiManager.setPersistenceStore(store);
+        }
+        try {
+            reloadRules();
+            restoreSnapshots();
+        } catch (Exception e) {
+            log.error("启动时加载规则失败，将在下次刷新时重试", e);
+        }
+    }
+
+    /**
+     * 是否持久化运行时状态
+     */
+    public boolean isSnapshotEnabled() {
+        return snapshotPath != null && !snapshotPath.trim().isEmpty();
+    }
+
+    /**
+     * 持久化所有运行时的状态快照
+     * 
+     * 调用前应停止向运行时发送事件，否则快照之后的事件不在快照中
+     * 
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 成功写入的快照数量，未配置快照目录时为0
+     */
+    public int persistSnapshots(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!isSnapshotEnabled()) {
+            return 0;
+        }
+        Map<Long, List<Future<?>>> pending = new HashMap<>();
+        for (RuleRuntime ruleRuntime : runtimes.values()) {
+            try {
+                pending.put(ruleRuntime.getRuleId(), persistenceFutures(ruleRuntime.getRuntime().persist()));
+            } catch (Exception e) {
+                log.warn("持久化运行时状态失败：规则ID={}", ruleRuntime.getRuleId(), e);
+            }
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int persisted = 0;
+        for (Map.Entry<Long, List<Future<?>>> entry : pending.entrySet()) {
+            try {
+                for (Future<?> future : entry.getValue()) {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+                persisted++;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("持久化运行时状态未完成：规则ID={}", entry.getKey(), e);
+            }
+        }
+        return persisted;
+    }
+
+    /**
+     * 获取一次持久化的全部写入任务
+     *
+     * 全量存储只有全量快照任务，增量存储每个状态分片各有一个任务
+     *
+     * @param reference 持久化引用
+     * @return 写入任务列表
+     */
+    private static List<Future<?>> persistenceFutures(PersistenceReference reference) {
+        List<Future<?>> futures = new ArrayList<>();
+        if (reference.getFullStateFuture() != null) {
+            futures.add(reference.getFullStateFuture());
+        }
+        if (reference.getIncrementalStateFuture() != null) {
+            for (Future<?> future : reference.getIncrementalStateFuture()) {
+                futures.add(future);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 启动时从最近的快照恢复运行时状态
+     * 
+     * 快照按Siddhi应用名称保存，未命名的规则每次启动名称不同，不会恢复
+     */
+    private void restoreSnapshots() {
+        if (!isSnapshotEnabled()) {
+            return;
+        }
+        int restored = 0;
+        for (RuleRuntime ruleRuntime : runtimes.values()) {
+            try {
+                if (ruleRuntime.getRuntime().restoreLastRevision() != null) {
+                    restored++;
+                }
+            } catch (Exception e) {
+                log.warn("恢复运行时状态失败，从空状态开始：规则ID={}", ruleRuntime.getRuleId(), e);
+            }
+        }
+        log.info("运行时状态恢复完成：{} / {} 个规则", restored, runtimes.size());
+    }
+
+    /**
+     * 定期刷新活跃规则
+     */
+    @Scheduled(initialDelayString = "${app.rule.refresh-interval-ms:30000}",
+        fixedDelayString = "${app.rule.refresh-interval-ms:30000}")
+    public void scheduledReload() {
+        try {
+            reloadRules();
+        } catch (Exception e) {
+            log.error("定期刷新规则失败", e);
+        }
+    }
+
+    /**
+     * 批量重新加载活跃规则
+     * 
+     * 新增或更新时间发生变化的规则重新编译，已停用或删除的规则关闭运行时，
+     * 其余规则保留现有运行时
+     * 
+     * @return 重新编译的规则数量
+     */
+    public synchronized int reloadRules() {
+        long start = System.nanoTime();
+        List<SiddhiRule> rules = siddhiRuleService.findAllActiveRules();
+
+        List<SiddhiRule> changedRules = new ArrayList<>();
+        Set<Long> activeIds = new HashSet<>();
+        for (SiddhiRule rule : rules) {
+            activeIds.add(rule.getId());
+            RuleRuntime existing = runtimes.get(rule.getId());
+            if (existing == null || !Objects.equals(existing.getRule().getUpdatedTime(), rule.getUpdatedTime())) {
+                changedRules.add(rule);
+            }
+        }
+
+        // 一次性批量获取所有需要编译的规则内容
+        Map<Long, String> ruleContents = changedRules.isEmpty() ? Collections.emptyMap()
+            : siddhiRuleService.getRulesFromCache(changedRules.stream().map(SiddhiRule::getId).collect(Collectors.toList()));
+
+        List<RuleRuntime> compiledRuntimes = new ArrayList<>();
+        for (SiddhiRule rule : changedRules) {
+            String siddhiApp = ruleContents.get(rule.getId());
+            if (siddhiApp == null) {
+                continue;
+            }
+            try {
+                compiledRuntimes.add(createRuleRuntime(rule, siddhiApp));
+            } catch (Exception e) {
+                log.error("规则编译失败，保留原有运行时：规则ID={}", rule.getId(), e);
+            }
+        }
+
+        Set<Long> inactiveIds = new HashSet<>(runtimes.keySet());
+        inactiveIds.removeAll(activeIds);
+        publish(compiledRuntimes, inactiveIds, rules);
+        int compiled = compiledRuntimes.size();
+        log.info("规则加载完成：活跃规则={}, 重新编译={}, 耗时={}ms",
+            rules.size(), compiled, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return compiled;
+    }
+
+    /**
+     * 获取活跃规则快照
+     * 
+     * @return 活跃规则列表，不可修改
+     */
+    public List<SiddhiRule> getActiveRules() {
+        return activeRuleSet.getRules();
+    }
+
+    /**
+     * 获取活跃规则及其前置过滤条件的快照
+     * 
+     * @return 活跃规则快照
+     */
+    public ActiveRuleSet getActiveRuleSet() {
+        return activeRuleSet;
+    }
+
+    /**
+     * 整批部署预先编译好的运行时
+     * 
+     * 所有运行时和移除操作通过一次快照替换同时生效，随后按数据库刷新活跃规则快照
+     * 
+     * @param compiledRuntimes 已编译的运行时，规则实体需与数据库中的更新时间一致
+     * @param removedIds 需要移除的规则ID
+     */
+    public synchronized void deploy(Collection<RuleRuntime> compiledRuntimes, Collection<Long> removedIds) {
+        publish(compiledRuntimes, removedIds, siddhiRuleService.findAllActiveRules());
+        log.info("规则批量部署完成：部署={}, 移除={}", compiledRuntimes.size(), removedIds.size());
+    }
+
+    /**
+     * 编译规则，不加入运行时快照
+     * 
+     * 可在任意线程并行调用，由deploy统一发布
+     * 
+     * @param rule 规则定义，必须包含规则内容；尚未插入的新规则可以在deploy之前再回填ID
+     * @return 已启动的规则运行时
+     */
+    public RuleRuntime compile(SiddhiRule rule) {
+        return createRuleRuntime(rule, rule.getRuleContent());
+    }
+
+    /**
+     * 获取或创建规则运行时
+     * 
+     * @param ruleId 规则ID
+     * @return 规则运行时
+     */
+    public RuleRuntime getRuntime(Long ruleId) {
+        RuleRuntime ruleRuntime = runtimes.get(ruleId);
+        return ruleRuntime != null ? ruleRuntime : loadRuntime(ruleId);
+    }
+
+    /**
+     * 移除并关闭规则运行时
+     * 
+     * @param ruleId 规则ID
+     */
+    public synchronized void removeRuntime(Long ruleId) {
+        publish(Collections.emptyList(), Collections.singleton(ruleId), activeRuleSet.getRules());
+    }
+
+    /**
+     * 快照中不存在时编译并加入快照
+     */
+    private synchronized RuleRuntime loadRuntime(Long ruleId) {
+        RuleRuntime ruleRuntime = runtimes.get(ruleId);
+        if (ruleRuntime == null) {
+            ruleRuntime = createRuleRuntime(ruleId);
+            Map<Long, RuleRuntime> next = new HashMap<>(runtimes);
+            next.put(ruleId, ruleRuntime);
+            runtimes = Collections.unmodifiableMap(next);
+        }
+        return ruleRuntime;
+    }
+
+    /**
+     * 发布新的运行时快照和活跃规则快照，再关闭被替换或移除的运行时
+     * 
+     * @param compiledRuntimes 新编译的运行时
+     * @param removedIds 需要移除的规则ID
+     * @param rules 活跃规则
+     */
+    private void publish(Collection<RuleRuntime> compiledRuntimes, Collection<Long> removedIds,
+                         List<SiddhiRule> rules) {
+        Map<Long, RuleRuntime> next = new HashMap<>(runtimes);
+        List<RuleRuntime> retired = new ArrayList<>();
+        for (RuleRuntime ruleRuntime : compiledRuntimes) {
+            RuleRuntime previous = next.put(ruleRuntime.getRuleId(), ruleRuntime);
+            if (previous != null) {
+                retired.add(previous);
+            }
+        }
+        for (Long ruleId : removedIds) {
+            RuleRuntime previous = next.remove(ruleId);
+            if (previous != null) {
+                retired.add(previous);
+            }
+        }
+
+        budgetTracker.syncStatuses(rules);
+        runtimes = Collections.unmodifiableMap(next);
+        activeRuleSet = ActiveRuleSet.of(rules, next);
+
+        for (RuleRuntime ruleRuntime : retired) {
+            ruleRuntime.getRuntime().shutdown();
+            log.info("已关闭Siddhi运行时：规则ID={}", ruleRuntime.getRuleId());
+        }
+    }
+
+    /**
+     * 创建规则运行时
+     * 
+     * 根据规则ID动态创建Siddhi应用运行时
+     * 
+     * @param ruleId 规则ID
+     * @return 规则运行时
+     */
+    private RuleRuntime createRuleRuntime(Long ruleId) {
+        SiddhiRule rule = siddhiRuleService.findById(ruleId);
+        if (rule == null) {
+            throw new IllegalArgumentException("规则不存在：规则ID=" + ruleId);
+        }
+        return createRuleRuntime(rule, siddhiRuleService.getRuleFromCache(ruleId));
+    }
+
+    /**
+     * 根据规则定义和规则内容创建规则运行时
+     * 
+     * @param rule 规则定义
+     * @param siddhiApp 规则内容
+     * @return 规则运行时
+     */
+    private RuleRuntime createRuleRuntime(SiddhiRule rule, String siddhiApp) {
+        Long ruleId = rule.getId();
+        SiddhiAppRuntime runtime = null;
+        try {
+            // 创建并初始化Siddhi运行时
+            runtime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+
+            List<Attribute> inputAttributes = streamDefinition(runtime, rule.getInputStream()).getAttributeList();
+            String[] outputAttributeNames = streamDefinition(runtime, rule.getOutputStream()).getAttributeNameArray();
+            SiddhiApp parsed = SiddhiCompiler.parse(SiddhiCompiler.updateVariables(siddhiApp));
+            boolean playback = eventTimeOrdering.isEnabled();
+            RulePredicate predicate = RulePredicate.extract(parsed, rule.getInputStream(), inputAttributes, playback);
+            PaneWindowAggregator nativeWindow = nativeWindowEnabled && !isSnapshotEnabled()
+                ? PaneWindowAggregator.extract(parsed, rule.getInputStream(), rule.getOutputStream(),
+                    inputAttributes, nativeWindowPaneMs, playback)
+                : null;
+
+            // 添加输出流回调，原生窗口聚合算子的输出也经由该回调
+            // 批量部署时新增规则先编译后插入，规则ID在上线前才回填，回调中每次从规则实体读取
+            StreamCallback outputCallback = new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    long start = System.nanoTime();
+                    Long ruleId = rule.getId();
+                    for (Event event : events) {
+                        ProcessedData result = resultSink.toProcessedData(
+                            ruleId, currentRawDataId(ruleId), outputAttributeNames, event.getData());
+                        if (!EvaluationContext.collect(ruleId, result)) {
+                            resultSink.emit(result);
+                        }
+                    }
+                    budgetTracker.recordCallback(ruleId, System.nanoTime() - start);
+                }
+            };
+            runtime.addCallback(rule.getOutputStream(), outputCallback);
+
+            if (playback) {
+                // 回放模式下Siddhi时钟随事件时间戳推进，不再读取系统时间
+                runtime.enablePlayBack(true, null, null);
+            }
+            runtime.start();
+            log.info("成功创建Siddhi运行时：规则ID={}, 前置过滤条件={}, 原生窗口聚合={}", ruleId, predicate, nativeWindow);
+            return new RuleRuntime(rule, runtime, runtime.getInputHandler(rule.getInputStream()),
+                inputAttributes, outputAttributeNames, predicate, nativeWindow, outputCallback);
+        } catch (Exception e) {
+            log.error("创建Siddhi运行时失败：规则ID={}", ruleId, e);
+            if (runtime != null) {
+                // 运行时已在SiddhiManager中注册，不关闭会一直占用其线程和资源
+                try {
+                    runtime.shutdown();
+                } catch (Exception shutdownError) {
+                    e.addSuppressed(shutdownError);
+                }
+            }
+            throw new RuntimeException("创建Siddhi运行时失败", e);
+        }
+    }
+
+    /**
+     * 获取运行时中的流定义
+     * 
+     * @param runtime Siddhi应用运行时
+     * @param streamName 流名称
+     * @return 流定义
+     */
+    private AbstractDefinition streamDefinition(SiddhiAppRuntime runtime, String streamName) {
+        AbstractDefinition definition = runtime.getStreamDefinitionMap().get(streamName);
+        if (definition == null) {
+            throw new IllegalArgumentException("规则中未定义流：" + streamName);
+        }
+        return definition;
+    }
+
+    /**
+     * 获取当前评估事件的原始数据ID
+     * 
+     * @param ruleId 规则ID
+     * @return 原始数据ID，不在该规则的评估过程中时返回null
+     */
+    private Long currentRawDataId(Long ruleId) {
+        DataEvent current = EvaluationContext.current();
+        return current != null && ruleId.equals(current.getRuleId()) ? current.getRawDataId() : null;
+    }
+
+    /**
+     * 关闭所有规则运行时
+     */
+    @PreDestroy
+    public void shutdown() {
+        runtimes.values().forEach(ruleRuntime -> ruleRuntime.getRuntime().shutdown());
+        runtimes = Collections.emptyMap();
+        siddhiManager.shutdown();
+    }
+}
@@ -22,7 +22,7 @@ public class ProcessedData {
     /** 关联的规则ID，标识产生此数据的规则 */
     private Long ruleId;
     
-    /** 原始数据ID，标识原始数据 */
+    /** 原始数据ID，标识原始数据，定时器触发的输出为null */
     private Long rawDataId;
     
     /** 处理结果内容 */
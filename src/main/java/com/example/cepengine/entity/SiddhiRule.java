@@ -88,6 +88,7 @@ public class SiddhiRule {
      * 可能的值：
      * - 0：禁用
      * - 1：启用
+     * - 2：降级，连续超出执行预算，在隔离通道中运行
      * - 其他自定义状态
      */
     private Integer status;
@@ -0,0 +1,37 @@
+package com.example.cepengine.entity;
+
+import com.example.cepengine.domain.TopicField;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 主题模式实体
+ * 
+ * 描述某个Kafka主题的消息结构，每次注册生成一个新版本
+ * 
+ * 主要功能：
+ * 1. 记录主题的字段列表、字段类型、必填标记和默认值
+ * 2. 作为Siddhi流定义生成和输入消息解码的统一依据
+ * 3. 保留历史版本，便于追溯字段变更
+ */
+@Data
+public class TopicSchema {
+    /** 模式ID */
+    private Long id;
+
+    /** Kafka主题名称 */
+    private String topicName;
+
+    /** 模式版本，同一主题内从1开始递增 */
+    private Integer version;
+
+    /** Siddhi流名称 */
+    private String streamName;
+
+    /** 字段列表，按注册顺序排列，在数据库中以JSON数组存储 */
+    private List<TopicField> fields;
+
+    /** 注册时间 */
+    private LocalDateTime createdTime;
+}
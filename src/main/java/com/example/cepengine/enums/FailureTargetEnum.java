@@ -0,0 +1,15 @@
+package com.example.cepengine.enums;
+
+/**
+ * 失败记录的重试目标枚举
+ */
+public enum FailureTargetEnum {
+    /** 重新发送到原Kafka主题 */
+    KAFKA,
+    /** 直接发送到死信主题 */
+    DEAD_LETTER,
+    /** 重新写入raw_data表 */
+    RAW_DATA,
+    /** 重新写入processed_data表 */
+    PROCESSED_DATA
+}
@@ -0,0 +1,11 @@
+package com.example.cepengine.enums;
+
+/**
+ * 回放数据源枚举
+ */
+public enum ReplaySourceEnum {
+    /** raw_data表中的原始数据 */
+    RAW_DATA,
+    /** 本地归档段文件 */
+    ARCHIVE
+}
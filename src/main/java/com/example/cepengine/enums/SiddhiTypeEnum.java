@@ -3,6 +3,8 @@ package com.example.cepengine.enums;
 import lombok.Getter;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -26,13 +28,19 @@ public enum SiddhiTypeEnum {
     private final String sourceType;
     private final String siddhiType;
 
-    private static final Map<String, String> TYPE_MAPPING = Arrays.stream(values())
+    private static final Map<String, SiddhiTypeEnum> TYPE_MAPPING = Arrays.stream(values())
             .collect(Collectors.toMap(
                     type -> type.sourceType,
-                    type -> type.siddhiType,
+                    Function.identity(),
                     (existing, replacement) -> existing
             ));
 
+    /** 已解析过的原始类型写法，避免每次都转换大小写 */
+    private static final Map<String, SiddhiTypeEnum> RESOLVED_TYPES = new ConcurrentHashMap<>();
+
+    /** 缓存的原始类型写法上限，防止任意输入撑大缓存 */
+    private static final int MAX_RESOLVED_TYPES = 1024;
+
     SiddhiTypeEnum(String sourceType, String siddhiType) {
         this.sourceType = sourceType;
         this.siddhiType = siddhiType;
@@ -44,10 +52,8 @@ public enum SiddhiTypeEnum {
      * @return Siddhi类型
      */
     public static String toSiddhiType(String sourceType) {
-        if (sourceType == null || sourceType.trim().isEmpty()) {
-            return "string";
-        }
-        return TYPE_MAPPING.getOrDefault(sourceType.toLowerCase(), "string");
+        SiddhiTypeEnum type = resolve(sourceType);
+        return type != null ? type.siddhiType : STRING.siddhiType;
     }
 
     /**
@@ -56,6 +62,25 @@ public enum SiddhiTypeEnum {
      * @return 是否支持
      */
     public static boolean isSupported(String sourceType) {
-        return sourceType != null && TYPE_MAPPING.containsKey(sourceType.toLowerCase());
+        return resolve(sourceType) != null;
+    }
+
+    /**
+     * 解析Java/Kafka类型，同一写法只做一次大小写转换
+     * @param sourceType Java/Kafka类型
+     * @return 对应的枚举，不支持时返回null
+     */
+    public static SiddhiTypeEnum resolve(String sourceType) {
+        if (sourceType == null) {
+            return null;
+        }
+        SiddhiTypeEnum type = RESOLVED_TYPES.get(sourceType);
+        if (type == null) {
+            type = TYPE_MAPPING.get(sourceType.toLowerCase());
+            if (type != null && RESOLVED_TYPES.size() < MAX_RESOLVED_TYPES) {
+                RESOLVED_TYPES.put(sourceType, type);
+            }
+        }
+        return type;
     }
 }
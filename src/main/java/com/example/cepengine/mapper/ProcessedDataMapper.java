@@ -3,6 +3,9 @@ package com.example.cepengine.mapper;
 import com.example.cepengine.entity.ProcessedData;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 处理后数据映射器接口
  * 
@@ -13,7 +16,11 @@ import org.apache.ibatis.annotations.*;
  * 1. 数据库插入操作
  * 2. 数据库查询操作
  * 3. 数据库更新操作
- * 4. 数据库删除操作
+ * 4. 基于游标的分页查询
+ * 5. 分区维护
+ * 
+ * 分页查询使用(processed_time, id)作为游标，先在覆盖索引上定位一页的主键，
+ * 再回表读取结果内容，翻页成本与页码无关
  */
 @Mapper
 public interface ProcessedDataMapper {
@@ -27,6 +34,22 @@ public interface ProcessedDataMapper {
             "VALUES (#{ruleId}, #{rawDataId}, #{resultContent})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(ProcessedData processedData);
+
+    /**
+     * 批量插入已分配ID的处理后数据
+     * 
+     * ID由应用端生成，使用单条多值INSERT语句，减少数据库往返次数
+     * 失败重试会沿用原ID和处理时间重新写入，已存在的记录直接忽略
+     * 
+     * @param processedDataList 待插入的处理后数据实体列表
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO processed_data (id, rule_id, raw_data_id, result_content, processed_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.ruleId}, #{item.rawDataId}, #{item.resultContent}, #{item.processedTime})" +
+            "</foreach>" +
+            "</script>")
+    void insertBatch(@Param("list") List<ProcessedData> processedDataList);
     
     /**
      * 根据ID查询处理后的数据
@@ -40,9 +63,109 @@ public interface ProcessedDataMapper {
     /**
      * 根据原始数据ID查询处理后的数据
      * 
+     * 同一条原始数据可能被多个规则处理，使用idx_raw_data索引
+     * 
      * @param rawDataId 原始数据ID
-     * @return 查询到的处理后数据实体
+     * @return 查询到的处理后数据实体列表
+     */
+    @Select("SELECT * FROM processed_data WHERE raw_data_id = #{rawDataId} ORDER BY processed_time, id")
+    List<ProcessedData> findByRawDataId(@Param("rawDataId") Long rawDataId);
+
+    /**
+     * 按规则和时间范围分页查询处理后的数据
+     * 
+     * 在idx_rule_time覆盖索引上定位本页主键，再回表读取完整记录
+     * 首页时afterTime和afterId传null，后续页传上一页最后一条记录的处理时间和ID
+     * 
+     * @param ruleId 规则ID
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param afterTime 游标：上一页最后一条记录的处理时间
+     * @param afterId 游标：上一页最后一条记录的ID
+     * @param limit 每页条数
+     * @return 按处理时间和ID升序排列的一页数据
+     */
+    @Select("<script>" +
+            "SELECT p.* FROM processed_data p JOIN (" +
+            "SELECT id, processed_time FROM processed_data " +
+            "WHERE rule_id = #{ruleId} AND processed_time &gt;= #{from} AND processed_time &lt; #{to} " +
+            "<if test='afterTime != null and afterId != null'>" +
+            "AND (processed_time &gt; #{afterTime} OR (processed_time = #{afterTime} AND id &gt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY processed_time, id LIMIT #{limit}" +
+            ") k ON p.id = k.id AND p.processed_time = k.processed_time " +
+            "ORDER BY p.processed_time, p.id" +
+            "</script>")
+    List<ProcessedData> findPageByRule(@Param("ruleId") Long ruleId,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("afterTime") LocalDateTime afterTime,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+
+    /**
+     * 按时间范围分页查询处理后的数据
+     * 
+     * 在idx_time覆盖索引上定位本页主键，时间条件同时用于分区裁剪
+     * 
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param afterTime 游标：上一页最后一条记录的处理时间
+     * @param afterId 游标：上一页最后一条记录的ID
+     * @param limit 每页条数
+     * @return 按处理时间和ID升序排列的一页数据
+     */
+    @Select("<script>" +
+            "SELECT p.* FROM processed_data p JOIN (" +
+            "SELECT id, processed_time FROM processed_data " +
+            "WHERE processed_time &gt;= #{from} AND processed_time &lt; #{to} " +
+            "<if test='afterTime != null and afterId != null'>" +
+            "AND (processed_time &gt; #{afterTime} OR (processed_time = #{afterTime} AND id &gt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY processed_time, id LIMIT #{limit}" +
+            ") k ON p.id = k.id AND p.processed_time = k.processed_time " +
+            "ORDER BY p.processed_time, p.id" +
+            "</script>")
+    List<ProcessedData> findPageByTime(@Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("afterTime") LocalDateTime afterTime,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+
+    /**
+     * 查询processed_data表的分区名称
+     * 
+     * @return 按分区顺序排列的分区名称，表未分区时返回空列表
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'processed_data' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> findPartitionNames();
+
+    /**
+     * 查询p_max分区中最新的处理时间
+     * 
+     * @return p_max中最新的处理时间，p_max为空时返回null
+     */
+    @Select("SELECT MAX(processed_time) FROM processed_data PARTITION (p_max)")
+    LocalDateTime findLatestTimeInMaxPartition();
+
+    /**
+     * 从p_max中拆分出一个新的日分区
+     * 
+     * @param partitionName 新分区名称
+     * @param upperBound 新分区的上界日期（不包含），格式yyyy-MM-dd
+     */
+    @Update("ALTER TABLE processed_data REORGANIZE PARTITION p_max INTO (" +
+            "PARTITION ${partitionName} VALUES LESS THAN (TO_DAYS('${upperBound}')), " +
+            "PARTITION p_max VALUES LESS THAN MAXVALUE)")
+    void addPartition(@Param("partitionName") String partitionName, @Param("upperBound") String upperBound);
+
+    /**
+     * 删除分区，整体清理分区内的数据
+     * 
+     * @param partitionName 分区名称
      */
-    @Select("SELECT * FROM processed_data WHERE raw_data_id = #{rawDataId}")
-    ProcessedData findByRawDataId(@Param("rawDataId") Long rawDataId);
+    @Update("ALTER TABLE processed_data DROP PARTITION ${partitionName}")
+    void dropPartition(@Param("partitionName") String partitionName);
 }
@@ -2,7 +2,10 @@ package com.example.cepengine.mapper;
 
 import com.example.cepengine.entity.RawData;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -29,6 +32,22 @@ public interface RawDataMapper {
             "VALUES (#{dataContent}, #{source}, #{createdTime})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(RawData rawData);
+
+    /**
+     * 批量插入已分配ID的原始数据
+     * 
+     * ID由应用端生成，使用单条多值INSERT语句，减少数据库往返次数
+     * 预写日志恢复和失败重试会沿用原ID重新写入，已存在的ID直接忽略
+     * 
+     * @param rawDataList 待插入的原始数据实体列表
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO raw_data (id, data_content, source, created_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.dataContent}, #{item.source}, #{item.createdTime})" +
+            "</foreach>" +
+            "</script>")
+    void insertBatch(@Param("list") List<RawData> rawDataList);
     
     /**
      * 根据ID查询原始数据
@@ -48,6 +67,24 @@ public interface RawDataMapper {
     @Select("SELECT * FROM raw_data WHERE source = #{source}")
     List<RawData> findBySource(@Param("source") String source);
     
+    /**
+     * 按来源和时间范围流式读取原始数据
+     * 
+     * 返回游标而不是列表，逐行读取，内存占用与结果集大小无关
+     * MariaDB驱动在fetchSize大于0时按批次流式读取，调用方必须在事务内遍历并关闭游标
+     * 
+     * @param source 数据来源
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @return 按接收时间和ID升序排列的原始数据游标
+     */
+    @Select("SELECT * FROM raw_data WHERE source = #{source} " +
+            "AND created_time >= #{from} AND created_time < #{to} ORDER BY created_time, id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<RawData> scanBySourceAndTime(@Param("source") String source,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+    
     /**
      * 更新原始数据
      * 
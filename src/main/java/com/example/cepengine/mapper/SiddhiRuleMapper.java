@@ -3,6 +3,7 @@ package com.example.cepengine.mapper;
 import com.example.cepengine.entity.SiddhiRule;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -54,15 +55,31 @@ public interface SiddhiRuleMapper {
     @Select("SELECT * FROM siddhi_rule WHERE id = #{id}")
     SiddhiRule findById(@Param("id") Long id);
     
+    /**
+     * 根据ID列表批量查询Siddhi规则
+     * 
+     * 使用单条IN查询代替逐条查询，用于缓存未命中时的批量回填
+     * 
+     * @param ids 规则ID列表，不能为空
+     * @return 查询到的Siddhi规则列表，不存在的ID不会出现在结果中
+     */
+    @Select("<script>" +
+            "SELECT * FROM siddhi_rule WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<SiddhiRule> findByIds(@Param("ids") Collection<Long> ids);
+    
     /**
      * 查询所有激活状态的Siddhi规则
      * 
      * 获取当前系统中所有处于激活状态的规则
      * 用于动态加载和管理活跃的复杂事件处理规则
      * 
+     * 降级的规则（status = 2）仍然运行，只是在隔离通道中评估，因此也包含在内
+     * 
      * @return 激活状态的Siddhi规则列表，如果没有激活规则则返回空列表
      */
-    @Select("SELECT * FROM siddhi_rule WHERE status = 1")
+    @Select("SELECT * FROM siddhi_rule WHERE status IN (1, 2)")
     List<SiddhiRule> findAllActiveRules();
     
     /**
@@ -78,6 +95,65 @@ public interface SiddhiRuleMapper {
             "status = #{status} WHERE id = #{id}")
     void update(SiddhiRule rule);
     
+    /**
+     * 更新规则状态
+     * 
+     * 保持updated_time不变，状态变化不会触发规则重新编译
+     * 
+     * @param id 规则ID
+     * @param status 新状态
+     */
+    @Update("UPDATE siddhi_rule SET status = #{status}, updated_time = updated_time WHERE id = #{id}")
+    void updateStatus(@Param("id") Long id, @Param("status") Integer status);
+    
+    /**
+     * 批量插入Siddhi规则
+     * 
+     * 使用单条多值INSERT语句，自动生成的主键按顺序回填到每个规则实体
+     * 
+     * @param rules 待插入的Siddhi规则实体列表，不能为空
+     */
+    @Insert("<script>" +
+            "INSERT INTO siddhi_rule (rule_name, rule_description, rule_content, input_stream, output_stream, status) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.ruleName}, #{item.ruleDescription}, #{item.ruleContent}, #{item.inputStream}, " +
+            "#{item.outputStream}, #{item.status})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insertBatch(List<SiddhiRule> rules);
+    
+    /**
+     * 批量更新已存在的Siddhi规则
+     * 
+     * 使用单条多值INSERT ... ON DUPLICATE KEY UPDATE语句按主键更新，
+     * 调用方需先确认所有ID都已存在，否则会插入新行
+     * 
+     * @param rules 包含更新信息的Siddhi规则实体列表，不能为空
+     */
+    @Insert("<script>" +
+            "INSERT INTO siddhi_rule (id, rule_name, rule_description, rule_content, input_stream, output_stream, status) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.ruleName}, #{item.ruleDescription}, #{item.ruleContent}, #{item.inputStream}, " +
+            "#{item.outputStream}, #{item.status})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE rule_name = VALUES(rule_name), rule_description = VALUES(rule_description), " +
+            "rule_content = VALUES(rule_content), input_stream = VALUES(input_stream), " +
+            "output_stream = VALUES(output_stream), status = VALUES(status)" +
+            "</script>")
+    void updateBatch(List<SiddhiRule> rules);
+    
+    /**
+     * 根据ID列表批量删除Siddhi规则
+     * 
+     * @param ids 待删除规则的ID集合，不能为空
+     */
+    @Delete("<script>" +
+            "DELETE FROM siddhi_rule WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    void deleteByIds(@Param("ids") Collection<Long> ids);
+    
     /**
      * 根据ID删除Siddhi规则
      * 
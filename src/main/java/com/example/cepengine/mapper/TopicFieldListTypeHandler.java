@@ -0,0 +1,65 @@
+package com.example.cepengine.mapper;
+
+import com.example.cepengine.domain.TopicField;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 字段列表类型处理器
+ * 
+ * 将主题模式的字段列表以JSON数组形式读写到TEXT列
+ */
+public class TopicFieldListTypeHandler extends BaseTypeHandler<List<TopicField>> {
+
+    /** 字段列表类型 */
+    private static final TypeReference<List<TopicField>> FIELDS_TYPE = new TypeReference<List<TopicField>>() {
+    };
+
+    /** JSON序列化器 */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, List<TopicField> parameter, JdbcType jdbcType)
+            throws SQLException {
+        try {
+            ps.setString(i, OBJECT_MAPPER.writeValueAsString(parameter));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("字段列表序列化失败", e);
+        }
+    }
+
+    @Override
+    public List<TopicField> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return parse(rs.getString(columnName));
+    }
+
+    @Override
+    public List<TopicField> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return parse(rs.getString(columnIndex));
+    }
+
+    @Override
+    public List<TopicField> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return parse(cs.getString(columnIndex));
+    }
+
+    private List<TopicField> parse(String json) throws SQLException {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, FIELDS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("字段列表解析失败", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.cepengine.mapper;
+
+import com.example.cepengine.entity.TopicSchema;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 主题模式数据访问接口
+ * 
+ * 主要功能：
+ * 1. 插入新的模式版本
+ * 2. 查询主题的最新版本、指定版本和全部版本
+ * 3. 批量查询所有主题的最新版本，用于加载内存缓存
+ * 
+ * 设计特点：
+ * - 字段列表通过TopicFieldListTypeHandler以JSON数组读写
+ * - 版本号由调用方在事务内计算，(topic_name, version)唯一约束防止并发注册产生相同版本
+ */
+@Mapper
+public interface TopicSchemaMapper {
+
+    /**
+     * 插入新的模式版本
+     * 
+     * @param schema 待插入的模式，version由调用方设置
+     */
+    @Insert("INSERT INTO topic_schema (topic_name, version, stream_name, fields) " +
+            "VALUES (#{topicName}, #{version}, #{streamName}, " +
+            "#{fields,typeHandler=com.example.cepengine.mapper.TopicFieldListTypeHandler})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insert(TopicSchema schema);
+
+    /**
+     * 查询主题的最新版本
+     * 
+     * @param topicName 主题名称
+     * @return 最新版本的模式，未注册时返回null
+     */
+    @Select("SELECT * FROM topic_schema WHERE topic_name = #{topicName} ORDER BY version DESC LIMIT 1")
+    @Results(id = "topicSchemaMap", value = {
+        @Result(property = "fields", column = "fields", typeHandler = TopicFieldListTypeHandler.class)
+    })
+    TopicSchema findLatest(@Param("topicName") String topicName);
+
+    /**
+     * 查询主题的指定版本
+     * 
+     * @param topicName 主题名称
+     * @param version 模式版本
+     * @return 对应版本的模式，不存在时返回null
+     */
+    @Select("SELECT * FROM topic_schema WHERE topic_name = #{topicName} AND version = #{version}")
+    @ResultMap("topicSchemaMap")
+    TopicSchema findByVersion(@Param("topicName") String topicName, @Param("version") Integer version);
+
+    /**
+     * 查询主题的全部版本
+     * 
+     * @param topicName 主题名称
+     * @return 按版本升序排列的模式列表
+     */
+    @Select("SELECT * FROM topic_schema WHERE topic_name = #{topicName} ORDER BY version")
+    @ResultMap("topicSchemaMap")
+    List<TopicSchema> findVersions(@Param("topicName") String topicName);
+
+    /**
+     * 查询所有主题的最新版本
+     * 
+     * @return 每个主题一条最新版本的模式
+     */
+    @Select("SELECT s.* FROM topic_schema s " +
+            "JOIN (SELECT topic_name, MAX(version) AS version FROM topic_schema GROUP BY topic_name) latest " +
+            "ON s.topic_name = latest.topic_name AND s.version = latest.version")
+    @ResultMap("topicSchemaMap")
+    List<TopicSchema> findAllLatest();
+}
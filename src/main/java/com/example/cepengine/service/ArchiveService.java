@@ -0,0 +1,78 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.store.ArchiveRecord;
+import com.example.cepengine.store.ArchiveStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 归档查询与回放服务
+ *
+ * 主要功能：
+ * 1. 按时间范围查询本地归档记录
+ * 2. 按时间范围将归档记录重新发送到指定Kafka主题
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveService {
+
+    /** 单次查询的最大返回条数 */
+    private static final int MAX_QUERY_LIMIT = 10000;
+
+    /** 本地归档存储 */
+    private final ArchiveStore archiveStore;
+
+    /** Kafka模板，用于回放 */
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    /**
+     * 按时间范围查询归档记录
+     *
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param limit 最大返回条数
+     * @return 归档记录列表
+     */
+    public List<ArchiveRecord> query(LocalDateTime from, LocalDateTime to, int limit) {
+        try {
+            return archiveStore.query(toEpochMilli(from), toEpochMilli(to), Math.min(limit, MAX_QUERY_LIMIT));
+        } catch (IOException e) {
+            throw new UncheckedIOException("查询归档失败", e);
+        }
+    }
+
+    /**
+     * 将时间范围内的归档记录重新发送到指定主题
+     *
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param topic 目标主题
+     * @return 回放的记录数
+     */
+    public long replay(LocalDateTime from, LocalDateTime to, String topic) {
+        try {
+            long count = archiveStore.scan(toEpochMilli(from), toEpochMilli(to), record -> {
+                kafkaTemplate.send(topic, record.getPayload());
+                return true;
+            });
+            kafkaTemplate.flush();
+            log.info("归档回放完成：主题={}, 时间范围=[{}, {}), 记录数={}", topic, from, to, count);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("回放归档失败", e);
+        }
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.mapper.SiddhiRuleMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_PREFIX;
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_TTL;
+
+/**
+ * 异步规则缓存服务
+ *
+ * 与SiddhiRuleServiceImpl共用同一份Redis规则缓存，所有操作返回CompletionStage，调用方不阻塞
+ *
+ * 主要功能：
+ * 1. 使用Lettuce响应式连接读取、回填和清除规则缓存
+ * 2. 缓存未命中的规则通过异步数据库执行器查询，查询受数据库许可限制
+ * 3. 未命中的规则查询后异步回填缓存，回填失败只记录日志
+ *
+ * 设计特点：
+ * - Redis命令在Lettuce的事件循环上完成，不占用调用线程
+ * - 数据库查询在异步数据库执行器上执行，虚拟线程模式下使用虚拟线程
+ * - 缓存键和过期时间与同步服务一致，两条路径可以混用
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AsyncRuleCacheService {
+
+    /** 单次MGET和IN查询的最大规则数量 */
+    private static final int BULK_CHUNK_SIZE = 1000;
+
+    /** 基于Lettuce的响应式Redis模板 */
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    /** Siddhi规则数据库映射器 */
+    private final SiddhiRuleMapper siddhiRuleMapper;
+
+    /** 阻塞I/O执行器，执行未命中时的数据库查询 */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /**
+     * 获取规则内容
+     *
+     * @param id 规则ID
+     * @return 规则内容，规则不存在时为null
+     */
+    public CompletionStage<String> getRuleContent(Long id) {
+        return reactiveRedisTemplate.opsForValue().get(RULE_CACHE_PREFIX + id)
+            .toFuture()
+            .thenCompose(content -> content != null
+                ? CompletableFuture.completedFuture(content)
+                : loadAndCache(Collections.singletonList(id)).thenApply(contents -> contents.get(id)));
+    }
+
+    /**
+     * 批量获取规则内容
+     *
+     * 按分片并发执行MGET，各分片未命中的规则合并为IN查询
+     *
+     * @param ids 规则ID集合
+     * @return 规则ID到规则内容的映射，不存在的规则不在结果中
+     */
+    public CompletionStage<Map<Long, String>> getRuleContents(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<CompletableFuture<Map<Long, String>>> chunks = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += BULK_CHUNK_SIZE) {
+            chunks.add(getChunk(idList.subList(from, Math.min(from + BULK_CHUNK_SIZE, idList.size()))));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Long, String> ruleContents = new HashMap<>(idList.size() * 2);
+            chunks.forEach(chunk -> ruleContents.putAll(chunk.join()));
+            return ruleContents;
+        });
+    }
+
+    /**
+     * 批量回填规则缓存
+     *
+     * @param rules 待缓存的规则
+     * @return 全部写入后完成
+     */
+    public CompletionStage<Void> putRules(Collection<SiddhiRule> rules) {
+        Duration ttl = Duration.ofHours(RULE_CACHE_TTL);
+        return Flux.fromIterable(rules)
+            .flatMap(rule -> reactiveRedisTemplate.opsForValue()
+                .set(RULE_CACHE_PREFIX + rule.getId(), rule.getRuleContent(), ttl))
+            .then()
+            .toFuture();
+    }
+
+    /**
+     * 批量清除规则缓存
+     *
+     * @param ids 规则ID集合
+     * @return 删除的键数量
+     */
+    public CompletionStage<Long> evictRules(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        List<String> cacheKeys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            cacheKeys.add(RULE_CACHE_PREFIX + id);
+        }
+        return reactiveRedisTemplate.delete(Flux.fromIterable(cacheKeys)).toFuture();
+    }
+
+    /**
+     * 读取一个分片，未命中的规则从数据库加载
+     */
+    private CompletableFuture<Map<Long, String>> getChunk(List<Long> chunk) {
+        List<String> cacheKeys = new ArrayList<>(chunk.size());
+        for (Long id : chunk) {
+            cacheKeys.add(RULE_CACHE_PREFIX + id);
+        }
+        return reactiveRedisTemplate.opsForValue().multiGet(cacheKeys)
+            .defaultIfEmpty(Collections.emptyList())
+            .toFuture()
+            .thenCompose(cachedContents -> {
+                Map<Long, String> ruleContents = new HashMap<>(chunk.size() * 2);
+                List<Long> missedIds = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    String content = i < cachedContents.size() ? cachedContents.get(i) : null;
+                    if (content != null) {
+                        ruleContents.put(chunk.get(i), content);
+                    } else {
+                        missedIds.add(chunk.get(i));
+                    }
+                }
+                if (missedIds.isEmpty()) {
+                    return CompletableFuture.completedFuture(ruleContents);
+                }
+                return loadAndCache(missedIds).thenApply(loaded -> {
+                    ruleContents.putAll(loaded);
+                    return ruleContents;
+                });
+            });
+    }
+
+    /**
+     * 从数据库加载规则并异步回填缓存
+     */
+    private CompletableFuture<Map<Long, String>> loadAndCache(List<Long> ids) {
+        return blockingIoExecutor.supplyDb(() -> siddhiRuleMapper.findByIds(ids)).thenApply(rules -> {
+            Map<Long, String> ruleContents = new HashMap<>(rules.size() * 2);
+            for (SiddhiRule rule : rules) {
+                ruleContents.put(rule.getId(), rule.getRuleContent());
+            }
+            if (!rules.isEmpty()) {
+                putRules(rules).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.warn("回填规则缓存失败：{} 条", rules.size(), e);
+                    }
+                });
+            }
+            return ruleContents;
+        });
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.mapper.RawDataMapper;
+import com.example.cepengine.store.SnowflakeIdGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步数据持久化服务
+ *
+ * 将原始数据和处理结果的数据库写入从事件处理线程中剥离
+ *
+ * 主要功能：
+ * 1. 接收待持久化的原始数据和处理结果，立即返回
+ * 2. 由独立的写入线程按批次聚合数据
+ * 3. 使用多值INSERT批量写入数据库
+ * 4. 提供返回CompletionStage的提交方式，数据所在批次提交后完成，调用方无需为每次写入占用线程
+ * 5. 停机时可等待已提交的数据全部写入，写入线程保持运行
+ *
+ * 设计特点：
+ * - 有界队列，避免内存无限增长
+ * - 原始数据和处理结果共用一个先进先出队列，每个批次先写原始数据再写处理结果，
+ *   保证processed_data.raw_data_id引用的原始数据已经存在
+ * - 处理结果入队时分配雪花ID，写入失败后的重试沿用同一ID和处理时间，不会重复落库
+ * - 达到批次大小或刷新间隔时写入
+ * - 应用关闭时写完队列中剩余的数据
+ * - 队列已满或批量写入失败的数据交给失败处理服务重试，数据库故障不会阻塞数据接入
+ * - 批次写入交给阻塞I/O执行器，虚拟线程模式下多个批次并发写入，并发数受数据库许可限制；
+ *   处理结果要等本批次及之前所有批次的原始数据写完后才写入
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataPersistenceService {
+
+    /** 原始数据持久化映射器 */
+    private final RawDataMapper rawDataMapper;
+
+    /** 处理后数据持久化映射器 */
+    private final ProcessedDataMapper processedDataMapper;
+
+    /** 失败处理服务 */
+    private final FailureHandlingService failureHandlingService;
+
+    /** 阻塞I/O执行器 */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /** 雪花ID生成器，为处理结果分配ID */
+    private final SnowflakeIdGenerator idGenerator;
+
+    /** 待写入队列容量 */
+    @Value("${app.persistence.queue-capacity:65536}")
+    private int queueCapacity;
+
+    /** 单批次最大写入条数 */
+    @Value("${app.persistence.batch-size:500}")
+    private int batchSize;
+
+    /** 批次刷新间隔（毫秒） */
+    @Value("${app.persistence.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    /** 待写入队列，元素为RawData、ProcessedData或带完成通知的PendingWrite，保持提交顺序 */
+    private BlockingQueue<Object> writeQueue;
+
+    /** 写入线程 */
+    private Thread writerThread;
+
+    /** 写入线程运行标志 */
+    private volatile boolean running;
+
+    /** 已进入队列、尚未交给数据库执行的数据条数 */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** 已提交批次的原始数据全部写完时完成，只由写入线程访问 */
+    private CompletableFuture<Void> rawWritten = CompletableFuture.completedFuture(null);
+
+    /**
+     * 启动写入线程
+     */
+    @PostConstruct
+    public void start() {
+        writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "persistence-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 提交待持久化的原始数据
+     *
+     * 非阻塞调用，队列已满时交给失败处理服务并返回false
+     *
+     * @param rawData 已分配ID的原始数据
+     * @return 是否成功进入写入队列
+     */
+    public boolean submitRaw(RawData rawData) {
+        return enqueueRaw(rawData, null);
+    }
+
+    /**
+     * 提交待持久化的处理结果
+     *
+     * 非阻塞调用，队列已满时交给失败处理服务并返回false
+     *
+     * @param processedData 处理结果
+     * @return 是否成功进入写入队列
+     */
+    public boolean submitProcessed(ProcessedData processedData) {
+        return enqueueProcessed(processedData, null);
+    }
+
+    /**
+     * 异步持久化原始数据
+     *
+     * @param rawData 已分配ID的原始数据
+     * @return 所在批次写入后完成；队列已满或写入失败时异常完成，数据已交给失败处理服务重试
+     */
+    public CompletionStage<Void> persistRaw(RawData rawData) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        enqueueRaw(rawData, done);
+        return done;
+    }
+
+    /**
+     * 异步持久化处理结果
+     *
+     * @param processedData 处理结果
+     * @return 所在批次写入后完成；队列已满或写入失败时异常完成，数据已交给失败处理服务重试
+     */
+    public CompletionStage<Void> persistProcessed(ProcessedData processedData) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        enqueueProcessed(processedData, done);
+        return done;
+    }
+
+    private boolean enqueueRaw(RawData rawData, CompletableFuture<Void> done) {
+        if (rawData.getCreatedTime() == null) {
+            rawData.setCreatedTime(LocalDateTime.now());
+        }
+        pending.incrementAndGet();
+        boolean accepted = writeQueue.offer(done == null ? rawData : new PendingWrite(rawData, done));
+        if (!accepted) {
+            pending.decrementAndGet();
+            log.warn("持久化队列已满，原始数据转入失败处理：数据ID={}", rawData.getId());
+            failureHandlingService.submitRaw(rawData, null);
+            rejectFull(done);
+        }
+        return accepted;
+    }
+
+    private boolean enqueueProcessed(ProcessedData processedData, CompletableFuture<Void> done) {
+        // 首次写入前分配ID，失败重试沿用同一ID，重复写入会被忽略
+        if (processedData.getId() == null) {
+            processedData.setId(idGenerator.nextId());
+        }
+        if (processedData.getProcessedTime() == null) {
+            processedData.setProcessedTime(LocalDateTime.now());
+        }
+        pending.incrementAndGet();
+        boolean accepted = writeQueue.offer(done == null ? processedData : new PendingWrite(processedData, done));
+        if (!accepted) {
+            pending.decrementAndGet();
+            log.warn("持久化队列已满，处理结果转入失败处理：规则ID={}", processedData.getRuleId());
+            failureHandlingService.submitProcessed(processedData, null);
+            rejectFull(done);
+        }
+        return accepted;
+    }
+
+    private static void rejectFull(CompletableFuture<Void> done) {
+        if (done != null) {
+            done.completeExceptionally(new IllegalStateException("持久化队列已满"));
+        }
+    }
+
+    /**
+     * 写入线程主循环
+     *
+     * 等待第一条数据或刷新间隔到期，然后尽量凑满一个批次写入
+     * 停止后写完队列中剩余的数据再退出
+     */
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Object first = writeQueue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                writeQueue.drainTo(batch, batchSize - 1);
+                submitBatch(batch);
+                pending.addAndGet(-batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        try {
+            while (writeQueue.drainTo(batch, batchSize) > 0) {
+                submitBatch(batch);
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("写入线程被中断，剩余 {} 条数据未写入", writeQueue.size() + batch.size());
+        }
+    }
+
+    /**
+     * 提交一个批次，先写原始数据再写处理结果
+     *
+     * 处理结果可能引用之前批次的原始数据，要等之前所有批次的原始数据写完
+     *
+     * @param batch 待写入的批次，提交后可被调用方清空
+     * @throws InterruptedException 等待数据库许可时被中断
+     */
+    private void submitBatch(List<Object> batch) throws InterruptedException {
+        List<RawData> rawBatch = new ArrayList<>();
+        List<ProcessedData> processedBatch = new ArrayList<>();
+        List<CompletableFuture<Void>> rawDone = new ArrayList<>();
+        List<CompletableFuture<Void>> processedDone = new ArrayList<>();
+        for (Object item : batch) {
+            CompletableFuture<Void> done = null;
+            if (item instanceof PendingWrite) {
+                done = ((PendingWrite) item).done;
+                item = ((PendingWrite) item).entity;
+            }
+            if (item instanceof RawData) {
+                rawBatch.add((RawData) item);
+                if (done != null) {
+                    rawDone.add(done);
+                }
+            } else {
+                processedBatch.add((ProcessedData) item);
+                if (done != null) {
+                    processedDone.add(done);
+                }
+            }
+        }
+
+        CompletableFuture<Void> previous = rawWritten;
+        CompletableFuture<Void> current = new CompletableFuture<>();
+        rawWritten = current;
+        blockingIoExecutor.runDb(() -> {
+            try {
+                complete(rawDone, writeRaw(rawBatch));
+            } finally {
+                previous.whenComplete((result, error) -> current.complete(null));
+            }
+            current.join();
+            complete(processedDone, writeProcessed(processedBatch));
+        });
+    }
+
+    /**
+     * 写入原始数据
+     *
+     * @return 写入失败的原因，成功时返回null
+     */
+    private Exception writeRaw(List<RawData> rawBatch) {
+        if (rawBatch.isEmpty()) {
+            return null;
+        }
+        try {
+            rawDataMapper.insertBatch(rawBatch);
+            return null;
+        } catch (Exception e) {
+            log.error("批量写入原始数据失败，转入失败处理：{} 条", rawBatch.size(), e);
+            rawBatch.forEach(rawData -> failureHandlingService.submitRaw(rawData, e));
+            return e;
+        }
+    }
+
+    /**
+     * 写入处理结果
+     *
+     * @return 写入失败的原因，成功时返回null
+     */
+    private Exception writeProcessed(List<ProcessedData> processedBatch) {
+        if (processedBatch.isEmpty()) {
+            return null;
+        }
+        try {
+            processedDataMapper.insertBatch(processedBatch);
+            return null;
+        } catch (Exception e) {
+            log.error("批量写入处理结果失败，转入失败处理：{} 条", processedBatch.size(), e);
+            processedBatch.forEach(processedData -> failureHandlingService.submitProcessed(processedData, e));
+            return e;
+        }
+    }
+
+    private static void complete(List<CompletableFuture<Void>> done, Exception error) {
+        for (CompletableFuture<Void> future : done) {
+            if (error == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * 已提交但尚未写入数据库的数据条数
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * 等待已提交的数据全部写入数据库
+     *
+     * 写入线程保持运行，等待期间提交的数据同样需要写完
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部写入
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return blockingIoExecutor.awaitDbIdle(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止写入线程，写完队列中剩余的数据
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        if (!blockingIoExecutor.awaitDbIdle(30, TimeUnit.SECONDS)) {
+            log.warn("仍有批次未能在30秒内写入数据库");
+        }
+    }
+
+    /**
+     * 需要完成通知的待写入数据
+     */
+    private static final class PendingWrite {
+        private final Object entity;
+        private final CompletableFuture<Void> done;
+
+        private PendingWrite(Object entity, CompletableFuture<Void> done) {
+            this.entity = entity;
+            this.done = done;
+        }
+    }
+}
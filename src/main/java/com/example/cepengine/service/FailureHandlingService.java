@@ -0,0 +1,439 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.dto.FailedRecord;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.enums.FailureTargetEnum;
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.mapper.RawDataMapper;
+import com.example.cepengine.store.SpillJournal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 失败处理服务
+ *
+ * 接管输出到Kafka、写入数据库以及监听器处理失败的记录，下游故障时不阻塞数据接入
+ *
+ * 主要功能：
+ * 1. 有界内存重试队列，按指数退避重试
+ * 2. 内存重试用尽或队列已满时，溢出到本地内存映射日志
+ * 3. 定时排空溢出日志：下游恢复后重新写回原目标
+ * 4. 超过最大尝试次数的记录发送到死信主题
+ *
+ * 设计特点：
+ * - 提交失败记录为非阻塞调用，调用方线程不会因下游故障而阻塞
+ * - 排空时遇到失败立即停止本轮，避免下游故障期间空转
+ * - 溢出日志已满时丢弃并计数，保证内存和磁盘占用有界
+ * - 原始数据和处理结果在首次写入前已分配ID，重试沿用原ID，重复写入数据库视为成功，重试是幂等的
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FailureHandlingService {
+
+    /** Kafka模板，用于重新发送和发送死信 */
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    /** 原始数据持久化映射器 */
+    private final RawDataMapper rawDataMapper;
+
+    /** 处理后数据持久化映射器 */
+    private final ProcessedDataMapper processedDataMapper;
+
+    /** 本地溢出日志 */
+    private final SpillJournal spillJournal;
+
+    /** JSON序列化器 */
+    private final ObjectMapper objectMapper;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 数据输入主题，规则评估失败的消息以此作为来源 */
+    @Value("${app.kafka.input-topic}")
+    private String inputTopic;
+
+    /** 死信主题 */
+    @Value("${app.failure.dead-letter-topic:cep-dead-letter}")
+    private String deadLetterTopic;
+
+    /** 内存重试队列容量 */
+    @Value("${app.failure.retry.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /** 内存重试最大次数，用尽后溢出到本地日志 */
+    @Value("${app.failure.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    /** 首次重试的退避时间（毫秒） */
+    @Value("${app.failure.retry.initial-backoff-ms:200}")
+    private long initialBackoffMs;
+
+    /** 最大退避时间（毫秒） */
+    @Value("${app.failure.retry.max-backoff-ms:5000}")
+    private long maxBackoffMs;
+
+    /** 同步发送Kafka的超时时间（毫秒） */
+    @Value("${app.failure.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    /** 总尝试次数达到该值的记录发送到死信主题 */
+    @Value("${app.failure.dead-letter-after-attempts:10}")
+    private int deadLetterAfterAttempts;
+
+    /** 单轮最多排空的记录数 */
+    @Value("${app.failure.journal.drain-batch:1000}")
+    private int drainBatch;
+
+    /** 内存重试队列 */
+    private final DelayQueue<RetryTask> retryQueue = new DelayQueue<>();
+
+    /** 重试线程 */
+    private Thread retryThread;
+
+    /** 重试线程运行标志 */
+    private volatile boolean running;
+
+    private Counter failedCounter;
+    private Counter recoveredCounter;
+    private Counter spilledCounter;
+    private Counter deadLetteredCounter;
+    private Counter droppedCounter;
+
+    /**
+     * 注册指标并启动重试线程
+     */
+    @PostConstruct
+    public void start() {
+        failedCounter = Counter.builder("cep.failure.submitted")
+            .description("进入失败处理的记录数").register(meterRegistry);
+        recoveredCounter = Counter.builder("cep.failure.recovered")
+            .description("重试成功的记录数").register(meterRegistry);
+        spilledCounter = Counter.builder("cep.failure.spilled")
+            .description("溢出到本地日志的记录数").register(meterRegistry);
+        deadLetteredCounter = Counter.builder("cep.failure.dead.lettered")
+            .description("发送到死信主题的记录数").register(meterRegistry);
+        droppedCounter = Counter.builder("cep.failure.dropped")
+            .description("本地日志已满而丢弃的记录数").register(meterRegistry);
+        Gauge.builder("cep.failure.retry.pending", retryQueue, DelayQueue::size)
+            .description("内存重试队列中的记录数").register(meterRegistry);
+        Gauge.builder("cep.failure.journal.records", spillJournal, SpillJournal::size)
+            .description("本地溢出日志中的记录数").register(meterRegistry);
+        Gauge.builder("cep.failure.journal.bytes", spillJournal, SpillJournal::usedBytes)
+            .description("本地溢出日志已用字节数").baseUnit("bytes").register(meterRegistry);
+
+        running = true;
+        retryThread = new Thread(this::retryLoop, "failure-retry");
+        retryThread.setDaemon(true);
+        retryThread.start();
+    }
+
+    /**
+     * 提交发送Kafka失败的消息
+     *
+     * @param topic 目标主题
+     * @param key 消息键
+     * @param payload 消息内容
+     * @param error 失败原因
+     */
+    public void submitKafka(String topic, String key, String payload, Throwable error) {
+        submit(newRecord(FailureTargetEnum.KAFKA, topic, key, payload, error));
+    }
+
+    /**
+     * 提交无法处理的输入消息，直接进入死信主题
+     *
+     * @param sourceTopic 消息来源主题
+     * @param key 消息键
+     * @param payload 消息内容
+     * @param error 失败原因
+     */
+    public void submitDeadLetter(String sourceTopic, String key, String payload, Throwable error) {
+        submit(newRecord(FailureTargetEnum.DEAD_LETTER, sourceTopic, key, payload, error));
+    }
+
+    /**
+     * 提交规则评估失败的输入数据，直接进入死信主题
+     *
+     * @param ruleId 规则ID，作为消息键
+     * @param data 输入数据
+     * @param error 失败原因
+     */
+    public void submitFailedEvaluation(Long ruleId, Object data, Throwable error) {
+        submitDeadLetter(inputTopic, String.valueOf(ruleId), String.valueOf(data), error);
+    }
+
+    /**
+     * 提交写入数据库失败的原始数据
+     *
+     * @param rawData 原始数据
+     * @param error 失败原因
+     */
+    public void submitRaw(RawData rawData, Throwable error) {
+        submitEntity(FailureTargetEnum.RAW_DATA, rawData, error);
+    }
+
+    /**
+     * 提交写入数据库失败的处理结果
+     *
+     * @param processedData 处理结果
+     * @param error 失败原因
+     */
+    public void submitProcessed(ProcessedData processedData, Throwable error) {
+        submitEntity(FailureTargetEnum.PROCESSED_DATA, processedData, error);
+    }
+
+    /**
+     * 定时排空本地溢出日志
+     *
+     * 逐条重试日志头部的记录，成功后移除；失败时将记录移到尾部并停止本轮，
+     * 尝试次数达到上限的记录改为发送到死信主题
+     */
+    @Scheduled(fixedDelayString = "${app.failure.journal.drain-interval-ms:10000}")
+    public void drainJournal() {
+        for (int i = 0; i < drainBatch; i++) {
+            byte[] bytes = spillJournal.peek();
+            if (bytes == null) {
+                return;
+            }
+            FailedRecord record;
+            try {
+                record = objectMapper.readValue(bytes, FailedRecord.class);
+            } catch (IOException e) {
+                log.error("溢出日志记录无法解析，已丢弃", e);
+                spillJournal.remove();
+                droppedCounter.increment();
+                continue;
+            }
+
+            try {
+                if (record.getAttempts() >= deadLetterAfterAttempts) {
+                    sendDeadLetter(record);
+                    deadLetteredCounter.increment();
+                } else {
+                    execute(record);
+                    countSuccess(record);
+                }
+                spillJournal.remove();
+            } catch (Exception e) {
+                // 下游仍不可用：记录移到尾部，下一轮再试
+                record.setAttempts(record.getAttempts() + 1);
+                record.setLastError(describe(e));
+                spillJournal.remove();
+                spill(record);
+                log.debug("溢出日志排空失败，等待下一轮：目标={}, 尝试次数={}", record.getTarget(), record.getAttempts());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 停止重试线程，未完成的内存重试记录写入溢出日志
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (retryThread != null) {
+            retryThread.interrupt();
+            retryThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<RetryTask> pending = new ArrayList<>(retryQueue);
+        retryQueue.clear();
+        for (RetryTask task : pending) {
+            spill(task.record);
+        }
+        spillJournal.close();
+    }
+
+    /**
+     * 重试线程主循环
+     */
+    private void retryLoop() {
+        while (running) {
+            RetryTask task;
+            try {
+                task = retryQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            FailedRecord record = task.record;
+            try {
+                execute(record);
+                countSuccess(record);
+            } catch (Exception e) {
+                record.setAttempts(record.getAttempts() + 1);
+                record.setLastError(describe(e));
+                if (record.getAttempts() >= maxAttempts) {
+                    spill(record);
+                } else {
+                    schedule(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按目标重新执行一次记录
+     */
+    private void execute(FailedRecord record) throws Exception {
+        switch (record.getTarget()) {
+            case KAFKA:
+                kafkaTemplate.send(record.getTopic(), record.getKey(), record.getPayload())
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                break;
+            case DEAD_LETTER:
+                sendDeadLetter(record);
+                break;
+            case RAW_DATA:
+                try {
+                    rawDataMapper.insertBatch(Collections.singletonList(
+                        objectMapper.readValue(record.getPayload(), RawData.class)));
+                } catch (DuplicateKeyException e) {
+                    log.debug("原始数据已存在，视为写入成功");
+                }
+                break;
+            case PROCESSED_DATA:
+                try {
+                    processedDataMapper.insertBatch(Collections.singletonList(
+                        objectMapper.readValue(record.getPayload(), ProcessedData.class)));
+                } catch (DuplicateKeyException e) {
+                    log.debug("处理结果已存在，视为写入成功");
+                }
+                break;
+            default:
+                throw new IllegalStateException("未知的失败记录目标: " + record.getTarget());
+        }
+    }
+
+    /**
+     * 将记录发送到死信主题，消息内容为完整的失败记录
+     */
+    private void sendDeadLetter(FailedRecord record) throws Exception {
+        kafkaTemplate.send(deadLetterTopic, record.getKey(), objectMapper.writeValueAsString(record))
+            .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交新的失败记录，内存重试队列已满时直接溢出
+     */
+    private void submit(FailedRecord record) {
+        failedCounter.increment();
+        if (retryQueue.size() >= queueCapacity) {
+            spill(record);
+            return;
+        }
+        schedule(record);
+    }
+
+    /**
+     * 按已尝试次数计算退避时间，放入内存重试队列
+     */
+    private void schedule(FailedRecord record) {
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(record.getAttempts() - 1, 20));
+        retryQueue.offer(new RetryTask(record, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff)));
+    }
+
+    /**
+     * 写入本地溢出日志，日志已满时丢弃
+     */
+    private void spill(FailedRecord record) {
+        try {
+            if (spillJournal.append(objectMapper.writeValueAsBytes(record))) {
+                spilledCounter.increment();
+                return;
+            }
+        } catch (JsonProcessingException e) {
+            log.error("失败记录序列化失败：目标={}", record.getTarget(), e);
+        }
+        droppedCounter.increment();
+        log.error("溢出日志已满，失败记录被丢弃：目标={}, 主题={}, 键={}",
+            record.getTarget(), record.getTopic(), record.getKey());
+    }
+
+    /**
+     * 将实体序列化后提交
+     */
+    private void submitEntity(FailureTargetEnum target, Object entity, Throwable error) {
+        try {
+            submit(newRecord(target, null, null, objectMapper.writeValueAsString(entity), error));
+        } catch (JsonProcessingException e) {
+            droppedCounter.increment();
+            log.error("失败记录序列化失败，已丢弃：目标={}", target, e);
+        }
+    }
+
+    private FailedRecord newRecord(FailureTargetEnum target, String topic, String key, String payload,
+                                   Throwable error) {
+        FailedRecord record = new FailedRecord();
+        record.setTarget(target);
+        record.setTopic(topic);
+        record.setKey(key);
+        record.setPayload(payload);
+        record.setAttempts(1);
+        record.setFirstFailedTime(System.currentTimeMillis());
+        record.setLastError(describe(error));
+        return record;
+    }
+
+    private void countSuccess(FailedRecord record) {
+        if (record.getTarget() == FailureTargetEnum.DEAD_LETTER) {
+            deadLetteredCounter.increment();
+        } else {
+            recoveredCounter.increment();
+        }
+    }
+
+    private static String describe(Throwable error) {
+        return error == null ? null : error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    /**
+     * 内存重试任务，按到期时间排序
+     */
+    private static final class RetryTask implements Delayed {
+
+        /** 失败记录 */
+        private final FailedRecord record;
+
+        /** 到期时间（纳秒） */
+        private final long dueNanos;
+
+        private RetryTask(FailedRecord record, long dueNanos) {
+            this.record = record;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((RetryTask) other).dueNanos);
+        }
+    }
+}
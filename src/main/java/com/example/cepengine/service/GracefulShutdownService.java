@@ -0,0 +1,203 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.disruptor.AlertEvent;
+import com.example.cepengine.config.disruptor.CompletionTracker;
+import com.example.cepengine.config.disruptor.DataEvent;
+import com.example.cepengine.config.kafka.listener.manager.KafkaListenerManager;
+import com.example.cepengine.engine.EventTimeOrdering;
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.engine.SiddhiRuntimeManager;
+import com.example.cepengine.store.IngestJournal;
+import com.lmax.disruptor.RingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优雅停机服务
+ *
+ * 在Kafka监听容器停止之前按固定顺序排空流水线，滚动发布时不丢消息，也不会在重启后重复重放
+ *
+ * 停机顺序：
+ * 1. 暂停所有Kafka监听器，等待消费线程处理完当前这批记录
+ * 2. 等待主流水线的环形缓冲区排空，释放事件时间乱序缓冲区中的剩余事件，再等待告警通道和隔离通道排空
+ * 3. 持久化各规则运行时的状态快照
+ * 4. 发出生产者缓冲区中的结果，等待进行中的输出和持久化批次写完
+ * 5. 推进预写日志检查点，停止监听容器并提交最终偏移量
+ * 6. 记录各阶段排空的数量
+ *
+ * 设计特点：
+ * - 阶段值高于Kafka监听容器（Integer.MAX_VALUE - 100），先于容器停止
+ * - 所有阶段共用一个排空超时，超时后继续后续步骤，未完成的部分由预写日志和偏移量保证不丢失
+ * - 只有每一步都在超时前完成、三个环形缓冲区都没有积压且没有未完成的异步输出时才推进预写日志检查点，
+ *   否则检查点保持不变，下次启动仍会重放未处理的消息
+ */
+@Slf4j
+@Service
+public class GracefulShutdownService implements SmartLifecycle {
+
+    /** 晚于Kafka监听容器（Integer.MAX_VALUE - 100）启动，先于其停止 */
+    private static final int PHASE = Integer.MAX_VALUE - 50;
+
+    /** Kafka监听器管理器 */
+    private final KafkaListenerManager listenerManager;
+
+    /** 主流水线环形缓冲区 */
+    private final RingBuffer<DataEvent> ringBuffer;
+
+    /** 告警通道环形缓冲区 */
+    private final RingBuffer<AlertEvent> alertRingBuffer;
+
+    /** 隔离通道环形缓冲区 */
+    private final RingBuffer<DataEvent> quarantineRingBuffer;
+
+    /** Siddhi运行时管理器 */
+    private final SiddhiRuntimeManager runtimeManager;
+
+    /** 事件时间排序配置 */
+    private final EventTimeOrdering eventTimeOrdering;
+
+    /** 规则结果输出器 */
+    private final ResultSink resultSink;
+
+    /** 异步数据持久化服务 */
+    private final DataPersistenceService dataPersistenceService;
+
+    /** 输入预写日志 */
+    private final IngestJournal journal;
+
+    /** 主流水线异步完成跟踪器 */
+    private final CompletionTracker completionTracker;
+
+    /** 排空超时（毫秒） */
+    @Value("${app.shutdown.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    /** 是否运行中 */
+    private volatile boolean running;
+
+    public GracefulShutdownService(KafkaListenerManager listenerManager,
+                                   RingBuffer<DataEvent> ringBuffer,
+                                   RingBuffer<AlertEvent> alertRingBuffer,
+                                   @Qualifier("quarantineRingBuffer") RingBuffer<DataEvent> quarantineRingBuffer,
+                                   SiddhiRuntimeManager runtimeManager,
+                                   EventTimeOrdering eventTimeOrdering,
+                                   ResultSink resultSink,
+                                   DataPersistenceService dataPersistenceService,
+                                   IngestJournal journal,
+                                   CompletionTracker completionTracker) {
+        this.listenerManager = listenerManager;
+        this.ringBuffer = ringBuffer;
+        this.alertRingBuffer = alertRingBuffer;
+        this.quarantineRingBuffer = quarantineRingBuffer;
+        this.runtimeManager = runtimeManager;
+        this.eventTimeOrdering = eventTimeOrdering;
+        this.resultSink = resultSink;
+        this.dataPersistenceService = dataPersistenceService;
+        this.journal = journal;
+        this.completionTracker = completionTracker;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * 按顺序排空流水线并停止监听容器
+     */
+    @Override
+    public void stop() {
+        running = false;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        try {
+            int paused = listenerManager.pauseAll();
+            boolean drained = listenerManager.awaitPaused(remaining(deadline), TimeUnit.NANOSECONDS);
+            if (!drained) {
+                log.warn("部分监听器未能在超时前暂停，排空期间可能仍有新消息进入");
+            }
+
+            long events = drain(ringBuffer, deadline);
+            int reordered = eventTimeOrdering.bufferedCount();
+            if (!eventTimeOrdering.flush(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                log.warn("事件时间缓冲区仍有 {} 条事件未释放", eventTimeOrdering.bufferedCount());
+                drained = false;
+            }
+            long alerts = drain(alertRingBuffer, deadline);
+            long quarantined = drain(quarantineRingBuffer, deadline);
+            long backlog = backlog(ringBuffer) + backlog(alertRingBuffer) + backlog(quarantineRingBuffer);
+            drained &= backlog == 0;
+
+            int snapshots = runtimeManager.persistSnapshots(remaining(deadline), TimeUnit.NANOSECONDS);
+
+            int sends = resultSink.inFlightCount();
+            if (!resultSink.flush(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                log.warn("仍有 {} 条结果未完成发送", resultSink.inFlightCount());
+                drained = false;
+            }
+            int rows = dataPersistenceService.pendingCount();
+            if (!dataPersistenceService.flush(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                log.warn("仍有 {} 条数据未写入数据库", dataPersistenceService.pendingCount());
+                drained = false;
+            }
+
+            if (journal.isEnabled()) {
+                if (drained && completionTracker.isIdle()) {
+                    journal.sync();
+                    journal.checkpoint(journal.position());
+                } else {
+                    log.warn("流水线未完全排空，预写日志检查点保持不变，未完成的消息在下次启动时重放");
+                }
+            }
+            int stopped = listenerManager.stopAll();
+
+            log.info("停机排空完成：暂停监听器={}, 流水线事件={}, 乱序缓冲事件={}, 告警事件={}, 隔离事件={}, 未排空事件={}, "
+                    + "规则快照={}, Kafka发送={}, 待落库数据={}, 停止监听器={}, 耗时={}ms",
+                paused, events, reordered, alerts, quarantined, backlog, snapshots, sends, rows, stopped,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("停机排空被中断，剩余消息由预写日志和未提交的偏移量在下次启动时恢复");
+            listenerManager.stopAll();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 等待环形缓冲区中已发布的事件全部被最后一个阶段处理
+     *
+     * @return 等待期间处理的事件数
+     */
+    private static long drain(RingBuffer<?> buffer, long deadline) throws InterruptedException {
+        long from = buffer.getMinimumGatingSequence();
+        while (backlog(buffer) > 0 && System.nanoTime() - deadline < 0) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return buffer.getMinimumGatingSequence() - from;
+    }
+
+    /**
+     * 已发布但尚未处理完的事件数
+     */
+    private static long backlog(RingBuffer<?> buffer) {
+        return Math.max(0, buffer.getCursor() - buffer.getMinimumGatingSequence());
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.disruptor.DataEventPublisher;
+import com.example.cepengine.store.IngestJournal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+/**
+ * 预写日志恢复服务
+ *
+ * 启动时将预写日志中检查点之后的记录重新发布到流水线，补上崩溃前未处理完的消息
+ *
+ * 设计特点：
+ * - 在Kafka监听容器启动之前执行，单生产者模式下不会与监听器并发发布
+ * - 沿用记录中的原始数据ID和来源位置，原始数据按ID去重，规则输出按来源位置做幂等判断
+ * - 恢复期间的记录同样写入预写日志，日志阶段把重放的记录全部重新写入之前检查点不前进，
+ *   恢复途中再次崩溃仍可继续恢复
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JournalRecoveryService implements SmartLifecycle {
+
+    /** 早于Kafka监听容器（Integer.MAX_VALUE - 100）启动 */
+    private static final int PHASE = Integer.MAX_VALUE - 200;
+
+    /** 输入预写日志 */
+    private final IngestJournal journal;
+
+    /** 数据事件发布器 */
+    private final DataEventPublisher publisher;
+
+    /** 是否已执行 */
+    private volatile boolean running;
+
+    /**
+     * 重放未完成的记录
+     */
+    @Override
+    public void start() {
+        running = true;
+        if (!journal.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long[] count = new long[1];
+        long last = journal.replayUncommitted(record -> {
+            if (!publisher.publish(record.getData(), record.getPartition(), record.getOffset(),
+                record.getRawDataId(), record.getTimestamp())) {
+                return -1L;
+            }
+            count[0]++;
+            // 监听器尚未启动，游标就是本条记录发布到的最后一个序列号
+            return publisher.cursor();
+        });
+        if (count[0] > 0) {
+            log.info("预写日志重放完成：重新发布 {} 条消息，最后序列号={}，耗时 {}ms",
+                count[0], last, System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
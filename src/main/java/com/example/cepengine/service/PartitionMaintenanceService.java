@@ -0,0 +1,148 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * 处理结果表分区维护服务
+ *
+ * 维护processed_data表的日分区，以分区为单位管理数据保留期限
+ *
+ * 主要功能：
+ * 1. 提前创建未来若干天的日分区，新数据始终写入独立的小分区
+ * 2. 删除超过保留期限的日分区，替代逐行DELETE
+ *
+ * 设计特点：
+ * - 分区命名为pyyyyMMdd，分区内是该日的数据，上界为次日零点
+ * - 新分区从p_max中拆分，REORGANIZE会复制p_max中的行；提前创建的分区保证p_max平时为空，拆分只修改元数据
+ * - p_max中已有数据时（新迁移的表或维护中断多日），第一个新分区取p_max中最新处理时间所在的日期，
+ *   这些行只随该分区复制一次，不会在逐日拆分中被反复复制
+ * - DROP PARTITION直接删除分区数据文件，不产生undo和binlog行事件
+ * - p_history和p_max不会被删除
+ * - 表未分区时只记录警告，不做任何操作；已有的未分区表需要先执行db/processed_data_partition.sql迁移
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionMaintenanceService {
+
+    /** 日分区名称格式 */
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    /** 日分区名称匹配模式 */
+    private static final Pattern DAILY_PARTITION = Pattern.compile("p\\d{8}");
+
+    /** 处理后数据持久化映射器 */
+    private final ProcessedDataMapper processedDataMapper;
+
+    /** 是否启用分区维护 */
+    @Value("${app.retention.processed-data.enabled:true}")
+    private boolean enabled;
+
+    /** 数据保留天数 */
+    @Value("${app.retention.processed-data.retention-days:30}")
+    private int retentionDays;
+
+    /** 提前创建的分区天数 */
+    @Value("${app.retention.processed-data.precreate-days:7}")
+    private int precreateDays;
+
+    /**
+     * 应用启动完成后立即维护一次，保证当天的分区存在
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintain();
+    }
+
+    /**
+     * 定时维护分区
+     */
+    @Scheduled(cron = "${app.retention.processed-data.cron:0 10 0 * * *}")
+    public void scheduledMaintain() {
+        maintain();
+    }
+
+    /**
+     * 创建未来的日分区并删除过期的日分区
+     */
+    public synchronized void maintain() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            List<String> partitions = processedDataMapper.findPartitionNames();
+            if (!partitions.contains("p_max")) {
+                log.warn("processed_data表未按时间分区，跳过分区维护，请执行db/processed_data_partition.sql迁移");
+                return;
+            }
+
+            TreeSet<LocalDate> days = new TreeSet<>();
+            for (String partition : partitions) {
+                if (DAILY_PARTITION.matcher(partition).matches()) {
+                    days.add(LocalDate.parse(partition, PARTITION_FORMAT));
+                }
+            }
+
+            LocalDate today = LocalDate.now();
+            createPartitions(days, today);
+            dropPartitions(days, today);
+        } catch (Exception e) {
+            log.error("processed_data分区维护失败", e);
+        }
+    }
+
+    /**
+     * 在最后一个日分区之后依次追加分区，直到覆盖today + precreateDays
+     *
+     * p_max中有数据时从其中最新处理时间所在的日期开始，更早的日期不单独建分区
+     */
+    private void createPartitions(TreeSet<LocalDate> days, LocalDate today) {
+        LocalDate next = days.isEmpty() ? today : days.last().plusDays(1);
+        LocalDateTime latest = processedDataMapper.findLatestTimeInMaxPartition();
+        if (latest != null) {
+            // p_max中的行都不早于next，全部进入第一个新分区，只复制这一次
+            next = latest.toLocalDate();
+        } else if (next.isBefore(today)) {
+            // 中间缺失的日期没有数据，不需要分区
+            next = today;
+        }
+
+        LocalDate last = today.plusDays(precreateDays);
+        int created = 0;
+        for (LocalDate day = next; !day.isAfter(last); day = day.plusDays(1)) {
+            processedDataMapper.addPartition(day.format(PARTITION_FORMAT), day.plusDays(1).toString());
+            days.add(day);
+            created++;
+        }
+        if (created > 0) {
+            log.info("已创建processed_data日分区：{} 个，最新分区={}", created, last.format(PARTITION_FORMAT));
+        }
+    }
+
+    /**
+     * 删除早于today - retentionDays的日分区
+     */
+    private void dropPartitions(TreeSet<LocalDate> days, LocalDate today) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+        for (LocalDate day : days.headSet(cutoff, false)) {
+            String partition = day.format(PARTITION_FORMAT);
+            processedDataMapper.dropPartition(partition);
+            log.info("已删除过期的processed_data分区：{}", partition);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.disruptor.DisruptorConfig;
+import com.example.cepengine.dto.ReplayRequest;
+import com.example.cepengine.engine.ReplayJob;
+import com.example.cepengine.engine.ResultSink;
+import com.example.cepengine.engine.SiddhiEventConverter;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.enums.ReplaySourceEnum;
+import com.example.cepengine.mapper.RawDataMapper;
+import com.example.cepengine.store.ArchiveStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 规则回放服务
+ *
+ * 在历史数据上重新运行规则，用于新增或修改规则后的回测
+ *
+ * 主要功能：
+ * 1. 从raw_data表或本地归档流式读取指定时间范围的历史数据
+ * 2. 为每个规则创建独立的回放运行时，按事件时间驱动（@app:playback）
+ * 3. 将回放结果发送到独立的回放输出主题
+ * 4. 记录各规则的回放进度，供REST接口查询
+ *
+ * 设计特点：
+ * - 各规则在回放线程池中并行回放，每个规则独立读取数据源
+ * - raw_data通过MyBatis游标流式读取，不一次性加载到内存
+ * - 回放运行时使用独立的SiddhiManager，不经过数据环形缓冲区，也不影响在线运行时
+ * - 回放结果只发送到回放输出主题，不写入processed_data
+ * - 回放在数据读完时结束，尚未到期的时间窗口不会再输出
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplayService {
+
+    /** 事件时间回放注解 */
+    private static final String PLAYBACK_ANNOTATION = "@app:playback\n";
+
+    /** 保留的回放任务数量 */
+    private static final int MAX_RETAINED_JOBS = 100;
+
+    private static final TypeReference<Map<String, Object>> ATTRIBUTES_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    /** Siddhi规则服务 */
+    private final SiddhiRuleService siddhiRuleService;
+
+    /** 原始数据映射器 */
+    private final RawDataMapper rawDataMapper;
+
+    /** 本地归档存储 */
+    private final ArchiveStore archiveStore;
+
+    /** 规则结果输出器，用于结果序列化 */
+    private final ResultSink resultSink;
+
+    /** Kafka模板，用于发送回放结果 */
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    /** JSON解析器 */
+    private final ObjectMapper objectMapper;
+
+    /** 事务管理器，游标需要在事务内遍历 */
+    private final PlatformTransactionManager transactionManager;
+
+    /** 回放并行度 */
+    @Value("${app.replay.parallelism:4}")
+    private int parallelism;
+
+    /** 回放结果输出主题 */
+    @Value("${app.replay.output-topic:replay-output}")
+    private String outputTopic;
+
+    /** 默认的raw_data来源 */
+    @Value("${app.kafka.input-topic}")
+    private String inputTopic;
+
+    /** 回放线程池 */
+    private ExecutorService executor;
+
+    /** 回放任务，按提交顺序保留最近的任务 */
+    private final Map<String, ReplayJob> jobs = new LinkedHashMap<String, ReplayJob>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReplayJob> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    };
+
+    /**
+     * 创建回放线程池
+     */
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(parallelism,
+            DisruptorConfig.createThreadFactory("replay-thread-", Thread.NORM_PRIORITY - 1));
+    }
+
+    /**
+     * 提交回放任务
+     *
+     * @param request 回放请求
+     * @return 回放任务
+     */
+    public ReplayJob submit(ReplayRequest request) {
+        if (request.getRuleIds() == null || request.getRuleIds().isEmpty()) {
+            throw new IllegalArgumentException("回放规则不能为空");
+        }
+        if (request.getFrom() == null || request.getTo() == null || !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("回放时间范围无效");
+        }
+
+        // 校验规则并批量获取规则内容
+        List<SiddhiRule> rules = new ArrayList<>();
+        for (Long ruleId : request.getRuleIds()) {
+            SiddhiRule rule = siddhiRuleService.findById(ruleId);
+            if (rule == null) {
+                throw new IllegalArgumentException("规则不存在：规则ID=" + ruleId);
+            }
+            rules.add(rule);
+        }
+        Map<Long, String> contents = siddhiRuleService.getRulesFromCache(request.getRuleIds());
+
+        ReplaySourceEnum source = request.getSource() != null ? request.getSource() : ReplaySourceEnum.RAW_DATA;
+        String rawSource = request.getRawSource() != null ? request.getRawSource() : inputTopic;
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), source, request.getFrom(), request.getTo(),
+            toEpochMilli(request.getFrom()), toEpochMilli(request.getTo()), request.getRuleIds());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+
+        for (SiddhiRule rule : rules) {
+            String siddhiApp = contents.get(rule.getId());
+            executor.submit(() -> replayRule(job, rule, siddhiApp, rawSource));
+        }
+        log.info("已提交回放任务：任务ID={}, 数据源={}, 规则数={}, 时间范围=[{}, {})",
+            job.getId(), source, rules.size(), request.getFrom(), request.getTo());
+        return job;
+    }
+
+    /**
+     * 获取回放任务
+     *
+     * @param jobId 任务ID
+     * @return 回放任务，不存在时返回null
+     */
+    public ReplayJob getJob(String jobId) {
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    /**
+     * 获取最近的回放任务
+     *
+     * @return 回放任务列表
+     */
+    public Collection<ReplayJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * 取消回放任务
+     *
+     * @param jobId 任务ID
+     * @return 是否找到任务
+     */
+    public boolean cancel(String jobId) {
+        ReplayJob job = getJob(jobId);
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        return true;
+    }
+
+    /**
+     * 回放单个规则
+     */
+    private void replayRule(ReplayJob job, SiddhiRule rule, String siddhiApp, String rawSource) {
+        Long ruleId = rule.getId();
+        ReplayJob.RuleProgress progress = job.getRules().get(ruleId);
+        progress.start();
+
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            if (siddhiApp == null) {
+                throw new IllegalStateException("规则内容不存在：规则ID=" + ruleId);
+            }
+            SiddhiAppRuntime runtime = siddhiManager.createSiddhiAppRuntime(PLAYBACK_ANNOTATION + siddhiApp);
+            List<Attribute> inputAttributes = streamDefinition(runtime, rule.getInputStream()).getAttributeList();
+            String[] outputAttributeNames = streamDefinition(runtime, rule.getOutputStream()).getAttributeNameArray();
+            String key = job.getId() + ":" + ruleId;
+
+            runtime.addCallback(rule.getOutputStream(), new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    for (Event event : events) {
+                        String content = resultSink.toProcessedData(ruleId, null, outputAttributeNames, event.getData())
+                            .getResultContent();
+                        kafkaTemplate.send(outputTopic, key, content);
+                        progress.recordOutput();
+                    }
+                }
+            });
+            runtime.start();
+
+            InputHandler inputHandler = runtime.getInputHandler(rule.getInputStream());
+            EventFeeder feeder = (timestamp, payload) -> {
+                if (job.isCancelled()) {
+                    return false;
+                }
+                Map<String, Object> attributes;
+                try {
+                    attributes = objectMapper.readValue(payload, ATTRIBUTES_TYPE);
+                } catch (Exception e) {
+                    progress.recordSkipped();
+                    return true;
+                }
+                inputHandler.send(timestamp, SiddhiEventConverter.toInputRow(attributes, inputAttributes));
+                progress.recordEvent(timestamp);
+                return true;
+            };
+
+            if (job.getSource() == ReplaySourceEnum.ARCHIVE) {
+                replayArchive(job, feeder);
+            } else {
+                replayRawData(job, rawSource, feeder);
+            }
+            kafkaTemplate.flush();
+            progress.finish();
+            log.info("规则回放结束：任务ID={}, 规则ID={}, 事件数={}, 输出数={}",
+                job.getId(), ruleId, progress.getEventsReplayed().get(), progress.getOutputs().get());
+        } catch (Exception e) {
+            progress.fail(e);
+            log.error("规则回放失败：任务ID={}, 规则ID={}", job.getId(), ruleId, e);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * 通过游标流式读取raw_data并回放
+     */
+    private void replayRawData(ReplayJob job, String rawSource, EventFeeder feeder) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<RawData> cursor = rawDataMapper.scanBySourceAndTime(rawSource, job.getFrom(), job.getTo())) {
+                for (RawData rawData : cursor) {
+                    if (!feeder.feed(toEpochMilli(rawData.getCreatedTime()), rawData.getDataContent())) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * 扫描本地归档并回放
+     */
+    private void replayArchive(ReplayJob job, EventFeeder feeder) throws IOException {
+        archiveStore.scan(job.getFromMs(), job.getToMs(), record -> {
+            try {
+                return feeder.feed(record.getTimestamp(), record.getPayload());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    private AbstractDefinition streamDefinition(SiddhiAppRuntime runtime, String streamName) {
+        AbstractDefinition definition = runtime.getStreamDefinitionMap().get(streamName);
+        if (definition == null) {
+            throw new IllegalArgumentException("规则中未定义流：" + streamName);
+        }
+        return definition;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 停止回放线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        getJobs().forEach(ReplayJob::cancel);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 回放事件投递接口
+     */
+    @FunctionalInterface
+    private interface EventFeeder {
+
+        /**
+         * 投递一条历史事件
+         *
+         * @param timestamp 事件时间（毫秒）
+         * @param payload 消息内容
+         * @return false表示停止回放
+         */
+        boolean feed(long timestamp, String payload) throws InterruptedException;
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.disruptor.DisruptorConfig;
+import com.example.cepengine.dto.RuleBatchRequest;
+import com.example.cepengine.dto.RuleBatchResult;
+import com.example.cepengine.dto.RuleValidationResult;
+import com.example.cepengine.engine.RuleRuntime;
+import com.example.cepengine.engine.SiddhiRuntimeManager;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.mapper.SiddhiRuleMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 规则批量部署服务
+ *
+ * 一次性校验、持久化并上线一批规则变更，整批要么全部生效，要么全部不生效
+ *
+ * 主要功能：
+ * 1. 在独立线程池中并行校验所有新增和更新的规则
+ * 2. 按请求内容并行编译所有受影响的运行时，编译失败时不改动数据库
+ * 3. 在一个事务中批量写入新增、更新和删除，事务内只有数据库操作
+ * 4. 事务提交后通过一次快照替换同时上线所有运行时，并通过异步缓存服务并发回填和清除缓存
+ *
+ * 设计特点：
+ * - 校验和编译都是并行的，数百条规则不会变成数百次串行编译
+ * - 任一规则校验或编译失败时数据库和运行时都保持原状，不存在部分生效；写入失败时关闭已编译的运行时
+ * - 编译耗时不计入事务，行锁和数据库连接只在批量写入期间占用
+ * - 上线前用回读的规则实体补全运行时规则的更新时间，定期刷新不会重复编译
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RuleDeploymentService {
+
+    /** 规则状态：禁用 */
+    private static final int STATUS_DISABLED = 0;
+
+    /** 规则状态：启用 */
+    private static final int STATUS_ACTIVE = 1;
+
+    /** 单条批量SQL的最大规则数 */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
+    /** 规则数据库映射器 */
+    private final SiddhiRuleMapper siddhiRuleMapper;
+
+    /** 异步规则缓存服务，用于刷新缓存 */
+    private final AsyncRuleCacheService asyncRuleCacheService;
+
+    /** 规则校验服务 */
+    private final RuleValidationService ruleValidationService;
+
+    /** Siddhi运行时管理器 */
+    private final SiddhiRuntimeManager runtimeManager;
+
+    /** 事务管理器 */
+    private final PlatformTransactionManager transactionManager;
+
+    /** 并行校验和编译的线程数 */
+    @Value("${app.rule.deploy.parallelism:4}")
+    private int parallelism;
+
+    /** 单次部署的超时时间（秒） */
+    @Value("${app.rule.deploy.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    /** 校验和编译线程池 */
+    private ExecutorService executor;
+
+    /** 事务模板 */
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 创建线程池和事务模板
+     */
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(parallelism,
+            DisruptorConfig.createThreadFactory("rule-compile-thread-", Thread.NORM_PRIORITY));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 应用一批规则变更
+     *
+     * @param request 批量变更请求
+     * @return 批量变更结果，未生效时包含失败原因
+     */
+    public RuleBatchResult apply(RuleBatchRequest request) {
+        long start = System.currentTimeMillis();
+        RuleBatchResult result = new RuleBatchResult();
+        List<SiddhiRule> upserts = request.getUpserts() != null ? request.getUpserts() : Collections.emptyList();
+        Set<Long> deletes = request.getDeletes() != null ? new HashSet<>(request.getDeletes()) : new HashSet<>();
+
+        List<SiddhiRule> creates = new ArrayList<>();
+        List<SiddhiRule> updates = new ArrayList<>();
+        checkRequest(upserts, deletes, creates, updates, result);
+        if (!result.getErrors().isEmpty()) {
+            return finish(result, start);
+        }
+
+        // 并行校验，任一规则未通过则整批拒绝
+        long compileStart = System.currentTimeMillis();
+        List<RuleValidationResult> validations = runParallel(upserts, rule -> ruleValidationService.validate(rule, false));
+        for (int i = 0; i < validations.size(); i++) {
+            if (!validations.get(i).isValid()) {
+                result.getErrors().put(i, validations.get(i).getErrors());
+            }
+        }
+        if (!result.getErrors().isEmpty()) {
+            return finish(result, start);
+        }
+
+        // 事务外按请求内容并行编译，编译失败时数据库还未改动
+        List<SiddhiRule> toCompile = new ArrayList<>();
+        Set<Long> removedIds = new HashSet<>(deletes);
+        for (SiddhiRule rule : upserts) {
+            if (rule.getStatus() == null || rule.getStatus() == STATUS_DISABLED) {
+                if (rule.getId() != null) {
+                    removedIds.add(rule.getId());
+                }
+            } else {
+                toCompile.add(rule);
+            }
+        }
+        List<RuleRuntime> compiled = runParallel(toCompile, runtimeManager::compile);
+        result.setCompileMillis(System.currentTimeMillis() - compileStart);
+
+        // 一个事务内只做批量写入和回读，新增规则的ID由插入语句回填到编译时使用的规则实体上
+        List<SiddhiRule> persisted;
+        try {
+            persisted = transactionTemplate.execute(status -> {
+                for (int from = 0; from < creates.size(); from += BATCH_CHUNK_SIZE) {
+                    siddhiRuleMapper.insertBatch(creates.subList(from, Math.min(from + BATCH_CHUNK_SIZE, creates.size())));
+                }
+                for (int from = 0; from < updates.size(); from += BATCH_CHUNK_SIZE) {
+                    siddhiRuleMapper.updateBatch(updates.subList(from, Math.min(from + BATCH_CHUNK_SIZE, updates.size())));
+                }
+                if (!deletes.isEmpty()) {
+                    siddhiRuleMapper.deleteByIds(deletes);
+                }
+
+                List<Long> ids = new ArrayList<>(upserts.size());
+                upserts.forEach(rule -> ids.add(rule.getId()));
+                return ids.isEmpty() ? Collections.<SiddhiRule>emptyList() : siddhiRuleMapper.findByIds(ids);
+            });
+        } catch (RuntimeException e) {
+            compiled.forEach(ruleRuntime -> ruleRuntime.getRuntime().shutdown());
+            throw e;
+        }
+
+        // 运行时持有请求中的规则实体，补上数据库生成的时间，定期刷新按更新时间判断时不会重复编译
+        Map<Long, SiddhiRule> persistedById = new HashMap<>();
+        persisted.forEach(rule -> persistedById.put(rule.getId(), rule));
+        for (RuleRuntime ruleRuntime : compiled) {
+            SiddhiRule stored = persistedById.get(ruleRuntime.getRuleId());
+            if (stored != null) {
+                ruleRuntime.getRule().setCreatedTime(stored.getCreatedTime());
+                ruleRuntime.getRule().setUpdatedTime(stored.getUpdatedTime());
+            }
+        }
+
+        // 事务已提交：同时上线所有运行时，再刷新缓存
+        runtimeManager.deploy(compiled, removedIds);
+        refreshCaches(persisted, deletes);
+
+        creates.forEach(rule -> result.getCreatedIds().add(rule.getId()));
+        result.setUpdated(updates.size());
+        result.setDeleted(deletes.size());
+        result.setApplied(true);
+        log.info("规则批量变更已生效：新增={}, 更新={}, 删除={}, 编译耗时={}ms",
+            creates.size(), updates.size(), deletes.size(), result.getCompileMillis());
+        return finish(result, start);
+    }
+
+    /**
+     * 关闭线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 检查请求结构：更新的规则必须存在，同一规则不能既更新又删除
+     */
+    private void checkRequest(List<SiddhiRule> upserts, Set<Long> deletes,
+                              List<SiddhiRule> creates, List<SiddhiRule> updates, RuleBatchResult result) {
+        List<Long> updateIds = new ArrayList<>();
+        for (SiddhiRule rule : upserts) {
+            if (rule.getId() == null) {
+                if (rule.getStatus() == null) {
+                    rule.setStatus(STATUS_ACTIVE);
+                }
+                creates.add(rule);
+            } else {
+                updates.add(rule);
+                updateIds.add(rule.getId());
+            }
+        }
+
+        Map<Long, SiddhiRule> existing = new HashMap<>();
+        if (!updateIds.isEmpty()) {
+            siddhiRuleMapper.findByIds(updateIds).forEach(rule -> existing.put(rule.getId(), rule));
+        }
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < upserts.size(); i++) {
+            SiddhiRule rule = upserts.get(i);
+            if (rule.getId() == null) {
+                continue;
+            }
+            if (!seen.add(rule.getId())) {
+                result.getErrors().put(i, Collections.singletonList("同一批次中规则重复：" + rule.getId()));
+            } else if (deletes.contains(rule.getId())) {
+                result.getErrors().put(i, Collections.singletonList("规则不能同时更新和删除：" + rule.getId()));
+            } else if (!existing.containsKey(rule.getId())) {
+                result.getErrors().put(i, Collections.singletonList("规则不存在：" + rule.getId()));
+            } else if (rule.getStatus() == null) {
+                rule.setStatus(existing.get(rule.getId()).getStatus());
+            }
+        }
+    }
+
+    /**
+     * 并发回填变更后的规则并清除已删除规则的缓存，等待两者完成
+     *
+     * 变更已经生效，缓存刷新失败只记录日志，未刷新的缓存键在过期后回源数据库
+     */
+    private void refreshCaches(List<SiddhiRule> persisted, Set<Long> deletes) {
+        try {
+            CompletableFuture.allOf(
+                    asyncRuleCacheService.putRules(persisted).toCompletableFuture(),
+                    asyncRuleCacheService.evictRules(deletes).toCompletableFuture())
+                .get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("刷新规则缓存被中断：回填={}, 清除={}", persisted.size(), deletes.size());
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("刷新规则缓存失败：回填={}, 清除={}", persisted.size(), deletes.size(), e);
+        }
+    }
+
+    /**
+     * 在线程池中并行执行，按输入顺序返回结果，任一任务失败时抛出异常
+     */
+    private <T, R> List<R> runParallel(List<T> items, Function<T, R> task) {
+        List<Callable<R>> callables = new ArrayList<>(items.size());
+        for (T item : items) {
+            callables.add(() -> task.apply(item));
+        }
+        List<R> results = new ArrayList<>(items.size());
+        List<Future<R>> futures;
+        try {
+            futures = executor.invokeAll(callables, timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("规则批量处理被中断", e);
+        }
+
+        RuntimeException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IllegalStateException("规则批量处理失败：" + e.getCause().getMessage(), e.getCause());
+                }
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new IllegalStateException("规则批量处理超时或被取消", e);
+                }
+            }
+        }
+        if (failure != null) {
+            // 关闭已经编译成功的运行时
+            results.stream().filter(RuleRuntime.class::isInstance)
+                .forEach(item -> ((RuleRuntime) item).getRuntime().shutdown());
+            throw failure;
+        }
+        return results;
+    }
+
+    private RuleBatchResult finish(RuleBatchResult result, long start) {
+        result.setTotalMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+}
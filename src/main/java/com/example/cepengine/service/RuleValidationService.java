@@ -0,0 +1,475 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.dto.RuleCostEstimate;
+import com.example.cepengine.dto.RuleValidationResult;
+import com.example.cepengine.entity.SiddhiRule;
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.execution.ExecutionElement;
+import io.siddhi.query.api.execution.partition.Partition;
+import io.siddhi.query.api.execution.query.Query;
+import io.siddhi.query.api.execution.query.input.handler.StreamHandler;
+import io.siddhi.query.api.execution.query.input.handler.Window;
+import io.siddhi.query.api.execution.query.input.state.CountStateElement;
+import io.siddhi.query.api.execution.query.input.state.EveryStateElement;
+import io.siddhi.query.api.execution.query.input.state.LogicalStateElement;
+import io.siddhi.query.api.execution.query.input.state.NextStateElement;
+import io.siddhi.query.api.execution.query.input.state.StateElement;
+import io.siddhi.query.api.execution.query.input.stream.InputStream;
+import io.siddhi.query.api.execution.query.input.stream.JoinInputStream;
+import io.siddhi.query.api.execution.query.input.stream.SingleInputStream;
+import io.siddhi.query.api.execution.query.input.stream.StateInputStream;
+import io.siddhi.query.api.expression.Expression;
+import io.siddhi.query.api.expression.constant.IntConstant;
+import io.siddhi.query.api.expression.constant.LongConstant;
+import io.siddhi.query.api.expression.constant.TimeConstant;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Siddhi规则校验服务
+ *
+ * 在规则上线之前发现错误和高开销的规则
+ *
+ * 主要功能：
+ * 1. 使用SiddhiCompiler解析规则，并做完整的语义校验
+ * 2. 检查规则的输入流和输出流与SiddhiRule中的配置一致
+ * 3. 静态估算窗口保留事件数、模式部分匹配扇出和连接候选组合数
+ * 4. 可选地使用合成数据运行微基准测试，报告规则吞吐量
+ *
+ * 设计特点：
+ * - 时间窗口按假定事件速率折算为保留事件数
+ * - 无界的窗口、模式或连接直接判定为高风险
+ * - 微基准测试使用独立的SiddhiManager和事件时间回放，不影响在线运行时
+ */
+@Slf4j
+@Service
+public class RuleValidationService {
+
+    /** 无界标记 */
+    private static final long UNBOUNDED = -1;
+
+    /** 窗口保留事件数的中、高风险阈值 */
+    private static final long WINDOW_MEDIUM = 10_000;
+    private static final long WINDOW_HIGH = 100_000;
+
+    /** 模式扇出的中、高风险阈值 */
+    private static final long FAN_OUT_MEDIUM = 100;
+    private static final long FAN_OUT_HIGH = 10_000;
+
+    /** 连接候选组合数的中、高风险阈值 */
+    private static final long JOIN_MEDIUM = 100_000;
+    private static final long JOIN_HIGH = 10_000_000;
+
+    /** 用于语义校验的Siddhi管理器 */
+    private final SiddhiManager siddhiManager = new SiddhiManager();
+
+    /** 假定的输入事件速率（事件/秒），用于将时间窗口折算为事件数 */
+    @Value("${app.rule.validation.assumed-event-rate:1000}")
+    private long assumedEventRate;
+
+    /** 微基准测试的事件数 */
+    @Value("${app.rule.validation.benchmark-events:20000}")
+    private int benchmarkEvents;
+
+    /** 微基准测试的最长运行时间（毫秒） */
+    @Value("${app.rule.validation.benchmark-max-ms:5000}")
+    private long benchmarkMaxMs;
+
+    /**
+     * 校验规则
+     *
+     * @param rule 待校验的规则
+     * @param benchmark 是否运行微基准测试
+     * @return 校验结果
+     */
+    public RuleValidationResult validate(SiddhiRule rule, boolean benchmark) {
+        RuleValidationResult result = new RuleValidationResult();
+        if (rule.getRuleContent() == null || rule.getRuleContent().trim().isEmpty()) {
+            result.addError("规则内容不能为空");
+            return result;
+        }
+
+        // 语法解析
+        SiddhiApp siddhiApp;
+        try {
+            siddhiApp = SiddhiCompiler.parse(rule.getRuleContent());
+        } catch (Exception e) {
+            result.addError("规则解析失败：" + e.getMessage());
+            return result;
+        }
+
+        checkStreams(rule, siddhiApp, result);
+        result.setCostEstimate(estimateCost(siddhiApp));
+
+        // 语义校验：属性、函数、扩展等只有在构建运行时时才会检查
+        try {
+            siddhiManager.validateSiddhiApp(siddhiApp);
+        } catch (Exception e) {
+            result.addError("规则校验失败：" + e.getMessage());
+        }
+
+        if (benchmark && result.isValid()) {
+            runBenchmark(rule, result);
+        }
+        return result;
+    }
+
+    /**
+     * 检查输入流和输出流
+     */
+    private void checkStreams(SiddhiRule rule, SiddhiApp siddhiApp, RuleValidationResult result) {
+        Set<String> consumedStreams = new HashSet<>();
+        Set<String> producedStreams = new HashSet<>();
+        for (Query query : queries(siddhiApp)) {
+            consumedStreams.addAll(query.getInputStream().getAllStreamIds());
+            if (query.getOutputStream() != null && query.getOutputStream().getId() != null) {
+                producedStreams.add(query.getOutputStream().getId());
+            }
+        }
+
+        String inputStream = rule.getInputStream();
+        if (inputStream == null || !siddhiApp.getStreamDefinitionMap().containsKey(inputStream)) {
+            result.addError("输入流未在规则中定义：" + inputStream);
+        } else if (!consumedStreams.contains(inputStream)) {
+            result.getWarnings().add("输入流没有被任何查询使用：" + inputStream);
+        }
+
+        String outputStream = rule.getOutputStream();
+        if (outputStream == null
+            || (!siddhiApp.getStreamDefinitionMap().containsKey(outputStream) && !producedStreams.contains(outputStream))) {
+            result.addError("输出流未在规则中定义，也没有查询输出到该流：" + outputStream);
+        } else if (!producedStreams.contains(outputStream)) {
+            result.getWarnings().add("没有查询输出到输出流：" + outputStream);
+        }
+    }
+
+    /**
+     * 静态估算规则成本
+     */
+    private RuleCostEstimate estimateCost(SiddhiApp siddhiApp) {
+        RuleCostEstimate estimate = new RuleCostEstimate();
+        List<Query> queries = queries(siddhiApp);
+        estimate.setQueryCount(queries.size());
+
+        long windowEvents = 0;
+        long fanOut = 0;
+        long joinCardinality = 0;
+        for (Query query : queries) {
+            InputStream input = query.getInputStream();
+            if (input instanceof SingleInputStream) {
+                windowEvents = add(windowEvents, windowSize((SingleInputStream) input, estimate));
+            } else if (input instanceof JoinInputStream) {
+                JoinInputStream join = (JoinInputStream) input;
+                estimate.setJoinCount(estimate.getJoinCount() + 1);
+                long left = joinSide(join.getLeftInputStream(), siddhiApp, estimate);
+                long right = joinSide(join.getRightInputStream(), siddhiApp, estimate);
+                windowEvents = add(windowEvents, left);
+                windowEvents = add(windowEvents, right);
+                long cardinality = multiply(Math.max(left, 1), Math.max(right, 1));
+                if (left == UNBOUNDED || right == UNBOUNDED) {
+                    cardinality = UNBOUNDED;
+                }
+                if (join.getOnCompare() == null) {
+                    estimate.getRisks().add("连接没有on条件，每个事件与对侧窗口内所有事件组合");
+                }
+                joinCardinality = max(joinCardinality, cardinality);
+            } else if (input instanceof StateInputStream) {
+                StateInputStream state = (StateInputStream) input;
+                TimeConstant within = state.getWithinTime();
+                long partialMatches = fanOut(state.getStateElement(), within, estimate);
+                if (partialMatches == UNBOUNDED) {
+                    estimate.getRisks().add("模式中包含没有within限制的every或无上限的计数，部分匹配会无限增长");
+                }
+                fanOut = max(fanOut, partialMatches);
+            }
+        }
+
+        estimate.setEstimatedWindowEvents(windowEvents);
+        estimate.setPatternFanOut(fanOut);
+        estimate.setJoinCardinality(joinCardinality);
+        estimate.setRiskLevel(riskLevel(windowEvents, fanOut, joinCardinality));
+        return estimate;
+    }
+
+    /**
+     * 估算单输入流上窗口保留的事件数，没有窗口时返回0
+     */
+    private long windowSize(SingleInputStream input, RuleCostEstimate estimate) {
+        long size = 0;
+        for (StreamHandler handler : input.getStreamHandlers()) {
+            if (handler instanceof Window) {
+                Window window = (Window) handler;
+                long retained = windowRetained(window);
+                estimate.getWindows().add(describe(input.getStreamId(), window, retained));
+                if (retained == UNBOUNDED) {
+                    estimate.getRisks().add("无法确定窗口大小：" + input.getStreamId() + "#window." + window.getName());
+                }
+                size = add(size, retained);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 估算连接一侧保留的事件数
+     *
+     * 没有窗口的流只参与当前事件，表和命名窗口按索引查找计为1
+     */
+    private long joinSide(InputStream side, SiddhiApp siddhiApp, RuleCostEstimate estimate) {
+        if (!(side instanceof SingleInputStream)) {
+            return 1;
+        }
+        SingleInputStream single = (SingleInputStream) side;
+        String streamId = single.getStreamId();
+        if (siddhiApp.getTableDefinitionMap().containsKey(streamId)
+            || siddhiApp.getWindowDefinitionMap().containsKey(streamId)
+            || siddhiApp.getAggregationDefinitionMap().containsKey(streamId)) {
+            estimate.getRisks().add("连接使用了表或命名窗口：" + streamId + "，实际开销取决于其大小和索引");
+            return 1;
+        }
+        long size = windowSize(single, estimate);
+        return size == 0 ? 1 : size;
+    }
+
+    /**
+     * 估算模式部分匹配的扇出
+     */
+    private long fanOut(StateElement element, TimeConstant within, RuleCostEstimate estimate) {
+        if (element instanceof NextStateElement) {
+            NextStateElement next = (NextStateElement) element;
+            return multiply(fanOut(next.getStateElement(), within, estimate),
+                fanOut(next.getNextStateElement(), within, estimate));
+        }
+        if (element instanceof EveryStateElement) {
+            long inner = fanOut(((EveryStateElement) element).getStateElement(), within, estimate);
+            if (within == null) {
+                return UNBOUNDED;
+            }
+            // every的每个事件都会开启一个新的部分匹配，存活到within到期
+            return multiply(inner, Math.max(1, within.value() * assumedEventRate / 1000));
+        }
+        if (element instanceof CountStateElement) {
+            estimate.setPatternStates(estimate.getPatternStates() + 1);
+            CountStateElement count = (CountStateElement) element;
+            if (count.getMaxCount() == CountStateElement.ANY) {
+                return UNBOUNDED;
+            }
+            return Math.max(1, count.getMaxCount() - count.getMinCount() + 1);
+        }
+        if (element instanceof LogicalStateElement) {
+            estimate.setPatternStates(estimate.getPatternStates() + 2);
+            return 2;
+        }
+        estimate.setPatternStates(estimate.getPatternStates() + 1);
+        return 1;
+    }
+
+    /**
+     * 根据窗口参数估算保留事件数
+     *
+     * 取第一个时间参数和第一个整数参数，同时存在时取较小者
+     */
+    private long windowRetained(Window window) {
+        Long timeMs = null;
+        Long length = null;
+        for (Expression parameter : window.getParameters()) {
+            if (parameter instanceof TimeConstant) {
+                if (timeMs == null) {
+                    timeMs = ((TimeConstant) parameter).value();
+                }
+            } else if (parameter instanceof IntConstant) {
+                if (length == null) {
+                    length = ((IntConstant) parameter).getValue().longValue();
+                }
+            } else if (parameter instanceof LongConstant) {
+                if (length == null) {
+                    length = ((LongConstant) parameter).getValue();
+                }
+            }
+        }
+
+        Long timeEvents = timeMs == null ? null : Math.max(1, timeMs * assumedEventRate / 1000);
+        if (timeEvents != null && length != null) {
+            return Math.min(timeEvents, length);
+        }
+        if (length != null) {
+            return length;
+        }
+        return timeEvents != null ? timeEvents : UNBOUNDED;
+    }
+
+    private String describe(String streamId, Window window, long retained) {
+        StringBuilder builder = new StringBuilder(streamId).append("#window.");
+        if (window.getNamespace() != null && !window.getNamespace().isEmpty()) {
+            builder.append(window.getNamespace()).append(':');
+        }
+        builder.append(window.getName()).append(" ≈ ");
+        builder.append(retained == UNBOUNDED ? "无界" : retained + " 个事件");
+        return builder.toString();
+    }
+
+    private String riskLevel(long windowEvents, long fanOut, long joinCardinality) {
+        if (windowEvents == UNBOUNDED || fanOut == UNBOUNDED || joinCardinality == UNBOUNDED
+            || windowEvents > WINDOW_HIGH || fanOut > FAN_OUT_HIGH || joinCardinality > JOIN_HIGH) {
+            return "HIGH";
+        }
+        if (windowEvents > WINDOW_MEDIUM || fanOut > FAN_OUT_MEDIUM || joinCardinality > JOIN_MEDIUM) {
+            return "MEDIUM";
+        }
+        return "LOW";
+    }
+
+    /**
+     * 使用合成数据运行微基准测试
+     *
+     * 事件时间按假定事件速率递增，按事件时间驱动时间窗口
+     */
+    private void runBenchmark(SiddhiRule rule, RuleValidationResult result) {
+        SiddhiManager benchmarkManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime runtime = benchmarkManager.createSiddhiAppRuntime("@app:playback\n" + rule.getRuleContent());
+            AbstractDefinition definition = runtime.getStreamDefinitionMap().get(rule.getInputStream());
+            List<Attribute> attributes = definition.getAttributeList();
+            AtomicLong outputs = new AtomicLong();
+            runtime.addCallback(rule.getOutputStream(), new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    outputs.addAndGet(events.length);
+                }
+            });
+            runtime.start();
+
+            // 预先生成数据，测量时只包含规则处理开销
+            List<Object[]> rows = new ArrayList<>(benchmarkEvents);
+            for (int i = 0; i < benchmarkEvents; i++) {
+                rows.add(syntheticRow(attributes));
+            }
+
+            InputHandler inputHandler = runtime.getInputHandler(rule.getInputStream());
+            long timestamp = System.currentTimeMillis();
+            long step = Math.max(1, 1000 / Math.max(1, assumedEventRate));
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(benchmarkMaxMs);
+            long start = System.nanoTime();
+            int sent = 0;
+            for (Object[] row : rows) {
+                inputHandler.send(timestamp, row);
+                timestamp += step;
+                sent++;
+                if ((sent & 1023) == 0 && System.nanoTime() > deadline) {
+                    result.getWarnings().add("微基准测试超时，只发送了 " + sent + " 个事件");
+                    break;
+                }
+            }
+            long elapsed = Math.max(1, System.nanoTime() - start);
+
+            result.setEventsPerSecond(sent * 1e9 / elapsed);
+            result.setBenchmarkOutputs(outputs.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.getWarnings().add("微基准测试被中断");
+        } catch (Exception e) {
+            log.warn("规则微基准测试失败：规则名称={}", rule.getRuleName(), e);
+            result.getWarnings().add("微基准测试失败：" + e.getMessage());
+        } finally {
+            benchmarkManager.shutdown();
+        }
+    }
+
+    /**
+     * 按属性类型生成一行合成数据，取值范围较小，使过滤和分组能够命中
+     */
+    private Object[] syntheticRow(List<Attribute> attributes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Object[] row = new Object[attributes.size()];
+        for (int i = 0; i < row.length; i++) {
+            switch (attributes.get(i).getType()) {
+                case STRING:
+                    row[i] = "v" + random.nextInt(10);
+                    break;
+                case INT:
+                    row[i] = random.nextInt(100);
+                    break;
+                case LONG:
+                    row[i] = random.nextLong(10_000);
+                    break;
+                case DOUBLE:
+                    row[i] = random.nextDouble(100);
+                    break;
+                case FLOAT:
+                    row[i] = (float) random.nextDouble(100);
+                    break;
+                case BOOL:
+                    row[i] = random.nextBoolean();
+                    break;
+                default:
+                    row[i] = null;
+                    break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 获取规则中的所有查询，包括分区内的查询
+     */
+    private List<Query> queries(SiddhiApp siddhiApp) {
+        List<Query> queries = new ArrayList<>();
+        for (ExecutionElement element : siddhiApp.getExecutionElementList()) {
+            if (element instanceof Query) {
+                queries.add((Query) element);
+            } else if (element instanceof Partition) {
+                queries.addAll(((Partition) element).getQueryList());
+            }
+        }
+        return queries;
+    }
+
+    private static long add(long a, long b) {
+        if (a == UNBOUNDED || b == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long multiply(long a, long b) {
+        if (a == UNBOUNDED || b == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+        long product = a * b;
+        return a != 0 && (product / a != b || product < 0) ? Long.MAX_VALUE : product;
+    }
+
+    private static long max(long a, long b) {
+        if (a == UNBOUNDED || b == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+        return Math.max(a, b);
+    }
+
+    /**
+     * 关闭语义校验使用的Siddhi管理器
+     */
+    @PreDestroy
+    public void shutdown() {
+        siddhiManager.shutdown();
+    }
+}
@@ -1,22 +1,101 @@
 package com.example.cepengine.service;
 
+import com.example.cepengine.config.disruptor.DisruptorConfig;
+import com.example.cepengine.dto.SiddhiBatchGenerateResult;
 import com.example.cepengine.dto.SiddhiGenerateRequest;
-import com.example.cepengine.model.TopicField;
+import com.example.cepengine.domain.TopicField;
 import com.example.cepengine.enums.SiddhiTypeEnum;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
-import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Siddhi 语法生成服务
+ *
+ * 设计特点：
+ * - 生成结果按主题、流名称和字段列表组成的模式签名缓存，重复的模式直接命中
+ * - 字段类型经 SiddhiTypeEnum 解析一次后复用，拼接使用 StringBuilder，不再经过 String.format
+ * - 批量生成在独立线程池中并行执行，并组合为一个可直接部署的 Siddhi 应用
  */
 @Slf4j
 @Service
 public class SiddhiGeneratorService {
 
+    /** 单个生成示例查询的默认输出流 */
+    private static final String DEFAULT_OUTPUT_STREAM = "OutputStreamName";
+
+    /** 批量生成时默认的应用名称 */
+    private static final String DEFAULT_APP_NAME = "GeneratedApp";
+
+    /** 缓存键中的分隔符，不会出现在主题名和字段名中 */
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    /** 流定义中主题名之前的固定部分 */
+    private static final String SOURCE_PREFIX = "@source(type='kafka',\n" +
+                                                "       topic.list='";
+
+    /** 流定义中主题名之后、流名称之前的固定部分 */
+    private static final String SOURCE_SUFFIX = "',\n" +
+                                                "       partition.no.list='0',\n" +
+                                                "       threading.option='single.thread',\n" +
+                                                "       group.id='${kafka.consumer.group.id}',\n" +
+                                                "       bootstrap.servers='${kafka.bootstrap.servers}',\n" +
+                                                "       @map(type='json'))\n" +
+                                                "define stream ";
+
+    /** 生成结果缓存上限 */
+    @Value("${app.siddhi.generator.cache-size:10000}")
+    private int cacheSize;
+
+    /** 批量生成的线程数 */
+    @Value("${app.siddhi.generator.parallelism:4}")
+    private int parallelism;
+
+    /** 生成结果缓存：模式签名 → 生成的语句，按访问顺序淘汰 */
+    private Map<String, String> cache;
+
+    /** 批量生成线程池 */
+    private ExecutorService executor;
+
+    /**
+     * 创建缓存和线程池
+     */
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        executor = Executors.newFixedThreadPool(parallelism,
+            DisruptorConfig.createThreadFactory("siddhi-generate-thread-", Thread.NORM_PRIORITY - 1));
+    }
+
+    /**
+     * 关闭线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * 生成 Siddhi 流定义
      * @param request 请求对象
@@ -27,87 +106,199 @@ public class SiddhiGeneratorService {
             throw new IllegalArgumentException("Invalid request: topicName and fields are required");
         }
 
-        String streamName = StringUtils.hasText(request.getStreamName()) ? 
-            request.getStreamName() : request.getTopicName() + "Stream";
-        
-        // 生成字段定义
-        String fieldDefinitions = request.getFields().stream()
-            .filter(Objects::nonNull)
-            .map(this::convertFieldToSiddhiType)
-            .collect(Collectors.joining(", "));
-            
-        // 生成完整的流定义
-        return String.format("@source(type='kafka',\n" +
-                           "       topic.list='%s',\n" +
-                           "       partition.no.list='0',\n" +
-                           "       threading.option='single.thread',\n" +
-                           "       group.id='${kafka.consumer.group.id}',\n" +
-                           "       bootstrap.servers='${kafka.bootstrap.servers}',\n" +
-                           "       @map(type='json'))\n" +
-                           "define stream %s (%s);",
-                           request.getTopicName(),
-                           streamName,
-                           fieldDefinitions);
+        String key = signature('D', request, null);
+        String definition = cache.get(key);
+        if (definition == null) {
+            definition = buildStreamDefinition(request.getTopicName(), resolveStreamName(request), request.getFields());
+            cache.put(key, definition);
+        }
+        return definition;
     }
-    
+
     /**
      * 生成示例查询
      * @param request 请求对象
      * @return Siddhi 查询语句
      */
     public String generateExampleQuery(SiddhiGenerateRequest request) {
+        return generateExampleQuery(request, DEFAULT_OUTPUT_STREAM);
+    }
+
+    /**
+     * 批量生成流定义和示例查询，并组合为一个 Siddhi 应用
+     *
+     * 每个请求的示例查询输出到各自的 {流名称}Output，组合后的应用可以直接部署
+     *
+     * @param requests 请求列表
+     * @param appName 应用名称（可选）
+     * @return 批量生成结果，存在失败请求时不包含组合应用
+     */
+    public SiddhiBatchGenerateResult generateBatch(List<SiddhiGenerateRequest> requests, String appName) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Invalid request: at least one generate request is required");
+        }
+        long start = System.currentTimeMillis();
+        SiddhiBatchGenerateResult result = new SiddhiBatchGenerateResult();
+        result.setAppName(StringUtils.hasText(appName) ? appName : DEFAULT_APP_NAME);
+
+        List<Callable<String[]>> tasks = new ArrayList<>(requests.size());
+        for (SiddhiGenerateRequest request : requests) {
+            tasks.add(() -> {
+                String definition = generateStreamDefinition(request);
+                String streamName = resolveStreamName(request);
+                return new String[] {streamName, definition, generateExampleQuery(request, streamName + "Output")};
+            });
+        }
+        List<Future<String[]>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Siddhi batch generation interrupted", e);
+        }
+
+        // 按请求顺序收集结果，流名称在组合应用中必须唯一
+        List<String[]> generated = new ArrayList<>(requests.size());
+        Set<String> streamNames = new HashSet<>();
+        int length = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            String[] parts;
+            try {
+                parts = futures.get(i).get();
+            } catch (ExecutionException e) {
+                result.getStreamNames().add(null);
+                result.getErrors().put(i, e.getCause().getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Siddhi batch generation interrupted", e);
+            }
+            result.getStreamNames().add(parts[0]);
+            if (!streamNames.add(parts[0])) {
+                result.getErrors().put(i, "Duplicate stream name: " + parts[0]);
+                continue;
+            }
+            generated.add(parts);
+            length += parts[1].length() + parts[2].length() + 4;
+        }
+
+        if (result.getErrors().isEmpty()) {
+            StringBuilder app = new StringBuilder(length + 64);
+            app.append("@App:name('").append(result.getAppName()).append("')\n");
+            for (String[] parts : generated) {
+                app.append('\n').append(parts[1]).append('\n');
+            }
+            for (String[] parts : generated) {
+                app.append('\n').append(parts[2]).append('\n');
+            }
+            result.setSiddhiApp(app.toString());
+        }
+        result.setTotalMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 生成输出到指定流的示例查询
+     */
+    private String generateExampleQuery(SiddhiGenerateRequest request, String outputStream) {
         if (request == null || request.getFields() == null || request.getFields().isEmpty()) {
             throw new IllegalArgumentException("Invalid request: fields are required");
         }
 
-        String streamName = StringUtils.hasText(request.getStreamName()) ? 
-            request.getStreamName() : request.getTopicName() + "Stream";
-        
-        // 找到时间字段，如果没有则使用第一个字段
-        TopicField timeField = request.getFields().stream()
-            .filter(Objects::nonNull)
-            .filter(TopicField::isTimeField)
-            .findFirst()
-            .orElse(request.getFields().get(0));
-            
-        // 生成示例查询
-        return String.format("@info(name='%s_example_query')\n" +
-                           "from %s#window.time(5 min)\n" +
-                           "select %s\n" +
-                           "insert into OutputStreamName;",
-                           streamName,
-                           streamName,
-                           generateSelectClause(request.getFields()));
+        String key = signature('Q', request, outputStream);
+        String query = cache.get(key);
+        if (query == null) {
+            query = buildExampleQuery(resolveStreamName(request), request.getFields(), outputStream);
+            cache.put(key, query);
+        }
+        return query;
+    }
+
+    private String buildStreamDefinition(String topicName, String streamName, List<TopicField> fields) {
+        StringBuilder definition = new StringBuilder(SOURCE_PREFIX.length() + SOURCE_SUFFIX.length() + 32 * fields.size());
+        definition.append(SOURCE_PREFIX).append(topicName).append(SOURCE_SUFFIX)
+            .append(streamName).append(" (");
+        boolean first = true;
+        for (TopicField field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (!first) {
+                definition.append(", ");
+            }
+            appendFieldDefinition(definition, field);
+            first = false;
+        }
+        return definition.append(");").toString();
     }
-    
+
+    private String buildExampleQuery(String streamName, List<TopicField> fields, String outputStream) {
+        StringBuilder query = new StringBuilder(96 + 2 * streamName.length() + 16 * fields.size());
+        query.append("@info(name='").append(streamName).append("_example_query')\n")
+            .append("from ").append(streamName).append("#window.time(5 min)\n")
+            .append("select ");
+        appendSelectClause(query, fields);
+        return query.append('\n')
+            .append("insert into ").append(outputStream).append(';').toString();
+    }
+
     /**
      * 将字段转换为 Siddhi 类型定义
+     * @param definition 目标字符串
      * @param field TopicField 对象
-     * @return Siddhi 字段定义
      */
-    private String convertFieldToSiddhiType(TopicField field) {
-        if (field == null || !StringUtils.hasText(field.getFieldName()) || !StringUtils.hasText(field.getFieldType())) {
+    private void appendFieldDefinition(StringBuilder definition, TopicField field) {
+        if (!StringUtils.hasText(field.getFieldName()) || !StringUtils.hasText(field.getFieldType())) {
             throw new IllegalArgumentException("Field name and type are required");
         }
 
-        if (!SiddhiTypeEnum.isSupported(field.getFieldType())) {
+        SiddhiTypeEnum type = SiddhiTypeEnum.resolve(field.getFieldType());
+        if (type == null) {
             log.warn("Unsupported field type: {}, using default type 'string'", field.getFieldType());
         }
 
-        String siddhiType = SiddhiTypeEnum.toSiddhiType(field.getFieldType());
-        return String.format("%s %s", field.getFieldName(), siddhiType);
+        definition.append(field.getFieldName()).append(' ')
+            .append(type != null ? type.getSiddhiType() : SiddhiTypeEnum.STRING.getSiddhiType());
     }
-    
+
     /**
      * 生成 SELECT 子句
+     * @param query 目标字符串
      * @param fields 字段列表
-     * @return SELECT 子句
      */
-    private String generateSelectClause(List<TopicField> fields) {
-        return fields.stream()
-            .filter(Objects::nonNull)
-            .map(TopicField::getFieldName)
-            .filter(StringUtils::hasText)
-            .collect(Collectors.joining(", "));
+    private void appendSelectClause(StringBuilder query, List<TopicField> fields) {
+        boolean first = true;
+        for (TopicField field : fields) {
+            if (field == null || !StringUtils.hasText(field.getFieldName())) {
+                continue;
+            }
+            if (!first) {
+                query.append(", ");
+            }
+            query.append(field.getFieldName());
+            first = false;
+        }
+    }
+
+    private String resolveStreamName(SiddhiGenerateRequest request) {
+        return StringUtils.hasText(request.getStreamName()) ?
+            request.getStreamName() : request.getTopicName() + "Stream";
+    }
+
+    /**
+     * 计算模式签名：语句类型、主题、流名称、输出流以及字段名和类型
+     */
+    private String signature(char kind, SiddhiGenerateRequest request, String outputStream) {
+        StringBuilder key = new StringBuilder(64 + 16 * request.getFields().size());
+        key.append(kind).append(KEY_SEPARATOR).append(request.getTopicName())
+            .append(KEY_SEPARATOR).append(request.getStreamName())
+            .append(KEY_SEPARATOR).append(outputStream);
+        for (TopicField field : request.getFields()) {
+            key.append(KEY_SEPARATOR);
+            if (field != null) {
+                key.append(field.getFieldName()).append(':').append(field.getFieldType());
+            }
+        }
+        return key.toString();
     }
 }
@@ -1,7 +1,9 @@
 package com.example.cepengine.service;
 
 import com.example.cepengine.entity.SiddhiRule;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Siddhi规则服务接口
@@ -25,6 +27,12 @@ import java.util.List;
  */
 public interface SiddhiRuleService {
 
+    /** Redis缓存键前缀，同步和异步缓存访问共用 */
+    String RULE_CACHE_PREFIX = "siddhi:rule:";
+
+    /** 规则缓存过期时间（小时） */
+    long RULE_CACHE_TTL = 24;
+
     /**
      * 查询所有激活状态的Siddhi规则
      * 
@@ -87,6 +95,17 @@ public interface SiddhiRuleService {
      */
     String getRuleFromCache(Long id);
 
+    /**
+     * 从缓存批量获取Siddhi规则内容
+     * 
+     * 使用一次MGET读取所有规则内容
+     * 未命中的规则通过一次批量查询从持久化存储获取，并以流水线方式回填缓存
+     * 
+     * @param ids 规则ID集合
+     * @return 规则ID到规则内容的映射，不存在的规则不会出现在结果中
+     */
+    Map<Long, String> getRulesFromCache(Collection<Long> ids);
+
     /**
      * 更新Siddhi规则缓存
      * 
@@ -96,4 +115,22 @@ public interface SiddhiRuleService {
      * @param rule 待缓存的Siddhi规则
      */
     void updateRuleCache(SiddhiRule rule);
+
+    /**
+     * 批量更新Siddhi规则缓存
+     * 
+     * 以流水线方式写入所有规则内容，只产生一次网络往返
+     * 
+     * @param rules 待缓存的Siddhi规则集合
+     */
+    void updateRuleCaches(Collection<SiddhiRule> rules);
+
+    /**
+     * 批量清除Siddhi规则缓存
+     * 
+     * 使用一次DEL删除所有规则的缓存
+     * 
+     * @param ids 规则ID集合
+     */
+    void evictRuleCaches(Collection<Long> ids);
 }
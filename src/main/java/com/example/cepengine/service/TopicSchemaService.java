@@ -0,0 +1,199 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.dto.SiddhiGenerateRequest;
+import com.example.cepengine.dto.TopicSchemaRequest;
+import com.example.cepengine.engine.CompiledSchema;
+import com.example.cepengine.entity.TopicSchema;
+import com.example.cepengine.mapper.TopicSchemaMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 主题模式注册服务
+ *
+ * 管理带版本的主题模式，并在内存中维护每个主题最新版本的编译结果
+ *
+ * 主要功能：
+ * 1. 注册主题模式，每次注册生成一个新版本
+ * 2. 启动时和定期从数据库加载所有主题的最新版本，只重新编译版本变化的主题
+ * 3. 为解码阶段提供编译后的模式，按槽位提取字段、填充默认值并拒绝缺少必填字段的消息
+ * 4. 按注册的模式生成Siddhi流定义
+ *
+ * 设计特点：
+ * - 注册前先编译，字段定义无效的模式不会进入数据库
+ * - 解码阶段只读内存中的编译结果，不访问数据库
+ * - 其他实例注册的新版本在下次定期刷新时生效
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TopicSchemaService {
+
+    /** 主题模式数据库映射器 */
+    private final TopicSchemaMapper topicSchemaMapper;
+
+    /** Siddhi语法生成服务 */
+    private final SiddhiGeneratorService siddhiGeneratorService;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 主题名称 → 最新版本的编译结果 */
+    private final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+
+    /** 因缺少必填字段被拒绝的消息数 */
+    private Counter rejectedCounter;
+
+    /**
+     * 注册指标并加载所有主题的最新版本
+     */
+    @PostConstruct
+    public void init() {
+        rejectedCounter = Counter.builder("cep.schema.rejected")
+            .description("因缺少必填字段在规则评估前被拒绝的消息数")
+            .register(meterRegistry);
+        try {
+            reloadSchemas();
+        } catch (Exception e) {
+            log.error("启动时加载主题模式失败，将在下次刷新时重试", e);
+        }
+    }
+
+    /**
+     * 定期刷新主题模式
+     */
+    @Scheduled(initialDelayString = "${app.schema.refresh-interval-ms:30000}",
+        fixedDelayString = "${app.schema.refresh-interval-ms:30000}")
+    public void scheduledReload() {
+        try {
+            reloadSchemas();
+        } catch (Exception e) {
+            log.error("定期刷新主题模式失败", e);
+        }
+    }
+
+    /**
+     * 从数据库加载所有主题的最新版本，只重新编译版本变化的主题
+     *
+     * @return 重新编译的主题数量
+     */
+    public synchronized int reloadSchemas() {
+        int compiled = 0;
+        for (TopicSchema schema : topicSchemaMapper.findAllLatest()) {
+            CompiledSchema existing = schemas.get(schema.getTopicName());
+            if (existing != null && existing.getVersion() == schema.getVersion()) {
+                continue;
+            }
+            try {
+                schemas.put(schema.getTopicName(), CompiledSchema.compile(schema));
+                compiled++;
+            } catch (Exception e) {
+                log.error("主题模式编译失败，保留原有版本：主题={}, 版本={}", schema.getTopicName(), schema.getVersion(), e);
+            }
+        }
+        if (compiled > 0) {
+            log.info("主题模式加载完成：重新编译={}, 主题总数={}", compiled, schemas.size());
+        }
+        return compiled;
+    }
+
+    /**
+     * 注册主题模式的新版本
+     *
+     * @param topicName 主题名称
+     * @param request 注册请求
+     * @return 已保存的模式
+     * @throws IllegalArgumentException 字段定义无效
+     */
+    @Transactional
+    public TopicSchema register(String topicName, TopicSchemaRequest request) {
+        if (!StringUtils.hasText(topicName)) {
+            throw new IllegalArgumentException("主题名称不能为空");
+        }
+        TopicSchema schema = new TopicSchema();
+        schema.setTopicName(topicName);
+        schema.setStreamName(StringUtils.hasText(request.getStreamName()) ? request.getStreamName() : topicName + "Stream");
+        schema.setFields(request.getFields());
+
+        TopicSchema latest = topicSchemaMapper.findLatest(topicName);
+        schema.setVersion(latest != null ? latest.getVersion() + 1 : 1);
+        CompiledSchema compiled = CompiledSchema.compile(schema);
+        topicSchemaMapper.insert(schema);
+        schemas.put(topicName, compiled);
+        log.info("主题模式已注册：主题={}, 版本={}, 字段数={}", topicName, schema.getVersion(), compiled.getFields().size());
+        return schema;
+    }
+
+    /**
+     * 获取主题最新版本的编译结果
+     *
+     * @param topicName 主题名称
+     * @return 编译后的模式，未注册时返回null
+     */
+    public CompiledSchema getSchema(String topicName) {
+        return schemas.get(topicName);
+    }
+
+    /**
+     * 查询主题的最新版本
+     *
+     * @param topicName 主题名称
+     * @return 最新版本的模式，未注册时返回null
+     */
+    public TopicSchema findLatest(String topicName) {
+        return topicSchemaMapper.findLatest(topicName);
+    }
+
+    /**
+     * 查询主题的指定版本
+     *
+     * @param topicName 主题名称
+     * @param version 模式版本
+     * @return 对应版本的模式，不存在时返回null
+     */
+    public TopicSchema findByVersion(String topicName, Integer version) {
+        return topicSchemaMapper.findByVersion(topicName, version);
+    }
+
+    /**
+     * 查询主题的全部版本
+     *
+     * @param topicName 主题名称
+     * @return 按版本升序排列的模式列表
+     */
+    public List<TopicSchema> findVersions(String topicName) {
+        return topicSchemaMapper.findVersions(topicName);
+    }
+
+    /**
+     * 按注册的模式生成Siddhi流定义
+     *
+     * @param schema 主题模式
+     * @return Siddhi流定义语句
+     */
+    public String generateStreamDefinition(TopicSchema schema) {
+        SiddhiGenerateRequest request = new SiddhiGenerateRequest();
+        request.setTopicName(schema.getTopicName());
+        request.setStreamName(schema.getStreamName());
+        request.setFields(schema.getFields());
+        return siddhiGeneratorService.generateStreamDefinition(request);
+    }
+
+    /**
+     * 记录一条因缺少必填字段被拒绝的消息
+     */
+    public void recordRejected() {
+        rejectedCounter.increment();
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.cepengine.service.impl;
 
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.dto.RuleValidationResult;
 import com.example.cepengine.entity.SiddhiRule;
 import com.example.cepengine.mapper.SiddhiRuleMapper;
+import com.example.cepengine.service.RuleValidationService;
 import com.example.cepengine.service.SiddhiRuleService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,6 +37,9 @@ import java.util.concurrent.TimeUnit;
  * - 使用Redis缓存规则内容
  * - 支持事务管理
  * - 提供规则缓存的自动更新和过期机制
+ * - 批量读取使用MGET，批量回填使用流水线SET
+ * - 虚拟线程模式下批量读取的各分片并发加载，未命中时的数据库查询受数据库许可限制
+ * - 规则写入前先校验，无效的规则不会进入数据库
  */
 @Service
 @RequiredArgsConstructor
@@ -37,11 +51,14 @@ public class SiddhiRuleServiceImpl implements SiddhiRuleService {
     /** Redis模板，用于缓存规则 */
     private final StringRedisTemplate redisTemplate;
 
-    /** Redis缓存键前缀 */
-    private static final String RULE_CACHE_PREFIX = "siddhi:rule:";
+    /** 规则校验服务 */
+    private final RuleValidationService ruleValidationService;
 
-    /** 规则缓存过期时间（小时） */
-    private static final long RULE_CACHE_TTL = 24; // 24小时
+    /** 阻塞I/O执行器，并发加载缓存分片 */
+    private final BlockingIoExecutor blockingIoExecutor;
+
+    /** 单次MGET和IN查询的最大规则数量 */
+    private static final int BULK_CHUNK_SIZE = 1000;
 
     /**
      * 查询所有活跃的Siddhi规则
@@ -68,13 +85,15 @@ public class SiddhiRuleServiceImpl implements SiddhiRuleService {
      * 创建新的Siddhi规则
      * 
      * 使用事务管理，确保数据库操作的原子性
-     * 创建规则后自动更新缓存
+     * 创建前校验规则，创建规则后自动更新缓存
      * 
      * @param rule 待创建的Siddhi规则
+     * @throws IllegalArgumentException 规则校验未通过
      */
     @Override
     @Transactional
     public void createRule(SiddhiRule rule) {
+        checkValid(rule);
         siddhiRuleMapper.insert(rule);
         updateRuleCache(rule);
     }
@@ -83,13 +102,15 @@ public class SiddhiRuleServiceImpl implements SiddhiRuleService {
      * 更新现有的Siddhi规则
      * 
      * 使用事务管理，确保数据库操作的原子性
-     * 更新规则后自动更新缓存
+     * 更新前校验规则，更新规则后自动更新缓存
      * 
      * @param rule 待更新的Siddhi规则
+     * @throws IllegalArgumentException 规则校验未通过
      */
     @Override
     @Transactional
     public void updateRule(SiddhiRule rule) {
+        checkValid(rule);
         siddhiRuleMapper.update(rule);
         updateRuleCache(rule);
     }
@@ -147,4 +168,121 @@ public class SiddhiRuleServiceImpl implements SiddhiRuleService {
         String cacheKey = RULE_CACHE_PREFIX + rule.getId();
         redisTemplate.opsForValue().set(cacheKey, rule.getRuleContent(), RULE_CACHE_TTL, TimeUnit.HOURS);
     }
+
+    /**
+     * 从缓存批量获取Siddhi规则内容
+     * 
+     * 按批次执行MGET，收集未命中的规则ID
+     * 未命中的规则通过一次IN查询从数据库获取，并以流水线方式回填缓存
+     * 
+     * @param ids 规则ID集合
+     * @return 规则ID到规则内容的映射
+     */
+    @Override
+    public Map<Long, String> getRulesFromCache(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<CompletableFuture<Map<Long, String>>> loads = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + BULK_CHUNK_SIZE, idList.size()));
+            loads.add(blockingIoExecutor.supply(() -> loadChunk(chunk)));
+        }
+
+        Map<Long, String> ruleContents = new HashMap<>(ids.size() * 2);
+        for (CompletableFuture<Map<Long, String>> load : loads) {
+            try {
+                ruleContents.putAll(load.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return ruleContents;
+    }
+
+    /**
+     * 加载一个分片：执行MGET，未命中的规则通过IN查询获取并回填缓存
+     *
+     * @param chunk 规则ID分片
+     * @return 规则ID到规则内容的映射
+     */
+    private Map<Long, String> loadChunk(List<Long> chunk) {
+        Map<Long, String> ruleContents = new HashMap<>(chunk.size() * 2);
+        List<String> cacheKeys = new ArrayList<>(chunk.size());
+        for (Long id : chunk) {
+            cacheKeys.add(RULE_CACHE_PREFIX + id);
+        }
+        List<String> cachedContents = redisTemplate.opsForValue().multiGet(cacheKeys);
+
+        List<Long> missedIds = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String ruleContent = cachedContents == null ? null : cachedContents.get(i);
+            if (ruleContent != null) {
+                ruleContents.put(chunk.get(i), ruleContent);
+            } else {
+                missedIds.add(chunk.get(i));
+            }
+        }
+
+        if (!missedIds.isEmpty()) {
+            List<SiddhiRule> loadedRules = blockingIoExecutor.withDbPermit(() -> siddhiRuleMapper.findByIds(missedIds));
+            for (SiddhiRule rule : loadedRules) {
+                ruleContents.put(rule.getId(), rule.getRuleContent());
+            }
+            updateRuleCaches(loadedRules);
+        }
+        return ruleContents;
+    }
+
+    /**
+     * 批量更新Siddhi规则缓存
+     * 
+     * 在一个Redis流水线中写入所有规则内容并设置过期时间
+     * 
+     * @param rules 待缓存的Siddhi规则集合
+     */
+    @Override
+    public void updateRuleCaches(Collection<SiddhiRule> rules) {
+        if (rules.isEmpty()) {
+            return;
+        }
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(RULE_CACHE_TTL);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (SiddhiRule rule : rules) {
+                stringConnection.setEx(RULE_CACHE_PREFIX + rule.getId(), ttlSeconds, rule.getRuleContent());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量清除Siddhi规则缓存
+     * 
+     * @param ids 规则ID集合
+     */
+    @Override
+    public void evictRuleCaches(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> cacheKeys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            cacheKeys.add(RULE_CACHE_PREFIX + id);
+        }
+        redisTemplate.delete(cacheKeys);
+    }
+
+    /**
+     * 校验规则，未通过时拒绝写入
+     * 
+     * @param rule 待校验的规则
+     */
+    private void checkValid(SiddhiRule rule) {
+        RuleValidationResult result = ruleValidationService.validate(rule, false);
+        if (!result.isValid()) {
+            throw new IllegalArgumentException("规则校验未通过：" + String.join("; ", result.getErrors()));
+        }
+    }
 }
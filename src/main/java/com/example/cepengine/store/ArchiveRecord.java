@@ -0,0 +1,28 @@
+package com.example.cepengine.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 归档记录
+ *
+ * 一条归档消息及其来源位置
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveRecord {
+
+    /** 消息时间戳（毫秒） */
+    private long timestamp;
+
+    /** 来源分区 */
+    private int partition;
+
+    /** 来源偏移量 */
+    private long offset;
+
+    /** 消息内容 */
+    private String payload;
+}
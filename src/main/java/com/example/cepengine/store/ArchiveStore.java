@@ -0,0 +1,471 @@
+package com.example.cepengine.store;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * 本地归档存储
+ *
+ * 将归档消息按批次写入本地只追加的段文件，替代逐条写入数据库
+ *
+ * 主要功能：
+ * 1. 批量追加归档记录，每批编码为一个或多个压缩块
+ * 2. 按时间范围查询和回放归档记录
+ * 3. 按保留期限整体删除过期的段文件
+ *
+ * 设计特点：
+ * - 块内按列存放：时间戳（差值编码）、分区、偏移量、消息长度、消息内容，整体LZ4压缩
+ * - 每个块头记录时间范围，内存中按块建立稀疏时间索引，查询只解压时间范围重叠的块
+ * - 段文件达到大小上限后滚动，旧段文件不再修改
+ * - 启动时只读取块头重建索引，末尾不完整的块被截断
+ * - 追加完成后强制刷盘，调用方可以在返回后确认消息
+ *
+ * 块布局：
+ * - 块头（40字节）：魔数、记录数、最小时间戳、最大时间戳、原始长度、压缩长度、CRC32、保留字段
+ * - 块体：LZ4压缩后的列数据
+ *
+ * 查询结果按写入顺序返回，不保证严格按时间戳排序
+ */
+@Slf4j
+@Component
+public class ArchiveStore {
+
+    /** 块魔数 */
+    private static final int BLOCK_MAGIC = 0x41524342;
+
+    /** 块头大小（字节） */
+    private static final int BLOCK_HEADER_BYTES = 40;
+
+    /** 段文件扩展名 */
+    private static final String SEGMENT_SUFFIX = ".arc";
+
+    /** 归档目录 */
+    @Value("${app.archive.path:./data/archive}")
+    private String path;
+
+    /** 单个段文件的大小上限（字节） */
+    @Value("${app.archive.segment-max-bytes:268435456}")
+    private long segmentMaxBytes;
+
+    /** 单个块的最大记录数 */
+    @Value("${app.archive.block-max-records:4096}")
+    private int blockMaxRecords;
+
+    /** 段文件保留天数 */
+    @Value("${app.archive.retention-days:90}")
+    private int retentionDays;
+
+    /** 追加后是否强制刷盘 */
+    @Value("${app.archive.fsync:true}")
+    private boolean fsync;
+
+    /** LZ4压缩器 */
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    /** LZ4解压器 */
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /** 所有段文件，按创建顺序排列 */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    /** 归档目录路径 */
+    private Path directory;
+
+    /** 当前追加的段文件 */
+    private Segment activeSegment;
+
+    /** 当前段文件的写入通道 */
+    private FileChannel activeChannel;
+
+    /**
+     * 加载已有的段文件并重建稀疏索引
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Paths.get(path);
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        long blocks = 0;
+        for (Path file : files) {
+            Segment segment = loadSegment(file);
+            segments.add(segment);
+            blocks += segment.blocks.size();
+        }
+        log.info("已加载归档存储：路径={}, 段文件={} 个, 块={} 个", path, segments.size(), blocks);
+    }
+
+    /**
+     * 追加一批归档记录
+     *
+     * 返回时数据已写入段文件（启用fsync时已刷盘）
+     *
+     * @param records 归档记录
+     */
+    public synchronized void append(List<ArchiveRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (activeChannel == null) {
+            rollSegment();
+        }
+
+        List<BlockIndex> written = new ArrayList<>();
+        for (int from = 0; from < records.size(); from += blockMaxRecords) {
+            List<ArchiveRecord> chunk = records.subList(from, Math.min(records.size(), from + blockMaxRecords));
+            written.add(writeBlock(chunk));
+        }
+        if (fsync) {
+            activeChannel.force(false);
+        }
+
+        // 刷盘后再加入索引，查询不会读到未完整写入的块
+        for (BlockIndex block : written) {
+            activeSegment.addBlock(block);
+        }
+        if (activeSegment.size >= segmentMaxBytes) {
+            rollSegment();
+        }
+    }
+
+    /**
+     * 按时间范围查询归档记录
+     *
+     * @param fromMs 起始时间（包含，毫秒）
+     * @param toMs 结束时间（不包含，毫秒）
+     * @param limit 最大返回条数
+     * @return 归档记录列表
+     */
+    public List<ArchiveRecord> query(long fromMs, long toMs, int limit) throws IOException {
+        List<ArchiveRecord> result = new ArrayList<>();
+        scan(fromMs, toMs, record -> {
+            result.add(record);
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * 按时间范围回放归档记录
+     *
+     * @param fromMs 起始时间（包含，毫秒）
+     * @param toMs 结束时间（不包含，毫秒）
+     * @param visitor 记录访问器，返回false时停止回放
+     * @return 访问的记录数
+     */
+    public long scan(long fromMs, long toMs, Predicate<ArchiveRecord> visitor) throws IOException {
+        long visited = 0;
+        for (Segment segment : segments) {
+            if (segment.blocks.isEmpty() || segment.maxTs < fromMs || segment.minTs >= toMs) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                for (BlockIndex block : segment.blocks) {
+                    if (block.maxTs < fromMs || block.minTs >= toMs) {
+                        continue;
+                    }
+                    for (ArchiveRecord record : readBlock(channel, block)) {
+                        if (record.getTimestamp() < fromMs || record.getTimestamp() >= toMs) {
+                            continue;
+                        }
+                        visited++;
+                        if (!visitor.test(record)) {
+                            return visited;
+                        }
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * 删除超过保留期限的段文件
+     */
+    @Scheduled(cron = "${app.archive.purge-cron:0 20 0 * * *}")
+    public synchronized void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+        for (Segment segment : segments) {
+            if (segment == activeSegment || segment.blocks.isEmpty() || segment.maxTs >= cutoff) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+                segments.remove(segment);
+                log.info("已删除过期的归档段文件：{}", segment.path.getFileName());
+            } catch (IOException e) {
+                log.error("删除归档段文件失败：{}", segment.path, e);
+            }
+        }
+    }
+
+    /**
+     * 关闭当前段文件
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.force(true);
+            activeChannel.close();
+            activeChannel = null;
+            activeSegment = null;
+        }
+    }
+
+    /**
+     * 关闭当前段文件并创建新的段文件
+     */
+    private void rollSegment() throws IOException {
+        close();
+
+        long name = System.currentTimeMillis();
+        Path file = directory.resolve(String.format("%020d%s", name, SEGMENT_SUFFIX));
+        while (Files.exists(file)) {
+            file = directory.resolve(String.format("%020d%s", ++name, SEGMENT_SUFFIX));
+        }
+
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = new Segment(file);
+        segments.add(activeSegment);
+    }
+
+    /**
+     * 将一组记录编码为压缩块并写入当前段文件
+     */
+    private BlockIndex writeBlock(List<ArchiveRecord> records) throws IOException {
+        int count = records.size();
+        byte[][] payloads = new byte[count][];
+        long minTs = Long.MAX_VALUE;
+        long maxTs = Long.MIN_VALUE;
+        int payloadBytes = 0;
+        for (int i = 0; i < count; i++) {
+            ArchiveRecord record = records.get(i);
+            payloads[i] = record.getPayload().getBytes(StandardCharsets.UTF_8);
+            payloadBytes += payloads[i].length;
+            minTs = Math.min(minTs, record.getTimestamp());
+            maxTs = Math.max(maxTs, record.getTimestamp());
+        }
+
+        // 按列编码
+        ByteBuffer raw = ByteBuffer.allocate(count * (Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES) + payloadBytes);
+        long previous = minTs;
+        for (ArchiveRecord record : records) {
+            raw.putLong(record.getTimestamp() - previous);
+            previous = record.getTimestamp();
+        }
+        for (ArchiveRecord record : records) {
+            raw.putInt(record.getPartition());
+        }
+        for (ArchiveRecord record : records) {
+            raw.putLong(record.getOffset());
+        }
+        for (byte[] payload : payloads) {
+            raw.putInt(payload.length);
+        }
+        for (byte[] payload : payloads) {
+            raw.put(payload);
+        }
+
+        int rawLength = raw.position();
+        byte[] compressed = new byte[compressor.maxCompressedLength(rawLength)];
+        int compressedLength = compressor.compress(raw.array(), 0, rawLength, compressed, 0);
+        CRC32 crc = new CRC32();
+        crc.update(compressed, 0, compressedLength);
+
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        header.putInt(BLOCK_MAGIC)
+            .putInt(count)
+            .putLong(minTs)
+            .putLong(maxTs)
+            .putInt(rawLength)
+            .putInt(compressedLength)
+            .putInt((int) crc.getValue())
+            .putInt(0)
+            .flip();
+
+        long position = activeSegment.size;
+        ByteBuffer body = ByteBuffer.wrap(compressed, 0, compressedLength);
+        while (header.hasRemaining() || body.hasRemaining()) {
+            activeChannel.write(new ByteBuffer[]{header, body});
+        }
+        activeSegment.size = position + BLOCK_HEADER_BYTES + compressedLength;
+        return new BlockIndex(position, count, minTs, maxTs, rawLength, compressedLength);
+    }
+
+    /**
+     * 读取并解码一个块
+     */
+    private List<ArchiveRecord> readBlock(FileChannel channel, BlockIndex block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_HEADER_BYTES + block.compressedLength);
+        readFully(channel, buffer, block.position);
+        byte[] compressed = buffer.array();
+
+        ByteBuffer header = ByteBuffer.wrap(compressed, 0, BLOCK_HEADER_BYTES);
+        header.position(32);
+        int expectedCrc = header.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(compressed, BLOCK_HEADER_BYTES, block.compressedLength);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("归档块校验失败：位置=" + block.position);
+        }
+
+        byte[] rawBytes = new byte[block.rawLength];
+        decompressor.decompress(compressed, BLOCK_HEADER_BYTES, rawBytes, 0, block.rawLength);
+        ByteBuffer raw = ByteBuffer.wrap(rawBytes);
+
+        int count = block.count;
+        long[] timestamps = new long[count];
+        int[] partitions = new int[count];
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        long previous = block.minTs;
+        for (int i = 0; i < count; i++) {
+            previous += raw.getLong();
+            timestamps[i] = previous;
+        }
+        for (int i = 0; i < count; i++) {
+            partitions[i] = raw.getInt();
+        }
+        for (int i = 0; i < count; i++) {
+            offsets[i] = raw.getLong();
+        }
+        for (int i = 0; i < count; i++) {
+            lengths[i] = raw.getInt();
+        }
+
+        List<ArchiveRecord> records = new ArrayList<>(count);
+        int payloadPosition = raw.position();
+        for (int i = 0; i < count; i++) {
+            String payload = new String(rawBytes, payloadPosition, lengths[i], StandardCharsets.UTF_8);
+            payloadPosition += lengths[i];
+            records.add(new ArchiveRecord(timestamps[i], partitions[i], offsets[i], payload));
+        }
+        return records;
+    }
+
+    /**
+     * 读取段文件的块头重建索引，截断末尾不完整的块
+     */
+    private Segment loadSegment(Path file) throws IOException {
+        Segment segment = new Segment(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            while (position + BLOCK_HEADER_BYTES <= fileSize) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                if (header.getInt() != BLOCK_MAGIC) {
+                    break;
+                }
+                int count = header.getInt();
+                long minTs = header.getLong();
+                long maxTs = header.getLong();
+                int rawLength = header.getInt();
+                int compressedLength = header.getInt();
+                if (position + BLOCK_HEADER_BYTES + compressedLength > fileSize) {
+                    break;
+                }
+                segment.addBlock(new BlockIndex(position, count, minTs, maxTs, rawLength, compressedLength));
+                position += BLOCK_HEADER_BYTES + compressedLength;
+            }
+            if (position < fileSize) {
+                log.warn("归档段文件末尾存在不完整的块，已截断：{}，{} -> {} 字节", file.getFileName(), fileSize, position);
+                channel.truncate(position);
+            }
+            segment.size = position;
+        }
+        return segment;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("归档段文件意外结束：位置=" + position);
+            }
+        }
+    }
+
+    /**
+     * 段文件及其块索引
+     */
+    private static final class Segment {
+
+        private final Path path;
+
+        private final List<BlockIndex> blocks = new CopyOnWriteArrayList<>();
+
+        private volatile long minTs = Long.MAX_VALUE;
+
+        private volatile long maxTs = Long.MIN_VALUE;
+
+        private long size;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+
+        private void addBlock(BlockIndex block) {
+            minTs = Math.min(minTs, block.minTs);
+            maxTs = Math.max(maxTs, block.maxTs);
+            blocks.add(block);
+        }
+    }
+
+    /**
+     * 稀疏时间索引项，每个块一项
+     */
+    private static final class BlockIndex {
+
+        private final long position;
+
+        private final int count;
+
+        private final long minTs;
+
+        private final long maxTs;
+
+        private final int rawLength;
+
+        private final int compressedLength;
+
+        private BlockIndex(long position, int count, long minTs, long maxTs, int rawLength, int compressedLength) {
+            this.position = position;
+            this.count = count;
+            this.minTs = minTs;
+            this.maxTs = maxTs;
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+        }
+    }
+}
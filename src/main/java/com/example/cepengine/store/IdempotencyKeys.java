@@ -0,0 +1,58 @@
+package com.example.cepengine.store;
+
+/**
+ * 幂等键生成工具
+ * 
+ * 将消息来源位置压缩为64位幂等键
+ * 
+ * 主要功能：
+ * 1. 按（作用域、分区、偏移量、序号）生成键，用于Kafka消息重放去重
+ * 
+ * 设计特点：
+ * - 使用64位混合函数，分布均匀
+ * - 键值0保留给存储的空槽位，生成结果不会为0
+ */
+public final class IdempotencyKeys {
+
+    /** 告警通道的作用域 */
+    public static final long SCOPE_ALERT = -1L;
+
+    /** 归档通道的作用域 */
+    public static final long SCOPE_ARCHIVE = -2L;
+
+    private IdempotencyKeys() {
+    }
+
+    /**
+     * 按消息来源位置生成幂等键
+     * 
+     * @param scope 作用域，规则结果使用规则ID，其他通道使用通道常量
+     * @param partition 来源分区
+     * @param offset 来源偏移量
+     * @param ordinal 同一来源消息产生的第几条结果
+     * @return 幂等键
+     */
+    public static long ofRecord(long scope, int partition, long offset, int ordinal) {
+        long h = mix(scope);
+        h = mix(h ^ partition);
+        h = mix(h ^ offset);
+        h = mix(h ^ ordinal);
+        return nonZero(h);
+    }
+
+    /**
+     * 64位混合函数（MurmurHash3 fmix64）
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long nonZero(long h) {
+        return h == 0 ? 1L : h;
+    }
+}
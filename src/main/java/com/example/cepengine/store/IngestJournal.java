@@ -0,0 +1,445 @@
+package com.example.cepengine.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * 输入预写日志
+ *
+ * 基于内存映射段文件的追加日志，输入消息在进入规则评估前先写入日志，进程崩溃后重放未完成的部分
+ *
+ * 主要功能：
+ * 1. 追加输入消息，按批次统一刷盘（组提交）
+ * 2. 记录检查点：检查点之前的消息的原始数据和规则输出都已发送或落库
+ * 3. 启动时定位检查点之后的未完成记录，供恢复流程重新发布
+ * 4. 删除完全位于检查点之前的段文件
+ *
+ * 设计特点：
+ * - 只由流水线的日志阶段单线程写入，刷盘与Kafka偏移量提交无关
+ * - 逻辑位置 = 段基准位置 + 段内偏移，段文件以基准位置命名，位置单调递增
+ * - 每条记录带CRC32校验，崩溃留下的残缺尾部在启动时截断
+ * - 恢复完成前检查点不前进，恢复过程中再次崩溃不会丢失记录；
+ *   重放的记录要被日志阶段重新写入并刷盘后恢复才算完成，在此之前旧段文件是它们唯一的持久副本
+ *
+ * 记录格式：
+ * - 记录长度（int，0表示段内没有更多记录）、CRC32（int）
+ * - 分区（int）、偏移量（long）、时间戳（long）、原始数据ID（long）、消息内容（UTF-8）
+ */
+@Slf4j
+@Component
+public class IngestJournal {
+
+    /** 记录头大小（字节）：长度 + CRC32 */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /** 记录固定字段大小（字节）：分区 + 偏移量 + 时间戳 + 原始数据ID */
+    private static final int RECORD_FIXED_BYTES = 28;
+
+    /** 段文件扩展名 */
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    /** 检查点文件名 */
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /** 检查点校验掩码 */
+    private static final long CHECKPOINT_MASK = 0x4345504A524E4CL;
+
+    /** 是否启用预写日志 */
+    @Value("${app.journal.enabled:false}")
+    private boolean enabled;
+
+    /** 日志目录 */
+    @Value("${app.journal.path:./data/journal}")
+    private String path;
+
+    /** 单个段文件大小（字节） */
+    @Value("${app.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    /** 所有段文件，按基准位置排列 */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /** 日志目录路径 */
+    private Path directory;
+
+    /** 当前追加的段文件 */
+    private Segment activeSegment;
+
+    /** 当前段内的写入偏移 */
+    private int writeOffset;
+
+    /** 上次刷盘时的写入偏移 */
+    private int syncedOffset;
+
+    /** 检查点映射缓冲区 */
+    private MappedByteBuffer checkpointBuffer;
+
+    /** 当前检查点位置 */
+    private long checkpoint;
+
+    /** 启动时未完成记录的结束位置 */
+    private long recoveryEnd;
+
+    /** 是否仍有未重放完的记录，期间检查点不前进 */
+    private volatile boolean recovering;
+
+    /** 重放记录发布到的最后一个主流水线序列号，重放结束前为Long.MAX_VALUE */
+    private long replayedThrough = Long.MAX_VALUE;
+
+    /** 日志阶段已写入并刷盘的最大主流水线序列号 */
+    private long journaledSequence = -1L;
+
+    /**
+     * 加载检查点和段文件，截断残缺尾部
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            log.info("输入预写日志未启用");
+            return;
+        }
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("app.journal.segment-bytes过小: " + segmentBytes);
+        }
+
+        directory = Paths.get(path);
+        Files.createDirectories(directory);
+        openCheckpoint();
+
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        bases.sort(Long::compare);
+        for (Long base : bases) {
+            segments.add(mapSegment(base));
+        }
+
+        if (segments.isEmpty()) {
+            activeSegment = mapSegment(Math.max(0, checkpoint));
+            segments.add(activeSegment);
+            writeOffset = 0;
+        } else {
+            activeSegment = segments.get(segments.size() - 1);
+            writeOffset = scanEnd(activeSegment);
+            // 清除残缺尾部，避免之后的扫描把旧数据当作有效记录
+            for (int i = writeOffset; i < segmentBytes; i++) {
+                activeSegment.buffer.put(i, (byte) 0);
+            }
+        }
+        syncedOffset = writeOffset;
+
+        if (checkpoint < segments.get(0).base) {
+            checkpoint = segments.get(0).base;
+        }
+        recoveryEnd = position();
+        recovering = recoveryEnd > checkpoint;
+        log.info("已加载输入预写日志：路径={}, 段文件={}, 检查点={}, 待恢复字节={}",
+            path, segments.size(), checkpoint, recoveryEnd - checkpoint);
+    }
+
+    /**
+     * 是否启用预写日志
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 追加一条输入消息，只写入映射内存，由sync统一刷盘
+     *
+     * @param partition 来源分区
+     * @param offset 来源偏移量
+     * @param timestamp 接收时间戳
+     * @param rawDataId 原始数据ID
+     * @param data 消息内容
+     * @return 记录的起始位置
+     */
+    public synchronized long append(int partition, long offset, long timestamp, long rawDataId, String data) {
+        byte[] content = data.getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[RECORD_FIXED_BYTES + content.length];
+        ByteBuffer.wrap(record)
+            .putInt(partition)
+            .putLong(offset)
+            .putLong(timestamp)
+            .putLong(rawDataId)
+            .put(content);
+
+        int size = RECORD_HEADER_BYTES + record.length;
+        if (size > segmentBytes - RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("消息超过预写日志段大小: " + record.length);
+        }
+        if (writeOffset + size > segmentBytes - RECORD_HEADER_BYTES) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        long start = position();
+        MappedByteBuffer buffer = activeSegment.buffer;
+        buffer.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+        buffer.position(writeOffset + RECORD_HEADER_BYTES);
+        buffer.put(record);
+        // 长度最后写入，读取方看到非0长度时记录内容已经完整
+        buffer.putInt(writeOffset, record.length);
+        writeOffset += size;
+        return start;
+    }
+
+    /**
+     * 将上次刷盘之后追加的记录刷写到磁盘
+     */
+    public synchronized void sync() {
+        if (writeOffset != syncedOffset) {
+            activeSegment.buffer.force();
+            syncedOffset = writeOffset;
+        }
+    }
+
+    /**
+     * 当前写入位置
+     */
+    public synchronized long position() {
+        return activeSegment.base + writeOffset;
+    }
+
+    /**
+     * 日志阶段报告已写入并刷盘的序列号
+     *
+     * 重放的记录全部重新写入后结束恢复，之后检查点才能前进
+     *
+     * @param sequence 已写入并刷盘的最大主流水线序列号
+     */
+    public synchronized void markJournaled(long sequence) {
+        journaledSequence = sequence;
+        if (recovering && sequence >= replayedThrough) {
+            recovering = false;
+            log.info("重放的记录已全部重新写入预写日志，检查点恢复推进");
+        }
+    }
+
+    /**
+     * 推进检查点，删除完全位于检查点之前的段文件
+     *
+     * 恢复完成前忽略，防止检查点越过尚未重新写入的重放记录，删除它们唯一的持久副本
+     *
+     * @param position 已完成处理的位置
+     */
+    public synchronized void checkpoint(long position) {
+        if (recovering || position <= checkpoint) {
+            return;
+        }
+        checkpoint = position;
+        checkpointBuffer.putLong(0, position);
+        checkpointBuffer.putLong(Long.BYTES, position ^ CHECKPOINT_MASK);
+
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment == activeSegment || segment.base + segmentBytes > checkpoint) {
+                break;
+            }
+            iterator.remove();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("删除预写日志段文件失败：{}", segment.path, e);
+            }
+        }
+    }
+
+    /**
+     * 依次发布启动时检查点之后的未完成记录
+     *
+     * 返回后恢复尚未结束：日志阶段通过markJournaled报告越过返回的序列号后，检查点才能前进
+     *
+     * @param publisher 记录发布回调，返回该记录发布到的最后一个主流水线序列号，未发布时返回-1
+     * @return 重放记录发布到的最后一个主流水线序列号，没有发布任何记录时为-1
+     */
+    public long replayUncommitted(ToLongFunction<JournalRecord> publisher) {
+        if (!recovering) {
+            return -1L;
+        }
+        List<Segment> snapshot;
+        long from;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+            from = checkpoint;
+        }
+
+        long last = -1L;
+        for (Segment segment : snapshot) {
+            if (segment.base + segmentBytes <= from || segment.base >= recoveryEnd) {
+                continue;
+            }
+            int offset = (int) Math.max(0, from - segment.base);
+            int end = (int) Math.min(segmentBytes, recoveryEnd - segment.base);
+            ByteBuffer buffer = segment.buffer.duplicate();
+            while (offset < end) {
+                byte[] record = readRecord(buffer, offset);
+                if (record == null) {
+                    break;
+                }
+                last = Math.max(last, publisher.applyAsLong(decode(record)));
+                offset += RECORD_HEADER_BYTES + record.length;
+            }
+        }
+        synchronized (this) {
+            replayedThrough = last;
+            if (journaledSequence >= last) {
+                recovering = false;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * 是否仍在恢复
+     */
+    public boolean isRecovering() {
+        return recovering;
+    }
+
+    /**
+     * 应用关闭时刷写日志和检查点
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (activeSegment != null) {
+            activeSegment.buffer.force();
+        }
+        if (checkpointBuffer != null) {
+            checkpointBuffer.force();
+        }
+    }
+
+    /**
+     * 当前段已满，切换到下一个段文件
+     */
+    private void roll() {
+        activeSegment.buffer.force();
+        try {
+            activeSegment = mapSegment(activeSegment.base + segmentBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("创建预写日志段文件失败", e);
+        }
+        segments.add(activeSegment);
+        writeOffset = 0;
+        syncedOffset = 0;
+    }
+
+    /**
+     * 扫描段文件，返回最后一条完整记录之后的偏移
+     */
+    private int scanEnd(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = 0;
+        while (offset < segmentBytes - RECORD_HEADER_BYTES) {
+            byte[] record = readRecord(buffer, offset);
+            if (record == null) {
+                break;
+            }
+            offset += RECORD_HEADER_BYTES + record.length;
+        }
+        return offset;
+    }
+
+    /**
+     * 读取并校验指定偏移的记录
+     *
+     * @return 记录内容，到达末尾或校验失败时返回null
+     */
+    private byte[] readRecord(ByteBuffer buffer, int offset) {
+        if (offset + RECORD_HEADER_BYTES > segmentBytes) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + RECORD_HEADER_BYTES + length > segmentBytes) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        buffer.position(offset + RECORD_HEADER_BYTES);
+        buffer.get(record);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+            log.warn("预写日志记录校验失败，截断于此：偏移={}", offset);
+            return null;
+        }
+        return record;
+    }
+
+    private JournalRecord decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int partition = buffer.getInt();
+        long offset = buffer.getLong();
+        long timestamp = buffer.getLong();
+        long rawDataId = buffer.getLong();
+        String data = new String(record, RECORD_FIXED_BYTES, record.length - RECORD_FIXED_BYTES,
+            StandardCharsets.UTF_8);
+        return new JournalRecord(partition, offset, timestamp, rawDataId, data);
+    }
+
+    /**
+     * 打开检查点文件，内容无效时从头恢复
+     */
+    private void openCheckpoint() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(CHECKPOINT_FILE).toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            checkpointBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * Long.BYTES);
+        }
+        long value = checkpointBuffer.getLong(0);
+        checkpoint = (value ^ CHECKPOINT_MASK) == checkpointBuffer.getLong(Long.BYTES) ? value : 0L;
+    }
+
+    private Segment mapSegment(long base) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+             FileChannel channel = raf.getChannel()) {
+            return new Segment(base, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        }
+    }
+
+    /**
+     * 段文件
+     */
+    private static final class Segment {
+
+        /** 基准位置 */
+        private final long base;
+
+        /** 文件路径 */
+        private final Path path;
+
+        /** 映射缓冲区 */
+        private final MappedByteBuffer buffer;
+
+        private Segment(long base, Path path, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.cepengine.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 预写日志记录
+ *
+ * 对应一条进入流水线的输入消息，恢复时按原始数据ID和来源位置重新发布
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+
+    /** 来源Kafka分区 */
+    private int partition;
+
+    /** 来源Kafka偏移量 */
+    private long offset;
+
+    /** 接收时间戳（毫秒） */
+    private long timestamp;
+
+    /** 原始数据ID */
+    private long rawDataId;
+
+    /** 消息内容 */
+    private String data;
+}
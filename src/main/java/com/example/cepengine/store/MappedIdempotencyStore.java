@@ -0,0 +1,392 @@
+package com.example.cepengine.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外幂等存储
+ *
+ * 基于内存映射文件的开放寻址哈希集合，记录已经输出过的结果，防止至少一次语义下的重复写入
+ *
+ * 主要功能：
+ * 1. 判断幂等键是否已出现，未出现时记录下来
+ * 2. 按时间分桶，过期的桶整体清空复用
+ * 3. 后台线程提前清空下一个纪元要使用的桶，输出线程进入新纪元时无需等待清空
+ * 4. 数据保存在映射文件中，应用重启后继续生效
+ *
+ * 设计特点：
+ * - 数据位于堆外，不产生GC压力，也不随数据量增长占用堆内存
+ * - 线性探测的开放寻址，单次判断只访问少量连续槽位
+ * - 判断和记录不加锁：槽位通过CAS写入，相同的键并发写入时只有一个线程成功
+ * - 比保留时长多分配一个备用桶，当前纪元内下一个纪元的桶已经过期，可以安全地提前清空
+ * - 替代数据库唯一约束判断，避免额外的数据库往返
+ *
+ * 文件布局：
+ * - 文件头：魔数、版本、桶数量、每桶槽位数、桶时间跨度
+ * - 每个桶（桶数量 + 1个）：桶纪元、已用槽位数、槽位数组（long，0表示空槽位）
+ */
+@Slf4j
+@Component
+public class MappedIdempotencyStore {
+
+    /** 文件魔数 */
+    private static final long MAGIC = 0x4345504944454D50L;
+
+    /** 文件格式版本 */
+    private static final int VERSION = 2;
+
+    /** 文件头大小（字节） */
+    private static final int FILE_HEADER_BYTES = 64;
+
+    /** 桶头大小（字节）：纪元 + 已用槽位数 */
+    private static final int BUCKET_HEADER_BYTES = 16;
+
+    /** 单个桶允许的最大装载因子，超过后不再记录新键 */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    /** 桶纪元标记：正在清空，查找时跳过 */
+    private static final long CLEARING = Long.MIN_VALUE;
+
+    /** 按long访问映射缓冲区，支持volatile读写和CAS */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /** 是否启用幂等判断 */
+    @Value("${app.idempotency.enabled:true}")
+    private boolean enabled;
+
+    /** 映射文件路径 */
+    @Value("${app.idempotency.path:./data/idempotency.dat}")
+    private String path;
+
+    /** 时间桶数量，保留时长 = 桶数量 × 桶时间跨度 */
+    @Value("${app.idempotency.bucket-count:12}")
+    private int bucketCount;
+
+    /** 每个时间桶的时间跨度（毫秒） */
+    @Value("${app.idempotency.bucket-span-ms:300000}")
+    private long bucketSpanMs;
+
+    /** 每个时间桶的槽位数，必须为2的幂 */
+    @Value("${app.idempotency.slots-per-bucket:1048576}")
+    private int slotsPerBucket;
+
+    /** 映射缓冲区 */
+    private MappedByteBuffer buffer;
+
+    /** 文件中的桶数量，比保留的桶多一个备用桶 */
+    private int physicalBuckets;
+
+    /** 每个桶的清空锁，只在桶进入新纪元时使用 */
+    private Object[] rollLocks;
+
+    /** 每个桶占用的字节数 */
+    private long bucketBytes;
+
+    /** 每个桶允许记录的最大键数量 */
+    private long maxKeysPerBucket;
+
+    /** 识别到的重复键数量 */
+    private final AtomicLong duplicateCount = new AtomicLong();
+
+    /** 桶已满而未能记录的键数量 */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * 打开或创建映射文件
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            log.info("幂等存储未启用");
+            return;
+        }
+        if (Integer.bitCount(slotsPerBucket) != 1) {
+            throw new IllegalArgumentException("slots-per-bucket必须为2的幂: " + slotsPerBucket);
+        }
+
+        physicalBuckets = bucketCount + 1;
+        rollLocks = new Object[physicalBuckets];
+        for (int i = 0; i < physicalBuckets; i++) {
+            rollLocks[i] = new Object();
+        }
+        bucketBytes = BUCKET_HEADER_BYTES + (long) slotsPerBucket * Long.BYTES;
+        maxKeysPerBucket = (long) (slotsPerBucket * MAX_LOAD_FACTOR);
+        long fileBytes = FILE_HEADER_BYTES + bucketBytes * physicalBuckets;
+        if (fileBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("幂等存储文件过大，请减少桶数量或槽位数: " + fileBytes);
+        }
+
+        Path filePath = Paths.get(path);
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            boolean reuse = file.length() == fileBytes;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            if (!reuse || !headerMatches()) {
+                initialize();
+                log.info("已创建幂等存储：路径={}, 大小={}MB", path, fileBytes >> 20);
+            } else {
+                log.info("已加载幂等存储：路径={}, 保留时长={}ms", path, bucketSpanMs * bucketCount);
+            }
+        }
+    }
+
+    /**
+     * 判断幂等键是否首次出现，首次出现时记录下来
+     *
+     * @param key 幂等键，不能为0
+     * @return true表示首次出现，可以写入；false表示重复，应跳过
+     */
+    public boolean markIfAbsent(long key) {
+        return markIfAbsent(key, System.currentTimeMillis());
+    }
+
+    /**
+     * 判断幂等键在指定时间是否首次出现，首次出现时记录下来
+     *
+     * @param key 幂等键，不能为0
+     * @param nowMs 当前时间（毫秒）
+     * @return true表示首次出现，可以写入；false表示重复，应跳过
+     */
+    public boolean markIfAbsent(long key, long nowMs) {
+        if (buffer == null) {
+            return true;
+        }
+
+        long epoch = nowMs / bucketSpanMs;
+        int current = (int) Math.floorMod(epoch, (long) physicalBuckets);
+        rollBucket(current, epoch);
+
+        // 在之前未过期的桶中查找，当前桶的查找和写入由insert一次完成
+        for (int i = 1; i < bucketCount; i++) {
+            int bucket = (int) Math.floorMod(epoch - i, (long) physicalBuckets);
+            if (isLive(bucket, epoch) && contains(bucket, key)) {
+                duplicateCount.incrementAndGet();
+                return false;
+            }
+        }
+
+        if (!insert(current, key)) {
+            duplicateCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 判断幂等键是否已经记录，不修改存储
+     *
+     * 用于先写入后记录的场景：写入成功后再调用markIfAbsent，写入失败时消息重新投递不会被误判为重复
+     *
+     * @param key 幂等键，不能为0
+     * @return true表示已记录
+     */
+    public boolean contains(long key) {
+        if (buffer == null) {
+            return false;
+        }
+
+        long epoch = System.currentTimeMillis() / bucketSpanMs;
+        for (int i = 0; i < bucketCount; i++) {
+            int bucket = (int) Math.floorMod(epoch - i, (long) physicalBuckets);
+            if (isLive(bucket, epoch) && contains(bucket, key)) {
+                duplicateCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将映射内容刷写到磁盘
+     */
+    public synchronized void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 获取识别到的重复键数量
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * 获取因桶已满而未能记录的键数量
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * 应用关闭时刷写映射内容
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * 提前清空下一个纪元要使用的桶
+     *
+     * 当前纪元内该桶保存的是已经过期的纪元，清空不影响去重结果
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.prepare-interval-ms:1000}")
+    public void prepareNextBucket() {
+        if (buffer == null) {
+            return;
+        }
+        long next = System.currentTimeMillis() / bucketSpanMs + 1;
+        rollBucket((int) Math.floorMod(next, (long) physicalBuckets), next);
+    }
+
+    /**
+     * 桶不属于指定纪元时清空并切换到该纪元
+     *
+     * 通常由prepareNextBucket提前完成；后台清空落后时由首个进入新纪元的线程完成，其余线程等待
+     */
+    private void rollBucket(int bucket, long epoch) {
+        int offset = bucketOffset(bucket);
+        if ((long) LONGS.getAcquire(buffer, offset) == epoch) {
+            return;
+        }
+        synchronized (rollLocks[bucket]) {
+            long bucketEpoch = (long) LONGS.getAcquire(buffer, offset);
+            if (bucketEpoch == epoch) {
+                return;
+            }
+            if (bucketEpoch > epoch) {
+                // 时钟回拨：保留较新的纪元，回拨期间的键仍写入该桶
+                return;
+            }
+            LONGS.setVolatile(buffer, offset, CLEARING);
+            int slotsStart = offset + BUCKET_HEADER_BYTES;
+            for (int i = 0; i < slotsPerBucket; i++) {
+                buffer.putLong(slotOffset(slotsStart, i), 0L);
+            }
+            buffer.putLong(offset + Long.BYTES, 0L);
+            LONGS.setRelease(buffer, offset, epoch);
+        }
+    }
+
+    /**
+     * 桶在指定纪元是否仍在保留期内
+     */
+    private boolean isLive(int bucket, long epoch) {
+        long bucketEpoch = (long) LONGS.getAcquire(buffer, bucketOffset(bucket));
+        return bucketEpoch != CLEARING && bucketEpoch <= epoch && bucketEpoch > epoch - bucketCount;
+    }
+
+    /**
+     * 在桶中查找键
+     */
+    private boolean contains(int bucket, long key) {
+        int slotsStart = bucketOffset(bucket) + BUCKET_HEADER_BYTES;
+        int mask = slotsPerBucket - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        for (int probe = 0; probe < slotsPerBucket; probe++) {
+            long value = (long) LONGS.getAcquire(buffer, slotOffset(slotsStart, slot));
+            if (value == 0L) {
+                return false;
+            }
+            if (value == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 在当前桶中查找键，不存在时通过CAS写入空槽位；桶已满时放弃记录
+     *
+     * @return true表示键首次出现，false表示桶中已有该键
+     */
+    private boolean insert(int bucket, long key) {
+        int offset = bucketOffset(bucket);
+        int slotsStart = offset + BUCKET_HEADER_BYTES;
+        int mask = slotsPerBucket - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        for (int probe = 0; probe < slotsPerBucket; probe++) {
+            int slotOffset = slotOffset(slotsStart, slot);
+            long value = (long) LONGS.getAcquire(buffer, slotOffset);
+            if (value == key) {
+                return false;
+            }
+            if (value == 0L) {
+                if ((long) LONGS.getAcquire(buffer, offset + Long.BYTES) >= maxKeysPerBucket) {
+                    if (overflowCount.getAndIncrement() == 0) {
+                        log.warn("幂等存储时间桶已满，超出部分不再去重，请增大slots-per-bucket或缩短bucket-span-ms");
+                    }
+                    return true;
+                }
+                if (LONGS.compareAndSet(buffer, slotOffset, 0L, key)) {
+                    LONGS.getAndAdd(buffer, offset + Long.BYTES, 1L);
+                    return true;
+                }
+                // 其他线程刚写入该槽位，重新判断是否为同一个键
+                if ((long) LONGS.getVolatile(buffer, slotOffset) == key) {
+                    return false;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return true;
+    }
+
+    private int bucketOffset(int bucket) {
+        return (int) (FILE_HEADER_BYTES + bucket * bucketBytes);
+    }
+
+    private int slotOffset(int slotsStart, int slot) {
+        return slotsStart + slot * Long.BYTES;
+    }
+
+    /**
+     * 校验文件头与当前配置是否一致
+     */
+    private boolean headerMatches() {
+        return buffer.getLong(0) == MAGIC
+            && buffer.getInt(8) == VERSION
+            && buffer.getInt(12) == bucketCount
+            && buffer.getInt(16) == slotsPerBucket
+            && buffer.getLong(24) == bucketSpanMs;
+    }
+
+    /**
+     * 初始化文件头，所有桶标记为空
+     */
+    private void initialize() {
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, VERSION);
+        buffer.putInt(12, bucketCount);
+        buffer.putInt(16, slotsPerBucket);
+        buffer.putLong(24, bucketSpanMs);
+        for (int bucket = 0; bucket < physicalBuckets; bucket++) {
+            int offset = bucketOffset(bucket);
+            buffer.putLong(offset, CLEARING);
+            buffer.putLong(offset + Long.BYTES, 0L);
+        }
+        buffer.force();
+    }
+}
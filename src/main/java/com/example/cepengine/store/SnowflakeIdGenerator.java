@@ -0,0 +1,89 @@
+package com.example.cepengine.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 雪花ID生成器
+ *
+ * 在本地生成全局唯一、趋势递增的64位ID，无需数据库往返
+ *
+ * ID结构（高位到低位）：
+ * - 1位符号位，固定为0
+ * - 41位毫秒时间戳（相对自定义纪元）
+ * - 10位节点ID
+ * - 12位毫秒内序列号
+ *
+ * 设计特点：
+ * - 单节点每毫秒最多生成4096个ID，超出时等待下一毫秒
+ * - 时钟回拨时沿用上次的时间戳继续递增序列，保证ID不重复
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator {
+
+    /** 自定义纪元：2024-01-01T00:00:00Z */
+    private static final long EPOCH_MS = 1704067200000L;
+
+    /** 节点ID位数 */
+    private static final int WORKER_BITS = 10;
+
+    /** 序列号位数 */
+    private static final int SEQUENCE_BITS = 12;
+
+    /** 最大节点ID */
+    private static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    /** 序列号掩码 */
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /** 节点ID，多实例部署时每个实例必须不同 */
+    @Value("${app.id.worker-id:0}")
+    private long workerId;
+
+    /** 上次生成ID的时间戳 */
+    private long lastTimestamp = -1L;
+
+    /** 当前毫秒内的序列号 */
+    private long sequence = 0L;
+
+    /**
+     * 校验节点ID
+     */
+    @PostConstruct
+    public void init() {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("app.id.worker-id必须在0到" + MAX_WORKER_ID + "之间: " + workerId);
+        }
+        log.info("雪花ID生成器已初始化：节点ID={}", workerId);
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return 全局唯一ID
+     */
+    public synchronized long nextId() {
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 当前毫秒的序列号已用完，等待下一毫秒
+                while (timestamp <= lastTimestamp) {
+                    timestamp = System.currentTimeMillis();
+                }
+            }
+        } else {
+            sequence = 0L;
+        }
+
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH_MS) << (WORKER_BITS + SEQUENCE_BITS))
+            | (workerId << SEQUENCE_BITS)
+            | sequence;
+    }
+}
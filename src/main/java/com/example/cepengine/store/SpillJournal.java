@@ -0,0 +1,292 @@
+package com.example.cepengine.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.CRC32;
+
+/**
+ * 本地溢出日志
+ *
+ * 基于内存映射文件的有界环形日志，在下游（数据库、Kafka）不可用时暂存失败记录
+ *
+ * 主要功能：
+ * 1. 在尾部追加记录，空间不足时拒绝写入
+ * 2. 从头部按写入顺序读取记录，处理成功后再移除
+ * 3. 数据保存在映射文件中，应用重启后继续排空
+ *
+ * 设计特点：
+ * - 容量固定，下游长时间故障时不会占满磁盘或堆内存
+ * - 读写位置为单调递增的逻辑位置，物理位置 = 逻辑位置 % 容量
+ * - 每条记录带CRC32校验，崩溃留下的残缺记录在读取时跳过
+ *
+ * 文件布局：
+ * - 文件头：魔数、版本、数据区容量、头部位置、尾部位置、记录数
+ * - 数据区：记录长度（int）、CRC32（int）、记录内容；长度为-1表示回绕到数据区起点
+ */
+@Slf4j
+@Component
+public class SpillJournal {
+
+    /** 文件魔数 */
+    private static final long MAGIC = 0x43455053504C4C4AL;
+
+    /** 文件格式版本 */
+    private static final int VERSION = 1;
+
+    /** 文件头大小（字节） */
+    private static final int FILE_HEADER_BYTES = 64;
+
+    /** 记录头大小（字节）：长度 + CRC32 */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /** 回绕标记 */
+    private static final int WRAP_MARKER = -1;
+
+    /** 文件头中各字段的偏移量 */
+    private static final int HEAD_OFFSET = 24;
+    private static final int TAIL_OFFSET = 32;
+    private static final int COUNT_OFFSET = 40;
+
+    /** 映射文件路径 */
+    @Value("${app.failure.journal.path:./data/spill.journal}")
+    private String path;
+
+    /** 数据区容量（字节） */
+    @Value("${app.failure.journal.capacity-bytes:67108864}")
+    private int capacity;
+
+    /** 每次追加后是否刷盘 */
+    @Value("${app.failure.journal.fsync:false}")
+    private boolean fsync;
+
+    /** 映射缓冲区 */
+    private MappedByteBuffer buffer;
+
+    /** 头部逻辑位置，下一条待读取记录的位置 */
+    private long head;
+
+    /** 尾部逻辑位置，下一条记录的写入位置 */
+    private long tail;
+
+    /** 当前记录数 */
+    private long count;
+
+    /**
+     * 打开或创建映射文件
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        long fileBytes = (long) FILE_HEADER_BYTES + capacity;
+        if (capacity < 1024 || fileBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.failure.journal.capacity-bytes超出范围: " + capacity);
+        }
+
+        Path filePath = Paths.get(path);
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            boolean reuse = file.length() == fileBytes;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            if (reuse && headerMatches()) {
+                head = buffer.getLong(HEAD_OFFSET);
+                tail = buffer.getLong(TAIL_OFFSET);
+                count = buffer.getLong(COUNT_OFFSET);
+                log.info("已加载溢出日志：路径={}, 待排空记录={}, 已用={}KB", path, count, (tail - head) >> 10);
+            } else {
+                initialize();
+                log.info("已创建溢出日志：路径={}, 容量={}MB", path, capacity >> 20);
+            }
+        }
+    }
+
+    /**
+     * 在尾部追加一条记录
+     *
+     * @param record 记录内容
+     * @return 是否写入成功，空间不足时返回false
+     */
+    public synchronized boolean append(byte[] record) {
+        int size = RECORD_HEADER_BYTES + record.length;
+        int position = physical(tail);
+        int padding = position + size > capacity ? capacity - position : 0;
+        if (size > capacity || tail - head + padding + size > capacity) {
+            return false;
+        }
+
+        if (padding > 0) {
+            if (padding >= RECORD_HEADER_BYTES) {
+                buffer.putInt(FILE_HEADER_BYTES + position, WRAP_MARKER);
+            }
+            position = 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        int offset = FILE_HEADER_BYTES + position;
+        buffer.putInt(offset, record.length);
+        buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        for (int i = 0; i < record.length; i++) {
+            buffer.put(offset + RECORD_HEADER_BYTES + i, record[i]);
+        }
+
+        // 记录内容写完后再推进尾部位置
+        tail += padding + size;
+        count++;
+        writePositions();
+        if (fsync) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * 读取头部记录，不移除
+     *
+     * @return 记录内容，日志为空时返回null
+     */
+    public synchronized byte[] peek() {
+        while (head < tail) {
+            skipWrap();
+            if (head >= tail) {
+                break;
+            }
+            int offset = FILE_HEADER_BYTES + physical(head);
+            int length = buffer.getInt(offset);
+            if (length < 0 || physical(head) + RECORD_HEADER_BYTES + length > capacity) {
+                log.error("溢出日志记录长度异常，丢弃剩余记录：位置={}, 长度={}", head, length);
+                reset();
+                return null;
+            }
+            byte[] record = new byte[length];
+            for (int i = 0; i < length; i++) {
+                record[i] = buffer.get(offset + RECORD_HEADER_BYTES + i);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() == buffer.getInt(offset + Integer.BYTES)) {
+                return record;
+            }
+            log.warn("溢出日志记录校验失败，已跳过：位置={}", head);
+            advance(RECORD_HEADER_BYTES + length);
+        }
+        return null;
+    }
+
+    /**
+     * 移除头部记录
+     */
+    public synchronized void remove() {
+        skipWrap();
+        if (head >= tail) {
+            return;
+        }
+        advance(RECORD_HEADER_BYTES + buffer.getInt(FILE_HEADER_BYTES + physical(head)));
+    }
+
+    /**
+     * 获取当前记录数
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * 获取已用字节数
+     */
+    public synchronized long usedBytes() {
+        return tail - head;
+    }
+
+    /**
+     * 应用关闭时刷写映射内容
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 头部位于回绕标记或数据区末尾放不下记录头时，跳到数据区起点
+     */
+    private void skipWrap() {
+        if (head >= tail) {
+            return;
+        }
+        int position = physical(head);
+        int remaining = capacity - position;
+        if (remaining < RECORD_HEADER_BYTES || buffer.getInt(FILE_HEADER_BYTES + position) == WRAP_MARKER) {
+            head += remaining;
+            writePositions();
+        }
+    }
+
+    /**
+     * 头部前进一条记录
+     */
+    private void advance(int size) {
+        head += size;
+        count = Math.max(0, count - 1);
+        if (head >= tail) {
+            // 日志已空，回到数据区起点，减少回绕
+            head = 0;
+            tail = 0;
+            count = 0;
+        }
+        writePositions();
+    }
+
+    /**
+     * 清空日志
+     */
+    private void reset() {
+        head = 0;
+        tail = 0;
+        count = 0;
+        writePositions();
+    }
+
+    private int physical(long position) {
+        return (int) (position % capacity);
+    }
+
+    private void writePositions() {
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * 校验文件头与当前配置是否一致
+     */
+    private boolean headerMatches() {
+        return buffer.getLong(0) == MAGIC
+            && buffer.getInt(8) == VERSION
+            && buffer.getInt(12) == capacity;
+    }
+
+    /**
+     * 初始化文件头
+     */
+    private void initialize() {
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, VERSION);
+        buffer.putInt(12, capacity);
+        reset();
+        buffer.force();
+    }
+}
@@ -0,0 +1,38 @@
+-- processed_data分区迁移
+-- 适用于按分区前的schema.sql建好的未分区processed_data表，只需执行一次
+-- 会重建整张表，请在低峰期执行
+-- 迁移后当天之前的数据进入p_history，当天的数据留在p_max，
+-- PartitionMaintenanceService从p_max中最新处理时间所在的日期开始拆分日分区，只复制当天的数据一次
+-- p_history不参与按分区的保留期清理，超过保留期后可整体DROP PARTITION p_history
+USE cep_engine;
+
+-- 删除外键，InnoDB分区表不支持外键，rule_id和raw_data_id的引用关系由应用保证
+SET @drop_foreign_keys = (
+    SELECT CONCAT('ALTER TABLE processed_data ',
+                  GROUP_CONCAT(CONCAT('DROP FOREIGN KEY ', CONSTRAINT_NAME) SEPARATOR ', '))
+    FROM information_schema.TABLE_CONSTRAINTS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'processed_data' AND CONSTRAINT_TYPE = 'FOREIGN KEY'
+);
+SET @drop_foreign_keys = IFNULL(@drop_foreign_keys, 'DO 0');
+PREPARE stmt FROM @drop_foreign_keys;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 主键加入分区列，补齐与schema.sql一致的索引，raw_data_id改为可空
+ALTER TABLE processed_data
+    MODIFY raw_data_id BIGINT NULL COMMENT '原始数据ID，定时器触发的输出为空',
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, processed_time),
+    ADD KEY idx_rule_time (rule_id, processed_time, id),
+    ADD KEY idx_time (processed_time, id),
+    ADD KEY idx_raw_data (raw_data_id);
+
+-- 按processed_time每日RANGE分区，分区边界只能是常量，按执行当天拼接
+SET @partition_by_day = CONCAT(
+    'ALTER TABLE processed_data PARTITION BY RANGE (TO_DAYS(processed_time)) (',
+    'PARTITION p_history VALUES LESS THAN (', TO_DAYS(CURRENT_DATE), '), ',
+    'PARTITION p_max VALUES LESS THAN MAXVALUE)'
+);
+PREPARE stmt FROM @partition_by_day;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
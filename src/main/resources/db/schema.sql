@@ -9,7 +9,7 @@ CREATE TABLE IF NOT EXISTS siddhi_rule (
     rule_content TEXT NOT NULL COMMENT 'Siddhi规则内容',
     input_stream VARCHAR(100) NOT NULL COMMENT '输入流名称',
     output_stream VARCHAR(100) NOT NULL COMMENT '输出流名称',
-    status TINYINT NOT NULL DEFAULT 1 COMMENT '规则状态：0-禁用，1-启用',
+    status TINYINT NOT NULL DEFAULT 1 COMMENT '规则状态：0-禁用，1-启用，2-降级（超出执行预算，在隔离通道中运行）',
     created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     UNIQUE KEY uk_rule_name (rule_name)
@@ -20,16 +20,43 @@ CREATE TABLE IF NOT EXISTS raw_data (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     data_content TEXT NOT NULL COMMENT '原始数据内容',
     source VARCHAR(50) NOT NULL COMMENT '数据来源',
-    created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+    created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_source_time (source, created_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='原始数据表';
 
 -- 处理结果表
+-- 按processed_time每日RANGE分区，过期数据通过DROP PARTITION整体清理（见PartitionMaintenanceService）
+-- 分区表的主键必须包含分区列，且InnoDB分区表不支持外键，rule_id和raw_data_id的引用关系由应用保证
+-- p_history存放建表前的历史数据，p_max兜底，日分区由维护服务从p_max中拆分出来
+-- 新建的表p_max为空，第一次拆分只修改元数据；已有的未分区表不会被CREATE TABLE IF NOT EXISTS改变，
+-- 需要执行processed_data_partition.sql迁移
 CREATE TABLE IF NOT EXISTS processed_data (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT NOT NULL AUTO_INCREMENT,
     rule_id BIGINT NOT NULL COMMENT '关联的规则ID',
-    raw_data_id BIGINT NOT NULL COMMENT '原始数据ID',
+    raw_data_id BIGINT NULL COMMENT '原始数据ID，定时器触发的输出为空',
     result_content TEXT NOT NULL COMMENT '处理结果内容',
     processed_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (rule_id) REFERENCES siddhi_rule(id),
-    FOREIGN KEY (raw_data_id) REFERENCES raw_data(id)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='处理结果表';
+    PRIMARY KEY (id, processed_time),
+    KEY idx_rule_time (rule_id, processed_time, id),
+    KEY idx_time (processed_time, id),
+    KEY idx_raw_data (raw_data_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='处理结果表'
+PARTITION BY RANGE (TO_DAYS(processed_time)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2024-01-01')),
+    PARTITION p_max VALUES LESS THAN MAXVALUE
+);
+
+-- 已有部署升级：raw_data_id改为可空，定时器触发的输出没有原始数据
+ALTER TABLE processed_data MODIFY raw_data_id BIGINT NULL COMMENT '原始数据ID，定时器触发的输出为空';
+
+-- 主题模式注册表
+-- 每次注册生成一个新版本，旧版本保留用于追溯，运行时使用最新版本
+CREATE TABLE IF NOT EXISTS topic_schema (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    topic_name VARCHAR(200) NOT NULL COMMENT 'Kafka主题名称',
+    version INT NOT NULL COMMENT '模式版本，从1开始递增',
+    stream_name VARCHAR(100) NOT NULL COMMENT 'Siddhi流名称',
+    fields TEXT NOT NULL COMMENT '字段列表（JSON数组）',
+    created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_topic_version (topic_name, version)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主题模式注册表';
@@ -0,0 +1,132 @@
+package com.example.cepengine.config.disruptor;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.service.DataPersistenceService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.example.cepengine.store.IdempotencyKeys;
+import com.example.cepengine.store.MappedIdempotencyStore;
+import com.example.cepengine.store.SnowflakeIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 告警通道事件处理器测试
+ */
+@ExtendWith(MockitoExtension.class)
+class AlertEventHandlerTest {
+
+    private static final String ALERT_TOPIC = "alert";
+
+    private static final String ALERT_OUTPUT_TOPIC = "alert-output";
+
+    private static final String MESSAGE = "{\"level\":\"critical\"}";
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private DataPersistenceService dataPersistenceService;
+
+    @Mock
+    private FailureHandlingService failureHandlingService;
+
+    @Mock
+    private MappedIdempotencyStore idempotencyStore;
+
+    @Mock
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private final SettableListenableFuture<SendResult<String, String>> sent = new SettableListenableFuture<>();
+
+    private AlertEventHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator();
+        idGenerator.init();
+        handler = new AlertEventHandler(kafkaTemplate, dataPersistenceService, failureHandlingService,
+            idempotencyStore, idGenerator, blockingIoExecutor);
+        ReflectionTestUtils.setField(handler, "alertTopic", ALERT_TOPIC);
+        ReflectionTestUtils.setField(handler, "alertOutputTopic", ALERT_OUTPUT_TOPIC);
+    }
+
+    @Test
+    void alertResultReferencesTheRawAlertPersistedBeforeIt() {
+        when(kafkaTemplate.send(ALERT_OUTPUT_TOPIC, MESSAGE)).thenReturn(sent);
+        when(dataPersistenceService.persistRaw(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(dataPersistenceService.persistProcessed(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        handler.onEvent(event(-1, -1L), 0, true);
+
+        ArgumentCaptor<RawData> rawData = ArgumentCaptor.forClass(RawData.class);
+        ArgumentCaptor<ProcessedData> processedData = ArgumentCaptor.forClass(ProcessedData.class);
+        InOrder order = inOrder(dataPersistenceService);
+        order.verify(dataPersistenceService).persistRaw(rawData.capture());
+        order.verify(dataPersistenceService).persistProcessed(processedData.capture());
+
+        assertThat(rawData.getValue().getId()).isNotNull();
+        assertThat(rawData.getValue().getDataContent()).isEqualTo(MESSAGE);
+        assertThat(rawData.getValue().getSource()).isEqualTo(ALERT_TOPIC);
+        assertThat(processedData.getValue().getRawDataId()).isEqualTo(rawData.getValue().getId());
+        assertThat(processedData.getValue().getRuleId()).isEqualTo(3L);
+        assertThat(processedData.getValue().getProcessedTime()).isEqualTo(rawData.getValue().getCreatedTime());
+    }
+
+    @Test
+    void idempotencyKeyIsRecordedAfterForwardAndBothWrites() {
+        CompletableFuture<Void> rawPersisted = new CompletableFuture<>();
+        when(kafkaTemplate.send(ALERT_OUTPUT_TOPIC, MESSAGE)).thenReturn(sent);
+        when(dataPersistenceService.persistRaw(any())).thenReturn(rawPersisted);
+        when(dataPersistenceService.persistProcessed(any())).thenReturn(CompletableFuture.completedFuture(null));
+        long key = IdempotencyKeys.ofRecord(IdempotencyKeys.SCOPE_ALERT, 2, 40L, 0);
+
+        handler.onEvent(event(2, 40L), 0, true);
+        sent.set(null);
+        verify(idempotencyStore, never()).markIfAbsent(anyLong());
+
+        rawPersisted.complete(null);
+        verify(idempotencyStore).markIfAbsent(key);
+    }
+
+    @Test
+    void replayedAlertIsNeitherForwardedNorPersisted() {
+        when(idempotencyStore.contains(IdempotencyKeys.ofRecord(IdempotencyKeys.SCOPE_ALERT, 2, 40L, 0)))
+            .thenReturn(true);
+
+        handler.onEvent(event(2, 40L), 0, true);
+
+        verifyNoInteractions(kafkaTemplate, dataPersistenceService);
+    }
+
+    private static AlertEvent event(int partition, long offset) {
+        AlertEvent event = new AlertEvent();
+        event.setMessage(MESSAGE);
+        event.setRuleId(3L);
+        event.setPartition(partition);
+        event.setOffset(offset);
+        event.setTimestamp(System.currentTimeMillis());
+        return event;
+    }
+}
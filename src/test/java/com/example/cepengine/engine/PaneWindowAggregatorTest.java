@@ -0,0 +1,191 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 原生时间窗口聚合算子测试
+ *
+ * 同一规则分别由原生算子和以回放模式运行的Siddhi评估，按显式时间戳逐条比较输出行，包括值的类型
+ */
+class PaneWindowAggregatorTest {
+
+    private static final String STREAMS = "define stream Trades (sym string, venue string, price double, qty int, vol long); ";
+
+    private static final String AGGREGATES = "from Trades#window.time(1 sec) "
+        + "select sym, sum(price) as sumPrice, avg(price) as avgPrice, sum(qty) as sumQty, avg(qty) as avgQty, "
+        + "sum(vol) as sumVol, count() as events ";
+
+    private static final String[] SYMBOLS = {"a", "b", "c"};
+
+    private static final String[] VENUES = {"x", "y"};
+
+    private SiddhiManager siddhiManager;
+
+    private SiddhiAppRuntime siddhi;
+
+    private PaneWindowAggregator aggregator;
+
+    private final List<Object[]> siddhiOutputs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        siddhiManager = new SiddhiManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    void matchesSiddhiForRandomInOrderEvents() throws InterruptedException {
+        start(AGGREGATES + "group by sym insert into Stats;", 1);
+        Random random = new Random(42);
+        long timestamp = 0;
+        for (int i = 0; i < 5_000; i++) {
+            timestamp += random.nextInt(300);
+            assertSameOutput(timestamp, randomRow(random));
+        }
+    }
+
+    @Test
+    void matchesSiddhiWithMultipleGroupByAttributes() throws InterruptedException {
+        start(AGGREGATES + ", venue group by sym, venue insert into Stats;", 1);
+        Random random = new Random(7);
+        long timestamp = 0;
+        for (int i = 0; i < 2_000; i++) {
+            timestamp += random.nextInt(200);
+            assertSameOutput(timestamp, randomRow(random));
+        }
+    }
+
+    @Test
+    void matchesSiddhiWithoutGroupBy() throws InterruptedException {
+        start(AGGREGATES + "insert into Stats;", 1);
+        Random random = new Random(11);
+        long timestamp = 0;
+        for (int i = 0; i < 2_000; i++) {
+            timestamp += random.nextInt(100);
+            assertSameOutput(timestamp, randomRow(random));
+        }
+    }
+
+    @Test
+    void onlyNullValuesGiveNullSumAndAvgButAreCounted() throws InterruptedException {
+        start(AGGREGATES + "group by sym insert into Stats;", 1);
+
+        assertSameOutput(0, new Object[]{"a", "x", 1.5, 2, 3L});
+        Object[] nulls = assertSameOutput(2_000, new Object[]{"a", "x", null, null, null});
+        assertThat(nulls).containsExactly("a", null, null, null, null, null, 1L);
+        assertSameOutput(2_100, new Object[]{"a", "x", 0.25, null, 4L});
+    }
+
+    @Test
+    void evictsWholePanesAlignedWithTheWindowStart() throws InterruptedException {
+        // 时间戳都落在窗格的最后一毫秒，窗口起点与窗格边界对齐，滑出的窗格与Siddhi逐条过期的事件一致
+        start(AGGREGATES + "group by sym insert into Stats;", 100);
+        Random random = new Random(3);
+        long pane = 0;
+        for (int i = 0; i < 2_000; i++) {
+            pane += random.nextInt(4);
+            assertSameOutput(pane * 100 + 99, randomRow(random));
+        }
+    }
+
+    @Test
+    void countsEarlyEventsInTheOldestPaneUntilThePaneSlidesOut() throws InterruptedException {
+        start(AGGREGATES + "group by sym insert into Stats;", 100);
+
+        assertSameOutput(150, new Object[]{"a", "x", 1.0, 1, 1L});
+        assertSameOutput(1_120, new Object[]{"a", "x", 2.0, 2, 2L});
+
+        // Siddhi的窗口为(160, 1160]，150已过期；它与窗口起点同在[100, 200)窗格中，原生算子仍计入
+        Object[] early = process(1_160, new Object[]{"a", "x", 4.0, 4, 4L});
+        assertThat(early).containsExactly("a", 7.0, 7.0 / 3, 7L, 7.0 / 3, 7L, 3L);
+        assertThat(siddhiOutputs.get(siddhiOutputs.size() - 1)).containsExactly("a", 6.0, 3.0, 6L, 3.0, 6L, 2L);
+
+        // 窗格滑出后重新一致
+        assertSameOutput(1_200, new Object[]{"a", "x", 8.0, 8, 8L});
+    }
+
+    @Test
+    void lateEventInsideTheWindowIsAggregatedLikeSiddhi() throws InterruptedException {
+        start(AGGREGATES + "group by sym insert into Stats;", 1);
+
+        assertSameOutput(1_000, new Object[]{"a", "x", 1.0, 1, 1L});
+        assertSameOutput(1_800, new Object[]{"a", "x", 2.0, 2, 2L});
+        assertSameOutput(1_200, new Object[]{"a", "x", 4.0, 4, 4L});
+    }
+
+    @Test
+    void lateEventBeforeTheWindowIsOnlyProjected() throws InterruptedException {
+        start(AGGREGATES + "group by sym insert into Stats;", 1);
+
+        assertSameOutput(1_000, new Object[]{"a", "x", 1.0, 1, 1L});
+        assertSameOutput(1_800, new Object[]{"a", "x", 2.0, 2, 2L});
+
+        // Siddhi把早于窗口起点的迟到事件放进窗口，原生算子只输出当前窗口的聚合值
+        Object[] late = process(500, new Object[]{"a", "x", 4.0, 4, 4L});
+        assertThat(late).containsExactly("a", 3.0, 1.5, 3L, 1.5, 3L, 2L);
+        assertThat(siddhiOutputs.get(siddhiOutputs.size() - 1)).containsExactly("a", 7.0, 7.0 / 3, 7L, 7.0 / 3, 7L, 3L);
+    }
+
+    private void start(String query, long paneMs) {
+        String app = STREAMS + query;
+        siddhi = siddhiManager.createSiddhiAppRuntime(app);
+        siddhi.addCallback("Stats", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    siddhiOutputs.add(event.getData());
+                }
+            }
+        });
+        siddhi.enablePlayBack(true, null, null);
+        siddhi.start();
+        aggregator = PaneWindowAggregator.extract(SiddhiCompiler.parse(app), "Trades", "Stats",
+            siddhi.getStreamDefinitionMap().get("Trades").getAttributeList(), paneMs, false);
+        assertThat(aggregator).isNotNull();
+    }
+
+    private Object[] assertSameOutput(long timestamp, Object[] row) throws InterruptedException {
+        Object[] output = process(timestamp, row);
+        assertThat(output).as("t=%d", timestamp).containsExactly(siddhiOutputs.get(siddhiOutputs.size() - 1));
+        return output;
+    }
+
+    private Object[] process(long timestamp, Object[] row) throws InterruptedException {
+        int before = siddhiOutputs.size();
+        InputHandler inputHandler = siddhi.getInputHandler("Trades");
+        inputHandler.send(timestamp, row.clone());
+        assertThat(siddhiOutputs).hasSize(before + 1);
+        return aggregator.process(timestamp, row);
+    }
+
+    /**
+     * 随机输入行，数值约五分之一为null；价格取0.25的倍数，浮点累加和减去过期值都没有舍入误差
+     */
+    private static Object[] randomRow(Random random) {
+        return new Object[]{
+            SYMBOLS[random.nextInt(SYMBOLS.length)],
+            VENUES[random.nextInt(VENUES.length)],
+            random.nextInt(5) == 0 ? null : random.nextInt(400) / 4.0,
+            random.nextInt(5) == 0 ? null : random.nextInt(200) - 100,
+            random.nextInt(5) == 0 ? null : (long) random.nextInt(1_000_000) * 1_000
+        };
+    }
+}
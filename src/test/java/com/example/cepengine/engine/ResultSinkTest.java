@@ -0,0 +1,125 @@
+package com.example.cepengine.engine;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.service.DataPersistenceService;
+import com.example.cepengine.service.FailureHandlingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 规则结果输出器测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ResultSinkTest {
+
+    private static final String OUTPUT_TOPIC = "output";
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private DataPersistenceService dataPersistenceService;
+
+    @Mock
+    private FailureHandlingService failureHandlingService;
+
+    @Mock
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private final SettableListenableFuture<SendResult<String, String>> sent = new SettableListenableFuture<>();
+
+    private ResultSink resultSink;
+
+    @BeforeEach
+    void setUp() {
+        resultSink = new ResultSink(kafkaTemplate, dataPersistenceService, failureHandlingService,
+            new ObjectMapper(), blockingIoExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(resultSink, "outputTopic", OUTPUT_TOPIC);
+        resultSink.init();
+    }
+
+    @Test
+    void emitCompletesAfterKafkaAckAndPersistence() {
+        ProcessedData result = result(1L);
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        when(kafkaTemplate.send(OUTPUT_TOPIC, "7", result.getResultContent())).thenReturn(sent);
+        when(dataPersistenceService.persistProcessed(result)).thenReturn(persisted);
+
+        CompletableFuture<Void> emitted = resultSink.emit(result).toCompletableFuture();
+        assertThat(resultSink.inFlightCount()).isEqualTo(1);
+
+        sent.set(null);
+        assertThat(emitted).isNotDone();
+
+        persisted.complete(null);
+        assertThat(emitted).isCompleted();
+        assertThat(resultSink.inFlightCount()).isZero();
+    }
+
+    @Test
+    void emitWithoutRawDataIdIsStillPersisted() {
+        ProcessedData result = result(null);
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        when(kafkaTemplate.send(OUTPUT_TOPIC, "7", result.getResultContent())).thenReturn(sent);
+        when(dataPersistenceService.persistProcessed(result)).thenReturn(persisted);
+
+        CompletableFuture<Void> emitted = resultSink.emit(result).toCompletableFuture();
+        sent.set(null);
+        assertThat(emitted).isNotDone();
+
+        persisted.complete(null);
+        assertThat(emitted).isCompleted();
+    }
+
+    @Test
+    void emitHandsFailedSendToFailureHandlingAndWaitsForPersistence() {
+        ProcessedData result = result(1L);
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        IllegalStateException failure = new IllegalStateException("broker down");
+        when(kafkaTemplate.send(OUTPUT_TOPIC, "7", result.getResultContent())).thenReturn(sent);
+        when(dataPersistenceService.persistProcessed(result)).thenReturn(persisted);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(blockingIoExecutor).execute(any());
+
+        CompletableFuture<Void> emitted = resultSink.emit(result).toCompletableFuture();
+        sent.setException(failure);
+
+        verify(failureHandlingService).submitKafka(OUTPUT_TOPIC, "7", result.getResultContent(), failure);
+        assertThat(emitted).isNotDone();
+
+        persisted.complete(null);
+        assertThatThrownBy(() -> emitted.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(resultSink.inFlightCount()).isZero();
+    }
+
+    private static ProcessedData result(Long rawDataId) {
+        ProcessedData result = new ProcessedData();
+        result.setRuleId(7L);
+        result.setRawDataId(rawDataId);
+        result.setResultContent("{\"count\":1}");
+        return result;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.cepengine.engine;
+
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 规则判别索引测试
+ *
+ * 索引给出的候选规则必须与逐条判断前置过滤条件的结果完全一致
+ */
+class RuleIndexTest {
+
+    private static final String STREAM = "define stream Readings (i int, l long, d double, s string, b bool); ";
+
+    private static final List<Attribute> ATTRIBUTES = Arrays.asList(
+        new Attribute("i", Attribute.Type.INT),
+        new Attribute("l", Attribute.Type.LONG),
+        new Attribute("d", Attribute.Type.DOUBLE),
+        new Attribute("s", Attribute.Type.STRING),
+        new Attribute("b", Attribute.Type.BOOL));
+
+    private static final String[] NUMERIC_OPERATORS = {">", ">=", "<", "<=", "==", "!="};
+
+    /** 2^53，超出后long不能无损转换为double */
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    @Test
+    void candidatesMatchPredicatesForRandomRulesAndPayloads() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < 20; round++) {
+            RulePredicate[] predicates = new RulePredicate[200];
+            for (int rule = 0; rule < predicates.length; rule++) {
+                predicates[rule] = random.nextInt(20) == 0 ? null : predicate(randomFilter(random));
+            }
+            RuleIndex index = RuleIndex.build(predicates);
+            for (int i = 0; i < 500; i++) {
+                assertSameAsPredicates(index, predicates, randomPayload(random));
+            }
+        }
+    }
+
+    @Test
+    void doubleBoundsKeepOpenAndClosedEnds() {
+        RulePredicate[] predicates = {predicate("d > 1.0 and d <= 2.0"), predicate("d >= 1.0 and d < 2.0")};
+        RuleIndex index = RuleIndex.build(predicates);
+
+        assertThat(index.candidates(payload("d", 1.0))).containsExactly(1);
+        assertThat(index.candidates(payload("d", 1.5))).isNull();
+        assertThat(index.candidates(payload("d", 2.0))).containsExactly(0);
+        assertThat(index.candidates(payload("d", Math.nextUp(1.0)))).isNull();
+        assertThat(index.candidates(payload("d", Double.NaN))).isEmpty();
+    }
+
+    @Test
+    void integerComparisonsBecomeClosedIntervals() {
+        RulePredicate[] predicates = {predicate("i > 3 and i < 5"), predicate("l > 3L and l < 4L"), predicate("i > 2.5")};
+        RuleIndex index = RuleIndex.build(predicates);
+
+        assertThat(index.candidates(payload("i", 4))).containsExactly(0, 2);
+        assertThat(index.candidates(payload("i", "4.7"))).isEmpty();
+        assertThat(index.candidates(payload("i", 4.7))).containsExactly(0, 2);
+        assertThat(index.candidates(payload("i", 3))).containsExactly(2);
+        assertThat(index.candidates(payload("l", 3.5))).isEmpty();
+        assertSameAsPredicates(index, predicates, payload("i", 5));
+    }
+
+    @Test
+    void contradictoryRangesAreNeverCandidates() {
+        RulePredicate[] predicates = {
+            predicate("i > 5 and i < 3"),
+            predicate("i > 3 and i < 4"),
+            predicate("d > 1.0 and d < 1.0"),
+            predicate("s == 'x' and s == 'y'"),
+            predicate("b == true")
+        };
+        RuleIndex index = RuleIndex.build(predicates);
+
+        for (Object value : new Object[]{3, 4, 3.5, 1.0, "x", "y"}) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("i", value);
+            attributes.put("d", value);
+            attributes.put("s", value);
+            assertThat(index.candidates(DecodedPayload.ofAttributes(attributes))).isEmpty();
+        }
+    }
+
+    @Test
+    void notEqualConditionsAreCheckedAfterTheIndex() {
+        RulePredicate[] predicates = {predicate("i >= 0 and i != 3"), predicate("s != 'x'"), predicate("d != 1.5")};
+        RuleIndex index = RuleIndex.build(predicates);
+
+        assertThat(index.candidates(attributes("i", 3, "s", "x", "d", 1.5))).isEmpty();
+        assertThat(index.candidates(attributes("i", 2, "s", "y", "d", 2.0))).isNull();
+        assertThat(index.candidates(attributes("i", -1, "s", "y", "d", 1.5))).containsExactly(1);
+        // 字段缺失时不等比较同样不成立
+        assertThat(index.candidates(payload("i", 4))).containsExactly(0);
+    }
+
+    @Test
+    void constantsBeyondExactDoubleRangeStayExact() {
+        long limit = EXACT_DOUBLE_LIMIT;
+        RulePredicate[] predicates = {
+            predicate("l > " + (limit + 1) + "L"),
+            predicate("l <= " + (limit - 1) + "L"),
+            predicate("l == " + (limit + 1) + "L"),
+            predicate("l > " + (limit - 2) + "L and l < " + limit + "L")
+        };
+        RuleIndex index = RuleIndex.build(predicates);
+
+        for (long value = limit - 3; value <= limit + 3; value++) {
+            assertSameAsPredicates(index, predicates, payload("l", value));
+        }
+        assertThat(index.candidates(payload("l", limit + 1))).containsExactly(2);
+        assertThat(index.candidates(payload("l", limit + 2))).containsExactly(0);
+        assertThat(index.candidates(payload("l", limit - 1))).containsExactly(1, 3);
+        assertThat(index.candidates(payload("l", Long.MAX_VALUE))).containsExactly(0);
+    }
+
+    private static void assertSameAsPredicates(RuleIndex index, RulePredicate[] predicates, DecodedPayload payload) {
+        List<Integer> expected = new ArrayList<>();
+        for (int rule = 0; rule < predicates.length; rule++) {
+            if (predicates[rule] == null || predicates[rule].test(payload)) {
+                expected.add(rule);
+            }
+        }
+        int[] candidates = index.candidates(payload);
+        List<Integer> actual = new ArrayList<>();
+        if (candidates == null) {
+            for (int rule = 0; rule < predicates.length; rule++) {
+                actual.add(rule);
+            }
+        } else {
+            Arrays.stream(candidates).forEach(actual::add);
+        }
+        assertThat(actual).as("payload=%s", describe(payload)).isEqualTo(expected);
+    }
+
+    private static RulePredicate predicate(String filter) {
+        RulePredicate predicate = RulePredicate.extract(
+            SiddhiCompiler.parse(STREAM + "from Readings[" + filter + "] select * insert into Alerts;"),
+            "Readings", ATTRIBUTES, false);
+        assertThat(predicate).as(filter).isNotNull();
+        return predicate;
+    }
+
+    /**
+     * 随机过滤条件：常量集中在小范围内，同一属性上的多个比较经常重叠或矛盾
+     */
+    private static String randomFilter(Random random) {
+        int size = 1 + random.nextInt(4);
+        List<String> conditions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    conditions.add("i " + numericOperator(random) + " " + integerLiteral(random, false));
+                    break;
+                case 1:
+                    conditions.add("l " + numericOperator(random) + " " + integerLiteral(random, true));
+                    break;
+                case 2:
+                    conditions.add("d " + numericOperator(random) + " " + doubleLiteral(random));
+                    break;
+                case 3:
+                    conditions.add("s " + (random.nextBoolean() ? "==" : "!=") + " '" + (char) ('x' + random.nextInt(3)) + "'");
+                    break;
+                default:
+                    conditions.add("b " + (random.nextBoolean() ? "==" : "!=") + " " + random.nextBoolean());
+                    break;
+            }
+        }
+        return String.join(" and ", conditions);
+    }
+
+    private static String numericOperator(Random random) {
+        return NUMERIC_OPERATORS[random.nextInt(NUMERIC_OPERATORS.length)];
+    }
+
+    private static String integerLiteral(Random random, boolean asLong) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return doubleLiteral(random);
+            case 1:
+                return (EXACT_DOUBLE_LIMIT + random.nextInt(5) - 2) + "L";
+            default:
+                int value = random.nextInt(11) - 5;
+                return asLong ? value + "L" : String.valueOf(value);
+        }
+    }
+
+    private static String doubleLiteral(Random random) {
+        return String.valueOf((random.nextInt(21) - 10) / 2.0);
+    }
+
+    /**
+     * 随机消息：字段可能缺失、为数字字符串或无法转换的字符串，数值覆盖区间端点和2^53附近
+     */
+    private static DecodedPayload randomPayload(Random random) {
+        Map<String, Object> attributes = new HashMap<>();
+        putRandom(attributes, "i", random, randomNumber(random));
+        putRandom(attributes, "l", random, random.nextInt(4) == 0
+            ? EXACT_DOUBLE_LIMIT + random.nextInt(7) - 3 : randomNumber(random));
+        putRandom(attributes, "d", random, random.nextInt(20) == 0 ? Double.NaN : randomNumber(random));
+        putRandom(attributes, "s", random, String.valueOf((char) ('w' + random.nextInt(4))));
+        putRandom(attributes, "b", random, random.nextInt(3) == 0 ? "true" : random.nextBoolean());
+        return DecodedPayload.ofAttributes(attributes);
+    }
+
+    private static Object randomNumber(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return (random.nextInt(25) - 12) / 2.0;
+            case 1:
+                return String.valueOf(random.nextInt(13) - 6);
+            default:
+                return random.nextInt(13) - 6;
+        }
+    }
+
+    private static void putRandom(Map<String, Object> attributes, String name, Random random, Object value) {
+        int choice = random.nextInt(10);
+        if (choice == 0) {
+            return;
+        }
+        attributes.put(name, choice == 1 ? "n/a" : value);
+    }
+
+    private static DecodedPayload payload(String name, Object value) {
+        return attributes(name, value);
+    }
+
+    private static DecodedPayload attributes(Object... namesAndValues) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            attributes.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return DecodedPayload.ofAttributes(attributes);
+    }
+
+    private static String describe(DecodedPayload payload) {
+        StringBuilder description = new StringBuilder();
+        for (Attribute attribute : ATTRIBUTES) {
+            description.append(attribute.getName()).append('=').append(payload.get(attribute.getName())).append(' ');
+        }
+        return description.toString();
+    }
+}
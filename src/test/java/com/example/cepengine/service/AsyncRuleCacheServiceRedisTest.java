@@ -0,0 +1,182 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.mapper.SiddhiRuleMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_PREFIX;
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_TTL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步规则缓存服务Redis测试
+ *
+ * 使用嵌入式Redis和真实的Lettuce响应式连接，缓存内容通过同步模板检查，确认两条路径使用同一组键
+ */
+@ExtendWith(MockitoExtension.class)
+class AsyncRuleCacheServiceRedisTest {
+
+    @Mock
+    private SiddhiRuleMapper siddhiRuleMapper;
+
+    private RedisServer redisServer;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private AsyncRuleCacheService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port = freePort();
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        blockingIoExecutor = new BlockingIoExecutor();
+        ReflectionTestUtils.setField(blockingIoExecutor, "dbConcurrency", 2);
+        ReflectionTestUtils.setField(blockingIoExecutor, "fallbackThreads", 1);
+        blockingIoExecutor.init();
+        service = new AsyncRuleCacheService(new ReactiveStringRedisTemplate(connectionFactory), siddhiRuleMapper,
+            blockingIoExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        connectionFactory.destroy();
+        redisServer.stop();
+        blockingIoExecutor.shutdown();
+    }
+
+    @Test
+    void putRulesWritesTheKeysOfTheSyncCache() throws Exception {
+        service.putRules(Arrays.asList(rule(1L), rule(2L))).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(redisTemplate.opsForValue().get(RULE_CACHE_PREFIX + 1)).isEqualTo(content(1L));
+        assertThat(redisTemplate.opsForValue().get(RULE_CACHE_PREFIX + 2)).isEqualTo(content(2L));
+        assertThat(redisTemplate.getExpire(RULE_CACHE_PREFIX + 1, TimeUnit.HOURS))
+            .isBetween(RULE_CACHE_TTL - 1, RULE_CACHE_TTL);
+    }
+
+    @Test
+    void cachedRulesAreReadWithoutTheDatabase() throws Exception {
+        cache(1L, 2L);
+
+        assertThat(service.getRuleContent(1L).toCompletableFuture().get(5, TimeUnit.SECONDS))
+            .isEqualTo(content(1L));
+        assertThat(service.getRuleContents(Arrays.asList(1L, 2L)).toCompletableFuture().get(5, TimeUnit.SECONDS))
+            .containsOnly(entry(1L, content(1L)), entry(2L, content(2L)));
+        verifyNoInteractions(siddhiRuleMapper);
+    }
+
+    @Test
+    void missesAreLoadedFromTheDatabaseAndBackfilled() throws Exception {
+        cache(1L);
+        when(siddhiRuleMapper.findByIds(Arrays.asList(2L, 3L))).thenReturn(Collections.singletonList(rule(2L)));
+
+        Map<Long, String> contents = service.getRuleContents(Arrays.asList(1L, 2L, 3L))
+            .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(contents).containsOnly(entry(1L, content(1L)), entry(2L, content(2L)));
+        // 回填不阻塞返回，等待写入Redis
+        assertThat(awaitCached(RULE_CACHE_PREFIX + 2)).isEqualTo(content(2L));
+        assertThat(redisTemplate.hasKey(RULE_CACHE_PREFIX + 3)).isFalse();
+    }
+
+    @Test
+    void singleMissOfAnUnknownRuleGivesNull() throws Exception {
+        when(siddhiRuleMapper.findByIds(Collections.singletonList(9L))).thenReturn(Collections.emptyList());
+
+        assertThat(service.getRuleContent(9L).toCompletableFuture().get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(redisTemplate.hasKey(RULE_CACHE_PREFIX + 9)).isFalse();
+    }
+
+    @Test
+    void bulkReadSpanningSeveralChunksReturnsEveryRule() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        Map<String, String> cached = new HashMap<>();
+        for (long id = 1; id <= 2_500; id++) {
+            ids.add(id);
+            cached.put(RULE_CACHE_PREFIX + id, content(id));
+        }
+        redisTemplate.opsForValue().multiSet(cached);
+
+        Map<Long, String> contents = service.getRuleContents(ids).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertThat(contents).hasSize(ids.size()).containsEntry(2_500L, content(2_500L));
+        verifyNoInteractions(siddhiRuleMapper);
+    }
+
+    @Test
+    void evictRulesDeletesOnlyExistingKeys() throws Exception {
+        cache(1L, 2L, 4L);
+
+        assertThat(service.evictRules(Arrays.asList(1L, 2L, 3L)).toCompletableFuture().get(5, TimeUnit.SECONDS))
+            .isEqualTo(2L);
+        assertThat(redisTemplate.hasKey(RULE_CACHE_PREFIX + 1)).isFalse();
+        assertThat(redisTemplate.hasKey(RULE_CACHE_PREFIX + 4)).isTrue();
+    }
+
+    private void cache(Long... ids) {
+        for (Long id : ids) {
+            redisTemplate.opsForValue().set(RULE_CACHE_PREFIX + id, content(id));
+        }
+    }
+
+    private String awaitCached(String key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String value = redisTemplate.opsForValue().get(key);
+        while (value == null && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            value = redisTemplate.opsForValue().get(key);
+        }
+        return value;
+    }
+
+    private static SiddhiRule rule(Long id) {
+        SiddhiRule rule = new SiddhiRule();
+        rule.setId(id);
+        rule.setRuleContent(content(id));
+        return rule;
+    }
+
+    private static String content(Long id) {
+        return "from In[v > " + id + "] select v insert into Out;";
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
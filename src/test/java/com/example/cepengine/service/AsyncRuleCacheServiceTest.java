@@ -0,0 +1,121 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.SiddhiRule;
+import com.example.cepengine.mapper.SiddhiRuleMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_PREFIX;
+import static com.example.cepengine.service.SiddhiRuleService.RULE_CACHE_TTL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步规则缓存服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class AsyncRuleCacheServiceTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SiddhiRuleMapper siddhiRuleMapper;
+
+    @Mock
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private AsyncRuleCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AsyncRuleCacheService(reactiveRedisTemplate, siddhiRuleMapper, blockingIoExecutor);
+    }
+
+    @Test
+    void getRuleContentReturnsCachedContentWithoutQueryingDatabase() throws Exception {
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(RULE_CACHE_PREFIX + 1L)).thenReturn(Mono.just("cached"));
+
+        String content = service.getRuleContent(1L).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(content).isEqualTo("cached");
+        verifyNoInteractions(siddhiRuleMapper, blockingIoExecutor);
+    }
+
+    @Test
+    void getRuleContentsLoadsMissesFromDatabaseAndBackfillsCache() throws Exception {
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(Arrays.asList(RULE_CACHE_PREFIX + 1L, RULE_CACHE_PREFIX + 2L)))
+            .thenReturn(Mono.just(Arrays.asList("first", null)));
+        when(valueOperations.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        runDbInline();
+        when(siddhiRuleMapper.findByIds(Collections.singletonList(2L)))
+            .thenReturn(Collections.singletonList(rule(2L, "second")));
+
+        Map<Long, String> contents = service.getRuleContents(Arrays.asList(1L, 2L))
+            .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(contents).containsEntry(1L, "first").containsEntry(2L, "second").hasSize(2);
+        verify(valueOperations).set(RULE_CACHE_PREFIX + 2L, "second", Duration.ofHours(RULE_CACHE_TTL));
+        verify(valueOperations, never()).set(eq(RULE_CACHE_PREFIX + 1L), any(), any(Duration.class));
+    }
+
+    @Test
+    void getRuleContentReturnsNullForUnknownRule() throws Exception {
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(RULE_CACHE_PREFIX + 3L)).thenReturn(Mono.empty());
+        runDbInline();
+        when(siddhiRuleMapper.findByIds(Collections.singletonList(3L))).thenReturn(Collections.emptyList());
+
+        String content = service.getRuleContent(3L).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(content).isNull();
+    }
+
+    @Test
+    void evictRulesSkipsRedisForEmptyInput() throws Exception {
+        Long deleted = service.evictRules(Collections.emptyList()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(deleted).isZero();
+        verifyNoInteractions(reactiveRedisTemplate);
+    }
+
+    /**
+     * 数据库查询直接在调用线程上执行
+     */
+    private void runDbInline() {
+        when(blockingIoExecutor.supplyDb(any())).thenAnswer(invocation ->
+            CompletableFuture.completedFuture(invocation.<Supplier<?>>getArgument(0).get()));
+    }
+
+    private static SiddhiRule rule(Long id, String content) {
+        SiddhiRule rule = new SiddhiRule();
+        rule.setId(id);
+        rule.setRuleContent(content);
+        return rule;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.mapper.RawDataMapper;
+import com.example.cepengine.store.SnowflakeIdGenerator;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 异步数据持久化服务数据库测试
+ *
+ * 使用MariaDB兼容模式的H2内存库和真实的MyBatis映射器，覆盖多值INSERT、按ID重试不重复落库和写入失败转交
+ */
+@ExtendWith(MockitoExtension.class)
+class DataPersistenceServiceDatabaseTest {
+
+    /** 与schema.sql一致的原始数据表，去掉MariaDB专有的表选项 */
+    private static final String RAW_DATA_TABLE = "CREATE TABLE raw_data ("
+        + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+        + "data_content TEXT NOT NULL, "
+        + "source VARCHAR(50) NOT NULL, "
+        + "created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    /** 与schema.sql一致的处理结果表，H2不支持分区，只保留分区表的联合主键 */
+    private static final String PROCESSED_DATA_TABLE = "CREATE TABLE processed_data ("
+        + "id BIGINT NOT NULL AUTO_INCREMENT, "
+        + "rule_id BIGINT NOT NULL, "
+        + "raw_data_id BIGINT NULL, "
+        + "result_content TEXT NOT NULL, "
+        + "processed_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+        + "PRIMARY KEY (id, processed_time))";
+
+    @Mock
+    private FailureHandlingService failureHandlingService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private SnowflakeIdGenerator idGenerator;
+
+    private DataPersistenceService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(RAW_DATA_TABLE);
+        jdbcTemplate.execute(PROCESSED_DATA_TABLE);
+
+        Configuration configuration = new Configuration(
+            new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(RawDataMapper.class);
+        configuration.addMapper(ProcessedDataMapper.class);
+        SqlSessionTemplate sqlSession = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration));
+
+        blockingIoExecutor = new BlockingIoExecutor();
+        ReflectionTestUtils.setField(blockingIoExecutor, "dbConcurrency", 4);
+        ReflectionTestUtils.setField(blockingIoExecutor, "fallbackThreads", 1);
+        blockingIoExecutor.init();
+        idGenerator = new SnowflakeIdGenerator();
+        idGenerator.init();
+
+        service = new DataPersistenceService(sqlSession.getMapper(RawDataMapper.class),
+            sqlSession.getMapper(ProcessedDataMapper.class), failureHandlingService, blockingIoExecutor, idGenerator);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4096);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 10L);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+        blockingIoExecutor.shutdown();
+    }
+
+    @Test
+    void rawDataAndItsResultsAreWritten() throws Exception {
+        RawData rawData = rawData();
+        ProcessedData first = processed(rawData.getId());
+        ProcessedData second = processed(rawData.getId());
+
+        CompletableFuture.allOf(
+            service.persistRaw(rawData).toCompletableFuture(),
+            service.persistProcessed(first).toCompletableFuture(),
+            service.persistProcessed(second).toCompletableFuture()
+        ).get(5, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT data_content FROM raw_data WHERE id = ?", String.class,
+            rawData.getId())).isEqualTo(rawData.getDataContent());
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM processed_data WHERE raw_data_id = ? ORDER BY id",
+            Long.class, rawData.getId())).containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+
+    @Test
+    void resultsWithoutRawDataAreWritten() throws Exception {
+        ProcessedData timerOutput = processed(null);
+
+        service.persistProcessed(timerOutput).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM processed_data WHERE id = ? AND raw_data_id IS NULL",
+            Integer.class, timerOutput.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void retriedRowsAreWrittenOnce() throws Exception {
+        RawData rawData = rawData();
+        ProcessedData result = processed(rawData.getId());
+        service.persistRaw(rawData).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        service.persistProcessed(result).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        // 失败重试沿用入队时分配的ID和处理时间，再次写入被忽略且正常完成
+        service.persistRaw(rawData).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        service.persistProcessed(result).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM raw_data", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM processed_data", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void manyInFlightWritesAllComplete() throws Exception {
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            RawData rawData = rawData();
+            written.add(service.persistRaw(rawData).toCompletableFuture());
+            written.add(service.persistProcessed(processed(rawData.getId())).toCompletableFuture());
+        }
+
+        CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM raw_data", Integer.class)).isEqualTo(1_000);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM processed_data", Integer.class)).isEqualTo(1_000);
+        assertThat(service.flush(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.pendingCount()).isZero();
+    }
+
+    @Test
+    void failedBatchCompletesExceptionallyAndGoesToFailureHandling() {
+        jdbcTemplate.execute("DROP TABLE processed_data");
+        ProcessedData result = processed(null);
+
+        CompletableFuture<Void> written = service.persistProcessed(result).toCompletableFuture();
+
+        assertThatThrownBy(() -> written.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        verify(failureHandlingService).submitProcessed(same(result), any());
+    }
+
+    private RawData rawData() {
+        RawData rawData = new RawData();
+        rawData.setId(idGenerator.nextId());
+        rawData.setDataContent("{\"v\":" + rawData.getId() + "}");
+        rawData.setSource("sensors");
+        return rawData;
+    }
+
+    private static ProcessedData processed(Long rawDataId) {
+        ProcessedData processedData = new ProcessedData();
+        processedData.setRuleId(7L);
+        processedData.setRawDataId(rawDataId);
+        processedData.setResultContent("{\"count\":1}");
+        return processedData;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.config.execution.BlockingIoExecutor;
+import com.example.cepengine.entity.ProcessedData;
+import com.example.cepengine.entity.RawData;
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import com.example.cepengine.mapper.RawDataMapper;
+import com.example.cepengine.store.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步数据持久化服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class DataPersistenceServiceTest {
+
+    @Mock
+    private RawDataMapper rawDataMapper;
+
+    @Mock
+    private ProcessedDataMapper processedDataMapper;
+
+    @Mock
+    private FailureHandlingService failureHandlingService;
+
+    @Mock
+    private BlockingIoExecutor blockingIoExecutor;
+
+    private DataPersistenceService service;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator();
+        idGenerator.init();
+        service = new DataPersistenceService(rawDataMapper, processedDataMapper, failureHandlingService,
+            blockingIoExecutor, idGenerator);
+        ReflectionTestUtils.setField(service, "queueCapacity", 16);
+        ReflectionTestUtils.setField(service, "batchSize", 8);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 10L);
+        // 批次直接在写入线程上执行
+        when(blockingIoExecutor.runDb(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return CompletableFuture.completedFuture(null);
+        });
+        when(blockingIoExecutor.awaitDbIdle(30, TimeUnit.SECONDS)).thenReturn(true);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void persistRawCompletesAfterBatchIsWritten() throws Exception {
+        RawData rawData = rawData(1L);
+
+        service.persistRaw(rawData).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        verify(rawDataMapper).insertBatch(Collections.singletonList(rawData));
+        assertThat(rawData.getCreatedTime()).isNotNull();
+    }
+
+    @Test
+    void persistProcessedCompletesAfterBatchIsWritten() throws Exception {
+        ProcessedData processedData = processedData(1L);
+
+        service.persistProcessed(processedData).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        verify(processedDataMapper).insertBatch(Collections.singletonList(processedData));
+        assertThat(processedData.getId()).isNotNull();
+        assertThat(processedData.getProcessedTime()).isNotNull();
+    }
+
+    @Test
+    void persistProcessedKeepsAssignedIdForRetries() throws Exception {
+        ProcessedData processedData = processedData(1L);
+        processedData.setId(42L);
+
+        service.persistProcessed(processedData).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(processedData.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void persistProcessedFailsAndHandsOverWhenInsertFails() {
+        ProcessedData processedData = processedData(2L);
+        IllegalStateException failure = new IllegalStateException("db down");
+        doThrow(failure).when(processedDataMapper).insertBatch(any());
+
+        CompletableFuture<Void> persisted = service.persistProcessed(processedData).toCompletableFuture();
+
+        assertThatThrownBy(() -> persisted.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCause(failure);
+        verify(failureHandlingService).submitProcessed(processedData, failure);
+    }
+
+    private static RawData rawData(Long id) {
+        RawData rawData = new RawData();
+        rawData.setId(id);
+        rawData.setDataContent("{\"value\":1}");
+        rawData.setSource("input");
+        return rawData;
+    }
+
+    private static ProcessedData processedData(Long rawDataId) {
+        ProcessedData processedData = new ProcessedData();
+        processedData.setRuleId(7L);
+        processedData.setRawDataId(rawDataId);
+        processedData.setResultContent("{\"count\":1}");
+        return processedData;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.cepengine.service;
+
+import com.example.cepengine.mapper.ProcessedDataMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 处理结果表分区维护服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class PartitionMaintenanceServiceTest {
+
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    @Mock
+    private ProcessedDataMapper processedDataMapper;
+
+    private PartitionMaintenanceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PartitionMaintenanceService(processedDataMapper);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "retentionDays", 30);
+        ReflectionTestUtils.setField(service, "precreateDays", 2);
+    }
+
+    @Test
+    void emptyMaxPartitionStartsFromToday() {
+        LocalDate today = LocalDate.now();
+        when(processedDataMapper.findPartitionNames()).thenReturn(Arrays.asList("p_history", "p_max"));
+
+        service.maintain();
+
+        InOrder order = inOrder(processedDataMapper);
+        for (int i = 0; i <= 2; i++) {
+            LocalDate day = today.plusDays(i);
+            order.verify(processedDataMapper).addPartition(day.format(PARTITION_FORMAT), day.plusDays(1).toString());
+        }
+        verify(processedDataMapper, times(3)).addPartition(anyString(), anyString());
+    }
+
+    @Test
+    void rowsInMaxPartitionGoToTheirLatestDayOnce() {
+        LocalDate today = LocalDate.now();
+        LocalDate lastDaily = today.minusDays(10);
+        LocalDate latest = today.minusDays(3);
+        when(processedDataMapper.findPartitionNames())
+            .thenReturn(Arrays.asList("p_history", lastDaily.format(PARTITION_FORMAT), "p_max"));
+        when(processedDataMapper.findLatestTimeInMaxPartition()).thenReturn(latest.atTime(12, 0));
+
+        service.maintain();
+
+        // 最后一个日分区与最新数据之间的日期不单独拆分，p_max中的行只复制一次
+        verify(processedDataMapper, never())
+            .addPartition(lastDaily.plusDays(1).format(PARTITION_FORMAT), lastDaily.plusDays(2).toString());
+        verify(processedDataMapper).addPartition(latest.format(PARTITION_FORMAT), latest.plusDays(1).toString());
+        verify(processedDataMapper, times(6)).addPartition(anyString(), anyString());
+    }
+}
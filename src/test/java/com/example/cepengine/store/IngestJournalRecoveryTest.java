@@ -0,0 +1,120 @@
+package com.example.cepengine.store;
+
+import com.example.cepengine.config.disruptor.CompletionTracker;
+import com.example.cepengine.config.disruptor.DataEvent;
+import com.example.cepengine.config.disruptor.JournalEventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 输入预写日志恢复测试
+ *
+ * 用真实的日志文件和日志阶段处理器模拟恢复途中的崩溃：崩溃后重新打开同一目录，检查未完成的记录仍然可以重放
+ */
+class IngestJournalRecoveryTest {
+
+    /** 每条记录约1.5KB，4KB的段文件只能放两条，检查点越过时会删除旧段 */
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void crashBeforeReplayedRecordsAreRejournaledKeepsThem() throws IOException {
+        IngestJournal crashed = open();
+        for (String data : Arrays.asList(payload('a'), payload('b'), payload('c'))) {
+            crashed.append(0, data.charAt(0), 1L, data.charAt(0), data);
+        }
+        crashed.sync();
+
+        IngestJournal recovering = open();
+        RingBuffer<DataEvent> ringBuffer = RingBuffer.createSingleProducer(DataEvent::new, 8);
+        Sequence sink = new Sequence(-1L);
+        ringBuffer.addGatingSequences(sink);
+        JournalEventHandler handler = new JournalEventHandler(recovering, ringBuffer, new CompletionTracker(recovering));
+        long last = recovering.replayUncommitted(record -> publish(ringBuffer, record));
+        assertThat(last).isEqualTo(2L);
+
+        // 日志阶段只重新写入了第一条，输出阶段也处理完了它
+        handler.onEvent(ringBuffer.get(0), 0, true);
+        sink.set(0);
+        handler.onEvent(ringBuffer.get(0), 0, true);
+        assertThat(recovering.isRecovering()).isTrue();
+
+        // 此时崩溃：重新打开后第二、三条仍然可以重放
+        assertThat(replayedData(open())).contains(payload('b'), payload('c'));
+    }
+
+    @Test
+    void recoveryEndsOnceEveryReplayedRecordIsRejournaled() throws IOException {
+        IngestJournal crashed = open();
+        for (String data : Arrays.asList(payload('a'), payload('b'))) {
+            crashed.append(0, data.charAt(0), 1L, data.charAt(0), data);
+        }
+        crashed.sync();
+
+        IngestJournal recovering = open();
+        RingBuffer<DataEvent> ringBuffer = RingBuffer.createSingleProducer(DataEvent::new, 8);
+        Sequence sink = new Sequence(-1L);
+        ringBuffer.addGatingSequences(sink);
+        JournalEventHandler handler = new JournalEventHandler(recovering, ringBuffer, new CompletionTracker(recovering));
+        long last = recovering.replayUncommitted(record -> publish(ringBuffer, record));
+
+        handler.onEvent(ringBuffer.get(0), 0, false);
+        handler.onEvent(ringBuffer.get(1), 1, true);
+        assertThat(recovering.isRecovering()).isFalse();
+
+        // 输出阶段处理完后检查点越过所有记录，再次打开时没有需要重放的内容
+        sink.set(last);
+        handler.onEvent(ringBuffer.get(1), 1, true);
+        assertThat(replayedData(open())).isEmpty();
+    }
+
+    private IngestJournal open() throws IOException {
+        IngestJournal journal = new IngestJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "path", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", SEGMENT_BYTES);
+        journal.open();
+        return journal;
+    }
+
+    private static long publish(RingBuffer<DataEvent> ringBuffer, JournalRecord record) {
+        long sequence = ringBuffer.next();
+        DataEvent event = ringBuffer.get(sequence);
+        event.setData(record.getData());
+        event.setRawDataId(record.getRawDataId());
+        event.setPartition(record.getPartition());
+        event.setOffset(record.getOffset());
+        event.setTimestamp(record.getTimestamp());
+        event.setCaptureRaw(true);
+        ringBuffer.publish(sequence);
+        return sequence;
+    }
+
+    private static List<String> replayedData(IngestJournal journal) {
+        List<String> data = new ArrayList<>();
+        journal.replayUncommitted(record -> {
+            data.add(record.getData());
+            return -1L;
+        });
+        return data;
+    }
+
+    private static String payload(char marker) {
+        char[] content = new char[1500];
+        Arrays.fill(content, marker);
+        return new String(content);
+    }
+}
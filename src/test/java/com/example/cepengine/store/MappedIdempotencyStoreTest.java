@@ -0,0 +1,164 @@
+package com.example.cepengine.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 堆外幂等存储测试
+ */
+class MappedIdempotencyStoreTest {
+
+    private static final long SPAN_MS = 1_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentMarksOfTheSameKeyLetExactlyOneThrough() throws Exception {
+        MappedIdempotencyStore store = open("concurrent.dat", 3, SPAN_MS, 1 << 16);
+        int threads = 8;
+        int keys = 5_000;
+        AtomicIntegerArray firsts = new AtomicIntegerArray(keys);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < keys; i++) {
+                        // 各线程从不同位置开始，同一时刻争抢不同的键
+                        int k = (i + offset * 611) % keys;
+                        if (store.markIfAbsent(k + 1L, 0L)) {
+                            firsts.incrementAndGet(k);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int k = 0; k < keys; k++) {
+            assertThat(firsts.get(k)).as("key %d", k + 1).isEqualTo(1);
+        }
+        assertThat(store.getDuplicateCount()).isEqualTo((long) keys * (threads - 1));
+    }
+
+    @Test
+    void keysExpireAfterBucketCountEpochs() throws IOException {
+        MappedIdempotencyStore store = open("expiry.dat", 3, SPAN_MS, 1 << 10);
+
+        assertThat(store.markIfAbsent(42L, 0L)).isTrue();
+        assertThat(store.markIfAbsent(42L, SPAN_MS - 1)).isFalse();
+        assertThat(store.markIfAbsent(42L, SPAN_MS)).isFalse();
+        assertThat(store.markIfAbsent(42L, 3 * SPAN_MS - 1)).isFalse();
+
+        // 第3个纪元时第0个纪元的桶已滑出保留期，键重新记录到当前桶
+        assertThat(store.markIfAbsent(42L, 3 * SPAN_MS)).isTrue();
+        // 第4个纪元复用第0个纪元的物理桶，第3个纪元记录的键仍然有效
+        assertThat(store.markIfAbsent(42L, 4 * SPAN_MS)).isFalse();
+        assertThat(store.markIfAbsent(43L, 4 * SPAN_MS)).isTrue();
+        assertThat(store.markIfAbsent(42L, 6 * SPAN_MS)).isTrue();
+    }
+
+    @Test
+    void prepareNextBucketClearsOnlyTheExpiredBucket() throws IOException {
+        // 桶跨度足够长，测试期间不会进入下一个纪元
+        long span = TimeUnit.DAYS.toMillis(10);
+        int bucketCount = 3;
+        MappedIdempotencyStore store = open("prepare.dat", bucketCount, span, 1 << 10);
+        long epoch = System.currentTimeMillis() / span;
+        // 与下一个纪元共用物理桶的已过期纪元
+        long expiredEpoch = epoch + 1 - (bucketCount + 1);
+
+        assertThat(store.markIfAbsent(7L, expiredEpoch * span)).isTrue();
+        assertThat(store.markIfAbsent(8L, epoch * span)).isTrue();
+        assertThat(store.markIfAbsent(9L, (epoch - 1) * span)).isTrue();
+
+        store.prepareNextBucket();
+
+        // 过期纪元的桶已提前清空并切换到下一个纪元，其中的键不再被识别
+        assertThat(store.markIfAbsent(7L, expiredEpoch * span)).isTrue();
+        // 保留期内的桶不受影响
+        assertThat(store.markIfAbsent(8L, epoch * span)).isFalse();
+        assertThat(store.markIfAbsent(9L, epoch * span)).isFalse();
+        // 进入下一个纪元时无需再清空，提前写入的键仍在
+        assertThat(store.markIfAbsent(7L, (epoch + 1) * span)).isFalse();
+        assertThat(store.markIfAbsent(8L, (epoch + 1) * span)).isFalse();
+    }
+
+    @Test
+    void reopeningTheFileKeepsRecordedKeys() throws IOException {
+        MappedIdempotencyStore store = open("restart.dat", 3, SPAN_MS, 1 << 10);
+        assertThat(store.markIfAbsent(100L, 0L)).isTrue();
+        assertThat(store.markIfAbsent(200L, SPAN_MS)).isTrue();
+        store.close();
+
+        MappedIdempotencyStore restarted = open("restart.dat", 3, SPAN_MS, 1 << 10);
+        assertThat(restarted.markIfAbsent(100L, 2 * SPAN_MS)).isFalse();
+        assertThat(restarted.markIfAbsent(200L, 2 * SPAN_MS)).isFalse();
+        assertThat(restarted.markIfAbsent(300L, 2 * SPAN_MS)).isTrue();
+    }
+
+    @Test
+    void reopeningWithAnotherLayoutStartsEmpty() throws IOException {
+        MappedIdempotencyStore store = open("layout.dat", 3, SPAN_MS, 1 << 10);
+        assertThat(store.markIfAbsent(100L, 0L)).isTrue();
+        store.close();
+
+        MappedIdempotencyStore resized = open("layout.dat", 3, SPAN_MS, 1 << 11);
+        assertThat(resized.markIfAbsent(100L, 0L)).isTrue();
+    }
+
+    @Test
+    void keysBeyondTheLoadFactorLimitAreNotRecorded() throws IOException {
+        // 16个槽位，装载因子0.75，最多记录12个键
+        MappedIdempotencyStore store = open("overflow.dat", 3, SPAN_MS, 16);
+        for (long key = 1; key <= 12; key++) {
+            assertThat(store.markIfAbsent(key, 0L)).isTrue();
+        }
+        assertThat(store.getOverflowCount()).isZero();
+
+        assertThat(store.markIfAbsent(13L, 0L)).isTrue();
+        assertThat(store.markIfAbsent(13L, 0L)).isTrue();
+        assertThat(store.getOverflowCount()).isEqualTo(2);
+
+        // 已记录的键仍然去重，下一个纪元的桶重新开始计数
+        assertThat(store.markIfAbsent(5L, 0L)).isFalse();
+        assertThat(store.markIfAbsent(13L, SPAN_MS)).isTrue();
+        assertThat(store.markIfAbsent(13L, SPAN_MS)).isFalse();
+    }
+
+    private MappedIdempotencyStore open(String file, int bucketCount, long bucketSpanMs, int slotsPerBucket)
+        throws IOException {
+        MappedIdempotencyStore store = new MappedIdempotencyStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "path", directory.resolve(file).toString());
+        ReflectionTestUtils.setField(store, "bucketCount", bucketCount);
+        ReflectionTestUtils.setField(store, "bucketSpanMs", bucketSpanMs);
+        ReflectionTestUtils.setField(store, "slotsPerBucket", slotsPerBucket);
+        store.open();
+        return store;
+    }
+}